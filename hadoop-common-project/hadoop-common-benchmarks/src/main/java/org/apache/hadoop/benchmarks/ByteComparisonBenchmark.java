@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmarks;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableComparator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks raw byte comparison through
+ * {@link WritableComparator#compareBytes}, which is backed by
+ * FastByteComparisons, and the registered raw comparator of {@link Text}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ByteComparisonBenchmark {
+
+  /** Length of the compared arrays in bytes. */
+  @Param({"8", "64", "1024"})
+  private int length;
+
+  /** Arrays are equal up to the last byte, the worst case for comparison. */
+  private byte[] left;
+  private byte[] right;
+  private byte[] leftText;
+  private byte[] rightText;
+  private WritableComparator textComparator;
+
+  @Setup
+  public void setup() throws IOException {
+    Random random = new Random(0);
+    left = new byte[length];
+    random.nextBytes(left);
+    right = left.clone();
+    right[length - 1]++;
+
+    textComparator = WritableComparator.get(Text.class);
+    leftText = serialize(new Text(left));
+    rightText = serialize(new Text(right));
+  }
+
+  private static byte[] serialize(Text text) throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    text.write(out);
+    byte[] data = new byte[out.getLength()];
+    System.arraycopy(out.getData(), 0, data, 0, data.length);
+    return data;
+  }
+
+  @Benchmark
+  public int compareBytes() {
+    return WritableComparator.compareBytes(
+        left, 0, left.length, right, 0, right.length);
+  }
+
+  @Benchmark
+  public int compareTextRaw() {
+    return textComparator.compare(
+        leftText, 0, leftText.length, rightText, 0, rightText.length);
+  }
+
+  @Benchmark
+  public int hashBytes() {
+    return WritableComparator.hashBytes(left, left.length);
+  }
+}
@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmarks;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.CompressionInputStream;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks compression and decompression through {@link CodecPool}
+ * pooled compressors.  Codecs are looked up by name with
+ * {@link CompressionCodecFactory}; native-only codecs such as snappy, lz4
+ * or zstandard can be selected with <code>-p codecName=snappy</code> when
+ * libhadoop is available.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+
+  @Param({"default", "gzip", "bzip2"})
+  private String codecName;
+
+  /** Size of the uncompressed input in bytes. */
+  @Param({"1048576"})
+  private int dataSize;
+
+  private CompressionCodec codec;
+  private Compressor compressor;
+  private Decompressor decompressor;
+  private byte[] data;
+  private byte[] compressed;
+  private final DataOutputBuffer out = new DataOutputBuffer();
+  private final DataInputBuffer in = new DataInputBuffer();
+  private final byte[] readBuffer = new byte[64 * 1024];
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    Configuration conf = new Configuration();
+    codec = new CompressionCodecFactory(conf).getCodecByName(codecName);
+    if (codec == null) {
+      throw new IllegalArgumentException("Unknown codec " + codecName);
+    }
+    // moderately compressible text-like data
+    Random random = new Random(0);
+    data = new byte[dataSize];
+    for (int i = 0; i < dataSize; i++) {
+      data[i] = (byte) ('a' + Math.abs((int) (random.nextGaussian() * 6)));
+    }
+    compressor = CodecPool.getCompressor(codec);
+    decompressor = CodecPool.getDecompressor(codec);
+    DataOutputBuffer buffer = compress();
+    compressed = Arrays.copyOf(buffer.getData(), buffer.getLength());
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    CodecPool.returnCompressor(compressor);
+    CodecPool.returnDecompressor(decompressor);
+  }
+
+  @Benchmark
+  public DataOutputBuffer compress() throws IOException {
+    out.reset();
+    if (compressor != null) {
+      compressor.reset();
+    }
+    CompressionOutputStream cout = codec.createOutputStream(out, compressor);
+    cout.write(data, 0, data.length);
+    cout.finish();
+    return out;
+  }
+
+  @Benchmark
+  public long decompress() throws IOException {
+    in.reset(compressed, compressed.length);
+    if (decompressor != null) {
+      decompressor.reset();
+    }
+    CompressionInputStream cin = codec.createInputStream(in, decompressor);
+    long total = 0;
+    int n;
+    while ((n = cin.read(readBuffer, 0, readBuffer.length)) > 0) {
+      total += n;
+    }
+    return total;
+  }
+
+  @Benchmark
+  public Compressor borrowAndReturnCompressor() {
+    Compressor c = CodecPool.getCompressor(codec);
+    CodecPool.returnCompressor(c);
+    return c;
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.fs.ChecksumException;
+import org.apache.hadoop.util.DataChecksum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks chunked checksum calculation and verification in
+ * {@link DataChecksum}, over heap and direct buffers.  Direct buffers take
+ * the native path when libhadoop is loaded.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DataChecksumBenchmark {
+
+  @Param({"CRC32", "CRC32C"})
+  private DataChecksum.Type type;
+
+  @Param({"512"})
+  private int bytesPerChecksum;
+
+  /** Size of the checksummed data, a typical packet size by default. */
+  @Param({"65536"})
+  private int dataSize;
+
+  @Param({"false", "true"})
+  private boolean direct;
+
+  private DataChecksum checksum;
+  private ByteBuffer data;
+  private ByteBuffer sums;
+  private byte[] dataArray;
+
+  @Setup
+  public void setup() {
+    checksum = DataChecksum.newDataChecksum(type, bytesPerChecksum);
+    dataArray = new byte[dataSize];
+    new Random(0).nextBytes(dataArray);
+    int sumsSize = checksum.getChecksumSize(dataSize);
+    if (direct) {
+      data = ByteBuffer.allocateDirect(dataSize);
+      sums = ByteBuffer.allocateDirect(sumsSize);
+    } else {
+      data = ByteBuffer.allocate(dataSize);
+      sums = ByteBuffer.allocate(sumsSize);
+    }
+    data.put(dataArray);
+    data.flip();
+    checksum.calculateChunkedSums(data, sums);
+  }
+
+  @Benchmark
+  public ByteBuffer calculateChunkedSums() {
+    checksum.calculateChunkedSums(data, sums);
+    return sums;
+  }
+
+  @Benchmark
+  public ByteBuffer verifyChunkedSums() throws ChecksumException {
+    checksum.verifyChunkedSums(data, sums, "benchmark", 0);
+    return data;
+  }
+
+  @Benchmark
+  public long update() {
+    checksum.reset();
+    checksum.update(dataArray, 0, dataArray.length);
+    return checksum.getValue();
+  }
+}
@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.util.LightWeightGSet;
+import org.apache.hadoop.util.LightWeightGSet.LinkedElement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks lookups and updates in {@link LightWeightGSet}, the hash set
+ * backing the NameNode blocks map and inode map.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LightWeightGSetBenchmark {
+
+  /** Number of elements in the set. */
+  @Param({"1024", "1048576"})
+  private int size;
+
+  /** Ratio of elements to hash table capacity. */
+  @Param({"1"})
+  private int loadFactor;
+
+  private LightWeightGSet<Element, Element> set;
+  private Element[] elements;
+  private int next;
+
+  /** A set element keyed by a long id, similar to a block. */
+  static final class Element implements LinkedElement {
+    private final long id;
+    private LinkedElement nextElement;
+
+    Element(long id) {
+      this.id = id;
+    }
+
+    @Override
+    public void setNext(LinkedElement next) {
+      this.nextElement = next;
+    }
+
+    @Override
+    public LinkedElement getNext() {
+      return nextElement;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) (id ^ (id >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Element && ((Element) o).id == id;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    set = new LightWeightGSet<Element, Element>(
+        Math.max(1, size / loadFactor));
+    elements = new Element[size];
+    for (int i = 0; i < size; i++) {
+      // spread ids the way generation stamps and block ids are spread
+      elements[i] = new Element(1073741825L + i * 7L);
+      set.put(elements[i]);
+    }
+  }
+
+  private Element nextElement() {
+    Element e = elements[next];
+    next = next + 1 == size ? 0 : next + 1;
+    return e;
+  }
+
+  @Benchmark
+  public Element get() {
+    return set.get(nextElement());
+  }
+
+  @Benchmark
+  public Element getMissing() {
+    return set.get(new Element(-nextElement().id));
+  }
+
+  @Benchmark
+  public Element removeAndPut() {
+    Element e = nextElement();
+    set.remove(e);
+    return set.put(e);
+  }
+}
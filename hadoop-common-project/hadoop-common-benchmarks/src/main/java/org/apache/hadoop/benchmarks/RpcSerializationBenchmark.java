@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.ipc.ClientId;
+import org.apache.hadoop.ipc.ResponseBuffer;
+import org.apache.hadoop.ipc.RPC;
+import org.apache.hadoop.ipc.RpcWritable;
+import org.apache.hadoop.ipc.protobuf.ProtobufRpcEngineProtos.RequestHeaderProto;
+import org.apache.hadoop.ipc.protobuf.RpcHeaderProtos.RpcRequestHeaderProto;
+import org.apache.hadoop.ipc.protobuf.RpcHeaderProtos.RpcRequestHeaderProto.OperationProto;
+import org.apache.hadoop.util.ProtoUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the protobuf serialization path of an IPC request: the
+ * client building and writing the rpc and request headers into a
+ * {@link ResponseBuffer}, and the server decoding them with
+ * {@link RpcWritable.Buffer}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RpcSerializationBenchmark {
+
+  private static final String PROTOCOL =
+      "org.apache.hadoop.hdfs.protocol.ClientProtocol";
+  private static final int FRAMING_BYTES = 4;
+
+  private final byte[] clientId = ClientId.getClientId();
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+  private RequestHeaderProto requestHeader;
+  private byte[] serialized;
+  private int callId;
+
+  @Setup
+  public void setup() throws IOException {
+    requestHeader = RequestHeaderProto.newBuilder()
+        .setMethodName("getFileInfo")
+        .setDeclaringClassProtocolName(PROTOCOL)
+        .setClientProtocolVersion(1L)
+        .build();
+    serializeRequest();
+    serialized = out.toByteArray();
+  }
+
+  /**
+   * Writes a framed request the way the client does for every call.
+   */
+  @Benchmark
+  public ByteArrayOutputStream serializeRequest() throws IOException {
+    RpcRequestHeaderProto header = ProtoUtil.makeRpcRequestHeader(
+        RPC.RpcKind.RPC_PROTOCOL_BUFFER, OperationProto.RPC_FINAL_PACKET,
+        callId++, 0, clientId);
+    ResponseBuffer buffer = new ResponseBuffer();
+    header.writeDelimitedTo(buffer);
+    requestHeader.writeDelimitedTo(buffer);
+    out.reset();
+    buffer.writeTo(out);
+    return out;
+  }
+
+  /**
+   * Decodes the headers of a framed request the way the server does.
+   */
+  @Benchmark
+  public RequestHeaderProto deserializeRequest() throws IOException {
+    ByteBuffer bb = ByteBuffer.wrap(serialized);
+    // skip the length framing, the server reads it off the socket
+    bb.position(FRAMING_BYTES);
+    RpcWritable.Buffer request = RpcWritable.Buffer.wrap(bb);
+    RpcRequestHeaderProto header =
+        request.getValue(RpcRequestHeaderProto.getDefaultInstance());
+    if (header.getCallId() < 0) {
+      throw new IllegalStateException("Unexpected call id");
+    }
+    return request.getValue(RequestHeaderProto.getDefaultInstance());
+  }
+}
@@ -0,0 +1,115 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks UTF-8 encoding, decoding and serialization of {@link Text}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TextBenchmark {
+
+  /** Length of the string in characters. */
+  @Param({"16", "256", "4096"})
+  private int length;
+
+  /** Whether the string contains multi-byte characters. */
+  @Param({"false", "true"})
+  private boolean unicode;
+
+  private String string;
+  private byte[] utf8;
+  private Text text;
+  private final Text reusable = new Text();
+  private final DataOutputBuffer out = new DataOutputBuffer();
+  private final DataInputBuffer in = new DataInputBuffer();
+  private byte[] serialized;
+
+  @Setup
+  public void setup() throws IOException {
+    StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      sb.append(unicode && i % 4 == 0 ? (char) (0x4e00 + i % 512)
+          : (char) ('a' + i % 26));
+    }
+    string = sb.toString();
+    text = new Text(string);
+    utf8 = text.copyBytes();
+    out.reset();
+    text.write(out);
+    serialized = out.getData().clone();
+  }
+
+  @Benchmark
+  public ByteBuffer encode() throws IOException {
+    return Text.encode(string);
+  }
+
+  @Benchmark
+  public String decode() throws IOException {
+    return Text.decode(utf8);
+  }
+
+  @Benchmark
+  public Text set() {
+    reusable.set(string);
+    return reusable;
+  }
+
+  @Benchmark
+  public String textToString() {
+    return text.toString();
+  }
+
+  @Benchmark
+  public DataOutputBuffer write() throws IOException {
+    out.reset();
+    text.write(out);
+    return out;
+  }
+
+  @Benchmark
+  public Text readFields() throws IOException {
+    in.reset(serialized, serialized.length);
+    reusable.readFields(in);
+    return reusable;
+  }
+}
@@ -59,6 +59,9 @@
 import org.apache.hadoop.security.ssl.SslSelectChannelConnectorSecure;
 import org.apache.hadoop.jmx.JMXJsonServlet;
 import org.apache.hadoop.log.LogLevel;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.sink.PrometheusMetricsSink;
 import org.apache.hadoop.security.SecurityUtil;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.security.authentication.server.AuthenticationFilter;
@@ -122,6 +125,9 @@ public final class HttpServer2 implements FilterContainer {
 
   public static final String BIND_ADDRESS = "bind.address";
 
+  // Name of the PrometheusMetricsSink in the metrics system.
+  static final String PROMETHEUS_SINK = "prometheus";
+
   private final AccessControlList adminsAcl;
 
   protected final Server webServer;
@@ -452,6 +458,7 @@ private void initializeWebServer(String name, String hostName,
     }
 
     addDefaultServlets();
+    addPrometheusServlet(conf);
 
     if (pathSpecs != null) {
       for (String path : pathSpecs) {
@@ -627,6 +634,34 @@ protected void addDefaultServlets() {
     addServlet("conf", "/conf", ConfServlet.class);
   }
 
+  /**
+   * Add the Prometheus endpoint if it is enabled.
+   */
+  private void addPrometheusServlet(Configuration conf) {
+    if (!conf.getBoolean(CommonConfigurationKeys.HADOOP_PROMETHEUS_ENABLED,
+        CommonConfigurationKeys.HADOOP_PROMETHEUS_ENABLED_DEFAULT)) {
+      return;
+    }
+    getPrometheusSink();
+    addServlet("prometheus", "/prom", PrometheusServlet.class);
+  }
+
+  /**
+   * All servers of a JVM share the metrics system, so they share the sink.
+   * It is looked up on every use, as it is forgotten when the metrics system
+   * is shut down, and registered again if needed.
+   */
+  static synchronized PrometheusMetricsSink getPrometheusSink() {
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    PrometheusMetricsSink sink =
+        (PrometheusMetricsSink) ms.getSink(PROMETHEUS_SINK);
+    if (sink == null) {
+      sink = ms.register(PROMETHEUS_SINK,
+          "Hadoop metrics Prometheus exporter", new PrometheusMetricsSink());
+    }
+    return sink;
+  }
+
   public void addContext(Context ctxt, boolean isFiltered) {
     webServer.addHandler(ctxt);
     addNoCacheFilter(webAppContext);
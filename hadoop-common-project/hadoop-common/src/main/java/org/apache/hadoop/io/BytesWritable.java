@@ -226,7 +226,8 @@ public String toString() {
   }
 
   /** A Comparator optimized for BytesWritable. */ 
-  public static class Comparator extends WritableComparator {
+  public static class Comparator extends WritableComparator
+      implements NormalizedKeyComparator {
     public Comparator() {
       super(BytesWritable.class);
     }
@@ -240,6 +241,11 @@ public int compare(byte[] b1, int s1, int l1,
       return compareBytes(b1, s1+LENGTH_BYTES, l1-LENGTH_BYTES, 
                           b2, s2+LENGTH_BYTES, l2-LENGTH_BYTES);
     }
+
+    @Override
+    public long getNormalizedKey(byte[] b, int s, int l) {
+      return readBytesPrefix(b, s+LENGTH_BYTES, l-LENGTH_BYTES);
+    }
   }
   
   static {                                        // register this comparator
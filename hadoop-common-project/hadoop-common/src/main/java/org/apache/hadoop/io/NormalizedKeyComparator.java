@@ -0,0 +1,54 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.io;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * <p>
+ * Implemented by a {@link RawComparator} that can summarize a serialized key
+ * as a fixed width normalized key. Sorters may order keys by their
+ * normalized keys, compared as unsigned longs, and only call
+ * {@link RawComparator#compare(byte[], int, int, byte[], int, int)} when
+ * those are equal.
+ * </p>
+ * <p>
+ * Implementations must guarantee that for any two keys <code>a</code> and
+ * <code>b</code>, if the normalized key of <code>a</code> is less than that
+ * of <code>b</code> then <code>a</code> compares less than <code>b</code>.
+ * Subclasses overriding the raw comparison must override
+ * {@link #getNormalizedKey(byte[], int, int)} as well.
+ * </p>
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public interface NormalizedKeyComparator {
+
+  /**
+   * Compute the normalized key of a serialized key.
+   *
+   * @param b The byte array holding the key.
+   * @param s The position of the key in b.
+   * @param l The length of the key.
+   * @return the normalized key, to be compared as an unsigned long.
+   */
+  long getNormalizedKey(byte[] b, int s, int l);
+
+}
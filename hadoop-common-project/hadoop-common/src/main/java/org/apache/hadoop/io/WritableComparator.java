@@ -232,6 +232,22 @@ public static double readDouble(byte[] bytes, int start) {
     return Double.longBitsToDouble(readLong(bytes, start));
   }
 
+  /**
+   * Read the first eight bytes of binary data as a big-endian long, padding
+   * with zeros when there are fewer. Comparing the results as unsigned
+   * longs is consistent with {@link #compareBytes}.
+   */
+  public static long readBytesPrefix(byte[] bytes, int start, int length) {
+    if (length >= 8) {
+      return readLong(bytes, start);
+    }
+    long prefix = 0;
+    for (int i = 0; i < length; i++) {
+      prefix |= (bytes[start + i] & 0xffL) << (56 - 8 * i);
+    }
+    return prefix;
+  }
+
   /**
    * Reads a zero-compressed encoded long from a byte array and returns it.
    * @param bytes byte array with decode long
@@ -23,6 +23,12 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.hadoop.conf.Configurable;
 import org.apache.hadoop.conf.Configuration;
@@ -34,7 +40,14 @@
 import org.apache.hadoop.io.compress.bzip2.CBZip2InputStream;
 import org.apache.hadoop.io.compress.bzip2.CBZip2OutputStream;
 import org.apache.hadoop.io.compress.bzip2.Bzip2Factory;
+import org.apache.hadoop.io.compress.bzip2.ParallelCBZip2OutputStream;
+import org.apache.hadoop.util.ShutdownHookManager;
+import org.apache.hadoop.util.concurrent.HadoopThreadPoolExecutor;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COMPRESSION_CODEC_BZIP2_THREADS_DEFAULT;
+import static org.apache.hadoop.fs.CommonConfigurationKeys.IO_COMPRESSION_CODEC_BZIP2_THREADS_KEY;
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_DEFAULT;
 import static org.apache.hadoop.fs.CommonConfigurationKeysPublic.IO_FILE_BUFFER_SIZE_KEY;
 
@@ -44,7 +57,8 @@
  * if possible, else it uses a pure-Java implementation of the bzip2
  * algorithm.  The configuration parameter
  * io.compression.codec.bzip2.library can be used to control this
- * behavior.
+ * behavior.  When io.compression.codec.bzip2.threads is greater than one,
+ * blocks are compressed in parallel by the pure-Java implementation.
  *
  * In the pure-Java mode, the Compressor and Decompressor interfaces
  * are not implemented.  Therefore, in that mode, those methods of
@@ -65,6 +79,19 @@ public class BZip2Codec implements Configurable, SplittableCompressionCodec {
   private static final String SUB_HEADER = "h9";
   private static final int SUB_HEADER_LEN = SUB_HEADER.length();
 
+  /** Priority of the hook shutting down the block compression pools. */
+  public static final int SHUTDOWN_HOOK_PRIORITY = 10;
+  private static final long POOL_KEEP_ALIVE_SECONDS = 60;
+
+  /**
+   * Block compression pools keyed by their number of threads.  They are
+   * shared by all streams of the JVM, so that many concurrent streams, e.g.
+   * one per reducer output, do not multiply the threads.  Idle threads exit
+   * after a while and the pools are shut down with the JVM.
+   */
+  private static final Map<Integer, ExecutorService> compressionPools =
+      new HashMap<Integer, ExecutorService>();
+
   private Configuration conf;
   
   /**
@@ -87,6 +114,37 @@ public Configuration getConf() {
     return conf;
   }
   
+  private static synchronized ExecutorService getCompressionPool(
+      int threads) {
+    ExecutorService pool = compressionPools.get(threads);
+    if (pool == null) {
+      if (compressionPools.isEmpty()) {
+        ShutdownHookManager.get().addShutdownHook(new Runnable() {
+          @Override
+          public void run() {
+            shutdownCompressionPools();
+          }
+        }, SHUTDOWN_HOOK_PRIORITY);
+      }
+      ThreadPoolExecutor executor = new HadoopThreadPoolExecutor(threads,
+          threads, POOL_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<Runnable>(),
+          new ThreadFactoryBuilder().setDaemon(true)
+              .setNameFormat("BZip2 Compressor " + threads + "-%d").build());
+      executor.allowCoreThreadTimeOut(true);
+      pool = executor;
+      compressionPools.put(threads, pool);
+    }
+    return pool;
+  }
+
+  private static synchronized void shutdownCompressionPools() {
+    for (ExecutorService pool : compressionPools.values()) {
+      pool.shutdownNow();
+    }
+    compressionPools.clear();
+  }
+
   /**
   * Creates a new instance of BZip2Codec.
   */
@@ -121,6 +179,11 @@ public CompressionOutputStream createOutputStream(OutputStream out)
   @Override
   public CompressionOutputStream createOutputStream(OutputStream out,
       Compressor compressor) throws IOException {
+    int threads = conf.getInt(IO_COMPRESSION_CODEC_BZIP2_THREADS_KEY,
+        IO_COMPRESSION_CODEC_BZIP2_THREADS_DEFAULT);
+    if (threads > 1) {
+      return new BZip2CompressionOutputStream(out, threads);
+    }
     return Bzip2Factory.isNativeBzip2Loaded(conf) ?
       new CompressorStream(out, compressor, 
                            conf.getInt(IO_FILE_BUFFER_SIZE_KEY,
@@ -277,14 +340,26 @@ private static class BZip2CompressionOutputStream extends
       CompressionOutputStream {
 
     // class data starts here//
-    private CBZip2OutputStream output;
+    private OutputStream output;
     private boolean needsReset; 
+    private final int threads;
     // class data ends here//
 
     public BZip2CompressionOutputStream(OutputStream out)
         throws IOException {
+      this(out, 1);
+    }
+
+    /**
+     * @param threads number of threads compressing blocks; with more than
+     *                one thread blocks are compressed in parallel by a
+     *                {@link ParallelCBZip2OutputStream}
+     */
+    public BZip2CompressionOutputStream(OutputStream out, int threads)
+        throws IOException {
       super(out);
       needsReset = true;
+      this.threads = threads;
     }
 
     private void writeStreamHeader() throws IOException {
@@ -303,7 +378,11 @@ public void finish() throws IOException {
         // recognized by BZip2CompressionInputStream.
         internalReset();
       }
-      this.output.finish();
+      if (this.output instanceof ParallelCBZip2OutputStream) {
+        ((ParallelCBZip2OutputStream) this.output).finish();
+      } else {
+        ((CBZip2OutputStream) this.output).finish();
+      }
       needsReset = true;
     }
 
@@ -311,7 +390,13 @@ private void internalReset() throws IOException {
       if (needsReset) {
         needsReset = false;
         writeStreamHeader();
-        this.output = new CBZip2OutputStream(out);
+        if (threads > 1) {
+          this.output = new ParallelCBZip2OutputStream(out,
+              CBZip2OutputStream.MAX_BLOCKSIZE, getCompressionPool(threads),
+              2 * threads);
+        } else {
+          this.output = new CBZip2OutputStream(out);
+        }
       }
     }    
     
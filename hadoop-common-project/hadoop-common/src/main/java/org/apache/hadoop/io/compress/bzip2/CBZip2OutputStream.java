@@ -551,6 +551,14 @@ private static void hbMakeCodeLengths(final byte[] len, final int[] freq,
   private int combinedCRC;
   private int allowableBlockSize;
 
+  /**
+  * Number of non-empty blocks written and the number of zero bits padding
+  * the last byte of the stream, used to splice the compressed blocks of
+  * this stream into another stream.
+  */
+  private int blockCount;
+  private int paddingBits;
+
   /**
   * All memory intensive stuff.
   */
@@ -792,6 +800,7 @@ private void endBlock() throws IOException {
     if (this.last == -1) {
       return;
     }
+    this.blockCount++;
 
     /* sort the block and establish posn of original string */
     blockSort();
@@ -843,6 +852,7 @@ private void endCompression() throws IOException {
     bsPutUByte(0x90);
 
     bsPutInt(this.combinedCRC);
+    this.paddingBits = (8 - (this.bsLive & 7)) & 7;
     bsFinishedWithStream();
   }
 
@@ -853,6 +863,28 @@ public final int getBlockSize() {
     return this.blockSize100k;
   }
 
+  /**
+  * Returns the combined CRC of all blocks written so far.
+  */
+  int getCombinedCRC() {
+    return this.combinedCRC;
+  }
+
+  /**
+  * Returns the number of non-empty blocks written so far.
+  */
+  int getBlockCount() {
+    return this.blockCount;
+  }
+
+  /**
+  * Returns the number of padding bits in the last byte of a finished
+  * stream.
+  */
+  int getPaddingBits() {
+    return this.paddingBits;
+  }
+
   @Override
   public void write(final byte[] buf, int offs, final int len)
       throws IOException {
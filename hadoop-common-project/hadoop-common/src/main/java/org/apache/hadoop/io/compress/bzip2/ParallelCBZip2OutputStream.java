@@ -0,0 +1,339 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.hadoop.io.compress.bzip2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.io.IOUtils;
+
+/**
+ * An output stream that compresses into the BZip2 format using several
+ * threads.
+ *
+ * <p>
+ * The input is cut into chunks of one block size each, and every chunk is
+ * compressed independently by a {@link CBZip2OutputStream} on the given
+ * executor.  Since bzip2 blocks are self-contained, the compressed blocks
+ * are then spliced at bit level, in input order, into a single standard
+ * bzip2 stream whose combined CRC is computed from the per-chunk CRCs.  The
+ * result is readable by any bzip2 decompressor and remains splittable on
+ * block boundaries.
+ * </p>
+ *
+ * <p>
+ * At most <tt>maxPendingChunks</tt> chunks are queued or being compressed
+ * at any time; further writes block until the oldest chunk is written out.
+ * </p>
+ *
+ * <p>
+ * <b>Attention: </b>As for {@link CBZip2OutputStream}, the caller is
+ * responsible to write the two BZip2 magic bytes <tt>"BZ"</tt> to the
+ * specified stream prior to calling this constructor.
+ * </p>
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+public class ParallelCBZip2OutputStream extends OutputStream {
+
+  private static final int EOS_MAGIC_BITS = 48;
+  private static final int CRC_BITS = 32;
+
+  private final int blockSize100k;
+  private final int chunkSize;
+  private final int maxPendingChunks;
+  private final ExecutorService executor;
+  private final ArrayDeque<Future<CompressedChunk>> pending =
+      new ArrayDeque<Future<CompressedChunk>>();
+
+  private OutputStream out;
+  private byte[] chunk;
+  private int chunkLength;
+  private int combinedCRC;
+
+  /** Bits not yet written out, aligned to the most significant bit. */
+  private int bitBuffer;
+  private int bitCount;
+  private byte[] spliceBuffer = new byte[0];
+
+  /**
+   * The compressed blocks of one chunk, followed by the trailer of the
+   * stream they were compressed in.
+   */
+  private static final class CompressedChunk {
+    private final byte[] data;
+    private final long blockBits;
+    private final int blockCount;
+    private final int combinedCRC;
+
+    CompressedChunk(byte[] data, long blockBits, int blockCount,
+        int combinedCRC) {
+      this.data = data;
+      this.blockBits = blockBits;
+      this.blockCount = blockCount;
+      this.combinedCRC = combinedCRC;
+    }
+  }
+
+  /**
+   * Compresses one chunk as a complete stream and records where its blocks
+   * end.
+   */
+  private final class ChunkCompressor implements Callable<CompressedChunk> {
+    private final byte[] input;
+    private final int length;
+
+    ChunkCompressor(byte[] input, int length) {
+      this.input = input;
+      this.length = length;
+    }
+
+    @Override
+    public CompressedChunk call() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(length / 4);
+      CBZip2OutputStream bzip2 = new CBZip2OutputStream(bytes, blockSize100k);
+      bzip2.write(input, 0, length);
+      bzip2.finish();
+      byte[] data = bytes.toByteArray();
+      // strip the "h" + block size header, the end of stream magic, the
+      // combined CRC and the final padding.
+      long blockBits = (long) data.length * 8 - bzip2.getPaddingBits()
+          - EOS_MAGIC_BITS - CRC_BITS - 16;
+      return new CompressedChunk(data, blockBits, bzip2.getBlockCount(),
+          bzip2.getCombinedCRC());
+    }
+  }
+
+  /**
+   * Constructs a new <tt>ParallelCBZip2OutputStream</tt>.
+   *
+   * @param out
+   *            the destination stream.
+   * @param blockSize
+   *            the blockSize as 100k units.
+   * @param executor
+   *            the executor compressing the chunks; it is not shut down
+   *            by this stream.
+   * @param maxPendingChunks
+   *            the maximum number of chunks queued or being compressed.
+   *
+   * @throws IOException
+   *             if an I/O error occurs in the specified stream.
+   * @throws IllegalArgumentException
+   *             if <code>(blockSize < 1) || (blockSize > 9)</code> or
+   *             <code>maxPendingChunks < 1</code>.
+   */
+  public ParallelCBZip2OutputStream(final OutputStream out,
+      final int blockSize, final ExecutorService executor,
+      final int maxPendingChunks) throws IOException {
+    if (blockSize < CBZip2OutputStream.MIN_BLOCKSIZE
+        || blockSize > CBZip2OutputStream.MAX_BLOCKSIZE) {
+      throw new IllegalArgumentException("blockSize(" + blockSize
+          + ") must be between " + CBZip2OutputStream.MIN_BLOCKSIZE
+          + " and " + CBZip2OutputStream.MAX_BLOCKSIZE);
+    }
+    if (maxPendingChunks < 1) {
+      throw new IllegalArgumentException("maxPendingChunks("
+          + maxPendingChunks + ") < 1");
+    }
+    this.blockSize100k = blockSize;
+    // Same paranoia margin as CBZip2OutputStream so a chunk of incompressible
+    // data still fits one block.
+    this.chunkSize = blockSize * BZip2Constants.baseBlockSize - 20;
+    this.executor = executor;
+    this.maxPendingChunks = maxPendingChunks;
+    this.out = out;
+    this.chunk = new byte[chunkSize];
+    out.write('h');
+    out.write('0' + blockSize);
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    if (this.out == null) {
+      throw new IOException("closed");
+    }
+    chunk[chunkLength++] = (byte) b;
+    if (chunkLength == chunkSize) {
+      submitChunk();
+    }
+  }
+
+  @Override
+  public void write(final byte[] buf, int offs, int len) throws IOException {
+    if (offs < 0) {
+      throw new IndexOutOfBoundsException("offs(" + offs + ") < 0.");
+    }
+    if (len < 0) {
+      throw new IndexOutOfBoundsException("len(" + len + ") < 0.");
+    }
+    if (offs + len > buf.length) {
+      throw new IndexOutOfBoundsException("offs(" + offs + ") + len("
+          + len + ") > buf.length(" + buf.length + ").");
+    }
+    if (this.out == null) {
+      throw new IOException("stream closed");
+    }
+    while (len > 0) {
+      int n = Math.min(len, chunkSize - chunkLength);
+      System.arraycopy(buf, offs, chunk, chunkLength, n);
+      chunkLength += n;
+      offs += n;
+      len -= n;
+      if (chunkLength == chunkSize) {
+        submitChunk();
+      }
+    }
+  }
+
+  private void submitChunk() throws IOException {
+    if (pending.size() >= maxPendingChunks) {
+      writeChunk(pending.removeFirst());
+    }
+    pending.addLast(executor.submit(new ChunkCompressor(chunk, chunkLength)));
+    chunk = new byte[chunkSize];
+    chunkLength = 0;
+  }
+
+  private void writeChunk(Future<CompressedChunk> future) throws IOException {
+    CompressedChunk compressed;
+    try {
+      compressed = future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw (IOException) new InterruptedIOException(
+          "Interrupted while compressing").initCause(e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Failed to compress bzip2 block", e.getCause());
+    }
+    // combine as if the blocks had been written by a single stream
+    combinedCRC = Integer.rotateLeft(combinedCRC, compressed.blockCount)
+        ^ compressed.combinedCRC;
+    writeBits(compressed.data, 2, compressed.blockBits);
+  }
+
+  /**
+   * Appends <code>nbits</code> bits, most significant bit first, starting
+   * at byte <code>offset</code> of <code>src</code>.
+   */
+  private void writeBits(byte[] src, int offset, long nbits)
+      throws IOException {
+    int fullBytes = (int) (nbits >>> 3);
+    int tailBits = (int) (nbits & 7);
+    if (bitCount == 0) {
+      out.write(src, offset, fullBytes);
+    } else {
+      if (spliceBuffer.length < fullBytes) {
+        spliceBuffer = new byte[fullBytes];
+      }
+      final int shift = bitCount;
+      int carry = bitBuffer;
+      for (int i = 0; i < fullBytes; i++) {
+        int b = src[offset + i] & 0xff;
+        spliceBuffer[i] = (byte) (carry | (b >>> shift));
+        carry = (b << (8 - shift)) & 0xff;
+      }
+      bitBuffer = carry;
+      out.write(spliceBuffer, 0, fullBytes);
+    }
+    if (tailBits > 0) {
+      int b = src[offset + fullBytes] & (0xff00 >>> tailBits) & 0xff;
+      bitBuffer |= b >>> bitCount;
+      bitCount += tailBits;
+      if (bitCount >= 8) {
+        out.write(bitBuffer);
+        bitCount -= 8;
+        bitBuffer = (b << (tailBits - bitCount)) & 0xff;
+      }
+    }
+  }
+
+  /**
+   * Compresses any buffered input and writes the end of stream marker.  The
+   * underlying stream is not closed.
+   */
+  public void finish() throws IOException {
+    if (out != null) {
+      try {
+        if (chunkLength > 0) {
+          submitChunk();
+        }
+        while (!pending.isEmpty()) {
+          writeChunk(pending.removeFirst());
+        }
+        byte[] trailer = new byte[] {
+            0x17, 0x72, 0x45, 0x38, 0x50, (byte) 0x90,
+            (byte) (combinedCRC >>> 24), (byte) (combinedCRC >>> 16),
+            (byte) (combinedCRC >>> 8), (byte) combinedCRC };
+        writeBits(trailer, 0, EOS_MAGIC_BITS + CRC_BITS);
+        if (bitCount > 0) {
+          out.write(bitBuffer);
+        }
+      } finally {
+        for (Future<CompressedChunk> future : pending) {
+          future.cancel(true);
+        }
+        pending.clear();
+        this.out = null;
+        this.chunk = null;
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (out != null) {
+      OutputStream outShadow = this.out;
+      try {
+        finish();
+        outShadow.close();
+        outShadow = null;
+      } finally {
+        IOUtils.closeStream(outShadow);
+      }
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    OutputStream outShadow = this.out;
+    if (outShadow != null) {
+      outShadow.flush();
+    }
+  }
+
+  /**
+   * Returns the blocksize parameter specified at construction time.
+   */
+  public final int getBlockSize() {
+    return this.blockSize100k;
+  }
+}
@@ -78,6 +78,13 @@ public <T> T register(T source) {
   @InterfaceAudience.Private
   public abstract MetricsSource getSource(String name);
 
+  /**
+   * @param name  of the metrics sink
+   * @return the metrics sink registered with this name, or null
+   */
+  @InterfaceAudience.Private
+  public abstract MetricsSink getSink(String name);
+
   /**
    * Register a metrics sink
    * @param <T>   the type of the sink
@@ -613,6 +613,11 @@ public MetricsSource getSource(String name) {
     return allSources.get(name);
   }
 
+  @Override
+  public synchronized MetricsSink getSink(String name) {
+    return allSinks.get(name);
+  }
+
   @VisibleForTesting
   MetricsSourceAdapter getSourceAdapter(String name) {
     return sources.get(name);
@@ -203,6 +203,31 @@ public synchronized MutableQuantiles newQuantiles(String name, String desc,
     return ret;
   }
 
+  /**
+   * Create a mutable metric that estimates quantiles of a stream of values
+   * using a mergeable histogram
+   * @param name of the metric
+   * @param desc metric description
+   * @param sampleName of the metric (e.g., "Ops")
+   * @param valueName of the metric (e.g., "Time" or "Latency")
+   * @param interval rollover interval of estimator in seconds
+   * @return a new histogram quantile estimator object
+   * @throws MetricsException if interval is not a positive integer
+   */
+  public synchronized MutableHistogramQuantiles newHistogramQuantiles(
+      String name, String desc, String sampleName, String valueName,
+      int interval) {
+    checkMetricName(name);
+    if (interval <= 0) {
+      throw new MetricsException("Interval should be positive.  Value passed" +
+          " is: " + interval);
+    }
+    MutableHistogramQuantiles ret = new MutableHistogramQuantiles(name, desc,
+        sampleName, valueName, interval);
+    metricsMap.put(name, ret);
+    return ret;
+  }
+
   /**
    * Create a mutable metric with stats
    * @param name  of the metric
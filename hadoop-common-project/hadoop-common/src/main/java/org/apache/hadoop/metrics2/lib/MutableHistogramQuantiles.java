@@ -0,0 +1,169 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.lib;
+
+import static org.apache.hadoop.metrics2.lib.Interns.info;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.metrics2.MetricsInfo;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.metrics2.util.HistogramQuantiles;
+import org.apache.hadoop.metrics2.util.QuantileEstimator;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Like {@link MutableQuantiles}, but backed by a {@link HistogramQuantiles}
+ * sketch, which has constant insert cost and can be merged across daemons.
+ *
+ * Besides the count and percentile gauges published by
+ * {@link MutableQuantiles}, it publishes the histogram itself as cumulative
+ * bucket counters: <code>&lt;Name&gt;&lt;Value&gt;Le&lt;N&gt;</code> counts
+ * every value at most N recorded since the metric was created, for each power
+ * of two N up to the largest value seen. The bucket bounds do not depend on
+ * the data, so the counters of many daemons can be summed by name before
+ * computing cluster-wide quantiles, in the same way as a Prometheus
+ * histogram. The finer histogram of the last interval is available through
+ * {@link #getHistogram()}.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class MutableHistogramQuantiles extends MutableQuantiles {
+
+  private final String bucketName;
+  private final String bucketDescription;
+  private final MetricsInfo[] bucketInfos = new MetricsInfo[Long.SIZE];
+  /** Values recorded in each power of two bucket since creation. */
+  private final long[] buckets = new long[Long.SIZE];
+  private int highestBucket = -1;
+
+  private HistogramQuantiles current;
+  private final HistogramQuantiles previous;
+
+  /**
+   * Instantiates a new {@link MutableHistogramQuantiles} for a metric that
+   * rolls itself over on the specified time interval.
+   *
+   * @param name
+   *          of the metric
+   * @param description
+   *          long-form textual description of the metric
+   * @param sampleName
+   *          type of items in the stream (e.g., "Ops")
+   * @param valueName
+   *          type of the values
+   * @param interval
+   *          rollover interval (in seconds) of the estimator
+   * @param precisionBits
+   *          sub-bucket precision of the histogram, see
+   *          {@link HistogramQuantiles}
+   */
+  public MutableHistogramQuantiles(String name, String description,
+      String sampleName, String valueName, int interval, int precisionBits) {
+    super(name, description, sampleName, valueName, interval);
+    bucketName = StringUtils.capitalize(name)
+        + StringUtils.capitalize(valueName) + "Le%d";
+    bucketDescription = "Number of " + StringUtils.uncapitalize(sampleName)
+        + " for " + StringUtils.uncapitalize(description) + " with "
+        + StringUtils.uncapitalize(valueName) + " at most %d";
+    current = new HistogramQuantiles(quantiles, precisionBits);
+    previous = new HistogramQuantiles(quantiles, precisionBits);
+    super.setEstimator(current);
+  }
+
+  public MutableHistogramQuantiles(String name, String description,
+      String sampleName, String valueName, int interval) {
+    this(name, description, sampleName, valueName, interval,
+        HistogramQuantiles.DEFAULT_PRECISION_BITS);
+  }
+
+  @Override
+  public synchronized void snapshot(MetricsRecordBuilder builder, boolean all) {
+    boolean publish = all || changed();
+    super.snapshot(builder, all);
+    if (publish) {
+      long total = 0;
+      for (int i = 0; i <= highestBucket; i++) {
+        total += buckets[i];
+        builder.addCounter(bucketInfo(i), total);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void add(long value) {
+    super.add(value);
+    int bucket = value <= 1
+        ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value - 1);
+    buckets[bucket]++;
+    if (bucket > highestBucket) {
+      highestBucket = bucket;
+    }
+  }
+
+  private MetricsInfo bucketInfo(int bucket) {
+    if (bucketInfos[bucket] == null) {
+      long bound = bucket == Long.SIZE - 1 ? Long.MAX_VALUE : 1L << bucket;
+      bucketInfos[bucket] = info(String.format(bucketName, bound),
+          String.format(bucketDescription, bound));
+    }
+    return bucketInfos[bucket];
+  }
+
+  /**
+   * The estimator of this metric is its histogram, use
+   * {@link #setHistogram(HistogramQuantiles)} in tests instead.
+   */
+  @Override
+  public void setEstimator(QuantileEstimator quantileEstimator) {
+    throw new UnsupportedOperationException(
+        "The estimator of a MutableHistogramQuantiles cannot be replaced");
+  }
+
+  /**
+   * Replaces the histogram the current interval is recorded in. The values
+   * recorded so far in this interval are carried over.
+   */
+  @VisibleForTesting
+  synchronized void setHistogram(HistogramQuantiles histogram) {
+    histogram.merge(current);
+    current = histogram;
+    super.setEstimator(histogram);
+  }
+
+  @Override
+  protected void rollover() {
+    previous.clear();
+    previous.merge(current);
+  }
+
+  /**
+   * @return a copy of the histogram of the last interval, which is empty
+   *         until the first interval ends. It can be merged with the
+   *         histograms of other daemons, or serialized to send it to them.
+   */
+  public synchronized HistogramQuantiles getHistogram() {
+    HistogramQuantiles copy =
+        new HistogramQuantiles(quantiles, previous.getPrecisionBits());
+    copy.merge(previous);
+    return copy;
+  }
+}
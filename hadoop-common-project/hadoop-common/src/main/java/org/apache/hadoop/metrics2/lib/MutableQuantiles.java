@@ -148,6 +148,13 @@ public synchronized void setEstimator(QuantileEstimator quantileEstimator) {
     this.estimator = quantileEstimator;
   }
 
+  /**
+   * Called with the lock of this metric held at the end of every interval,
+   * before the estimator is cleared.
+   */
+  protected void rollover() {
+  }
+
   /**
    * Runnable used to periodically roll over the internal
    * {@link SampleQuantiles} every interval.
@@ -165,6 +172,7 @@ public void run() {
       synchronized (parent) {
         parent.previousCount = parent.estimator.getCount();
         parent.previousSnapshot = parent.estimator.snapshot();
+        parent.rollover();
         parent.estimator.clear();
       }
       parent.setChanged();
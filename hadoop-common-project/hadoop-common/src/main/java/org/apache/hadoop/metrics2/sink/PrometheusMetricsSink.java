@@ -0,0 +1,251 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.sink;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import org.apache.commons.configuration.SubsetConfiguration;
+import org.apache.commons.lang.StringUtils;
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.metrics2.AbstractMetric;
+import org.apache.hadoop.metrics2.MetricType;
+import org.apache.hadoop.metrics2.MetricsRecord;
+import org.apache.hadoop.metrics2.MetricsSink;
+import org.apache.hadoop.metrics2.MetricsTag;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A metrics sink that keeps the latest snapshot of every record in the
+ * <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">
+ * Prometheus text exposition format</a>, to be served by
+ * {@link org.apache.hadoop.http.PrometheusServlet}.
+ * <br/>
+ * Metric names are built from the record and metric names converted to
+ * snake case (e.g. <code>JvmMetrics.GcCount</code> becomes
+ * <code>jvm_metrics_gc_count</code>) and record tags become labels.
+ * <br/>
+ * The formatted sample of a metric is only rebuilt when its value changes
+ * and the page is assembled once per metrics period on {@link #flush()}, so
+ * a scrape only copies a cached string. Records which were not reported
+ * during a period, e.g. because their source was unregistered, are dropped.
+ * <br/>
+ * HttpServer2 registers this sink when
+ * <code>hadoop.prometheus.endpoint.enabled</code> is true; no entries in
+ * hadoop-metrics2.properties are required.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class PrometheusMetricsSink implements MetricsSink {
+
+  /** Content type of the Prometheus text format. */
+  public static final String CONTENT_TYPE =
+      "text/plain; version=0.0.4; charset=utf-8";
+
+  private static final Pattern SPLIT_PATTERN =
+      Pattern.compile("(?<!(^|[A-Z_]))(?=[A-Z])|(?<!^)(?=[A-Z][a-z])");
+  private static final Pattern DELIMITERS = Pattern.compile("[^a-zA-Z0-9]+");
+
+  /** Metric families keyed by Prometheus name. Guarded by this. */
+  private final Map<String, MetricFamily> families =
+      new TreeMap<String, MetricFamily>();
+  /** Cache of converted names, as the conversion uses regular expressions. */
+  private final Map<String, String> names = new HashMap<String, String>();
+  private long generation = 0;
+  private boolean dirty = false;
+
+  private volatile String page = "";
+
+  @Override
+  public void init(SubsetConfiguration conf) {
+  }
+
+  @Override
+  public synchronized void putMetrics(MetricsRecord record) {
+    String labels = labels(record);
+    for (AbstractMetric metric : record.metrics()) {
+      String name = prometheusName(record.name(), metric.name());
+      MetricFamily family = families.get(name);
+      if (family == null) {
+        family = new MetricFamily(name, metric.description(),
+            metric.type() == MetricType.COUNTER ? "counter" : "gauge");
+        families.put(name, family);
+      }
+      Sample sample = family.samples.get(labels);
+      if (sample == null) {
+        sample = new Sample();
+        family.samples.put(labels, sample);
+      }
+      Number value = metric.value();
+      if (sample.line == null || !value.equals(sample.value)) {
+        sample.value = value;
+        sample.line = name + labels + " " + format(value) + "\n";
+        dirty = true;
+      }
+      sample.generation = generation;
+    }
+  }
+
+  @Override
+  public synchronized void flush() {
+    Iterator<MetricFamily> fit = families.values().iterator();
+    while (fit.hasNext()) {
+      MetricFamily family = fit.next();
+      Iterator<Sample> sit = family.samples.values().iterator();
+      while (sit.hasNext()) {
+        if (sit.next().generation != generation) {
+          sit.remove();
+          dirty = true;
+        }
+      }
+      if (family.samples.isEmpty()) {
+        fit.remove();
+      }
+    }
+    if (dirty) {
+      StringBuilder sb = new StringBuilder(Math.max(page.length(), 1024));
+      for (MetricFamily family : families.values()) {
+        sb.append(family.header);
+        for (Sample sample : family.samples.values()) {
+          sb.append(sample.line);
+        }
+      }
+      page = sb.toString();
+      dirty = false;
+    }
+    generation++;
+  }
+
+  /**
+   * Writes the metrics reported during the last completed period.
+   *
+   * @param writer destination of the Prometheus text format page
+   * @throws IOException if writing fails
+   */
+  public void writeMetrics(Writer writer) throws IOException {
+    writer.write(page);
+  }
+
+  /**
+   * Converts a record and metric name pair into a Prometheus metric name,
+   * e.g. <code>("JvmMetrics", "GcCount")</code> into
+   * <code>jvm_metrics_gc_count</code>.
+   */
+  @VisibleForTesting
+  String prometheusName(String recordName, String metricName) {
+    String key = recordName + '\0' + metricName;
+    String name = names.get(key);
+    if (name == null) {
+      name = snakeCase(StringUtils.capitalize(recordName)
+          + StringUtils.capitalize(metricName));
+      names.put(key, name);
+    }
+    return name;
+  }
+
+  private String labels(MetricsRecord record) {
+    StringBuilder sb = new StringBuilder();
+    for (MetricsTag tag : record.tags()) {
+      String tagName = tag.name();
+      if (tag.value() == null) {
+        continue;
+      }
+      String label = names.get(tagName);
+      if (label == null) {
+        label = snakeCase(tagName);
+        names.put(tagName, label);
+      }
+      sb.append(sb.length() == 0 ? "{" : ",");
+      sb.append(label).append("=\"");
+      escape(tag.value(), sb);
+      sb.append('"');
+    }
+    if (sb.length() > 0) {
+      sb.append('}');
+    }
+    return sb.toString();
+  }
+
+  private static String snakeCase(String name) {
+    String joined =
+        StringUtils.join(SPLIT_PATTERN.split(name), "_").toLowerCase();
+    return DELIMITERS.matcher(joined).replaceAll("_");
+  }
+
+  private static void escape(String value, StringBuilder sb) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+      case '\\':
+        sb.append("\\\\");
+        break;
+      case '"':
+        sb.append("\\\"");
+        break;
+      case '\n':
+        sb.append("\\n");
+        break;
+      default:
+        sb.append(c);
+      }
+    }
+  }
+
+  private static String format(Number value) {
+    if (value instanceof Double || value instanceof Float) {
+      double d = value.doubleValue();
+      if (Double.isNaN(d)) {
+        return "NaN";
+      } else if (Double.isInfinite(d)) {
+        return d > 0 ? "+Inf" : "-Inf";
+      }
+    }
+    return value.toString();
+  }
+
+  private static class MetricFamily {
+    private final String header;
+    /** Samples keyed by their label set. */
+    private final Map<String, Sample> samples = new TreeMap<String, Sample>();
+
+    MetricFamily(String name, String help, String type) {
+      StringBuilder sb = new StringBuilder();
+      sb.append("# HELP ").append(name).append(' ');
+      if (help != null) {
+        sb.append(help.replace("\\", "\\\\").replace("\n", "\\n"));
+      }
+      sb.append("\n# TYPE ").append(name).append(' ').append(type)
+          .append('\n');
+      this.header = sb.toString();
+    }
+  }
+
+  private static class Sample {
+    private Number value;
+    private String line;
+    private long generation;
+  }
+}
@@ -0,0 +1,358 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableUtils;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+
+/**
+ * A mergeable quantile estimator backed by a log-linear histogram, in the
+ * style of HdrHistogram.
+ *
+ * Values below 2^precisionBits are counted exactly. Larger values are
+ * grouped into buckets whose width is a fixed fraction of their magnitude,
+ * so every reported quantile is within a relative error of
+ * 2^-precisionBits of a value actually inserted. Unlike
+ * {@link SampleQuantiles}, inserts are O(1) and two histograms with the same
+ * precision can be merged without loss, which allows distributions collected
+ * on separate daemons to be combined into cluster-wide quantiles.
+ *
+ * Negative values are recorded as zero.
+ */
+@InterfaceAudience.Public
+@InterfaceStability.Evolving
+public class HistogramQuantiles implements QuantileEstimator {
+
+  /** Default number of bits of sub-bucket precision (about 0.8% error). */
+  public static final int DEFAULT_PRECISION_BITS = 7;
+
+  private static final int SERIAL_VERSION = 1;
+
+  private final Quantile[] quantiles;
+  private final int precisionBits;
+  private final int subBucketCount;
+
+  /**
+   * Bucket counts, grown on demand up to the highest bucket seen so that
+   * small values (the common case for latencies) keep the array short.
+   */
+  private long[] counts = new long[0];
+  private long count = 0;
+  private long min = Long.MAX_VALUE;
+  private long max = 0;
+
+  public HistogramQuantiles(Quantile[] quantiles) {
+    this(quantiles, DEFAULT_PRECISION_BITS);
+  }
+
+  /**
+   * @param quantiles quantiles reported by {@link #snapshot()}
+   * @param precisionBits number of bits of sub-bucket resolution, between 1
+   *          and 16
+   */
+  public HistogramQuantiles(Quantile[] quantiles, int precisionBits) {
+    Preconditions.checkArgument(precisionBits >= 1 && precisionBits <= 16,
+        "precisionBits should be between 1 and 16: %s", precisionBits);
+    this.quantiles = quantiles;
+    this.precisionBits = precisionBits;
+    this.subBucketCount = 1 << precisionBits;
+  }
+
+  /**
+   * Add a new value from the stream.
+   *
+   * @param v
+   */
+  @Override
+  synchronized public void insert(long v) {
+    if (v < 0) {
+      v = 0;
+    }
+    int index = bucketIndex(v);
+    if (index >= counts.length) {
+      grow(index);
+    }
+    counts[index]++;
+    count++;
+    if (v < min) {
+      min = v;
+    }
+    if (v > max) {
+      max = v;
+    }
+  }
+
+  /**
+   * Adds every value recorded by another histogram into this one.
+   *
+   * @param other histogram with the same precision as this one
+   */
+  public void merge(HistogramQuantiles other) {
+    Preconditions.checkArgument(other.precisionBits == precisionBits,
+        "Cannot merge histograms of different precision: %s != %s",
+        other.precisionBits, precisionBits);
+    if (other == this) {
+      return;
+    }
+    long[] otherCounts;
+    long otherCount, otherMin, otherMax;
+    synchronized (other) {
+      otherCounts = Arrays.copyOf(other.counts, other.counts.length);
+      otherCount = other.count;
+      otherMin = other.min;
+      otherMax = other.max;
+    }
+    synchronized (this) {
+      if (otherCounts.length > counts.length) {
+        grow(otherCounts.length - 1);
+      }
+      for (int i = 0; i < otherCounts.length; i++) {
+        counts[i] += otherCounts[i];
+      }
+      count += otherCount;
+      min = Math.min(min, otherMin);
+      max = Math.max(max, otherMax);
+    }
+  }
+
+  /**
+   * Get the estimated value at the specified quantile.
+   *
+   * @param quantile Queried quantile, e.g. 0.50 or 0.99.
+   * @return Estimated value at that quantile.
+   */
+  synchronized public long query(double quantile) {
+    Preconditions.checkState(count > 0, "no data in estimator");
+    long desired = (long) Math.ceil(quantile * count);
+    if (desired < 1) {
+      desired = 1;
+    }
+    long rank = 0;
+    for (int i = 0; i < counts.length; i++) {
+      rank += counts[i];
+      if (rank >= desired) {
+        return Math.max(min, Math.min(max, bucketValue(i)));
+      }
+    }
+    return max;
+  }
+
+  /**
+   * Get a snapshot of the current values of all the tracked quantiles.
+   *
+   * @return snapshot of the tracked quantiles. If no items are added
+   * to the estimator, returns null.
+   */
+  @Override
+  synchronized public Map<Quantile, Long> snapshot() {
+    if (count == 0) {
+      return null;
+    }
+    Map<Quantile, Long> values = new TreeMap<Quantile, Long>();
+    for (Quantile q : quantiles) {
+      values.put(q, query(q.quantile));
+    }
+    return values;
+  }
+
+  @Override
+  synchronized public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return smallest inserted value, or 0 if the histogram is empty
+   */
+  synchronized public long getMin() {
+    return count == 0 ? 0 : min;
+  }
+
+  /**
+   * @return largest inserted value, or 0 if the histogram is empty
+   */
+  synchronized public long getMax() {
+    return max;
+  }
+
+  public int getPrecisionBits() {
+    return precisionBits;
+  }
+
+  @VisibleForTesting
+  synchronized int getBucketCount() {
+    return counts.length;
+  }
+
+  @Override
+  synchronized public void clear() {
+    counts = new long[0];
+    count = 0;
+    min = Long.MAX_VALUE;
+    max = 0;
+  }
+
+  /**
+   * Serializes the histogram into a compact form which only lists the
+   * non-empty buckets. The result can be turned back into a histogram with
+   * {@link #deserialize(Quantile[], byte[])} and merged with others.
+   *
+   * @return serialized histogram
+   */
+  synchronized public byte[] serialize() {
+    DataOutputBuffer out = new DataOutputBuffer();
+    try {
+      WritableUtils.writeVInt(out, SERIAL_VERSION);
+      WritableUtils.writeVInt(out, precisionBits);
+      WritableUtils.writeVLong(out, count);
+      WritableUtils.writeVLong(out, getMin());
+      WritableUtils.writeVLong(out, max);
+      int nonEmpty = 0;
+      for (long c : counts) {
+        if (c != 0) {
+          nonEmpty++;
+        }
+      }
+      WritableUtils.writeVInt(out, nonEmpty);
+      int last = 0;
+      for (int i = 0; i < counts.length; i++) {
+        if (counts[i] != 0) {
+          // indexes are written as deltas to keep them short
+          WritableUtils.writeVInt(out, i - last);
+          WritableUtils.writeVLong(out, counts[i]);
+          last = i;
+        }
+      }
+    } catch (IOException e) {
+      // DataOutputBuffer writes to memory and never throws
+      throw new IllegalStateException(e);
+    }
+    return Arrays.copyOf(out.getData(), out.getLength());
+  }
+
+  /**
+   * Reconstructs a histogram produced by {@link #serialize()}.
+   *
+   * @param quantiles quantiles reported by the new histogram
+   * @param data serialized histogram
+   * @return the deserialized histogram
+   * @throws IOException if the data is malformed
+   */
+  public static HistogramQuantiles deserialize(Quantile[] quantiles,
+      byte[] data) throws IOException {
+    DataInputBuffer in = new DataInputBuffer();
+    in.reset(data, data.length);
+    int version = WritableUtils.readVInt(in);
+    if (version != SERIAL_VERSION) {
+      throw new IOException("Unsupported histogram version " + version);
+    }
+    int bits = WritableUtils.readVInt(in);
+    if (bits < 1 || bits > 16) {
+      throw new IOException("Invalid histogram precision " + bits);
+    }
+    HistogramQuantiles h = new HistogramQuantiles(quantiles, bits);
+    long total = WritableUtils.readVLong(in);
+    long lo = WritableUtils.readVLong(in);
+    long hi = WritableUtils.readVLong(in);
+    int nonEmpty = WritableUtils.readVInt(in);
+    int index = 0;
+    long sum = 0;
+    for (int i = 0; i < nonEmpty; i++) {
+      index += WritableUtils.readVInt(in);
+      long c = WritableUtils.readVLong(in);
+      if (index < 0 || index >= h.maxBucketCount() || c < 0) {
+        throw new IOException("Invalid histogram bucket " + index);
+      }
+      if (index >= h.counts.length) {
+        h.grow(index);
+      }
+      h.counts[index] += c;
+      sum += c;
+    }
+    if (sum != total) {
+      throw new IOException("Histogram count " + total
+          + " does not match bucket total " + sum);
+    }
+    h.count = total;
+    if (total > 0) {
+      h.min = lo;
+      h.max = hi;
+    }
+    return h;
+  }
+
+  /**
+   * Returns the bucket a value falls in. Values smaller than the sub-bucket
+   * count map to themselves; beyond that each power of two is split into
+   * subBucketCount equal-width buckets.
+   */
+  @VisibleForTesting
+  int bucketIndex(long v) {
+    if (v < subBucketCount) {
+      return (int) v;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(v) - precisionBits;
+    return (shift * subBucketCount) + (int) (v >>> shift);
+  }
+
+  /**
+   * Returns the value reported for a bucket, which is the midpoint of the
+   * range of values it covers.
+   */
+  @VisibleForTesting
+  long bucketValue(int index) {
+    if (index < subBucketCount) {
+      return index;
+    }
+    int shift = index / subBucketCount - 1;
+    long top = (index % subBucketCount) + subBucketCount;
+    return (top << shift) + (((1L << shift) - 1) >>> 1);
+  }
+
+  private int maxBucketCount() {
+    return (64 - precisionBits) * subBucketCount;
+  }
+
+  private void grow(int index) {
+    int newLength = Math.min(maxBucketCount(),
+        Math.max(index + 1, counts.length * 2));
+    counts = Arrays.copyOf(counts, newLength);
+  }
+
+  @Override
+  synchronized public String toString() {
+    Map<Quantile, Long> data = snapshot();
+    if (data == null) {
+      return "[no samples]";
+    } else {
+      return Joiner.on("\n").withKeyValueSeparator(": ").join(data);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.util;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * An in-place most significant digit radix sort over the normalized keys of
+ * a {@link NormalizedKeySortable}, one byte at a time. Ranges that are
+ * small, or whose items share the whole normalized key, are finished with
+ * {@link QuickSort}. Other sortables are sorted with {@link QuickSort}.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+public final class RadixSort implements IndexedSorter {
+
+  /** Ranges shorter than this are left to QuickSort. */
+  private static final int MIN_RADIX_RANGE = 64;
+
+  private static final IndexedSorter alt = new QuickSort();
+
+  public RadixSort() { }
+
+  /**
+   * Sort the given range of items using radix sort.
+   * {@inheritDoc}
+   */
+  @Override
+  public void sort(IndexedSortable s, int p, int r) {
+    sort(s, p, r, null);
+  }
+
+  @Override
+  public void sort(final IndexedSortable s, int p, int r,
+      final Progressable rep) {
+    if (s instanceof NormalizedKeySortable) {
+      sortInternal((NormalizedKeySortable) s, p, r, rep, 56);
+    } else {
+      alt.sort(s, p, r, rep);
+    }
+  }
+
+  private static int digit(NormalizedKeySortable s, int i, int shift) {
+    return (int) (s.getNormalizedKey(i) >>> shift) & 0xff;
+  }
+
+  private static void sortInternal(final NormalizedKeySortable s, int p,
+      int r, final Progressable rep, int shift) {
+    if (null != rep) {
+      rep.progress();
+    }
+    if (r - p < MIN_RADIX_RANGE) {
+      alt.sort(s, p, r, rep);
+      return;
+    }
+    // skip digits all items share
+    final int[] end = new int[257];
+    while (true) {
+      if (shift < 0) {
+        alt.sort(s, p, r, rep);
+        return;
+      }
+      for (int i = p; i < r; ++i) {
+        ++end[digit(s, i, shift) + 1];
+      }
+      if (end[digit(s, p, shift) + 1] != r - p) {
+        break;
+      }
+      end[digit(s, p, shift) + 1] = 0;
+      shift -= 8;
+    }
+    // bucket boundaries
+    end[0] = p;
+    for (int d = 0; d < 256; ++d) {
+      end[d + 1] += end[d];
+    }
+    // move every item to the next free slot of its bucket; the buckets
+    // before d are complete once d is reached
+    final int[] free = new int[256];
+    System.arraycopy(end, 0, free, 0, 256);
+    for (int d = 0; d < 256; ++d) {
+      while (free[d] < end[d + 1]) {
+        final int dd = digit(s, free[d], shift);
+        if (dd == d) {
+          ++free[d];
+        } else {
+          s.swap(free[d], free[dd]++);
+        }
+      }
+    }
+    for (int d = 0; d < 256; ++d) {
+      if (end[d + 1] - end[d] > 1) {
+        sortInternal(s, end[d], end[d + 1], rep, shift - 8);
+      }
+    }
+  }
+}
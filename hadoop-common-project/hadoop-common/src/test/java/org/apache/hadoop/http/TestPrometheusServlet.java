@@ -0,0 +1,124 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.http;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.CommonConfigurationKeysPublic;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.annotation.Metric;
+import org.apache.hadoop.metrics2.annotation.Metrics;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
+import org.apache.hadoop.metrics2.sink.PrometheusMetricsSink;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test the /prom endpoint served by {@link PrometheusServlet}.
+ */
+public class TestPrometheusServlet extends HttpServerFunctionalTest {
+  private HttpServer2 server;
+
+  @Metrics(name = "PrometheusServletTest", about = "Test metrics",
+      context = "test")
+  static class TestSource {
+    @Metric("Number of tests")
+    MutableCounterLong numTests;
+  }
+
+  @After
+  public void cleanup() throws Exception {
+    if (server != null) {
+      server.stop();
+    }
+    DefaultMetricsSystem.shutdown();
+  }
+
+  private URL startServer(boolean enabled) throws Exception {
+    Configuration conf = new Configuration();
+    conf.setBoolean(CommonConfigurationKeysPublic.HADOOP_PROMETHEUS_ENABLED,
+        enabled);
+    server = createTestServer(conf);
+    server.start();
+    return new URL(getServerURL(server), "/prom");
+  }
+
+  private static final String SAMPLE =
+      "prometheus_servlet_test_num_tests{context=\"test\",hostname=";
+
+  /** @return the value of the test metric on the page, or null. */
+  private static String value(String page) {
+    int start = page.indexOf(SAMPLE);
+    if (start < 0) {
+      return null;
+    }
+    int end = page.indexOf('\n', start);
+    return page.substring(page.lastIndexOf(' ', end) + 1, end);
+  }
+
+  private static void publish(long value) {
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    TestSource source = ms.register("PrometheusServletTest", "Test metrics",
+        new TestSource());
+    source.numTests.incr(value);
+    ms.publishMetricsNow();
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    HttpURLConnection conn =
+        (HttpURLConnection) startServer(false).openConnection();
+    assertEquals(HttpURLConnection.HTTP_NOT_FOUND, conn.getResponseCode());
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    DefaultMetricsSystem.initialize("test");
+    URL url = startServer(true);
+    publish(3);
+
+    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+    assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+    assertEquals(PrometheusMetricsSink.CONTENT_TYPE, conn.getContentType());
+    String page = readOutput(url);
+    assertTrue(page, page.contains(
+        "# TYPE prometheus_servlet_test_num_tests counter\n"));
+    assertEquals(page, "3", value(page));
+  }
+
+  @Test
+  public void testMetricsSystemRestart() throws Exception {
+    DefaultMetricsSystem.initialize("test");
+    URL url = startServer(true);
+    publish(3);
+    assertEquals("3", value(readOutput(url)));
+
+    // the restarted metrics system has forgotten the sink of the server
+    DefaultMetricsSystem.shutdown();
+    DefaultMetricsSystem.initialize("test");
+    assertNull(DefaultMetricsSystem.instance().getSink(
+        HttpServer2.PROMETHEUS_SINK));
+    // the next scrape registers a new sink, which sees the next period
+    readOutput(url);
+    publish(5);
+    assertEquals("5", value(readOutput(url)));
+  }
+}
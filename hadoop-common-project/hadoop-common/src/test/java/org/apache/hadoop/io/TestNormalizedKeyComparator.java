@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestNormalizedKeyComparator {
+
+  private static final int SAMPLE = 2000;
+
+  private static byte[] serialize(Writable w) throws IOException {
+    DataOutputBuffer out = new DataOutputBuffer();
+    w.write(out);
+    byte[] b = new byte[out.getLength() + 3];
+    // do not start at zero, the normalized key must honour the offset
+    System.arraycopy(out.getData(), 0, b, 3, out.getLength());
+    return b;
+  }
+
+  /**
+   * Checks that whenever the normalized keys of two samples differ, the
+   * raw comparison agrees with their unsigned order.
+   */
+  private static <T extends RawComparator<?> & NormalizedKeyComparator>
+      void checkConsistent(T comparator, List<byte[]> keys) {
+    int decided = 0;
+    for (int i = 0; i < keys.size(); ++i) {
+      byte[] a = keys.get(i);
+      byte[] b = keys.get((i * 31 + 7) % keys.size());
+      long na = comparator.getNormalizedKey(a, 3, a.length - 3);
+      long nb = comparator.getNormalizedKey(b, 3, b.length - 3);
+      int raw = Integer.signum(
+          comparator.compare(a, 3, a.length - 3, b, 3, b.length - 3));
+      int normalized = Integer.signum(Long.compareUnsigned(na, nb));
+      if (normalized != 0) {
+        assertEquals("normalized keys disagree with compare", raw, normalized);
+        ++decided;
+      }
+    }
+    assertTrue("normalized keys should decide most comparisons",
+        decided > keys.size() / 2);
+  }
+
+  @Test
+  public void testIntWritable() throws IOException {
+    Random r = new Random(1L);
+    List<byte[]> keys = new ArrayList<byte[]>();
+    keys.add(serialize(new IntWritable(Integer.MIN_VALUE)));
+    keys.add(serialize(new IntWritable(Integer.MAX_VALUE)));
+    keys.add(serialize(new IntWritable(0)));
+    keys.add(serialize(new IntWritable(-1)));
+    for (int i = 0; i < SAMPLE; ++i) {
+      keys.add(serialize(new IntWritable(r.nextInt())));
+    }
+    checkConsistent(new IntWritable.Comparator(), keys);
+  }
+
+  @Test
+  public void testLongWritable() throws IOException {
+    Random r = new Random(2L);
+    List<byte[]> keys = new ArrayList<byte[]>();
+    keys.add(serialize(new LongWritable(Long.MIN_VALUE)));
+    keys.add(serialize(new LongWritable(Long.MAX_VALUE)));
+    keys.add(serialize(new LongWritable(0)));
+    keys.add(serialize(new LongWritable(-1)));
+    for (int i = 0; i < SAMPLE; ++i) {
+      keys.add(serialize(new LongWritable(r.nextLong())));
+    }
+    checkConsistent(new LongWritable.Comparator(), keys);
+    checkConsistent(new LongWritable.DecreasingComparator(), keys);
+  }
+
+  @Test
+  public void testText() throws IOException {
+    Random r = new Random(3L);
+    List<byte[]> keys = new ArrayList<byte[]>();
+    keys.add(serialize(new Text("")));
+    keys.add(serialize(new Text("ÿÿ")));
+    for (int i = 0; i < SAMPLE; ++i) {
+      StringBuilder sb = new StringBuilder();
+      int len = r.nextInt(12);
+      for (int j = 0; j < len; ++j) {
+        // a small alphabet, including non-ascii, so prefixes often tie
+        sb.append("abé中".charAt(r.nextInt(4)));
+      }
+      keys.add(serialize(new Text(sb.toString())));
+    }
+    checkConsistent(new Text.Comparator(), keys);
+  }
+
+  @Test
+  public void testBytesWritable() throws IOException {
+    Random r = new Random(4L);
+    List<byte[]> keys = new ArrayList<byte[]>();
+    keys.add(serialize(new BytesWritable(new byte[0])));
+    for (int i = 0; i < SAMPLE; ++i) {
+      byte[] b = new byte[r.nextInt(12)];
+      r.nextBytes(b);
+      keys.add(serialize(new BytesWritable(b)));
+    }
+    checkConsistent(new BytesWritable.Comparator(), keys);
+  }
+}
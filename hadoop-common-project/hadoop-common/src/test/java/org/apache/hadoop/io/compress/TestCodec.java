@@ -114,6 +114,58 @@ public void testBZip2Codec() throws IOException {
     codecTest(conf, seed, count, "org.apache.hadoop.io.compress.BZip2Codec");
   }
   
+  @Test(timeout=60000)
+  public void testParallelBZip2Codec() throws IOException {
+    Configuration conf = new Configuration();
+    conf.set("io.compression.codec.bzip2.library", "java-builtin");
+    conf.setInt(CommonConfigurationKeys.IO_COMPRESSION_CODEC_BZIP2_THREADS_KEY,
+        4);
+    codecTest(conf, seed, 0, "org.apache.hadoop.io.compress.BZip2Codec");
+    codecTest(conf, seed, 100000,
+        "org.apache.hadoop.io.compress.BZip2Codec");
+  }
+
+  @Test(timeout=60000)
+  public void testParallelBZip2SharesThreads() throws IOException {
+    Configuration conf = new Configuration();
+    conf.set("io.compression.codec.bzip2.library", "java-builtin");
+    conf.setInt(CommonConfigurationKeys.IO_COMPRESSION_CODEC_BZIP2_THREADS_KEY,
+        3);
+    CompressionCodec codec = new CompressionCodecFactory(conf)
+        .getCodecByClassName("org.apache.hadoop.io.compress.BZip2Codec");
+    byte[] data = new byte[3 * 1024 * 1024];
+    new Random(seed).nextBytes(data);
+
+    // several streams in flight at once, each with more than one block
+    ByteArrayOutputStream[] compressed = new ByteArrayOutputStream[4];
+    CompressionOutputStream[] streams =
+        new CompressionOutputStream[compressed.length];
+    for (int i = 0; i < streams.length; i++) {
+      compressed[i] = new ByteArrayOutputStream();
+      streams[i] = codec.createOutputStream(compressed[i]);
+      streams[i].write(data);
+    }
+    int compressors = 0;
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().startsWith("BZip2 Compressor 3-")) {
+        compressors++;
+      }
+    }
+    assertTrue("Found " + compressors + " compression threads",
+        compressors > 0 && compressors <= 3);
+
+    for (int i = 0; i < streams.length; i++) {
+      streams[i].close();
+      InputStream in = codec.createInputStream(
+          new ByteArrayInputStream(compressed[i].toByteArray()));
+      byte[] result = new byte[data.length];
+      IOUtils.readFully(in, result, 0, result.length);
+      assertEquals(-1, in.read());
+      in.close();
+      assertArrayEquals(data, result);
+    }
+  }
+
   @Test(timeout=20000)
   public void testBZip2NativeCodec() throws IOException {
     Configuration conf = new Configuration();
@@ -271,14 +323,21 @@ private static void codecTest(Configuration conf, int seed, int count,
 
   @Test
   public void testSplitableCodecs() throws Exception {
-    testSplitableCodec(BZip2Codec.class);
+    testSplitableCodec(BZip2Codec.class, new Configuration());
+  }
+
+  @Test
+  public void testSplitableParallelBZip2Codec() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(CommonConfigurationKeys.IO_COMPRESSION_CODEC_BZIP2_THREADS_KEY,
+        4);
+    testSplitableCodec(BZip2Codec.class, conf);
   }
 
   private void testSplitableCodec(
-      Class<? extends SplittableCompressionCodec> codecClass)
-      throws IOException {
+      Class<? extends SplittableCompressionCodec> codecClass,
+      Configuration conf) throws IOException {
     final long DEFLBYTES = 2 * 1024 * 1024;
-    final Configuration conf = new Configuration();
     final Random rand = new Random();
     final long seed = rand.nextLong();
     LOG.info("seed: " + seed);
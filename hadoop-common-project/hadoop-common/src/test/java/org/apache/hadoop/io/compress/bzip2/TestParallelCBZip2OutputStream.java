@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.io.compress.bzip2;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.hadoop.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestParallelCBZip2OutputStream {
+
+  private ExecutorService executor;
+
+  @Before
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  private byte[] compress(byte[] data, int blockSize, int maxPending,
+      int writeSize) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ParallelCBZip2OutputStream out = new ParallelCBZip2OutputStream(bytes,
+        blockSize, executor, maxPending);
+    for (int off = 0; off < data.length; off += writeSize) {
+      out.write(data, off, Math.min(writeSize, data.length - off));
+    }
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  private static byte[] decompress(byte[] compressed) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    // CBZip2InputStream verifies the block CRCs and the combined CRC
+    CBZip2InputStream in =
+        new CBZip2InputStream(new ByteArrayInputStream(compressed));
+    IOUtils.copyBytes(in, bytes, 4096, true);
+    return bytes.toByteArray();
+  }
+
+  /** Text-like data with long runs crossing chunk boundaries. */
+  private static byte[] generate(int size, long seed) {
+    Random random = new Random(seed);
+    byte[] data = new byte[size];
+    int i = 0;
+    while (i < size) {
+      int run = random.nextInt(10) == 0 ? random.nextInt(1000) : 1;
+      byte b = (byte) ('a' + random.nextInt(20));
+      for (int j = 0; j < run && i < size; j++) {
+        data[i++] = b;
+      }
+    }
+    return data;
+  }
+
+  @Test
+  public void testRoundTripManyBlocks() throws IOException {
+    byte[] data = generate(2 * 100000 * 9 + 12345, 1L);
+    assertArrayEquals(data, decompress(compress(data, 9, 8, 65536)));
+  }
+
+  @Test
+  public void testRoundTripSmallBlocksAndBackpressure() throws IOException {
+    // many small blocks with a single pending chunk exercises the bit
+    // splicing at every possible alignment
+    byte[] data = generate(3000000, 2L);
+    assertArrayEquals(data, decompress(compress(data, 1, 1, 1000)));
+  }
+
+  @Test
+  public void testRandomData() throws IOException {
+    byte[] data = new byte[1000000];
+    new Random(3L).nextBytes(data);
+    assertArrayEquals(data, decompress(compress(data, 1, 3, 4096)));
+  }
+
+  @Test
+  public void testSingleByteWrites() throws IOException {
+    byte[] data = generate(250000, 4L);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ParallelCBZip2OutputStream out =
+        new ParallelCBZip2OutputStream(bytes, 1, executor, 2);
+    for (byte b : data) {
+      out.write(b);
+    }
+    out.close();
+    assertArrayEquals(data, decompress(bytes.toByteArray()));
+  }
+
+  @Test
+  public void testEmptyStream() throws IOException {
+    byte[] compressed = compress(new byte[0], 9, 2, 1);
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    new CBZip2OutputStream(expected, 9).close();
+    assertArrayEquals(expected.toByteArray(), compressed);
+  }
+
+  @Test
+  public void testSingleBlockMatchesSerialOutput() throws IOException {
+    byte[] data = generate(50000, 5L);
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    CBZip2OutputStream serial = new CBZip2OutputStream(expected, 9);
+    serial.write(data, 0, data.length);
+    serial.close();
+    assertArrayEquals(expected.toByteArray(), compress(data, 9, 2, 4096));
+  }
+}
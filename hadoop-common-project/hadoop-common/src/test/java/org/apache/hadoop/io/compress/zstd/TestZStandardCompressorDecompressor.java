@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.io.compress.zstd;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.compress.CompressionInputStream;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.CompressorStream;
+import org.apache.hadoop.io.compress.DecompressorStream;
+import org.apache.hadoop.io.compress.ZStandardCodec;
+import org.apache.hadoop.io.compress.zstd.ZStandardDecompressor.ZStandardDirectDecompressor;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestZStandardCompressorDecompressor {
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  @Before
+  public void before() {
+    assumeTrue(ZStandardCodec.isNativeCodeLoaded());
+  }
+
+  private static byte[] generate(int size) {
+    Random random = new Random(12345L);
+    byte[] data = new byte[size];
+    for (int i = 0; i < size; i++) {
+      // a small alphabet so the data actually compresses
+      data[i] = (byte) ('a' + random.nextInt(8));
+    }
+    return data;
+  }
+
+  private static byte[] compress(byte[] data, int bufferSize)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CompressionOutputStream out = new CompressorStream(bytes,
+        new ZStandardCompressor(3, bufferSize), bufferSize);
+    try {
+      out.write(data, 0, data.length);
+      out.finish();
+    } finally {
+      out.close();
+    }
+    return bytes.toByteArray();
+  }
+
+  private static byte[] decompress(byte[] compressed, int bufferSize)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CompressionInputStream in = new DecompressorStream(
+        new ByteArrayInputStream(compressed),
+        new ZStandardDecompressor(bufferSize), bufferSize);
+    try {
+      IOUtils.copyBytes(in, bytes, 4096);
+    } finally {
+      in.close();
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testCompressDecompressRoundTrip() throws IOException {
+    byte[] data = generate(1024 * 1024);
+    byte[] compressed = compress(data, BUFFER_SIZE);
+    assertTrue("data should compress", compressed.length < data.length);
+    assertArrayEquals(data, decompress(compressed, BUFFER_SIZE));
+  }
+
+  @Test
+  public void testSmallBuffers() throws IOException {
+    // buffers much smaller than the input force many partial calls
+    byte[] data = generate(100 * 1024);
+    byte[] compressed = compress(data, 1024);
+    assertArrayEquals(data, decompress(compressed, 512));
+  }
+
+  @Test
+  public void testEmptyInput() throws IOException {
+    byte[] compressed = compress(new byte[0], BUFFER_SIZE);
+    assertEquals(0, decompress(compressed, BUFFER_SIZE).length);
+  }
+
+  @Test
+  public void testCodecRoundTrip() throws IOException {
+    Configuration conf = new Configuration();
+    ZStandardCodec codec = new ZStandardCodec();
+    codec.setConf(conf);
+    byte[] data = generate(256 * 1024);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    CompressionOutputStream out = codec.createOutputStream(bytes);
+    out.write(data);
+    out.close();
+
+    InputStream in = codec.createInputStream(
+        new ByteArrayInputStream(bytes.toByteArray()));
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    IOUtils.copyBytes(in, result, 4096, true);
+    assertArrayEquals(data, result.toByteArray());
+  }
+
+  @Test
+  public void testDirectDecompress() throws IOException {
+    byte[] data = generate(256 * 1024);
+    byte[] compressed = compress(data, BUFFER_SIZE);
+
+    ByteBuffer src = ByteBuffer.allocateDirect(compressed.length);
+    src.put(compressed);
+    src.flip();
+    ByteBuffer dst = ByteBuffer.allocateDirect(data.length);
+
+    ZStandardDirectDecompressor decompressor =
+        new ZStandardDirectDecompressor(BUFFER_SIZE);
+    while (!decompressor.finished()) {
+      decompressor.decompress(src, dst);
+    }
+    dst.flip();
+    byte[] result = new byte[dst.remaining()];
+    dst.get(result);
+    assertArrayEquals(data, result);
+  }
+}
@@ -22,18 +22,24 @@
 import static org.apache.hadoop.test.MetricsAsserts.assertCounter;
 import static org.apache.hadoop.test.MetricsAsserts.assertGauge;
 import static org.apache.hadoop.test.MetricsAsserts.mockMetricsRecordBuilder;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.AdditionalMatchers.eq;
 import static org.mockito.AdditionalMatchers.geq;
 import static org.mockito.AdditionalMatchers.leq;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.util.Map;
 import java.util.Map.Entry;
 
+import org.apache.hadoop.metrics2.MetricsInfo;
 import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.metrics2.util.HistogramQuantiles;
 import org.apache.hadoop.metrics2.util.Quantile;
 import org.junit.Test;
 
@@ -247,4 +253,84 @@ public void testMutableQuantilesEmptyRollover() throws Exception {
     verify(mb, times(2)).addGauge(
         info("FooNumOps", "Number of ops for stat with 5s interval"), (long) 0);
   }
+
+  /**
+   * Test that {@link MutableHistogramQuantiles} publishes quantiles within
+   * the histogram error bounds, and keeps a histogram of the last interval
+   * which can be merged.
+   */
+  @Test(timeout = 30000)
+  public void testMutableHistogramQuantiles() throws Exception {
+    MetricsRecordBuilder mb = mockMetricsRecordBuilder();
+    MetricsRegistry registry = new MetricsRegistry("test");
+    // Use a 5s rollover period
+    MutableHistogramQuantiles quantiles = registry.newHistogramQuantiles(
+        "foo", "stat", "Ops", "Latency", 5);
+    long start = System.nanoTime() / 1000000;
+    for (long i = 1; i <= 1000; i++) {
+      quantiles.add(i);
+      quantiles.add(1001 - i);
+    }
+    long end = System.nanoTime() / 1000000;
+
+    Thread.sleep(6000 - (end - start));
+
+    registry.snapshot(mb, false);
+
+    verify(mb).addGauge(
+        info("FooNumOps", "Number of ops for stat with 5s interval"),
+        (long) 2000);
+    String name = "Foo%dthPercentileLatency";
+    String desc = "%d percentile latency with 5 second interval for stat";
+    for (Quantile q : MutableQuantiles.quantiles) {
+      int percentile = (int) (100 * q.quantile);
+      String n = String.format(name, percentile);
+      String d = String.format(desc, percentile);
+      long expected = (long) (q.quantile * 1000);
+      long error = expected / 100 + 1;
+      verify(mb).addGauge(eq(info(n, d)), leq(expected + error));
+      verify(mb).addGauge(eq(info(n, d)), geq(expected - error));
+    }
+
+    // the histogram is published as cumulative counters with fixed bounds,
+    // not as a tag, which would make a new record every time
+    verify(mb, never()).tag(any(MetricsInfo.class), anyString());
+    String bucketDesc = "Number of ops for stat with latency at most %d";
+    verify(mb).addCounter(info("FooLatencyLe1", String.format(bucketDesc, 1)),
+        2L);
+    verify(mb).addCounter(
+        info("FooLatencyLe512", String.format(bucketDesc, 512)), 1024L);
+    verify(mb).addCounter(
+        info("FooLatencyLe1024", String.format(bucketDesc, 1024)), 2000L);
+    verify(mb, never()).addCounter(
+        eq(info("FooLatencyLe2048", String.format(bucketDesc, 2048))),
+        anyLong());
+    HistogramQuantiles histogram = quantiles.getHistogram();
+    assertEquals(2000, histogram.getCount());
+    assertEquals(1, histogram.getMin());
+    assertEquals(1000, histogram.getMax());
+    histogram.merge(quantiles.getHistogram());
+    assertEquals(4000, histogram.getCount());
+    assertEquals(2000, quantiles.getHistogram().getCount());
+  }
+
+  /**
+   * Test that replacing the histogram of a {@link MutableHistogramQuantiles}
+   * keeps the values recorded in the current interval.
+   */
+  @Test
+  public void testMutableHistogramQuantilesSetHistogram() {
+    MutableHistogramQuantiles quantiles = new MutableHistogramQuantiles(
+        "foo", "stat", "Ops", "Latency", 3600);
+    try {
+      quantiles.add(10);
+      HistogramQuantiles histogram =
+          new HistogramQuantiles(MutableQuantiles.quantiles);
+      quantiles.setHistogram(histogram);
+      quantiles.add(20);
+      assertEquals(2, histogram.getCount());
+    } finally {
+      quantiles.stop();
+    }
+  }
 }
@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.sink;
+
+import static org.apache.hadoop.metrics2.lib.Interns.info;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.metrics2.AbstractMetric;
+import org.apache.hadoop.metrics2.MetricType;
+import org.apache.hadoop.metrics2.MetricsRecord;
+import org.apache.hadoop.metrics2.MetricsTag;
+import org.apache.hadoop.metrics2.impl.MsInfo;
+import org.junit.Test;
+
+/**
+ * Test the {@link PrometheusMetricsSink} text format and caching.
+ */
+public class TestPrometheusMetricsSink {
+
+  private static AbstractMetric makeMetric(String name, Number value,
+      MetricType type) {
+    AbstractMetric metric = mock(AbstractMetric.class);
+    when(metric.name()).thenReturn(name);
+    when(metric.description()).thenReturn("Description of " + name);
+    when(metric.value()).thenReturn(value);
+    when(metric.type()).thenReturn(type);
+    return metric;
+  }
+
+  private static MetricsRecord makeRecord(String name, List<MetricsTag> tags,
+      AbstractMetric... metrics) {
+    MetricsRecord record = mock(MetricsRecord.class);
+    when(record.name()).thenReturn(name);
+    when(record.tags()).thenReturn(tags);
+    when(record.metrics()).thenReturn(Arrays.asList(metrics));
+    return record;
+  }
+
+  private static String scrape(PrometheusMetricsSink sink)
+      throws IOException {
+    StringWriter writer = new StringWriter();
+    sink.writeMetrics(writer);
+    return writer.toString();
+  }
+
+  @Test
+  public void testNames() {
+    PrometheusMetricsSink sink = new PrometheusMetricsSink();
+    assertEquals("jvm_metrics_gc_count",
+        sink.prometheusName("JvmMetrics", "GcCount"));
+    assertEquals("rpc_activity_for_port8020_rpc_queue_time_num_ops",
+        sink.prometheusName("RpcActivityForPort8020", "RpcQueueTimeNumOps"));
+    assertEquals("fs_namesystem_capacity_total_gb",
+        sink.prometheusName("FSNamesystem", "CapacityTotalGB"));
+  }
+
+  @Test
+  public void testPutMetrics() throws IOException {
+    PrometheusMetricsSink sink = new PrometheusMetricsSink();
+    List<MetricsTag> tags = new ArrayList<MetricsTag>();
+    tags.add(new MetricsTag(MsInfo.Context, "jvm"));
+    tags.add(new MetricsTag(MsInfo.ProcessName, "Name\"Node"));
+    tags.add(new MetricsTag(MsInfo.Hostname, null));
+
+    // Nothing is visible until the period is flushed
+    sink.putMetrics(makeRecord("JvmMetrics", tags,
+        makeMetric("GcCount", 3L, MetricType.COUNTER),
+        makeMetric("MemHeapUsedM", 1.5f, MetricType.GAUGE)));
+    assertEquals("", scrape(sink));
+
+    sink.flush();
+    assertEquals(
+        "# HELP jvm_metrics_gc_count Description of GcCount\n" +
+        "# TYPE jvm_metrics_gc_count counter\n" +
+        "jvm_metrics_gc_count{context=\"jvm\",process_name=\"Name\\\"Node\"}" +
+        " 3\n" +
+        "# HELP jvm_metrics_mem_heap_used_m Description of MemHeapUsedM\n" +
+        "# TYPE jvm_metrics_mem_heap_used_m gauge\n" +
+        "jvm_metrics_mem_heap_used_m{context=\"jvm\"," +
+        "process_name=\"Name\\\"Node\"} 1.5\n",
+        scrape(sink));
+  }
+
+  @Test
+  public void testRecordsAreGroupedAndExpired() throws IOException {
+    PrometheusMetricsSink sink = new PrometheusMetricsSink();
+    List<MetricsTag> port1 = Arrays.asList(
+        new MetricsTag(info("Port", "port"), "1"));
+    List<MetricsTag> port2 = Arrays.asList(
+        new MetricsTag(info("Port", "port"), "2"));
+
+    sink.putMetrics(makeRecord("Rpc", port1,
+        makeMetric("CallQueueLength", 1, MetricType.GAUGE)));
+    sink.putMetrics(makeRecord("Rpc", port2,
+        makeMetric("CallQueueLength", 2, MetricType.GAUGE)));
+    sink.flush();
+    assertEquals(
+        "# HELP rpc_call_queue_length Description of CallQueueLength\n" +
+        "# TYPE rpc_call_queue_length gauge\n" +
+        "rpc_call_queue_length{port=\"1\"} 1\n" +
+        "rpc_call_queue_length{port=\"2\"} 2\n",
+        scrape(sink));
+
+    // The second record is no longer reported and goes away
+    sink.putMetrics(makeRecord("Rpc", port1,
+        makeMetric("CallQueueLength", 5, MetricType.GAUGE)));
+    sink.flush();
+    assertEquals(
+        "# HELP rpc_call_queue_length Description of CallQueueLength\n" +
+        "# TYPE rpc_call_queue_length gauge\n" +
+        "rpc_call_queue_length{port=\"1\"} 5\n",
+        scrape(sink));
+
+    // Nothing reported at all
+    sink.flush();
+    assertEquals("", scrape(sink));
+  }
+}
@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.metrics2.util;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestHistogramQuantiles {
+
+  static final Quantile[] quantiles = TestSampleQuantiles.quantiles;
+
+  HistogramQuantiles estimator;
+
+  @Before
+  public void init() {
+    estimator = new HistogramQuantiles(quantiles);
+  }
+
+  /**
+   * Check that counts are incremented correctly and that small values are
+   * reported exactly.
+   */
+  @Test
+  public void testCount() throws IOException {
+    assertEquals(0, estimator.getCount());
+    assertNull(estimator.snapshot());
+
+    estimator.insert(42);
+    assertEquals(1, estimator.getCount());
+    assertEquals(
+        "50.00 %ile +/- 5.00%: 42\n" +
+        "75.00 %ile +/- 2.50%: 42\n" +
+        "90.00 %ile +/- 1.00%: 42\n" +
+        "95.00 %ile +/- 0.50%: 42\n" +
+        "99.00 %ile +/- 0.10%: 42", estimator.toString());
+  }
+
+  /**
+   * Check that counts and quantile estimates are correctly reset after a call
+   * to {@link HistogramQuantiles#clear()}.
+   */
+  @Test
+  public void testClear() throws IOException {
+    for (int i = 0; i < 1000; i++) {
+      estimator.insert(i);
+    }
+    estimator.clear();
+    assertEquals(0, estimator.getCount());
+    assertEquals(0, estimator.getBucketCount());
+    assertNull(estimator.snapshot());
+  }
+
+  /**
+   * Check that every value maps to a bucket whose reported value is within
+   * the relative error of the histogram, including the extremes.
+   */
+  @Test
+  public void testBucketBounds() {
+    long[] values = { 0, 1, 127, 128, 129, 255, 256, 1000, 123456789,
+        Long.MAX_VALUE / 3, Long.MAX_VALUE - 1, Long.MAX_VALUE };
+    int last = -1;
+    for (long v : values) {
+      int index = estimator.bucketIndex(v);
+      assertTrue(index >= last);
+      last = index;
+      long reported = estimator.bucketValue(index);
+      double error = Math.abs((double) reported - v) / Math.max(1, v);
+      assertTrue("value " + v + " reported as " + reported,
+          error <= 1.0 / (1 << estimator.getPrecisionBits()));
+    }
+  }
+
+  /**
+   * Correctness test that checks that relative error of the estimate is
+   * within the histogram precision for randomly permuted streams of items.
+   */
+  @Test
+  public void testQuantileError() throws IOException {
+    final int count = 100000;
+    Random r = new Random(0xDEADDEAD);
+    Long[] values = new Long[count];
+    for (int i = 0; i < count; i++) {
+      values[i] = (long) (i + 1);
+    }
+    for (int i = 0; i < 5; i++) {
+      Collections.shuffle(Arrays.asList(values), r);
+      estimator.clear();
+      for (int j = 0; j < count; j++) {
+        estimator.insert(values[j]);
+      }
+      Map<Quantile, Long> snapshot = estimator.snapshot();
+      for (Quantile q : quantiles) {
+        long actual = (long) (q.quantile * count);
+        long error = actual / 100;
+        long estimate = snapshot.get(q);
+        assertTrue(estimate <= actual + error);
+        assertTrue(estimate >= actual - error);
+      }
+    }
+  }
+
+  /**
+   * Check that merging histograms built from disjoint halves of a stream
+   * gives the same answer as a single histogram over the whole stream, also
+   * after a serialization round trip.
+   */
+  @Test
+  public void testMergeAndSerialize() throws IOException {
+    HistogramQuantiles left = new HistogramQuantiles(quantiles);
+    HistogramQuantiles right = new HistogramQuantiles(quantiles);
+    Random r = new Random(0xBEEF);
+    for (int i = 0; i < 50000; i++) {
+      long v = (long) Math.abs(r.nextGaussian() * 1000000);
+      estimator.insert(v);
+      if (i % 2 == 0) {
+        left.insert(v);
+      } else {
+        right.insert(v);
+      }
+    }
+    HistogramQuantiles merged = HistogramQuantiles.deserialize(quantiles,
+        left.serialize());
+    merged.merge(HistogramQuantiles.deserialize(quantiles,
+        right.serialize()));
+    assertEquals(estimator.getCount(), merged.getCount());
+    assertEquals(estimator.getMin(), merged.getMin());
+    assertEquals(estimator.getMax(), merged.getMax());
+    assertEquals(estimator.snapshot(), merged.snapshot());
+  }
+
+  @Test
+  public void testMergeDifferentPrecision() {
+    try {
+      estimator.merge(new HistogramQuantiles(quantiles, 3));
+      fail("Merging histograms of different precision should fail");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testDeserializeCorrupt() {
+    estimator.insert(1000);
+    byte[] data = estimator.serialize();
+    // drop the last bucket
+    try {
+      HistogramQuantiles.deserialize(quantiles,
+          Arrays.copyOf(data, data.length - 1));
+      fail("Truncated histogram should not deserialize");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+}
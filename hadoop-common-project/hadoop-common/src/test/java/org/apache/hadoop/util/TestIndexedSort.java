@@ -25,6 +25,7 @@
 
 import org.apache.hadoop.io.DataInputBuffer;
 import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.NormalizedKeyComparator;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.WritableComparator;
 
@@ -158,6 +159,41 @@ public void testQuickSort() throws Exception {
     assertTrue(Arrays.equals(values, check));
   }
 
+  public void sortNormalized(IndexedSorter sorter, int shift)
+      throws Exception {
+    final int SAMPLE = 64 * 1024;
+    Random r = new Random();
+    long seed = r.nextLong();
+    r.setSeed(seed);
+    System.out.println("sortNormalized seed: " + seed + " shift: " + shift +
+        "(" + sorter.getClass().getName() + ")");
+    int[] values = new int[SAMPLE];
+    for (int i = 0; i < SAMPLE; ++i) {
+      values[i] = r.nextInt(1 << 20);
+    }
+    NormalizedSampleSortable s = new NormalizedSampleSortable(values, shift);
+    values = s.getValues();
+    Arrays.sort(values);
+    sorter.sort(s, 0, SAMPLE);
+    assertTrue("seed: " + seed + "\ndoesn't match\n",
+               Arrays.equals(values, s.getSorted()));
+  }
+
+  public void testRadixSort() throws Exception {
+    RadixSort sorter = new RadixSort();
+    sortRandom(sorter);
+    sortSingleRecord(sorter);
+    sortSequential(sorter);
+    sortSorted(sorter);
+    sortAllEqual(sorter);
+    sortWritable(sorter);
+    // exact normalized keys, coarse ones leaving ties to compare, and
+    // normalized keys that are all equal
+    sortNormalized(sorter, 0);
+    sortNormalized(sorter, 12);
+    sortNormalized(sorter, 20);
+  }
+
   public void testHeapSort() throws Exception {
     HeapSort sorter = new HeapSort();
     sortRandom(sorter);
@@ -235,6 +271,26 @@ public int[] getValues() {
       return ret;
     }
 
+    int getValue(int i) {
+      return values[valindirect[valindex[i]]];
+    }
+
+  }
+
+  private static class NormalizedSampleSortable extends SampleSortable
+      implements NormalizedKeySortable {
+    private final int shift;
+
+    public NormalizedSampleSortable(int[] values, int shift) {
+      super(values);
+      this.shift = shift;
+    }
+
+    @Override
+    public long getNormalizedKey(int i) {
+      // drop the low bits so that some keys tie
+      return ((long) (getValue(i) >>> shift)) << 40;
+    }
   }
 
   public static class MeasuredSortable implements IndexedSortable {
@@ -278,7 +334,7 @@ public void swap(int i, int j) {
 
   }
 
-  private static class WritableSortable implements IndexedSortable {
+  private static class WritableSortable implements NormalizedKeySortable {
 
     private static Random r = new Random();
     private final int eob;
@@ -343,6 +399,14 @@ public void swap(int i, int j) {
       indices[j] = tmp;
     }
 
+    @Override
+    public long getNormalizedKey(int i) {
+      final int ii = indices[i];
+      return ((NormalizedKeyComparator) comparator).getNormalizedKey(bytes,
+        offsets[ii],
+        ((ii + 1 == indices.length) ? eob : offsets[ii + 1]) - offsets[ii]);
+    }
+
     public String[] getValues() {
       return check;
     }
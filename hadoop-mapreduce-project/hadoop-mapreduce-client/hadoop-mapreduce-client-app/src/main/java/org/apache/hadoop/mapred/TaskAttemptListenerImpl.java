@@ -52,6 +52,7 @@
 import org.apache.hadoop.mapreduce.v2.app.rm.RMHeartbeatHandler;
 import org.apache.hadoop.mapreduce.v2.app.rm.preemption.AMPreemptionPolicy;
 import org.apache.hadoop.mapreduce.v2.app.security.authorize.MRAMPolicyProvider;
+import org.apache.hadoop.mapreduce.v2.util.MRApps;
 import org.apache.hadoop.net.NetUtils;
 import org.apache.hadoop.security.authorize.PolicyProvider;
 import org.apache.hadoop.service.CompositeService;
@@ -85,6 +86,10 @@ public class TaskAttemptListenerImpl extends CompositeService
       = new ConcurrentHashMap<WrappedJvmID, org.apache.hadoop.mapred.Task>();
   private Set<WrappedJvmID> launchedJVMs = Collections
       .newSetFromMap(new ConcurrentHashMap<WrappedJvmID, Boolean>());
+  // JVMs which ran a map and wait for another one instead of exiting
+  private Set<WrappedJvmID> reusableJVMs = Collections
+      .newSetFromMap(new ConcurrentHashMap<WrappedJvmID, Boolean>());
+  private boolean reuseJvms;
 
   private JobTokenSecretManager jobTokenSecretManager = null;
   private AMPreemptionPolicy preemptionPolicy;
@@ -115,6 +120,7 @@ protected void serviceInit(Configuration conf) throws Exception {
    registerHeartbeatHandler(conf);
    commitWindowMs = conf.getLong(MRJobConfig.MR_AM_COMMIT_WINDOW_MS,
        MRJobConfig.DEFAULT_MR_AM_COMMIT_WINDOW_MS);
+   reuseJvms = MRApps.isMapJvmReuseEnabled(conf);
    super.serviceInit(conf);
   }
 
@@ -476,11 +482,17 @@ public JvmTask getTask(JvmContext context) throws IOException {
     WrappedJvmID wJvmID = new WrappedJvmID(jvmId.getJobId(), jvmId.isMap,
         jvmId.getId());
 
-    // Try to look up the task. We remove it directly as we don't give
-    // multiple tasks to a JVM
+    // Try to look up the task. We remove it directly; a JVM only gets
+    // another task if one is registered for it again.
     if (!jvmIDToActiveAttemptMap.containsKey(wJvmID)) {
-      LOG.info("JVM with ID: " + jvmId + " is invalid and will be killed.");
-      jvmTask = TASK_FOR_INVALID_JVM;
+      if (reusableJVMs.contains(wJvmID)) {
+        // kept warm by the allocator until it hands over the next map, or
+        // until the container is released
+        jvmTask = null;
+      } else {
+        LOG.info("JVM with ID: " + jvmId + " is invalid and will be killed.");
+        jvmTask = TASK_FOR_INVALID_JVM;
+      }
     } else {
       if (!launchedJVMs.contains(wJvmID)) {
         jvmTask = null;
@@ -496,6 +508,9 @@ public JvmTask getTask(JvmContext context) throws IOException {
         LOG.info("JVM with ID: " + jvmId + " given task: " + task.getTaskID());
         task.setEncryptedSpillKey(encryptedSpillKey);
         jvmTask = new JvmTask(task, false);
+        if (reuseJvms && task.isMapTask()) {
+          reusableJVMs.add(wJvmID);
+        }
       }
     }
     return jvmTask;
@@ -543,6 +558,11 @@ public void unregister(
     taskHeartbeatHandler.unregister(attemptID);
   }
 
+  @Override
+  public void unregisterJvm(WrappedJvmID jvmID) {
+    reusableJVMs.remove(jvmID);
+  }
+
   @Override
   public ProtocolSignature getProtocolSignature(String protocol,
       long clientVersion, int clientMethodsHash) throws IOException {
@@ -126,56 +126,74 @@ public TaskUmbilicalProtocol run() throws Exception {
     ScheduledExecutorService logSyncer = null;
 
     try {
-      int idleLoopCount = 0;
-      JvmTask myTask = null;;
-      // poll for new task
-      for (int idle = 0; null == myTask; ++idle) {
-        long sleepTimeMilliSecs = Math.min(idle * 500, 1500);
-        LOG.info("Sleeping for " + sleepTimeMilliSecs
-            + "ms before retrying again. Got null now.");
-        MILLISECONDS.sleep(sleepTimeMilliSecs);
-        myTask = umbilical.getTask(context);
-      }
-      if (myTask.shouldDie()) {
-        return;
-      }
+      // With JVM reuse, a map JVM asks for another map once it is done;
+      // each task starts from the configuration the JVM was given.
+      final boolean reuseJvm =
+          jvmId.isMapJVM() && MRApps.isMapJvmReuseEnabled(job);
+      final JobConf jobDefaults = reuseJvm ? new JobConf(job) : null;
+      for (int tasksRun = 0; ; tasksRun++) {
+        JvmTask myTask = getTask(umbilical, context);
+        if (myTask.shouldDie()) {
+          return;
+        }
 
-      task = myTask.getTask();
-      YarnChild.taskid = task.getTaskID();
+        task = myTask.getTask();
+        YarnChild.taskid = task.getTaskID();
+
+        final JobConf taskConf;
+        if (tasksRun == 0) {
+          taskConf = job;
+        } else {
+          LOG.info("Reusing JVM for " + task.getTaskID() + " after "
+              + tasksRun + " tasks");
+          taskConf = new JobConf(jobDefaults);
+          taskConf.setClassLoader(job.getClassLoader());
+          // file system counters are totals for the JVM
+          FileSystem.clearStatistics();
+        }
 
-      // Create the job-conf and set credentials
-      configureTask(job, task, credentials, jt);
+        // Create the job-conf and set credentials
+        configureTask(taskConf, task, credentials, jt);
 
-      // log the system properties
-      String systemPropsToLog = MRApps.getSystemPropertiesToLog(job);
-      if (systemPropsToLog != null) {
-        LOG.info(systemPropsToLog);
-      }
+        if (tasksRun == 0) {
+          // log the system properties
+          String systemPropsToLog = MRApps.getSystemPropertiesToLog(job);
+          if (systemPropsToLog != null) {
+            LOG.info(systemPropsToLog);
+          }
+
+          // Initiate Java VM metrics
+          JvmMetrics.initSingleton(jvmId.toString(), job.getSessionId());
+          childUGI = UserGroupInformation.createRemoteUser(System
+              .getenv(ApplicationConstants.Environment.USER.toString()));
+          // Add tokens to new user so that it may execute its task correctly.
+          childUGI.addCredentials(credentials);
 
-      // Initiate Java VM metrics
-      JvmMetrics.initSingleton(jvmId.toString(), job.getSessionId());
-      childUGI = UserGroupInformation.createRemoteUser(System
-          .getenv(ApplicationConstants.Environment.USER.toString()));
-      // Add tokens to new user so that it may execute its task correctly.
-      childUGI.addCredentials(credentials);
-
-      // set job classloader if configured before invoking the task
-      MRApps.setJobClassLoader(job);
-
-      logSyncer = TaskLog.createLogSyncer();
-
-      // Create a final reference to the task for the doAs block
-      final Task taskFinal = task;
-      childUGI.doAs(new PrivilegedExceptionAction<Object>() {
-        @Override
-        public Object run() throws Exception {
-          // use job-specified working directory
-          setEncryptedSpillKeyIfRequired(taskFinal);
-          FileSystem.get(job).setWorkingDirectory(job.getWorkingDirectory());
-          taskFinal.run(job, umbilical); // run the task
-          return null;
+          // set job classloader if configured before invoking the task
+          MRApps.setJobClassLoader(job);
+
+          logSyncer = TaskLog.createLogSyncer();
         }
-      });
+
+        // Create a final reference to the task for the doAs block
+        final Task taskFinal = task;
+        childUGI.doAs(new PrivilegedExceptionAction<Object>() {
+          @Override
+          public Object run() throws Exception {
+            // use job-specified working directory
+            setEncryptedSpillKeyIfRequired(taskFinal);
+            FileSystem.get(taskConf).setWorkingDirectory(
+                taskConf.getWorkingDirectory());
+            taskFinal.run(taskConf, umbilical); // run the task
+            return null;
+          }
+        });
+        if (!reuseJvm) {
+          break;
+        }
+        task = null;
+        YarnChild.taskid = null;
+      }
     } catch (FSError e) {
       LOG.fatal("FSError from child", e);
       if (!ShutdownHookManager.get().isShutdownInProgress()) {
@@ -229,6 +247,23 @@ public Object run() throws Exception {
     }
   }
 
+  /**
+   * Polls the application master until it has a task for this JVM, or tells
+   * it to exit.
+   */
+  private static JvmTask getTask(TaskUmbilicalProtocol umbilical,
+      JvmContext context) throws IOException, InterruptedException {
+    JvmTask myTask = null;
+    for (int idle = 0; null == myTask; ++idle) {
+      long sleepTimeMilliSecs = Math.min(idle * 500, 1500);
+      LOG.info("Sleeping for " + sleepTimeMilliSecs
+          + "ms before retrying again. Got null now.");
+      MILLISECONDS.sleep(sleepTimeMilliSecs);
+      myTask = umbilical.getTask(context);
+    }
+    return myTask;
+  }
+
   /**
    * Utility method to check if the Encrypted Spill Key needs to be set into the
    * user credentials of the user running the Map / Reduce Task
@@ -959,8 +959,10 @@ protected void serviceStart() throws Exception {
             this.clientService, this.context, nmHost, nmPort, nmHttpPort
             , containerID);
       } else {
-        this.containerAllocator = new RMContainerAllocator(
+        RMContainerAllocator allocator = new RMContainerAllocator(
             this.clientService, this.context, preemptionPolicy);
+        allocator.setTaskAttemptListener(taskAttemptListener);
+        this.containerAllocator = allocator;
       }
       ((Service)this.containerAllocator).init(getConfig());
       ((Service)this.containerAllocator).start();
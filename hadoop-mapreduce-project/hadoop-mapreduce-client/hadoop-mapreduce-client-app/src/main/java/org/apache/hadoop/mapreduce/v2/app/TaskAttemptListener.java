@@ -57,4 +57,11 @@ public interface TaskAttemptListener {
    */
   void unregister(TaskAttemptId attemptID, WrappedJvmID jvmID);
 
+  /**
+   * Forget a JVM kept to run another task.  This should be called once its
+   * container is released or has completed.
+   * @param jvmID the ID of the JVM.
+   */
+  void unregisterJvm(WrappedJvmID jvmID);
+
 }
@@ -19,6 +19,7 @@
 package org.apache.hadoop.mapreduce.v2.app.commit;
 
 import java.io.IOException;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
@@ -40,6 +41,7 @@
 import org.apache.hadoop.mapreduce.v2.app.job.event.JobAbortCompletedEvent;
 import org.apache.hadoop.mapreduce.v2.app.job.event.JobCommitCompletedEvent;
 import org.apache.hadoop.mapreduce.v2.app.job.event.JobCommitFailedEvent;
+import org.apache.hadoop.mapreduce.v2.app.job.event.JobCounterUpdateEvent;
 import org.apache.hadoop.mapreduce.v2.app.job.event.JobSetupCompletedEvent;
 import org.apache.hadoop.mapreduce.v2.app.job.event.JobSetupFailedEvent;
 import org.apache.hadoop.mapreduce.v2.app.job.event.TaskAttemptEvent;
@@ -285,6 +287,7 @@ protected void handleJobCommit(CommitterJobCommitEvent event) {
         waitForValidCommitWindow();
         committer.commitJob(event.getJobContext());
         touchz(endCommitSuccessFile, commitJobIsRepeatable);
+        countJobCommit(event.getJobID());
         context.getEventHandler().handle(
             new JobCommitCompletedEvent(event.getJobID()));
       } catch (Exception e) {
@@ -302,6 +305,18 @@ protected void handleJobCommit(CommitterJobCommitEvent event) {
       }
     }
 
+    @SuppressWarnings("unchecked")
+    private void countJobCommit(JobId jobId) {
+      Map<Enum<?>, Long> counters = committer.getJobCommitCounters();
+      if (!counters.isEmpty()) {
+        JobCounterUpdateEvent update = new JobCounterUpdateEvent(jobId);
+        for (Map.Entry<Enum<?>, Long> counter : counters.entrySet()) {
+          update.addCounterUpdate(counter.getKey(), counter.getValue());
+        }
+        context.getEventHandler().handle(update);
+      }
+    }
+
     @SuppressWarnings("unchecked")
     protected void handleJobAbort(CommitterJobAbortEvent event) {
       cancelJobCommit();
@@ -2212,6 +2212,14 @@ public void transition(TaskAttemptImpl taskAttempt,
           (new SpeculatorEvent
               (taskAttempt.reportedStatus, taskAttempt.clock.getTime()));
 
+      if (taskAttempt.getID().getTaskId().getTaskType() == TaskType.MAP
+          && MRApps.isMapJvmReuseEnabled(taskAttempt.conf)) {
+        // the JVM asks for another map rather than exiting; the allocator
+        // either keeps the container for one or releases it
+        taskAttempt.eventHandler.handle(new ContainerAllocatorEvent(
+            taskAttempt.attemptId,
+            ContainerAllocator.EventType.CONTAINER_REUSE));
+      }
     }
   }
 
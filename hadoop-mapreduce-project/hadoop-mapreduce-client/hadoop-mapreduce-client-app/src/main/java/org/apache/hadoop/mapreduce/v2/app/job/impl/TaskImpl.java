@@ -612,6 +612,19 @@ private void addAndScheduleAttempt(Avataar avataar, boolean reschedule) {
     }
   }
 
+  // Counts whether the speculative attempts of a succeeded task paid off.
+  private void countSpeculativeAttempts() {
+    for (TaskAttempt attempt : attempts.values()) {
+      if (((TaskAttemptImpl) attempt).getAvataar() == Avataar.SPECULATIVE) {
+        if (attempt.getID().equals(successfulAttempt)) {
+          metrics.speculativeAttemptWon(this);
+        } else {
+          metrics.speculativeAttemptWasted(this);
+        }
+      }
+    }
+  }
+
   private TaskAttemptImpl addAttempt(Avataar avataar) {
     TaskAttemptImpl attempt = createAttempt();
     attempt.setAvataar(avataar);
@@ -947,6 +960,7 @@ public void transition(TaskImpl task, TaskEvent event) {
       task.inProgressAttempts.remove(taskAttemptId);
       task.successfulAttempt = taskAttemptId;
       task.sendTaskSucceededEvents();
+      task.countSpeculativeAttempts();
       for (TaskAttempt attempt : task.attempts.values()) {
         if (attempt.getID() != task.successfulAttempt &&
             // This is okay because it can only talk us out of sending a
@@ -112,6 +112,7 @@ private class Container {
     private TaskAttemptId taskAttemptID;
     private ContainerId containerID;
     final private String containerMgrAddress;
+    private int shufflePort = -1;
     
     public Container(TaskAttemptId taId, ContainerId containerID,
         String containerMgrAddress) {
@@ -131,6 +132,14 @@ public synchronized void done() {
 
     @SuppressWarnings("unchecked")
     public synchronized void launch(ContainerRemoteLaunchEvent event) {
+      if (this.state == ContainerState.RUNNING) {
+        // the JVM of an earlier map is waiting for this attempt
+        taskAttemptID = event.getTaskAttemptID();
+        LOG.info("Reusing " + containerID + " for " + taskAttemptID);
+        context.getEventHandler().handle(
+            new TaskAttemptContainerLaunchedEvent(taskAttemptID, shufflePort));
+        return;
+      }
       LOG.info("Launching " + taskAttemptID);
       if(this.state == ContainerState.KILLED_BEFORE_LAUNCH) {
         state = ContainerState.DONE;
@@ -181,6 +190,7 @@ public synchronized void launch(ContainerRemoteLaunchEvent event) {
         // it from ASSIGNED to RUNNING state
         context.getEventHandler().handle(
             new TaskAttemptContainerLaunchedEvent(taskAttemptID, port));
+        this.shufflePort = port;
         this.state = ContainerState.RUNNING;
       } catch (Throwable t) {
         String message = "Container launch failed for " + containerID + " : "
@@ -49,6 +49,11 @@ public class MRAppMetrics {
   @Metric MutableCounterInt reducesKilled;
   @Metric MutableGaugeInt reducesRunning;
   @Metric MutableGaugeInt reducesWaiting;
+
+  @Metric("Speculative attempts which finished their task first")
+  MutableCounterInt speculativeAttemptsWon;
+  @Metric("Speculative attempts whose task another attempt finished")
+  MutableCounterInt speculativeAttemptsWasted;
   
   public static MRAppMetrics create() {
     return create(DefaultMetricsSystem.instance());
@@ -180,4 +185,12 @@ public void endWaitingTask(Task task) {
         break;
     }
   }
-}
\ No newline at end of file
+
+  public void speculativeAttemptWon(Task task) {
+    speculativeAttemptsWon.incr();
+  }
+
+  public void speculativeAttemptWasted(Task task) {
+    speculativeAttemptsWasted.incr();
+  }
+}
@@ -26,7 +26,9 @@ enum EventType {
 
     CONTAINER_REQ,
     CONTAINER_DEALLOCATE,
-    CONTAINER_FAILED
+    CONTAINER_FAILED,
+    // a map finished and its JVM waits for another one
+    CONTAINER_REUSE
   }
 
 }
@@ -40,8 +40,12 @@
 import org.apache.hadoop.classification.InterfaceAudience.Private;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.WrappedJvmID;
+import org.apache.hadoop.mapreduce.Counters;
 import org.apache.hadoop.mapreduce.JobCounter;
 import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.TaskCounter;
+import org.apache.hadoop.mapreduce.TypeConverter;
 import org.apache.hadoop.mapreduce.jobhistory.JobHistoryEvent;
 import org.apache.hadoop.mapreduce.jobhistory.NormalizedResourceEvent;
 import org.apache.hadoop.mapreduce.v2.api.records.JobId;
@@ -49,7 +53,10 @@
 import org.apache.hadoop.mapreduce.v2.api.records.TaskType;
 import org.apache.hadoop.mapreduce.v2.app.AppContext;
 import org.apache.hadoop.mapreduce.v2.app.MRAppMaster;
+import org.apache.hadoop.mapreduce.v2.app.TaskAttemptListener;
 import org.apache.hadoop.mapreduce.v2.app.client.ClientService;
+import org.apache.hadoop.mapreduce.v2.app.job.Task;
+import org.apache.hadoop.mapreduce.v2.app.job.TaskAttempt;
 import org.apache.hadoop.mapreduce.v2.app.job.event.JobCounterUpdateEvent;
 import org.apache.hadoop.mapreduce.v2.app.job.event.JobDiagnosticsUpdateEvent;
 import org.apache.hadoop.mapreduce.v2.app.job.event.JobEvent;
@@ -60,7 +67,10 @@
 import org.apache.hadoop.mapreduce.v2.app.job.event.TaskAttemptEvent;
 import org.apache.hadoop.mapreduce.v2.app.job.event.TaskAttemptEventType;
 import org.apache.hadoop.mapreduce.v2.app.job.event.TaskAttemptKillEvent;
+import org.apache.hadoop.mapreduce.v2.app.launcher.ContainerLauncher;
+import org.apache.hadoop.mapreduce.v2.app.launcher.ContainerLauncherEvent;
 import org.apache.hadoop.mapreduce.v2.app.rm.preemption.AMPreemptionPolicy;
+import org.apache.hadoop.mapreduce.v2.util.MRApps;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.util.StringInterner;
 import org.apache.hadoop.util.StringUtils;
@@ -194,6 +204,14 @@ added to the pending and are ramped up (added to scheduled) based
 
   private String reduceNodeLabelExpression;
 
+  // containers of finished maps whose JVM waits for another map
+  private WarmContainerPool warmContainers = new WarmContainerPool(1,
+      MRJobConfig.DEFAULT_JVM_REUSE_IDLE_TIMEOUT_MS);
+  private float jvmReuseMemoryLimit;
+  private boolean reuseJvms;
+  // told when the JVM of a reused container goes away
+  private TaskAttemptListener taskAttemptListener;
+
   public RMContainerAllocator(ClientService clientService, AppContext context,
       AMPreemptionPolicy preemptionPolicy) {
     super(clientService, context);
@@ -240,6 +258,13 @@ protected void serviceInit(Configuration conf) throws Exception {
     this.scheduledRequests.setNumOpportunisticMapsPer100(
         conf.getInt(MRJobConfig.MR_NUM_OPPORTUNISTIC_MAPS_PER_100,
             MRJobConfig.DEFAULT_MR_NUM_OPPORTUNISTIC_MAPS_PER_100));
+    reuseJvms = MRApps.isMapJvmReuseEnabled(conf);
+    warmContainers = new WarmContainerPool(
+        reuseJvms ? conf.getInt(MRJobConfig.JVM_NUMTASKS_TORUN, 1) : 1,
+        conf.getLong(MRJobConfig.JVM_REUSE_IDLE_TIMEOUT_MS,
+            MRJobConfig.DEFAULT_JVM_REUSE_IDLE_TIMEOUT_MS));
+    jvmReuseMemoryLimit = conf.getFloat(MRJobConfig.JVM_REUSE_MEMORY_LIMIT,
+        MRJobConfig.DEFAULT_JVM_REUSE_MEMORY_LIMIT);
   }
 
   @Override
@@ -278,9 +303,14 @@ public void run() {
     super.serviceStart();
   }
 
+  public void setTaskAttemptListener(TaskAttemptListener listener) {
+    this.taskAttemptListener = listener;
+  }
+
   @Override
   protected synchronized void heartbeat() throws Exception {
     scheduleStats.updateAndLogIfChanged("Before Scheduling: ");
+    assignWarmContainers();
     List<Container> allocatedContainers = getResources();
     if (allocatedContainers != null && allocatedContainers.size() > 0) {
       scheduledRequests.assign(allocatedContainers);
@@ -459,6 +489,29 @@ protected synchronized void handleEvent(ContainerAllocatorEvent event) {
             aId);
       }
       preemptionPolicy.handleCompletedContainer(event.getAttemptID());
+    } else if (
+        event.getType() == ContainerAllocator.EventType.CONTAINER_REUSE) {
+      TaskAttemptId aId = event.getAttemptID();
+      Container container = assignedRequests.maps.get(aId);
+      if (container == null) {
+        LOG.warn("No container to reuse for task attempt " + aId);
+      } else if (isWithinReuseMemoryLimit(aId, container)
+          && warmContainers.offer(container, aId, clock.getTime())) {
+        LOG.info("Keeping " + container.getId() + " of " + aId
+            + " to run another map");
+        assignedRequests.remove(aId);
+        // the attempt is done with the container without it being stopped
+        eventHandler.handle(new TaskAttemptEvent(aId,
+            TaskAttemptEventType.TA_CONTAINER_CLEANED));
+        preemptionPolicy.handleCompletedContainer(aId);
+      } else {
+        // the JVM is waiting for a map, so stop it; the attempt hears of it
+        // when the container completes
+        forgetJvm(container.getId());
+        containersReleased++;
+        pendingRelease.add(container.getId());
+        release(container.getId());
+      }
     } else if (
         event.getType() == ContainerAllocator.EventType.CONTAINER_FAILED) {
       ContainerFailedEvent fEv = (ContainerFailedEvent) event;
@@ -848,12 +901,28 @@ private List<Container> getResources() throws Exception {
   void processFinishedContainer(ContainerStatus container) {
     LOG.info("Received completed container " + container.getContainerId());
     TaskAttemptId attemptID = assignedRequests.get(container.getContainerId());
-    if (attemptID == null) {
+    WarmContainerPool.Entry warm =
+        warmContainers.completed(container.getContainerId());
+    if (attemptID == null && warm != null) {
+      // a container kept for another map, idle or released: the launcher
+      // still tracks it under the map which ran last
+      pendingRelease.remove(container.getContainerId());
+      forgetJvm(container.getContainerId());
+      Container kept = warm.getContainer();
+      eventHandler.handle(new ContainerLauncherEvent(warm.getLastAttempt(),
+          kept.getId(), StringInterner.weakIntern(kept.getNodeId().toString()),
+          kept.getContainerToken(),
+          ContainerLauncher.EventType.CONTAINER_COMPLETED));
+    } else if (attemptID == null) {
       LOG.error("Container complete event for unknown container "
           + container.getContainerId());
     } else {
       pendingRelease.remove(container.getContainerId());
       assignedRequests.remove(attemptID);
+      if (reuseJvms
+          && attemptID.getTaskId().getTaskType() == TaskType.MAP) {
+        forgetJvm(container.getContainerId());
+      }
 
       // Send the diagnostics
       String diagnostic = StringInterner.weakIntern(container.getDiagnostics());
@@ -867,6 +936,75 @@ void processFinishedContainer(ContainerStatus container) {
     }
   }
 
+  /**
+   * Hands the containers kept from finished maps to pending maps, and
+   * releases those which waited too long or are not needed any more.
+   */
+  private void assignWarmContainers() {
+    if (warmContainers.isEmpty()) {
+      return;
+    }
+    List<Container> idle = new ArrayList<Container>();
+    for (Container container : warmContainers.getIdleContainers()) {
+      if (isNodeBlacklisted(container.getNodeId().getHost())) {
+        warmContainers.remove(container.getId());
+        releaseWarmContainer(container);
+      } else {
+        idle.add(container);
+      }
+    }
+    scheduledRequests.assignWarm(idle);
+    boolean mapsPending = !scheduledRequests.maps.isEmpty();
+    for (Container container :
+        warmContainers.expire(clock.getTime(), !mapsPending)) {
+      LOG.info("Releasing idle container " + container.getId());
+      releaseWarmContainer(container);
+    }
+  }
+
+  private void releaseWarmContainer(Container container) {
+    forgetJvm(container.getId());
+    containersReleased++;
+    pendingRelease.add(container.getId());
+    release(container.getId());
+  }
+
+  /**
+   * Lets the listener forget the JVM of a map container which is released
+   * or completed, so that it is not kept waiting for another map.
+   */
+  private void forgetJvm(ContainerId containerId) {
+    if (reuseJvms && taskAttemptListener != null) {
+      taskAttemptListener.unregisterJvm(new WrappedJvmID(
+          TypeConverter.fromYarn(getJob().getID()), true,
+          containerId.getContainerId()));
+    }
+  }
+
+  /**
+   * @return whether the JVM of a finished map uses little enough memory to
+   * run another one.
+   */
+  private boolean isWithinReuseMemoryLimit(TaskAttemptId attemptId,
+      Container container) {
+    Task task = getJob().getTask(attemptId.getTaskId());
+    TaskAttempt attempt = task == null ? null : task.getAttempt(attemptId);
+    Counters counters = attempt == null ? null : attempt.getCounters();
+    if (counters == null) {
+      return true;
+    }
+    long used =
+        counters.findCounter(TaskCounter.PHYSICAL_MEMORY_BYTES).getValue();
+    long limit = (long) (container.getResource().getMemorySize() * 1024 * 1024
+        * jvmReuseMemoryLimit);
+    if (used > limit) {
+      LOG.info("Not reusing the JVM of " + attemptId + ", it uses " + used
+          + " bytes of memory");
+      return false;
+    }
+    return true;
+  }
+
   private void applyConcurrentTaskLimits() {
     int numScheduledMaps = scheduledRequests.maps.size();
     if (maxRunningMaps > 0 && numScheduledMaps > 0) {
@@ -1217,11 +1355,36 @@ reduceResourceRequest, getSchedulerResourceTypes()) <= 0
       }
     }
     
+    /**
+     * Assigns containers kept from finished maps, whose JVM is already up,
+     * to pending maps: earlier failed maps first, then by locality.  The
+     * containers left unassigned stay in the list.
+     */
+    private void assignWarm(List<Container> warmContainers) {
+      Iterator<Container> it = warmContainers.iterator();
+      while (it.hasNext() && earlierFailedMaps.size() > 0) {
+        Container warm = it.next();
+        ContainerRequest assigned = assignToFailedMap(warm);
+        if (assigned != null) {
+          containerAssigned(warm, assigned);
+          it.remove();
+        }
+      }
+      for (Container warm : warmContainers) {
+        // any map may run in it now, not only those of its first request
+        if (!PRIORITY_OPPORTUNISTIC_MAP.equals(warm.getPriority())) {
+          warm.setPriority(PRIORITY_MAP);
+        }
+      }
+      assignMapsWithLocality(warmContainers);
+    }
+
     @SuppressWarnings("unchecked")
     private void containerAssigned(Container allocated, 
                                     ContainerRequest assigned) {
       // Update resource requests
       decContainerReq(assigned);
+      warmContainers.assigned(allocated.getId());
 
       // send the container-assigned event to task attempt
       eventHandler.handle(new TaskAttemptContainerAssignedEvent(
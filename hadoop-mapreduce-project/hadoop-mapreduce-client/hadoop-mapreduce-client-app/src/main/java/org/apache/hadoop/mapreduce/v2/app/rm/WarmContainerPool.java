@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapreduce.v2.app.rm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.mapreduce.v2.api.records.TaskAttemptId;
+import org.apache.hadoop.yarn.api.records.Container;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+
+/**
+ * Map containers whose JVM stays up after its map to run another one.
+ *
+ * <p>A container offered once its map succeeds is idle until the allocator
+ * assigns it to a pending map, and is then busy like any other assigned
+ * container.  Containers which ran as many maps as a JVM may run, or which
+ * stay idle too long, are handed back to be released; the pool remembers
+ * them until the RM reports them completed.  Not thread safe; it is used
+ * under the lock of the {@link RMContainerAllocator}.</p>
+ */
+class WarmContainerPool {
+
+  static class Entry {
+    private final Container container;
+    private TaskAttemptId lastAttempt;
+    private int tasksRun;
+    private long idleSince = -1;
+    private boolean released;
+
+    Entry(Container container) {
+      this.container = container;
+    }
+
+    Container getContainer() {
+      return container;
+    }
+
+    /** @return the map which ran last in the container. */
+    TaskAttemptId getLastAttempt() {
+      return lastAttempt;
+    }
+  }
+
+  private final int maxTasksPerJvm;
+  private final long idleTimeoutMs;
+  private final Map<ContainerId, Entry> containers =
+      new HashMap<ContainerId, Entry>();
+  private final Map<ContainerId, Entry> idle =
+      new LinkedHashMap<ContainerId, Entry>();
+
+  /**
+   * @param maxTasksPerJvm how many maps a JVM may run, or -1 for no limit
+   * @param idleTimeoutMs how long a container may wait for its next map
+   */
+  WarmContainerPool(int maxTasksPerJvm, long idleTimeoutMs) {
+    this.maxTasksPerJvm = maxTasksPerJvm;
+    this.idleTimeoutMs = idleTimeoutMs;
+  }
+
+  /**
+   * Offers the container of a successful map to run another one.
+   * @return whether the container is kept; if not, it should be released.
+   */
+  boolean offer(Container container, TaskAttemptId attempt, long now) {
+    Entry entry = containers.get(container.getId());
+    if (entry == null) {
+      entry = new Entry(container);
+    }
+    entry.tasksRun++;
+    if (maxTasksPerJvm > 0 && entry.tasksRun >= maxTasksPerJvm) {
+      containers.remove(container.getId());
+      return false;
+    }
+    entry.lastAttempt = attempt;
+    entry.idleSince = now;
+    containers.put(container.getId(), entry);
+    idle.put(container.getId(), entry);
+    return true;
+  }
+
+  /** @return the idle containers, longest idle first. */
+  List<Container> getIdleContainers() {
+    List<Container> result = new ArrayList<Container>(idle.size());
+    for (Entry entry : idle.values()) {
+      result.add(entry.container);
+    }
+    return result;
+  }
+
+  /** Marks an idle container as assigned to another map. */
+  void assigned(ContainerId containerId) {
+    idle.remove(containerId);
+  }
+
+  /**
+   * Takes the idle containers which waited longer than the timeout, or all
+   * of them, out of the pool.
+   * @return the containers to release
+   */
+  List<Container> expire(long now, boolean all) {
+    List<Container> expired = new ArrayList<Container>();
+    Iterator<Entry> it = idle.values().iterator();
+    while (it.hasNext()) {
+      Entry entry = it.next();
+      if (all || now - entry.idleSince > idleTimeoutMs) {
+        it.remove();
+        entry.released = true;
+        expired.add(entry.container);
+      }
+    }
+    return expired;
+  }
+
+  /** Takes a container out of the pool, for instance when it is lost. */
+  void remove(ContainerId containerId) {
+    idle.remove(containerId);
+    containers.remove(containerId);
+  }
+
+  /**
+   * Forgets a container which completed.
+   * @return the container if it was idle or released by the pool, or null
+   * if it is not in the pool or was assigned to a map which hears of the
+   * completion itself.
+   */
+  Entry completed(ContainerId containerId) {
+    Entry entry = containers.remove(containerId);
+    if (entry == null) {
+      return null;
+    }
+    boolean wasIdle = idle.remove(containerId) != null;
+    return wasIdle || entry.released ? entry : null;
+  }
+
+  boolean isEmpty() {
+    return idle.isEmpty();
+  }
+
+  int getNumIdle() {
+    return idle.size();
+  }
+}
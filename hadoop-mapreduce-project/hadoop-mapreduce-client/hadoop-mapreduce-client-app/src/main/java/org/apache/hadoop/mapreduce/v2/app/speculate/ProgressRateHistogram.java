@@ -0,0 +1,95 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapreduce.v2.app.speculate;
+
+/**
+ * A histogram of the progress rates of task attempts, in progress per
+ * millisecond.
+ *
+ * <p>Rates are counted in logarithmic buckets a quarter of an octave wide, so
+ * a quantile is known to within about 10% whatever the rates of a job, and
+ * moving an attempt to another bucket as its rate changes is O(1).  Rates at
+ * or below {@link #MIN_RATE}, including attempts which made no progress at
+ * all, fall in the lowest bucket.</p>
+ *
+ * <p>This class is not thread safe.</p>
+ */
+class ProgressRateHistogram {
+  /** About 115 days for a whole task. */
+  static final double MIN_RATE = 1.0E-10;
+  static final double MAX_RATE = 1.0;
+  private static final int BUCKETS_PER_OCTAVE = 4;
+  private static final double BUCKET_WIDTH =
+      Math.log(2.0) / BUCKETS_PER_OCTAVE;
+  static final int NUM_BUCKETS =
+      (int) (Math.log(MAX_RATE / MIN_RATE) / BUCKET_WIDTH) + 1;
+
+  private final int[] counts = new int[NUM_BUCKETS];
+  private int size;
+
+  /** @return the bucket a progress rate is counted in. */
+  static int bucket(double rate) {
+    if (!(rate > MIN_RATE)) {
+      return 0;
+    }
+    return (int) Math.min(NUM_BUCKETS - 1,
+        Math.log(rate / MIN_RATE) / BUCKET_WIDTH);
+  }
+
+  /** @return the geometric middle of the rates counted in a bucket. */
+  static double rate(int bucket) {
+    return MIN_RATE * Math.exp((bucket + 0.5) * BUCKET_WIDTH);
+  }
+
+  void add(int bucket) {
+    ++counts[bucket];
+    ++size;
+  }
+
+  void remove(int bucket) {
+    if (counts[bucket] > 0) {
+      --counts[bucket];
+      --size;
+    }
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * @param quantile between 0 and 1
+   * @return the rate which the given share of the counted rates do not
+   *         exceed, or {@code -1} if nothing is counted.
+   */
+  double quantile(double quantile) {
+    if (size == 0) {
+      return -1.0;
+    }
+    int rank = Math.max(1, (int) Math.ceil(quantile * size));
+    int seen = 0;
+    for (int i = 0; i < NUM_BUCKETS; ++i) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return rate(i);
+      }
+    }
+    return rate(NUM_BUCKETS - 1);
+  }
+}
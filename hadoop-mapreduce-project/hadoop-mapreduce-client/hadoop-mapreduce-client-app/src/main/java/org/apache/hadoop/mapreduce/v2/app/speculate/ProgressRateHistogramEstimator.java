@@ -0,0 +1,325 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.mapreduce.v2.app.speculate;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.v2.api.records.Locality;
+import org.apache.hadoop.mapreduce.v2.api.records.TaskAttemptId;
+import org.apache.hadoop.mapreduce.v2.api.records.TaskId;
+import org.apache.hadoop.mapreduce.v2.api.records.TaskType;
+import org.apache.hadoop.mapreduce.v2.app.AppContext;
+import org.apache.hadoop.mapreduce.v2.app.job.Job;
+import org.apache.hadoop.mapreduce.v2.app.job.Task;
+import org.apache.hadoop.mapreduce.v2.app.job.TaskAttempt;
+import org.apache.hadoop.mapreduce.v2.app.job.event.TaskAttemptStatusUpdateEvent.TaskAttemptStatus;
+import org.apache.hadoop.mapreduce.v2.app.job.impl.TaskAttemptImpl;
+import org.apache.hadoop.yarn.api.records.NodeId;
+
+/**
+ * This estimator compares the progress rate of each attempt with a histogram
+ * of the rates of all the attempts of the same job and task type, running or
+ * succeeded.  A slow attempt can so be told apart from a skewed job before
+ * enough tasks have completed for their runtimes to be a useful yardstick.
+ *
+ * <p>An attempt is worth speculating while its rate is below the
+ * {@link MRJobConfig#MR_AM_TASK_ESTIMATOR_HISTOGRAM_SLOW_QUANTILE} quantile
+ * of the histogram.  Until an attempt has made some progress, its rate is
+ * expected to be the median rate, scaled by how much slower than the median
+ * earlier attempts ran on the same host and, for maps, with the same data
+ * locality.</p>
+ */
+public class ProgressRateHistogramEstimator extends StartEndTimesBase {
+  /**
+   * How much progress the expected rate of an attempt is worth; the rate an
+   * attempt has shown outweighs it once the attempt has made more progress.
+   */
+  private static final float EXPECTED_RATE_PROGRESS = 0.2F;
+  /** Weight of the latest attempt in the slowness of a host or locality. */
+  private static final double SLOWNESS_WEIGHT = 0.3;
+  private static final double MIN_SLOWNESS = 0.1;
+  private static final double MAX_SLOWNESS = 10.0;
+  static final int MINIMUM_RATES_TO_SPECULATE = 2;
+
+  private final Map<Job, ProgressRateHistogram> mapperRates
+      = new HashMap<Job, ProgressRateHistogram>();
+  private final Map<Job, ProgressRateHistogram> reducerRates
+      = new HashMap<Job, ProgressRateHistogram>();
+
+  private final Map<TaskAttemptId, AttemptProgress> attempts
+      = new HashMap<TaskAttemptId, AttemptProgress>();
+
+  // How many times slower than the median attempts ran on each host and with
+  //  each locality.
+  private final Map<String, Double> hostSlowness
+      = new HashMap<String, Double>();
+  private final Map<Locality, Double> localitySlowness
+      = new EnumMap<Locality, Double>(Locality.class);
+
+  private float slowQuantile
+      = MRJobConfig.DEFAULT_MR_AM_TASK_ESTIMATOR_HISTOGRAM_SLOW_QUANTILE;
+
+  private static class AttemptProgress {
+    String host;
+    Locality locality;
+    float progress;
+    long atTime;
+    // the histogram bucket the attempt is counted in, or -1
+    int bucket = -1;
+    boolean finished;
+  }
+
+  @Override
+  public synchronized void contextualize(Configuration conf,
+      AppContext context) {
+    super.contextualize(conf, context);
+
+    slowQuantile = conf.getFloat(
+        MRJobConfig.MR_AM_TASK_ESTIMATOR_HISTOGRAM_SLOW_QUANTILE,
+        MRJobConfig.DEFAULT_MR_AM_TASK_ESTIMATOR_HISTOGRAM_SLOW_QUANTILE);
+    for (Job job : context.getAllJobs().values()) {
+      mapperRates.put(job, new ProgressRateHistogram());
+      reducerRates.put(job, new ProgressRateHistogram());
+    }
+  }
+
+  private ProgressRateHistogram ratesForTask(TaskId taskID) {
+    Job job = context.getJob(taskID.getJobId());
+
+    if (job == null) {
+      return null;
+    }
+
+    return taskID.getTaskType() == TaskType.MAP
+        ? mapperRates.get(job) : reducerRates.get(job);
+  }
+
+  @Override
+  public synchronized void updateAttempt(TaskAttemptStatus status,
+      long timestamp) {
+    super.updateAttempt(status, timestamp);
+
+    TaskAttemptId attemptID = status.id;
+    Long start = startTimes.get(attemptID);
+    ProgressRateHistogram rates = ratesForTask(attemptID.getTaskId());
+
+    if (start == null || rates == null) {
+      return;
+    }
+
+    AttemptProgress attempt = attempts.get(attemptID);
+
+    if (attempt == null) {
+      attempt = new AttemptProgress();
+      attempts.put(attemptID, attempt);
+    }
+
+    if (attempt.finished || timestamp < attempt.atTime) {
+      return;
+    }
+
+    if (attempt.host == null) {
+      locate(attempt, attemptID);
+    }
+
+    switch (status.taskState) {
+      case SUCCEEDED:
+        attempt.finished = true;
+        attempt.progress = 1.0F;
+        attempt.atTime = timestamp;
+        if (timestamp > start) {
+          double rate = 1.0 / (timestamp - start);
+          learnSlowness(attempt, rates.quantile(0.5) / rate);
+          count(rates, attempt, rate);
+        }
+        break;
+
+      case FAILED:
+      case KILLED:
+        attempt.finished = true;
+        if (attempt.bucket >= 0) {
+          rates.remove(attempt.bucket);
+          attempt.bucket = -1;
+        }
+        break;
+
+      default:
+        attempt.progress = Math.max(attempt.progress, status.progress);
+        attempt.atTime = timestamp;
+        if (attempt.progress > 0.0F && timestamp > start) {
+          count(rates, attempt, attempt.progress / (timestamp - start));
+        }
+        break;
+    }
+  }
+
+  private void locate(AttemptProgress progress, TaskAttemptId attemptID) {
+    Job job = context.getJob(attemptID.getTaskId().getJobId());
+    Task task = job == null ? null : job.getTask(attemptID.getTaskId());
+    TaskAttempt attempt = task == null ? null : task.getAttempt(attemptID);
+
+    if (attempt == null) {
+      return;
+    }
+
+    NodeId node = attempt.getNodeId();
+
+    if (node != null) {
+      progress.host = node.getHost();
+      // only the attempts the AM runs itself know where their split is
+      if (attempt instanceof TaskAttemptImpl
+          && attemptID.getTaskId().getTaskType() == TaskType.MAP) {
+        progress.locality = ((TaskAttemptImpl) attempt).getLocality();
+      }
+    }
+  }
+
+  private static void count(ProgressRateHistogram rates,
+      AttemptProgress attempt, double rate) {
+    int bucket = ProgressRateHistogram.bucket(rate);
+
+    if (bucket != attempt.bucket) {
+      if (attempt.bucket >= 0) {
+        rates.remove(attempt.bucket);
+      }
+      rates.add(bucket);
+      attempt.bucket = bucket;
+    }
+  }
+
+  private void learnSlowness(AttemptProgress attempt, double slowness) {
+    if (slowness <= 0.0) {
+      return;
+    }
+
+    slowness = Math.max(MIN_SLOWNESS, Math.min(MAX_SLOWNESS, slowness));
+    learnSlowness(hostSlowness, attempt.host, slowness);
+    learnSlowness(localitySlowness, attempt.locality, slowness);
+  }
+
+  private static <K> void learnSlowness(Map<K, Double> slownesses, K key,
+      double slowness) {
+    if (key == null) {
+      return;
+    }
+
+    Double old = slownesses.get(key);
+
+    slownesses.put(key,
+        old == null ? slowness : old + SLOWNESS_WEIGHT * (slowness - old));
+  }
+
+  private static double slowness(Map<?, Double> slownesses, Object key) {
+    Double result = key == null ? null : slownesses.get(key);
+
+    return result == null ? 1.0 : result;
+  }
+
+  /**
+   * @return the progress rate of the attempt so far, drawn towards the rate
+   *         expected of it while it has made little progress, or {@code -1}
+   *         if there is nothing to go by yet.
+   */
+  private double estimatedRate(TaskAttemptId attemptID) {
+    Long start = startTimes.get(attemptID);
+    AttemptProgress attempt = attempts.get(attemptID);
+    ProgressRateHistogram rates = ratesForTask(attemptID.getTaskId());
+
+    if (start == null || attempt == null || rates == null) {
+      return -1.0;
+    }
+
+    long elapsed = Math.max(0L, attempt.atTime - start);
+    double median = rates.quantile(0.5);
+
+    if (median <= 0.0) {
+      return elapsed > 0L ? attempt.progress / elapsed : -1.0;
+    }
+
+    double expected = median
+        / (slowness(hostSlowness, attempt.host)
+            * slowness(localitySlowness, attempt.locality));
+
+    return (attempt.progress + EXPECTED_RATE_PROGRESS)
+        / (elapsed + EXPECTED_RATE_PROGRESS / expected);
+  }
+
+  @Override
+  public synchronized long thresholdRuntime(TaskId taskID) {
+    Job job = context.getJob(taskID.getJobId());
+    Task task = job == null ? null : job.getTask(taskID);
+    ProgressRateHistogram rates = ratesForTask(taskID);
+
+    if (task == null || rates == null) {
+      return Long.MAX_VALUE;
+    }
+
+    int totalTasksOfType = taskID.getTaskType() == TaskType.MAP
+        ? job.getTotalMaps() : job.getTotalReduces();
+
+    if (rates.size() < MINIMUM_RATES_TO_SPECULATE
+        || rates.size()
+            < MINIMUM_COMPLETE_PROPORTION_TO_SPECULATE * totalTasksOfType) {
+      return Long.MAX_VALUE;
+    }
+
+    double slowRate = rates.quantile(slowQuantile);
+
+    for (TaskAttemptId attemptID : task.getAttempts().keySet()) {
+      double rate = estimatedRate(attemptID);
+
+      if (rate >= 0.0 && rate < slowRate) {
+        return (long) (1.0 / slowRate);
+      }
+    }
+
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public synchronized long estimatedRuntime(TaskAttemptId id) {
+    double rate = estimatedRate(id);
+
+    if (rate <= 0.0) {
+      return -1L;
+    }
+
+    AttemptProgress attempt = attempts.get(id);
+    long sunkTime = Math.max(0L, attempt.atTime - startTimes.get(id));
+
+    return sunkTime + (long) ((1.0 - attempt.progress) / rate);
+  }
+
+  @Override
+  public synchronized long estimatedNewAttemptRuntime(TaskId id) {
+    ProgressRateHistogram rates = ratesForTask(id);
+    double median = rates == null ? -1.0 : rates.quantile(0.5);
+
+    return median <= 0.0 ? -1L : (long) (1.0 / median);
+  }
+
+  @Override
+  public long runtimeEstimateVariance(TaskAttemptId id) {
+    return -1L;
+  }
+}
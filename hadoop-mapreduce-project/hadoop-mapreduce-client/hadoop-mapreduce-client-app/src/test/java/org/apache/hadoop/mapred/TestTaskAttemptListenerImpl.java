@@ -173,6 +173,59 @@ public void testGetTask() throws IOException {
 
   }
 
+  @Test (timeout=5000)
+  public void testGetTaskForReusedJvm() throws IOException {
+    AppContext appCtx = mock(AppContext.class);
+    JobTokenSecretManager secret = mock(JobTokenSecretManager.class);
+    RMHeartbeatHandler rmHeartbeatHandler =
+        mock(RMHeartbeatHandler.class);
+    TaskHeartbeatHandler hbHandler = mock(TaskHeartbeatHandler.class);
+    EventHandler ea = mock(EventHandler.class);
+    when(appCtx.getEventHandler()).thenReturn(ea);
+    CheckpointAMPreemptionPolicy policy = new CheckpointAMPreemptionPolicy();
+    policy.init(appCtx);
+    MockTaskAttemptListenerImpl listener =
+      new MockTaskAttemptListenerImpl(appCtx, secret,
+          rmHeartbeatHandler, hbHandler, policy);
+    Configuration conf = new Configuration();
+    conf.setBoolean(MRJobConfig.JVM_REUSE_ENABLED, true);
+    conf.setInt(MRJobConfig.JVM_NUMTASKS_TORUN, -1);
+    listener.init(conf);
+    listener.start();
+    JVMId id = new JVMId("foo", 1, true, 1);
+    WrappedJvmID wid = new WrappedJvmID(id.getJobId(), id.isMap, id.getId());
+    JvmContext context = new JvmContext();
+    context.jvmId = id;
+
+    TaskAttemptId attemptID = mock(TaskAttemptId.class);
+    Task task = mock(Task.class);
+    when(task.isMapTask()).thenReturn(true);
+    listener.registerPendingTask(task, wid);
+    listener.registerLaunchedTask(attemptID, wid);
+    JvmTask result = listener.getTask(context);
+    assertFalse(result.shouldDie);
+    listener.unregister(attemptID, wid);
+
+    // once its map is done, the JVM waits rather than exits
+    assertNull(listener.getTask(context));
+
+    // and is given the next map registered for it
+    TaskAttemptId nextAttemptID = mock(TaskAttemptId.class);
+    Task nextTask = mock(Task.class);
+    when(nextTask.isMapTask()).thenReturn(true);
+    listener.registerPendingTask(nextTask, wid);
+    listener.registerLaunchedTask(nextAttemptID, wid);
+    result = listener.getTask(context);
+    assertFalse(result.shouldDie);
+    assertEquals(nextTask, result.getTask());
+    listener.unregister(nextAttemptID, wid);
+
+    // until its container is released
+    listener.unregisterJvm(wid);
+    assertTrue(listener.getTask(context).shouldDie);
+    listener.stop();
+  }
+
   @Test (timeout=5000)
   public void testJVMId() {
 
@@ -59,6 +59,7 @@
 import org.apache.hadoop.mapreduce.v2.app.speculate.DefaultSpeculator;
 import org.apache.hadoop.mapreduce.v2.app.speculate.ExponentiallySmoothedTaskRuntimeEstimator;
 import org.apache.hadoop.mapreduce.v2.app.speculate.LegacyTaskRuntimeEstimator;
+import org.apache.hadoop.mapreduce.v2.app.speculate.ProgressRateHistogramEstimator;
 import org.apache.hadoop.mapreduce.v2.app.speculate.Speculator;
 import org.apache.hadoop.mapreduce.v2.app.speculate.SpeculatorEvent;
 import org.apache.hadoop.mapreduce.v2.app.speculate.TaskRuntimeEstimator;
@@ -255,6 +256,13 @@ public void testExponentialEstimator() throws Exception {
     coreTestEstimator(specificEstimator, 3);
   }
 
+  @Test
+  public void testProgressRateHistogramEstimator() throws Exception {
+    TaskRuntimeEstimator specificEstimator
+        = new ProgressRateHistogramEstimator();
+    coreTestEstimator(specificEstimator, 5);
+  }
+
   int taskTypeSlots(TaskType type) {
     return type == TaskType.MAP ? MAP_SLOT_REQUIREMENT : REDUCE_SLOT_REQUIREMENT;
   }
@@ -567,8 +575,9 @@ void startUp() {
     }
 
     @Override
-    public NodeId getNodeId() throws UnsupportedOperationException{
-      throw new UnsupportedOperationException();
+    public NodeId getNodeId() {
+      return NodeId.newInstance(
+          "host" + myAttemptID.getTaskId().getId() % 10, 1234);
     }
     
     @Override
@@ -22,6 +22,8 @@
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.io.IOException;
@@ -622,6 +624,8 @@ private void runSpeculativeTaskAttemptSucceeds(
     
     // The task should contain speculative a task attempt
     assertTaskAttemptAvataar(Avataar.SPECULATIVE);
+    verify(metrics).speculativeAttemptWon(mockTask);
+    verify(metrics, never()).speculativeAttemptWasted(mockTask);
   }
   
   @Test
@@ -660,6 +664,28 @@ public void testCommitAfterSucceeds() {
     runSpeculativeTaskAttemptSucceeds(TaskEventType.T_ATTEMPT_COMMIT_PENDING);
   }
 
+  @Test
+  public void testSpeculativeAttemptWasted() {
+    mockTask = createMockTask(TaskType.MAP);
+    TaskId taskId = getNewTaskID();
+    scheduleTaskAttempt(taskId);
+    launchTaskAttempt(getLastAttempt().getAttemptId());
+    updateLastAttemptState(TaskAttemptState.RUNNING);
+    MockTaskAttemptImpl baseAttempt = getLastAttempt();
+
+    mockTask.handle(new TaskTAttemptEvent(baseAttempt.getAttemptId(),
+        TaskEventType.T_ADD_SPEC_ATTEMPT));
+    launchTaskAttempt(getLastAttempt().getAttemptId());
+
+    // the original attempt finishes before the speculative one
+    commitTaskAttempt(baseAttempt.getAttemptId());
+    mockTask.handle(new TaskTAttemptEvent(baseAttempt.getAttemptId(),
+        TaskEventType.T_ATTEMPT_SUCCEEDED));
+    assertTaskSucceededState();
+    verify(metrics).speculativeAttemptWasted(mockTask);
+    verify(metrics, never()).speculativeAttemptWon(mockTask);
+  }
+
   @Test
   public void testSpeculativeMapFetchFailure() {
     // Setup a scenario where speculative task wins, first attempt killed
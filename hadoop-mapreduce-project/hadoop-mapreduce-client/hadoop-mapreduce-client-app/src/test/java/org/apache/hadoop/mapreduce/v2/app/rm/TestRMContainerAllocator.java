@@ -22,6 +22,7 @@
 import static org.mockito.Matchers.anyFloat;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.isA;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.inOrder;
@@ -50,7 +51,9 @@
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.WrappedJvmID;
 import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.TypeConverter;
 import org.apache.hadoop.mapreduce.v2.api.records.JobId;
 import org.apache.hadoop.mapreduce.v2.api.records.JobState;
 import org.apache.hadoop.mapreduce.v2.api.records.TaskAttemptId;
@@ -61,6 +64,7 @@
 import org.apache.hadoop.mapreduce.v2.app.ClusterInfo;
 import org.apache.hadoop.mapreduce.v2.app.MRApp;
 import org.apache.hadoop.mapreduce.v2.app.MRAppMaster.RunningAppContext;
+import org.apache.hadoop.mapreduce.v2.app.TaskAttemptListener;
 import org.apache.hadoop.mapreduce.v2.app.client.ClientService;
 import org.apache.hadoop.mapreduce.v2.app.job.Job;
 import org.apache.hadoop.mapreduce.v2.app.job.JobStateInternal;
@@ -256,6 +260,84 @@ public void testSimple() throws Exception {
     Assert.assertEquals(5, rm.getMyFifoScheduler().lastAsk.size());    
   }
   
+  @Test
+  public void testWarmContainerReuse() throws Exception {
+    LOG.info("Running testWarmContainerReuse");
+
+    Configuration conf = new Configuration();
+    conf.setBoolean(MRJobConfig.JVM_REUSE_ENABLED, true);
+    conf.setInt(MRJobConfig.JVM_NUMTASKS_TORUN, 2);
+    MyResourceManager rm = new MyResourceManager(conf);
+    rm.start();
+    DrainDispatcher dispatcher = (DrainDispatcher) rm.getRMContext()
+        .getDispatcher();
+
+    // Submit the application
+    RMApp app = rm.submitApp(1024);
+    dispatcher.await();
+
+    MockNM amNodeManager = rm.registerNode("amNM:1234", 2048);
+    amNodeManager.nodeHeartbeat(true);
+    dispatcher.await();
+
+    ApplicationAttemptId appAttemptId = app.getCurrentAppAttempt()
+        .getAppAttemptId();
+    rm.sendAMLaunched(appAttemptId);
+    dispatcher.await();
+
+    JobId jobId = MRBuilderUtils.newJobId(appAttemptId.getApplicationId(), 0);
+    Job mockJob = mock(Job.class);
+    when(mockJob.getReport()).thenReturn(
+        MRBuilderUtils.newJobReport(jobId, "job", "user", JobState.RUNNING, 0,
+            0, 0, 0, 0, 0, 0, "jobfile", null, false, ""));
+    when(mockJob.getID()).thenReturn(jobId);
+    MyContainerAllocator allocator = new MyContainerAllocator(rm, conf,
+        appAttemptId, mockJob);
+    TaskAttemptListener listener = mock(TaskAttemptListener.class);
+    allocator.setTaskAttemptListener(listener);
+
+    MockNM nodeManager1 = rm.registerNode("h1:1234", 10240);
+    dispatcher.await();
+
+    ContainerRequestEvent event1 = createReq(jobId, 1, 1024,
+        new String[] { "h1" });
+    allocator.sendRequest(event1);
+    allocator.schedule();
+    dispatcher.await();
+    nodeManager1.nodeHeartbeat(true);
+    dispatcher.await();
+    List<TaskAttemptContainerAssignedEvent> assigned = allocator.schedule();
+    dispatcher.await();
+    Assert.assertEquals(1, assigned.size());
+    ContainerId containerId = assigned.get(0).getContainer().getId();
+
+    // the first map is done while a second one waits: it gets the same
+    // container without asking the RM
+    ContainerRequestEvent event2 = createReq(jobId, 2, 1024,
+        new String[] { "h2" });
+    allocator.sendRequest(event2);
+    allocator.sendDeallocate(new ContainerAllocatorEvent(
+        event1.getAttemptID(), ContainerAllocator.EventType.CONTAINER_REUSE));
+    assigned = allocator.schedule();
+    dispatcher.await();
+    Assert.assertEquals(1, assigned.size());
+    Assert.assertEquals(event2.getAttemptID(),
+        assigned.get(0).getTaskAttemptID());
+    Assert.assertEquals(containerId, assigned.get(0).getContainer().getId());
+    verify(listener, never()).unregisterJvm(any(WrappedJvmID.class));
+
+    // its JVM ran as many maps as it may, so the container is released
+    allocator.sendDeallocate(new ContainerAllocatorEvent(
+        event2.getAttemptID(), ContainerAllocator.EventType.CONTAINER_REUSE));
+    assigned = allocator.schedule();
+    dispatcher.await();
+    Assert.assertEquals(0, assigned.size());
+    Assert.assertEquals(Arrays.asList(containerId),
+        rm.getMyFifoScheduler().lastRelease);
+    verify(listener, atLeastOnce()).unregisterJvm(new WrappedJvmID(
+        TypeConverter.fromYarn(jobId), true, containerId.getContainerId()));
+  }
+
   @Test 
   public void testMapNodeLocality() throws Exception {
     // test checks that ordering of allocated containers list from the RM does 
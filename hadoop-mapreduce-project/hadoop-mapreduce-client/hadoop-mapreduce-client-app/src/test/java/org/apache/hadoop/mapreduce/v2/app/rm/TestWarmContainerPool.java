@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapreduce.v2.app.rm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.hadoop.mapreduce.v2.api.records.JobId;
+import org.apache.hadoop.mapreduce.v2.api.records.TaskAttemptId;
+import org.apache.hadoop.mapreduce.v2.api.records.TaskType;
+import org.apache.hadoop.mapreduce.v2.util.MRBuilderUtils;
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.Container;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.NodeId;
+import org.apache.hadoop.yarn.api.records.Priority;
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.junit.Test;
+
+public class TestWarmContainerPool {
+  private final ApplicationAttemptId appAttemptId =
+      ApplicationAttemptId.newInstance(ApplicationId.newInstance(1, 1), 1);
+  private final JobId jobId =
+      MRBuilderUtils.newJobId(appAttemptId.getApplicationId(), 1);
+
+  private Container newContainer(int id) {
+    return Container.newInstance(
+        ContainerId.newContainerId(appAttemptId, id),
+        NodeId.newInstance("h" + id, 1234), "h" + id + ":8042",
+        Resource.newInstance(1024, 1), Priority.newInstance(20), null);
+  }
+
+  private TaskAttemptId newAttempt(int task) {
+    return MRBuilderUtils.newTaskAttemptId(
+        MRBuilderUtils.newTaskId(jobId, task, TaskType.MAP), 0);
+  }
+
+  @Test
+  public void testReuseLimit() {
+    WarmContainerPool pool = new WarmContainerPool(3, 1000);
+    Container container = newContainer(1);
+    assertTrue(pool.offer(container, newAttempt(1), 0));
+    assertEquals(Arrays.asList(container), pool.getIdleContainers());
+    pool.assigned(container.getId());
+    assertTrue(pool.isEmpty());
+    assertTrue(pool.offer(container, newAttempt(2), 10));
+    pool.assigned(container.getId());
+    // the JVM ran three maps
+    assertFalse(pool.offer(container, newAttempt(3), 20));
+    assertTrue(pool.isEmpty());
+    assertNull(pool.completed(container.getId()));
+  }
+
+  @Test
+  public void testNoReuseLimit() {
+    WarmContainerPool pool = new WarmContainerPool(-1, 1000);
+    Container container = newContainer(1);
+    for (int i = 0; i < 100; i++) {
+      assertTrue(pool.offer(container, newAttempt(i), i));
+      pool.assigned(container.getId());
+    }
+  }
+
+  @Test
+  public void testExpire() {
+    WarmContainerPool pool = new WarmContainerPool(-1, 1000);
+    Container first = newContainer(1);
+    Container second = newContainer(2);
+    pool.offer(first, newAttempt(1), 0);
+    pool.offer(second, newAttempt(2), 500);
+    assertEquals(Collections.emptyList(), pool.expire(1000, false));
+    assertEquals(Arrays.asList(first), pool.expire(1001, false));
+    assertEquals(1, pool.getNumIdle());
+    assertEquals(Arrays.asList(second), pool.expire(1001, true));
+    assertTrue(pool.isEmpty());
+
+    // released containers are reported with the map which ran last
+    WarmContainerPool.Entry released = pool.completed(first.getId());
+    assertEquals(first, released.getContainer());
+    assertEquals(newAttempt(1), released.getLastAttempt());
+    assertNull(pool.completed(first.getId()));
+  }
+
+  @Test
+  public void testCompleted() {
+    WarmContainerPool pool = new WarmContainerPool(-1, 1000);
+    Container idle = newContainer(1);
+    Container busy = newContainer(2);
+    pool.offer(idle, newAttempt(1), 0);
+    pool.offer(busy, newAttempt(2), 0);
+    pool.assigned(busy.getId());
+
+    // an idle JVM which exited
+    assertEquals(newAttempt(1),
+        pool.completed(idle.getId()).getLastAttempt());
+    assertTrue(pool.isEmpty());
+    // the map running in the container hears of it itself
+    assertNull(pool.completed(busy.getId()));
+    assertNull(pool.completed(newContainer(3).getId()));
+  }
+}
@@ -0,0 +1,80 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+
+package org.apache.hadoop.mapreduce.v2.app.speculate;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestProgressRateHistogram {
+
+  // a bucket is a quarter of an octave wide
+  private static final double TOL = 0.1;
+
+  private static void assertRate(double expected, double actual) {
+    Assert.assertEquals(1.0, actual / expected, TOL);
+  }
+
+  @Test
+  public void testEmptyHistogram() throws Exception {
+    ProgressRateHistogram rates = new ProgressRateHistogram();
+    Assert.assertEquals(0, rates.size());
+    Assert.assertEquals(-1.0, rates.quantile(0.5), 0.0);
+  }
+
+  @Test
+  public void testBuckets() throws Exception {
+    Assert.assertEquals(0, ProgressRateHistogram.bucket(0.0));
+    Assert.assertEquals(0, ProgressRateHistogram.bucket(Double.NaN));
+    Assert.assertEquals(ProgressRateHistogram.NUM_BUCKETS - 1,
+        ProgressRateHistogram.bucket(10.0));
+    for (double rate = 1.0E-9; rate < 1.0; rate *= 3.0) {
+      assertRate(rate,
+          ProgressRateHistogram.rate(ProgressRateHistogram.bucket(rate)));
+    }
+  }
+
+  @Test
+  public void testQuantiles() throws Exception {
+    ProgressRateHistogram rates = new ProgressRateHistogram();
+    // one task a minute to one task in a hundred minutes
+    for (int minutes = 1; minutes <= 100; ++minutes) {
+      rates.add(ProgressRateHistogram.bucket(1.0 / (minutes * 60000.0)));
+    }
+    Assert.assertEquals(100, rates.size());
+    assertRate(1.0 / (51 * 60000.0), rates.quantile(0.5));
+    assertRate(1.0 / (76 * 60000.0), rates.quantile(0.25));
+    assertRate(1.0 / (100 * 60000.0), rates.quantile(0.0));
+    assertRate(1.0 / 60000.0, rates.quantile(1.0));
+  }
+
+  @Test
+  public void testRemove() throws Exception {
+    ProgressRateHistogram rates = new ProgressRateHistogram();
+    int slow = ProgressRateHistogram.bucket(1.0E-6);
+    int fast = ProgressRateHistogram.bucket(1.0E-3);
+    rates.add(slow);
+    rates.add(fast);
+    assertRate(1.0E-6, rates.quantile(0.5));
+    rates.remove(slow);
+    // removing what is not counted changes nothing
+    rates.remove(slow);
+    Assert.assertEquals(1, rates.size());
+    assertRate(1.0E-3, rates.quantile(0.5));
+  }
+}
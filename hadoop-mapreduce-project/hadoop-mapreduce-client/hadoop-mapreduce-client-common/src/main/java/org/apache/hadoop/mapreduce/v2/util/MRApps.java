@@ -794,6 +794,17 @@ public static void addToEnvironment(Map<String, String> environment,
     Apps.addToEnvironment(environment, variable, value, classPathSeparator);
   }
 
+  /**
+   * @return whether a map JVM asks for another map once it is done, which
+   * needs both {@link MRJobConfig#JVM_REUSE_ENABLED} and more than one task
+   * per JVM.
+   */
+  public static boolean isMapJvmReuseEnabled(Configuration conf) {
+    return conf.getBoolean(MRJobConfig.JVM_REUSE_ENABLED,
+        MRJobConfig.DEFAULT_JVM_REUSE_ENABLED)
+        && conf.getInt(MRJobConfig.JVM_NUMTASKS_TORUN, 1) != 1;
+  }
+
   public static String crossPlatformifyMREnv(Configuration conf, Environment env) {
     boolean crossPlatform =
         conf.getBoolean(MRConfig.MAPREDUCE_APP_SUBMISSION_CROSS_PLATFORM,
@@ -19,6 +19,7 @@
 package org.apache.hadoop.mapred;
 
 import java.io.IOException;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -199,6 +200,14 @@ public boolean isRecoverySupported(JobContext context) throws IOException {
     return getWrapped(context).isRecoverySupported(context);
   }
 
+  @Override
+  @Private
+  @InterfaceStability.Unstable
+  public Map<Enum<?>, Long> getJobCommitCounters() {
+    return wrapped == null
+        ? super.getJobCommitCounters() : wrapped.getJobCommitCounters();
+  }
+
   @Override
   public void recoverTask(TaskAttemptContext context)
       throws IOException {
@@ -27,8 +27,14 @@
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.IntBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -44,6 +50,8 @@
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.RawLocalFileSystem;
 import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.NormalizedKeyComparator;
 import org.apache.hadoop.io.RawComparator;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.SequenceFile.CompressionType;
@@ -69,11 +77,14 @@
 import org.apache.hadoop.mapreduce.CryptoUtils;
 import org.apache.hadoop.util.IndexedSortable;
 import org.apache.hadoop.util.IndexedSorter;
+import org.apache.hadoop.util.NormalizedKeySortable;
 import org.apache.hadoop.util.Progress;
 import org.apache.hadoop.util.QuickSort;
+import org.apache.hadoop.util.RadixSort;
 import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.hadoop.util.StringInterner;
 import org.apache.hadoop.util.StringUtils;
+import org.apache.hadoop.util.Time;
 
 /** A Map task. */
 @InterfaceAudience.LimitedPrivate({"MapReduce"})
@@ -874,7 +885,7 @@ private long getOutputBytes(List<Statistics> stats) {
   @InterfaceAudience.LimitedPrivate({"MapReduce"})
   @InterfaceStability.Unstable
   public static class MapOutputBuffer<K extends Object, V extends Object>
-      implements MapOutputCollector<K, V>, IndexedSortable {
+      implements MapOutputCollector<K, V>, NormalizedKeySortable {
     private int partitions;
     private JobConf job;
     private TaskReporter reporter;
@@ -911,8 +922,13 @@ private long getOutputBytes(List<Statistics> stats) {
     private static final int KEYSTART = 1;         // key offset in acct
     private static final int PARTITION = 2;        // partition offset in acct
     private static final int VALLEN = 3;           // length of value
-    private static final int NMETA = 4;            // num meta ints
-    private static final int METASIZE = NMETA * 4; // size in bytes
+    private static final int NKEY = 4;             // normalized key, 2 ints
+    private int nmeta;                             // num meta ints
+    private int metasize;                          // size in bytes
+
+    // normalized keys of the records, or null if not stored
+    private NormalizedKeyComparator normalizer;
+    private int partitionBits;
 
     // spill accounting
     private int maxRec;
@@ -924,6 +940,9 @@ private long getOutputBytes(List<Statistics> stats) {
     int numSpills = 0;
     private int minSpillsForCombine;
     private IndexedSorter sorter;
+    private int spillThreads;
+    private long spillSegmentLimit;
+    private ForkJoinPool spillPool;
     final ReentrantLock spillLock = new ReentrantLock();
     final Condition spillDone = spillLock.newCondition();
     final Condition spillReady = spillLock.newCondition();
@@ -937,6 +956,10 @@ private long getOutputBytes(List<Statistics> stats) {
     private Counters.Counter mapOutputByteCounter;
     private Counters.Counter mapOutputRecordCounter;
     private Counters.Counter fileOutputByteCounter;
+    private Counters.Counter combineInputCounter;
+    private Counters.Counter combineOutputCounter;
+    private Counters.Counter spillSortTimeCounter;
+    private Counters.Counter spillWriteTimeCounter;
 
     final ArrayList<SpillRecord> indexCacheList =
       new ArrayList<SpillRecord>();
@@ -978,12 +1001,43 @@ public void init(MapOutputCollector.Context context
         throw new IOException(
             "Invalid \"" + JobContext.IO_SORT_MB + "\": " + sortmb);
       }
+      comparator = job.getOutputKeyComparator();
+      nmeta = 4;
+      if (job.getBoolean(MRJobConfig.MAP_SORT_NORMALIZED_KEY,
+          MRJobConfig.DEFAULT_MAP_SORT_NORMALIZED_KEY)) {
+        if (hasNormalizedKeys(comparator)) {
+          normalizer = (NormalizedKeyComparator) comparator;
+          nmeta = 6;
+          partitionBits = partitions > 1
+              ? 32 - Integer.numberOfLeadingZeros(partitions - 1) : 0;
+        } else {
+          LOG.info("Not storing normalized keys, " +
+              comparator.getClass().getName() + " does not provide them");
+        }
+      }
+      metasize = nmeta * 4;
+      META_BUFFER_TMP = new byte[metasize];
       sorter = ReflectionUtils.newInstance(job.getClass(
-                   MRJobConfig.MAP_SORT_CLASS, QuickSort.class,
+                   MRJobConfig.MAP_SORT_CLASS,
+                   normalizer != null ? RadixSort.class : QuickSort.class,
                    IndexedSorter.class), job);
+      spillThreads = job.getInt(MRJobConfig.MAP_SORT_SPILL_THREADS,
+          MRJobConfig.DEFAULT_MAP_SORT_SPILL_THREADS);
+      if (spillThreads < 1) {
+        throw new IOException("Invalid \"" +
+            MRJobConfig.MAP_SORT_SPILL_THREADS + "\": " + spillThreads);
+      }
+      final float segmentper = job.getFloat(
+          MRJobConfig.MAP_SORT_SPILL_SEGMENT_PERCENT,
+          MRJobConfig.DEFAULT_MAP_SORT_SPILL_SEGMENT_PERCENT);
+      if (segmentper > (float)1.0 || segmentper <= (float)0.0) {
+        throw new IOException("Invalid \"" +
+            MRJobConfig.MAP_SORT_SPILL_SEGMENT_PERCENT + "\": " + segmentper);
+      }
+      spillSegmentLimit = (long)((sortmb << 20) * segmentper);
       // buffers and accounting
       int maxMemUsage = sortmb << 20;
-      maxMemUsage -= maxMemUsage % METASIZE;
+      maxMemUsage -= maxMemUsage % metasize;
       kvbuffer = new byte[maxMemUsage];
       bufvoid = kvbuffer.length;
       kvmeta = ByteBuffer.wrap(kvbuffer)
@@ -993,7 +1047,7 @@ public void init(MapOutputCollector.Context context
       bufstart = bufend = bufindex = equator;
       kvstart = kvend = kvindex;
 
-      maxRec = kvmeta.capacity() / NMETA;
+      maxRec = kvmeta.capacity() / nmeta;
       softLimit = (int)(kvbuffer.length * spillper);
       bufferRemaining = softLimit;
       LOG.info(JobContext.IO_SORT_MB + ": " + sortmb);
@@ -1002,7 +1056,6 @@ public void init(MapOutputCollector.Context context
       LOG.info("kvstart = " + kvstart + "; length = " + maxRec);
 
       // k/v serialization
-      comparator = job.getOutputKeyComparator();
       keyClass = (Class<K>)job.getMapOutputKeyClass();
       valClass = (Class<V>)job.getMapOutputValueClass();
       serializationFactory = new SerializationFactory(job);
@@ -1017,6 +1070,9 @@ public void init(MapOutputCollector.Context context
         reporter.getCounter(TaskCounter.MAP_OUTPUT_RECORDS);
       fileOutputByteCounter = reporter
           .getCounter(TaskCounter.MAP_OUTPUT_MATERIALIZED_BYTES);
+      spillSortTimeCounter = reporter.getCounter(TaskCounter.SPILL_SORT_MILLIS);
+      spillWriteTimeCounter =
+        reporter.getCounter(TaskCounter.SPILL_WRITE_MILLIS);
 
       // compression
       if (job.getCompressMapOutput()) {
@@ -1028,13 +1084,13 @@ public void init(MapOutputCollector.Context context
       }
 
       // combiner
-      final Counters.Counter combineInputCounter =
+      combineInputCounter =
         reporter.getCounter(TaskCounter.COMBINE_INPUT_RECORDS);
       combinerRunner = CombinerRunner.create(job, getTaskID(), 
                                              combineInputCounter,
                                              reporter, null);
       if (combinerRunner != null) {
-        final Counters.Counter combineOutputCounter =
+        combineOutputCounter =
           reporter.getCounter(TaskCounter.COMBINE_OUTPUT_RECORDS);
         combineCollector= new CombineOutputCollector<K,V>(combineOutputCounter, reporter, job);
       } else {
@@ -1042,6 +1098,13 @@ public void init(MapOutputCollector.Context context
       }
       spillInProgress = false;
       minSpillsForCombine = job.getInt(JobContext.MAP_COMBINE_MIN_SPILLS, 3);
+      // partitions are sorted and written independently, so there is nothing
+      // to parallelize with a single reducer
+      if (spillThreads > 1 && partitions > 1) {
+        spillPool = new ForkJoinPool(spillThreads);
+        LOG.info(MRJobConfig.MAP_SORT_SPILL_THREADS + ": " + spillThreads);
+        LOG.info("spill segment limit at " + spillSegmentLimit);
+      }
       spillThread.setDaemon(true);
       spillThread.setName("SpillThread");
       spillLock.lock();
@@ -1084,7 +1147,7 @@ public synchronized void collect(K key, V value, final int partition
             partition + ")");
       }
       checkSpillException();
-      bufferRemaining -= METASIZE;
+      bufferRemaining -= metasize;
       if (bufferRemaining <= 0) {
         // start spill if the thread is not running and the soft limit has been
         // reached
@@ -1099,13 +1162,13 @@ public synchronized void collect(K key, V value, final int partition
               // created by a reset must be included in "used" bytes
               final int bUsed = distanceTo(kvbidx, bufindex);
               final boolean bufsoftlimit = bUsed >= softLimit;
-              if ((kvbend + METASIZE) % kvbuffer.length !=
-                  equator - (equator % METASIZE)) {
+              if ((kvbend + metasize) % kvbuffer.length !=
+                  equator - (equator % metasize)) {
                 // spill finished, reclaim space
                 resetSpill();
                 bufferRemaining = Math.min(
-                    distanceTo(bufindex, kvbidx) - 2 * METASIZE,
-                    softLimit - bUsed) - METASIZE;
+                    distanceTo(bufindex, kvbidx) - 2 * metasize,
+                    softLimit - bUsed) - metasize;
                 continue;
               } else if (bufsoftlimit && kvindex != kvend) {
                 // spill records, if any collected; check latter, as it may
@@ -1118,9 +1181,9 @@ public synchronized void collect(K key, V value, final int partition
                 // ensure that kvindex >= bufindex
                 final int distkvi = distanceTo(bufindex, kvbidx);
                 final int newPos = (bufindex +
-                  Math.max(2 * METASIZE - 1,
+                  Math.max(2 * metasize - 1,
                           Math.min(distkvi / 2,
-                                   distkvi / (METASIZE + avgRec) * METASIZE)))
+                                   distkvi / (metasize + avgRec) * metasize)))
                   % kvbuffer.length;
                 setEquator(newPos);
                 bufmark = bufindex = newPos;
@@ -1135,7 +1198,7 @@ public synchronized void collect(K key, V value, final int partition
                       // serialization max
                       distanceTo(newPos, serBound),
                       // soft limit
-                      softLimit)) - 2 * METASIZE;
+                      softLimit)) - 2 * metasize;
               }
             }
           } while (false);
@@ -1177,8 +1240,11 @@ public synchronized void collect(K key, V value, final int partition
         kvmeta.put(kvindex + KEYSTART, keystart);
         kvmeta.put(kvindex + VALSTART, valstart);
         kvmeta.put(kvindex + VALLEN, distanceTo(valstart, valend));
+        if (normalizer != null) {
+          putNormalizedKey(kvindex, partition, keystart, valstart - keystart);
+        }
         // advance kvindex
-        kvindex = (kvindex - NMETA + kvmeta.capacity()) % kvmeta.capacity();
+        kvindex = (kvindex - nmeta + kvmeta.capacity()) % kvmeta.capacity();
       } catch (MapBufferTooSmallException e) {
         LOG.info("Record too large for in-memory buffer: " + e.getMessage());
         spillSingleRecord(key, value, partition);
@@ -1199,10 +1265,10 @@ private TaskAttemptID getTaskID() {
     private void setEquator(int pos) {
       equator = pos;
       // set index prior to first entry, aligned at meta boundary
-      final int aligned = pos - (pos % METASIZE);
+      final int aligned = pos - (pos % metasize);
       // Cast one of the operands to long to avoid integer overflow
       kvindex = (int)
-        (((long)aligned - METASIZE + kvbuffer.length) % kvbuffer.length) / 4;
+        (((long)aligned - metasize + kvbuffer.length) % kvbuffer.length) / 4;
       LOG.info("(EQUATOR) " + pos + " kvi " + kvindex +
           "(" + (kvindex * 4) + ")");
     }
@@ -1215,11 +1281,11 @@ private void setEquator(int pos) {
     private void resetSpill() {
       final int e = equator;
       bufstart = bufend = e;
-      final int aligned = e - (e % METASIZE);
+      final int aligned = e - (e % metasize);
       // set start/end to point to first meta record
       // Cast one of the operands to long to avoid integer overflow
       kvstart = kvend = (int)
-        (((long)aligned - METASIZE + kvbuffer.length) % kvbuffer.length) / 4;
+        (((long)aligned - metasize + kvbuffer.length) % kvbuffer.length) / 4;
       LOG.info("(RESET) equator " + e + " kv " + kvstart + "(" +
         (kvstart * 4) + ")" + " kvi " + kvindex + "(" + (kvindex * 4) + ")");
     }
@@ -1248,7 +1314,75 @@ int distanceTo(final int i, final int j, final int mod) {
      * kvmeta buffer.
      */
     int offsetFor(int metapos) {
-      return metapos * NMETA;
+      return metapos * nmeta;
+    }
+
+    /**
+     * Whether the given comparator supplies normalized keys that can be
+     * trusted, i.e. its raw comparison was not overridden by a subclass
+     * inheriting the normalized keys.
+     */
+    private static boolean hasNormalizedKeys(RawComparator<?> comparator) {
+      if (!(comparator instanceof NormalizedKeyComparator)) {
+        return false;
+      }
+      try {
+        Class<?> cmp = comparator.getClass().getMethod("compare",
+            byte[].class, int.class, int.class,
+            byte[].class, int.class, int.class).getDeclaringClass();
+        Class<?> norm = comparator.getClass().getMethod("getNormalizedKey",
+            byte[].class, int.class, int.class).getDeclaringClass();
+        return cmp.isAssignableFrom(norm);
+      } catch (NoSuchMethodException e) {
+        return false;
+      }
+    }
+
+    /**
+     * Store the normalized key of a record, with the partition in the most
+     * significant bits so that it orders records exactly as
+     * {@link #compare} does whenever two normalized keys differ.
+     */
+    private void putNormalizedKey(int kvoff, int partition, int keystart,
+        int keylen) {
+      long key = normalizer.getNormalizedKey(kvbuffer, keystart, keylen);
+      if (partitionBits > 0) {
+        key = ((long) partition << (64 - partitionBits)) |
+            (key >>> partitionBits);
+      }
+      kvmeta.put(kvoff + NKEY, (int) (key >>> 32));
+      kvmeta.put(kvoff + NKEY + 1, (int) key);
+    }
+
+    private long normalizedKeyAt(int kvoff) {
+      return ((long) kvmeta.get(kvoff + NKEY) << 32) |
+          (kvmeta.get(kvoff + NKEY + 1) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The stored normalized key of the given record, or just its partition
+     * if normalized keys are not stored.
+     * @see NormalizedKeySortable#getNormalizedKey
+     */
+    @Override
+    public long getNormalizedKey(final int mi) {
+      final int kvi = offsetFor(mi % maxRec);
+      if (normalizer == null) {
+        return (long) kvmeta.get(kvi + PARTITION) << 32;
+      }
+      return normalizedKeyAt(kvi);
+    }
+
+    /**
+     * Compare the normalized keys of two records of the same partition.
+     * @return the order of the records if it is decided by their normalized
+     * keys, 0 otherwise
+     */
+    private int compareNormalizedKeys(final int kvi, final int kvj) {
+      if (normalizer == null) {
+        return 0;
+      }
+      return Long.compareUnsigned(normalizedKeyAt(kvi), normalizedKeyAt(kvj));
     }
 
     /**
@@ -1266,6 +1400,11 @@ public int compare(final int mi, final int mj) {
       if (kvip != kvjp) {
         return kvip - kvjp;
       }
+      // sort by normalized key, if any
+      final int nkey = compareNormalizedKeys(kvi, kvj);
+      if (nkey != 0) {
+        return nkey;
+      }
       // sort by key
       return comparator.compare(kvbuffer,
           kvmeta.get(kvi + KEYSTART),
@@ -1275,18 +1414,18 @@ public int compare(final int mi, final int mj) {
           kvmeta.get(kvj + VALSTART) - kvmeta.get(kvj + KEYSTART));
     }
 
-    final byte META_BUFFER_TMP[] = new byte[METASIZE];
+    byte META_BUFFER_TMP[];
     /**
      * Swap metadata for items i, j
      * @see IndexedSortable#swap
      */
     @Override
     public void swap(final int mi, final int mj) {
-      int iOff = (mi % maxRec) * METASIZE;
-      int jOff = (mj % maxRec) * METASIZE;
-      System.arraycopy(kvbuffer, iOff, META_BUFFER_TMP, 0, METASIZE);
-      System.arraycopy(kvbuffer, jOff, kvbuffer, iOff, METASIZE);
-      System.arraycopy(META_BUFFER_TMP, 0, kvbuffer, jOff, METASIZE);
+      int iOff = (mi % maxRec) * metasize;
+      int jOff = (mj % maxRec) * metasize;
+      System.arraycopy(kvbuffer, iOff, META_BUFFER_TMP, 0, metasize);
+      System.arraycopy(kvbuffer, jOff, kvbuffer, iOff, metasize);
+      System.arraycopy(META_BUFFER_TMP, 0, kvbuffer, jOff, metasize);
     }
 
     /**
@@ -1362,7 +1501,7 @@ public void write(int v)
       @Override
       public void write(byte b[], int off, int len)
           throws IOException {
-        // must always verify the invariant that at least METASIZE bytes are
+        // must always verify the invariant that at least metasize bytes are
         // available beyond kvindex, even when len == 0
         bufferRemaining -= len;
         if (bufferRemaining <= 0) {
@@ -1390,19 +1529,19 @@ public void write(byte b[], int off, int len)
               // either the metadata or the current write. Note that collect
               // ensures its metadata requirement with a zero-length write
               blockwrite = distkvi <= distkve
-                ? distkvi <= len + 2 * METASIZE
-                : distkve <= len || distanceTo(bufend, kvbidx) < 2 * METASIZE;
+                ? distkvi <= len + 2 * metasize
+                : distkve <= len || distanceTo(bufend, kvbidx) < 2 * metasize;
 
               if (!spillInProgress) {
                 if (blockwrite) {
-                  if ((kvbend + METASIZE) % kvbuffer.length !=
-                      equator - (equator % METASIZE)) {
+                  if ((kvbend + metasize) % kvbuffer.length !=
+                      equator - (equator % metasize)) {
                     // spill finished, reclaim space
                     // need to use meta exclusively; zero-len rec & 100% spill
                     // pcnt would fail
                     resetSpill(); // resetSpill doesn't move bufindex, kvindex
                     bufferRemaining = Math.min(
-                        distkvi - 2 * METASIZE,
+                        distkvi - 2 * metasize,
                         softLimit - distanceTo(kvbidx, bufindex)) - len;
                     continue;
                   }
@@ -1474,13 +1613,13 @@ public void flush() throws IOException, ClassNotFoundException,
         checkSpillException();
 
         final int kvbend = 4 * kvend;
-        if ((kvbend + METASIZE) % kvbuffer.length !=
-            equator - (equator % METASIZE)) {
+        if ((kvbend + metasize) % kvbuffer.length !=
+            equator - (equator % metasize)) {
           // spill finished
           resetSpill();
         }
         if (kvindex != kvend) {
-          kvend = (kvindex + NMETA) % kvmeta.capacity();
+          kvend = (kvindex + nmeta) % kvmeta.capacity();
           bufend = bufmark;
           LOG.info("Spilling map output");
           LOG.info("bufstart = " + bufstart + "; bufend = " + bufmark +
@@ -1509,6 +1648,7 @@ public void flush() throws IOException, ClassNotFoundException,
       } catch (InterruptedException e) {
         throw new IOException("Spill failed", e);
       }
+      shutdownSpillPool();
       // release sort buffer before the merge
       kvbuffer = null;
       mergeParts();
@@ -1516,7 +1656,16 @@ public void flush() throws IOException, ClassNotFoundException,
       fileOutputByteCounter.increment(rfs.getFileStatus(outputPath).getLen());
     }
 
-    public void close() { }
+    public void close() {
+      shutdownSpillPool();
+    }
+
+    private void shutdownSpillPool() {
+      if (spillPool != null) {
+        spillPool.shutdownNow();
+        spillPool = null;
+      }
+    }
 
     protected class SpillThread extends Thread {
 
@@ -1568,7 +1717,7 @@ private void checkSpillException() throws IOException {
 
     private void startSpill() {
       assert !spillInProgress;
-      kvend = (kvindex + NMETA) % kvmeta.capacity();
+      kvend = (kvindex + nmeta) % kvmeta.capacity();
       bufend = bufmark;
       spillInProgress = true;
       LOG.info("Spilling map output");
@@ -1596,69 +1745,55 @@ private void sortAndSpill() throws IOException, ClassNotFoundException,
             mapOutputFile.getSpillFileForWrite(numSpills, size);
         out = rfs.create(filename);
 
-        final int mstart = kvend / NMETA;
+        final int mstart = kvend / nmeta;
         final int mend = 1 + // kvend is a valid record
           (kvstart >= kvend
           ? kvstart
-          : kvmeta.capacity() + kvstart) / NMETA;
-        sorter.sort(MapOutputBuffer.this, mstart, mend, reporter);
-        int spindex = mstart;
-        final IndexRecord rec = new IndexRecord();
-        final InMemValBytes value = new InMemValBytes();
-        for (int i = 0; i < partitions; ++i) {
-          IFile.Writer<K, V> writer = null;
-          try {
-            long segmentStart = out.getPos();
-            partitionOut = CryptoUtils.wrapIfNecessary(job, out, false);
-            writer = new Writer<K, V>(job, partitionOut, keyClass, valClass, codec,
-                                      spilledRecordsCounter);
-            if (combinerRunner == null) {
-              // spill directly
-              DataInputBuffer key = new DataInputBuffer();
-              while (spindex < mend &&
-                  kvmeta.get(offsetFor(spindex % maxRec) + PARTITION) == i) {
-                final int kvoff = offsetFor(spindex % maxRec);
-                int keystart = kvmeta.get(kvoff + KEYSTART);
-                int valstart = kvmeta.get(kvoff + VALSTART);
-                key.reset(kvbuffer, keystart, valstart - keystart);
-                getVBytesForOffset(kvoff, value);
-                writer.append(key, value);
-                ++spindex;
-              }
-            } else {
+          : kvmeta.capacity() + kvstart) / nmeta;
+        final ForkJoinPool pool = spillPool;
+        if (pool != null) {
+          parallelSortAndSpill(pool, out, spillRec, mstart, mend);
+        } else {
+          final long sortStart = Time.monotonicNow();
+          sorter.sort(MapOutputBuffer.this, mstart, mend, reporter);
+          final long writeStart = Time.monotonicNow();
+          spillSortTimeCounter.increment(writeStart - sortStart);
+          int spindex = mstart;
+          final IndexRecord rec = new IndexRecord();
+          for (int i = 0; i < partitions; ++i) {
+            IFile.Writer<K, V> writer = null;
+            try {
+              long segmentStart = out.getPos();
+              partitionOut = CryptoUtils.wrapIfNecessary(job, out, false);
+              writer = new Writer<K, V>(job, partitionOut, keyClass, valClass, codec,
+                                        spilledRecordsCounter);
               int spstart = spindex;
               while (spindex < mend &&
-                  kvmeta.get(offsetFor(spindex % maxRec)
-                            + PARTITION) == i) {
+                  kvmeta.get(offsetFor(spindex % maxRec) + PARTITION) == i) {
                 ++spindex;
               }
-              // Note: we would like to avoid the combiner if we've fewer
-              // than some threshold of records for a partition
-              if (spstart != spindex) {
-                combineCollector.setWriter(writer);
-                RawKeyValueIterator kvIter =
-                  new MRResultIterator(spstart, spindex);
-                combinerRunner.combine(kvIter, combineCollector);
+              writePartition(writer, spstart, spindex, combinerRunner,
+                  combineCollector);
+
+              // close the writer
+              writer.close();
+              if (partitionOut != out) {
+                partitionOut.close();
+                partitionOut = null;
               }
-            }
 
-            // close the writer
-            writer.close();
-            if (partitionOut != out) {
-              partitionOut.close();
-              partitionOut = null;
-            }
-
-            // record offsets
-            rec.startOffset = segmentStart;
-            rec.rawLength = writer.getRawLength() + CryptoUtils.cryptoPadding(job);
-            rec.partLength = writer.getCompressedLength() + CryptoUtils.cryptoPadding(job);
-            spillRec.putIndex(rec, i);
+              // record offsets
+              rec.startOffset = segmentStart;
+              rec.rawLength = writer.getRawLength() + CryptoUtils.cryptoPadding(job);
+              rec.partLength = writer.getCompressedLength() + CryptoUtils.cryptoPadding(job);
+              spillRec.putIndex(rec, i);
 
-            writer = null;
-          } finally {
-            if (null != writer) writer.close();
+              writer = null;
+            } finally {
+              if (null != writer) writer.close();
+            }
           }
+          spillWriteTimeCounter.increment(Time.monotonicNow() - writeStart);
         }
 
         if (totalIndexCacheMemory >= indexCacheMemoryLimit) {
@@ -1682,6 +1817,288 @@ private void sortAndSpill() throws IOException, ClassNotFoundException,
       }
     }
 
+    /**
+     * Write the sorted records [start, end) of a single partition, running
+     * them through the combiner if one is given.
+     */
+    private void writePartition(IFile.Writer<K, V> writer, int start, int end,
+        CombinerRunner<K, V> combiner, CombineOutputCollector<K, V> collector)
+        throws IOException, InterruptedException, ClassNotFoundException {
+      if (combiner == null) {
+        // spill directly
+        final DataInputBuffer key = new DataInputBuffer();
+        final InMemValBytes value = new InMemValBytes();
+        for (int spindex = start; spindex < end; ++spindex) {
+          final int kvoff = offsetFor(spindex % maxRec);
+          int keystart = kvmeta.get(kvoff + KEYSTART);
+          int valstart = kvmeta.get(kvoff + VALSTART);
+          key.reset(kvbuffer, keystart, valstart - keystart);
+          getVBytesForOffset(kvoff, value);
+          writer.append(key, value);
+        }
+      } else if (start != end) {
+        // Note: we would like to avoid the combiner if we've fewer
+        // than some threshold of records for a partition
+        collector.setWriter(writer);
+        RawKeyValueIterator kvIter = new MRResultIterator(start, end);
+        combiner.combine(kvIter, collector);
+      }
+    }
+
+    /**
+     * Sort and write the partitions of a spill concurrently on the given
+     * pool. The records are first grouped by partition in place, after which
+     * every partition is sorted, combined and serialized into memory by its
+     * own task. Finished segments are appended to the spill file in
+     * partition order. At most two segments per spill thread are held in
+     * memory at a time, and no new task is submitted while the records of
+     * the outstanding segments exceed the segment limit, unless none is
+     * outstanding.
+     */
+    private void parallelSortAndSpill(ForkJoinPool pool,
+        FSDataOutputStream out, SpillRecord spillRec, int mstart, int mend)
+        throws IOException, InterruptedException, ClassNotFoundException {
+      final long groupStart = Time.monotonicNow();
+      final long[] sizes = new long[partitions];
+      final int[] bounds = groupByPartition(mstart, mend, sizes);
+      spillSortTimeCounter.increment(Time.monotonicNow() - groupStart);
+
+      final int maxPending = 2 * spillThreads;
+      final ArrayDeque<ForkJoinTask<SpillSegment>> pending =
+        new ArrayDeque<ForkJoinTask<SpillSegment>>(maxPending);
+      final IndexRecord rec = new IndexRecord();
+      long pendingBytes = 0;
+      int next = 0;
+      try {
+        for (int i = 0; i < partitions; ++i) {
+          while (!pending.isEmpty() && (pending.size() == maxPending ||
+              pendingBytes + sizes[i] > spillSegmentLimit)) {
+            pendingBytes -= sizes[next];
+            appendSegment(out, spillRec, rec, next++,
+                getSegment(pending.removeFirst()));
+          }
+          pending.addLast(
+              pool.submit(new PartitionSpiller(bounds[i], bounds[i + 1])));
+          pendingBytes += sizes[i];
+        }
+        while (!pending.isEmpty()) {
+          appendSegment(out, spillRec, rec, next++,
+              getSegment(pending.removeFirst()));
+        }
+      } finally {
+        // tasks still sorting must not touch the buffer once it is released
+        // back to the collector
+        for (ForkJoinTask<SpillSegment> task : pending) {
+          task.cancel(false);
+        }
+        for (ForkJoinTask<SpillSegment> task : pending) {
+          task.quietlyJoin();
+        }
+      }
+    }
+
+    /**
+     * Permute the records in [mstart, mend) so that they are grouped by
+     * partition, keeping the partitions in order.
+     * @param sizes set to the key and value bytes of every partition
+     * @return the logical start of each partition, followed by mend
+     */
+    private int[] groupByPartition(int mstart, int mend, long[] sizes) {
+      final int[] bounds = new int[partitions + 1];
+      for (int m = mstart; m < mend; ++m) {
+        final int kvoff = offsetFor(m % maxRec);
+        final int p = kvmeta.get(kvoff + PARTITION);
+        ++bounds[p + 1];
+        sizes[p] += kvmeta.get(kvoff + VALSTART) -
+          kvmeta.get(kvoff + KEYSTART) + kvmeta.get(kvoff + VALLEN);
+      }
+      bounds[0] = mstart;
+      for (int i = 0; i < partitions; ++i) {
+        bounds[i + 1] += bounds[i];
+      }
+      // move every record to the next free slot of its partition; the slots
+      // of partitions before i are all filled once i is reached
+      final int[] free = Arrays.copyOf(bounds, partitions);
+      for (int i = 0; i < partitions; ++i) {
+        while (free[i] < bounds[i + 1]) {
+          final int p = partitionFor(free[i]);
+          if (p == i) {
+            ++free[i];
+          } else {
+            swap(free[i], free[p]++);
+          }
+        }
+      }
+      return bounds;
+    }
+
+    private int partitionFor(int m) {
+      return kvmeta.get(offsetFor(m % maxRec) + PARTITION);
+    }
+
+    private SpillSegment getSegment(ForkJoinTask<SpillSegment> task)
+        throws IOException, InterruptedException, ClassNotFoundException {
+      try {
+        return task.get();
+      } catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        } else if (cause instanceof InterruptedException) {
+          throw (InterruptedException) cause;
+        } else if (cause instanceof ClassNotFoundException) {
+          throw (ClassNotFoundException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new IOException("Spill failed", cause);
+      }
+    }
+
+    private void appendSegment(FSDataOutputStream out, SpillRecord spillRec,
+        IndexRecord rec, int partition, SpillSegment segment)
+        throws IOException {
+      final long writeStart = Time.monotonicNow();
+      rec.startOffset = out.getPos();
+      out.write(segment.data.getData(), 0, segment.data.getLength());
+      rec.rawLength = segment.rawLength + CryptoUtils.cryptoPadding(job);
+      rec.partLength = segment.partLength + CryptoUtils.cryptoPadding(job);
+      spillRec.putIndex(rec, partition);
+
+      // the framework counters are not thread safe, so the tasks count
+      // privately and the totals are folded in here
+      spilledRecordsCounter.increment(segment.spilledRecords.getValue());
+      if (combinerRunner != null) {
+        combineInputCounter.increment(segment.combineInput.getValue());
+        combineOutputCounter.increment(segment.combineOutput.getValue());
+      }
+      spillSortTimeCounter.increment(segment.sortMillis);
+      spillWriteTimeCounter.increment(segment.writeMillis +
+          Time.monotonicNow() - writeStart);
+      if (segment.reporter != null) {
+        mapTask.getCounters().incrAllCounters(
+            segment.reporter.getPrivateCounters());
+      }
+    }
+
+    /**
+     * A partition of a spill, serialized in memory by a
+     * {@link PartitionSpiller}.
+     */
+    private static class SpillSegment {
+      final DataOutputBuffer data = new DataOutputBuffer();
+      final Counters.Counter spilledRecords = new Counters.Counter();
+      final Counters.Counter combineInput = new Counters.Counter();
+      final Counters.Counter combineOutput = new Counters.Counter();
+      /** Holds the counters of the combiner, if any. */
+      PrivateCountersReporter reporter;
+      long rawLength;
+      long partLength;
+      long sortMillis;
+      long writeMillis;
+    }
+
+    /**
+     * Sorts the records of one partition and serializes them, through the
+     * combiner if one is configured, into a {@link SpillSegment}. Every task
+     * uses its own comparator, sorter and combiner instances.
+     */
+    private class PartitionSpiller implements Callable<SpillSegment> {
+      private final int start;
+      private final int end;
+
+      PartitionSpiller(int start, int end) {
+        this.start = start;
+        this.end = end;
+      }
+
+      @Override
+      public SpillSegment call() throws Exception {
+        final SpillSegment segment = new SpillSegment();
+        final long sortStart = Time.monotonicNow();
+        if (end - start > 1) {
+          final IndexedSorter partitionSorter =
+            ReflectionUtils.newInstance(sorter.getClass(), job);
+          partitionSorter.sort(new PartitionSortable(), start, end, reporter);
+        }
+        final long writeStart = Time.monotonicNow();
+        segment.sortMillis = writeStart - sortStart;
+
+        CombinerRunner<K, V> combiner = null;
+        CombineOutputCollector<K, V> collector = null;
+        if (combinerRunner != null) {
+          // user combiners may update counters, give them their own
+          segment.reporter = mapTask.new PrivateCountersReporter(reporter);
+          combiner = CombinerRunner.create(job, getTaskID(),
+              segment.combineInput, segment.reporter, null);
+          collector = new CombineOutputCollector<K, V>(segment.combineOutput,
+              segment.reporter, job);
+        }
+        FSDataOutputStream segmentOut =
+          new FSDataOutputStream(segment.data, null);
+        FSDataOutputStream partitionOut =
+          CryptoUtils.wrapIfNecessary(job, segmentOut, false);
+        IFile.Writer<K, V> writer = new Writer<K, V>(job, partitionOut,
+            keyClass, valClass, codec, segment.spilledRecords);
+        try {
+          writePartition(writer, start, end, combiner, collector);
+          writer.close();
+          if (partitionOut != segmentOut) {
+            partitionOut.close();
+          }
+          segment.rawLength = writer.getRawLength();
+          segment.partLength = writer.getCompressedLength();
+          writer = null;
+        } finally {
+          if (null != writer) writer.close();
+        }
+        segment.writeMillis = Time.monotonicNow() - writeStart;
+        return segment;
+      }
+    }
+
+    /**
+     * Sorts the records of a single partition by key, without touching the
+     * shared comparator or swap buffer of the enclosing collector.
+     */
+    private class PartitionSortable implements NormalizedKeySortable {
+      private final RawComparator<K> keyComparator =
+        job.getOutputKeyComparator();
+      private final byte[] metaTmp = new byte[metasize];
+
+      @Override
+      public long getNormalizedKey(final int mi) {
+        return MapOutputBuffer.this.getNormalizedKey(mi);
+      }
+
+      @Override
+      public int compare(final int mi, final int mj) {
+        final int kvi = offsetFor(mi % maxRec);
+        final int kvj = offsetFor(mj % maxRec);
+        final int nkey = compareNormalizedKeys(kvi, kvj);
+        if (nkey != 0) {
+          return nkey;
+        }
+        return keyComparator.compare(kvbuffer,
+            kvmeta.get(kvi + KEYSTART),
+            kvmeta.get(kvi + VALSTART) - kvmeta.get(kvi + KEYSTART),
+            kvbuffer,
+            kvmeta.get(kvj + KEYSTART),
+            kvmeta.get(kvj + VALSTART) - kvmeta.get(kvj + KEYSTART));
+      }
+
+      @Override
+      public void swap(final int mi, final int mj) {
+        int iOff = (mi % maxRec) * metasize;
+        int jOff = (mj % maxRec) * metasize;
+        System.arraycopy(kvbuffer, iOff, metaTmp, 0, metasize);
+        System.arraycopy(kvbuffer, jOff, kvbuffer, iOff, metasize);
+        System.arraycopy(metaTmp, 0, kvbuffer, jOff, metasize);
+      }
+    }
+
     /**
      * Handles the degenerate case where serialization fails to fit in
      * the in-memory buffer, so we must spill the record from collect
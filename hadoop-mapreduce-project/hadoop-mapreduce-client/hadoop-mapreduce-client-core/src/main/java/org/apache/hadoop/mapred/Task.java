@@ -900,6 +900,67 @@ public void stopCommunicationThread() throws InterruptedException {
       }
     }
   }
+
+  /**
+   * A reporter for work running alongside the task thread, e.g. the
+   * parallel sort and spill of map output partitions. Counters are not
+   * thread safe, so it counts into counters of its own, which the owner
+   * folds into the task counters from a single thread. Progress and status
+   * go to the task reporter.
+   */
+  class PrivateCountersReporter extends TaskReporter {
+    private final TaskReporter parent;
+    private final Counters privateCounters = new Counters();
+
+    PrivateCountersReporter(TaskReporter parent) {
+      super(parent.taskProgress, parent.umbilical);
+      this.parent = parent;
+    }
+
+    /** @return the counters updated through this reporter. */
+    Counters getPrivateCounters() {
+      return privateCounters;
+    }
+
+    @Override
+    public void setStatus(String status) {
+      parent.setStatus(status);
+    }
+    @Override
+    public void setProgress(float progress) {
+      parent.setProgress(progress);
+    }
+    @Override
+    public float getProgress() {
+      return parent.getProgress();
+    }
+    @Override
+    public void progress() {
+      parent.progress();
+    }
+    @Override
+    public Counters.Counter getCounter(String group, String name) {
+      return privateCounters.findCounter(group, name);
+    }
+    @Override
+    public Counters.Counter getCounter(Enum<?> name) {
+      return privateCounters.findCounter(name);
+    }
+    @Override
+    public void incrCounter(Enum key, long amount) {
+      privateCounters.incrCounter(key, amount);
+      parent.progress();
+    }
+    @Override
+    public void incrCounter(String group, String counter, long amount) {
+      privateCounters.incrCounter(group, counter, amount);
+      parent.progress();
+    }
+    @Override
+    public InputSplit getInputSplit() throws UnsupportedOperationException {
+      return parent.getInputSplit();
+    }
+  }
   
   /**
    *  Reports the next executing record range to TaskTracker.
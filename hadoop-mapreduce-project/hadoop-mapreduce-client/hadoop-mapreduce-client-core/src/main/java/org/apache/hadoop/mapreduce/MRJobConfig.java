@@ -97,6 +97,27 @@ public interface MRJobConfig {
 
   public static final String JVM_NUMTASKS_TORUN = "mapreduce.job.jvm.numtasks";
 
+  /**
+   * Whether map JVMs run more than one map, up to
+   * {@link #JVM_NUMTASKS_TORUN} of them.
+   */
+  public static final String JVM_REUSE_ENABLED =
+      "mapreduce.job.jvm.reuse.enabled";
+  public static final boolean DEFAULT_JVM_REUSE_ENABLED = false;
+
+  /**
+   * Share of its container's memory above which the JVM of a finished map is
+   * not kept to run another one.
+   */
+  public static final String JVM_REUSE_MEMORY_LIMIT =
+      "mapreduce.job.jvm.reuse.memory-limit";
+  public static final float DEFAULT_JVM_REUSE_MEMORY_LIMIT = 0.8f;
+
+  /** How long a JVM kept for reuse may wait for its next map. */
+  public static final String JVM_REUSE_IDLE_TIMEOUT_MS =
+      "mapreduce.job.jvm.reuse.idle-timeout-ms";
+  public static final long DEFAULT_JVM_REUSE_IDLE_TIMEOUT_MS = 10000;
+
   public static final String SPLIT_FILE = "mapreduce.job.splitfile";
 
   public static final String SPLIT_METAINFO_MAXSIZE = "mapreduce.job.split.metainfo.maxsize";
@@ -276,6 +297,15 @@ public interface MRJobConfig {
 
   public static final String MAP_SORT_SPILL_PERCENT = "mapreduce.map.sort.spill.percent";
 
+  public static final String MAP_SORT_SPILL_THREADS = "mapreduce.map.sort.spill.threads";
+  public static final int DEFAULT_MAP_SORT_SPILL_THREADS = 1;
+
+  public static final String MAP_SORT_SPILL_SEGMENT_PERCENT = "mapreduce.map.sort.spill.segment.percent";
+  public static final float DEFAULT_MAP_SORT_SPILL_SEGMENT_PERCENT = 0.25f;
+
+  public static final String MAP_SORT_NORMALIZED_KEY = "mapreduce.map.sort.normalized.key.enabled";
+  public static final boolean DEFAULT_MAP_SORT_NORMALIZED_KEY = false;
+
   public static final String MAP_INPUT_FILE = "mapreduce.map.input.file";
 
   public static final String MAP_INPUT_PATH = "mapreduce.map.input.length";
@@ -347,6 +377,26 @@ public interface MRJobConfig {
   public static final String SHUFFLE_MERGE_PERCENT = "mapreduce.reduce.shuffle.merge.percent";
   public static final float DEFAULT_SHUFFLE_MERGE_PERCENT = 0.66f;
 
+  /**
+   * Direct memory, in MB, holding shuffled map outputs off the heap.  When
+   * set, it replaces the heap share given by
+   * {@link #SHUFFLE_INPUT_BUFFER_PERCENT}.  The buffers kept for reuse may
+   * take up to a quarter more, so -XX:MaxDirectMemorySize has to allow at
+   * least 1.25 times this value.
+   */
+  public static final String SHUFFLE_OFFHEAP_BUFFER_MB =
+      "mapreduce.reduce.shuffle.offheap.buffer.mb";
+  public static final int DEFAULT_SHUFFLE_OFFHEAP_BUFFER_MB = 0;
+
+  /**
+   * Whether the in-memory merge threshold follows the size of the shuffled
+   * map outputs and GC pressure, with {@link #SHUFFLE_MERGE_PERCENT} as its
+   * lower bound.
+   */
+  public static final String SHUFFLE_MERGE_ADAPTIVE =
+      "mapreduce.reduce.shuffle.merge.adaptive";
+  public static final boolean DEFAULT_SHUFFLE_MERGE_ADAPTIVE = false;
+
   public static final String REDUCE_FAILURES_MAXPERCENT = "mapreduce.reduce.failures.maxpercent";
 
   public static final String REDUCE_ENV = "mapreduce.reduce.env";
@@ -390,6 +440,14 @@ public interface MRJobConfig {
   public static final String MAX_SHUFFLE_FETCH_HOST_FAILURES = "mapreduce.reduce.shuffle.max-host-failures";
   public static final int DEFAULT_MAX_SHUFFLE_FETCH_HOST_FAILURES = 5;
 
+  /**
+   * Whether reducers fetch from the hosts with the most pending map output
+   * and the best observed transfer rate first, instead of at random.
+   */
+  public static final String SHUFFLE_FETCH_PRIORITIZED =
+      "mapreduce.reduce.shuffle.fetch.prioritized";
+  public static final boolean DEFAULT_SHUFFLE_FETCH_PRIORITIZED = false;
+
   public static final String REDUCE_SKIP_INCR_PROC_COUNT = "mapreduce.reduce.skip.proc-count.auto-incr";
 
   public static final String REDUCE_SKIP_MAXGROUPS = "mapreduce.reduce.skip.maxgroups";
@@ -651,6 +709,16 @@ public interface MRJobConfig {
   public static final String MR_AM_TASK_ESTIMATOR_EXPONENTIAL_RATE_ENABLE =
     MR_AM_PREFIX + "job.task.estimator.exponential.smooth.rate";
 
+  /**
+   * The quantile of the progress rates of a job's attempts below which the
+   * histogram task estimator considers an attempt slow.
+   */
+  public static final String MR_AM_TASK_ESTIMATOR_HISTOGRAM_SLOW_QUANTILE =
+    MR_AM_PREFIX + "job.task.estimator.histogram.slow-quantile";
+
+  public static final float
+      DEFAULT_MR_AM_TASK_ESTIMATOR_HISTOGRAM_SLOW_QUANTILE = 0.25f;
+
   /** The number of threads used to handle task RPC calls.*/
   public static final String MR_AM_TASK_LISTENER_THREAD_COUNT =
     MR_AM_PREFIX + "job.task.listener.thread-count";
@@ -19,6 +19,8 @@
 package org.apache.hadoop.mapreduce;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -215,6 +217,22 @@ public boolean isCommitJobRepeatable(JobContext jobContext)
     return false;
   }
 
+  /**
+   * Returns counters of what the last {@link #commitJob(JobContext)} did,
+   * such as the time its phases took.  The MapReduce framework adds them to
+   * the counters of the job once the job commit succeeded.
+   *
+   * By default, nothing is counted.  This is an interface between the
+   * committers shipped with MapReduce and the framework, and may change.
+   *
+   * @return the increments of the job counters
+   */
+  @InterfaceAudience.Private
+  @InterfaceStability.Unstable
+  public Map<Enum<?>, Long> getJobCommitCounters() {
+    return Collections.emptyMap();
+  }
+
   /**
    * Is task output recovery supported for restarting jobs?
    * 
@@ -47,5 +47,9 @@ public enum TaskCounter {
   CPU_MILLISECONDS,
   PHYSICAL_MEMORY_BYTES,
   VIRTUAL_MEMORY_BYTES,
-  COMMITTED_HEAP_BYTES
+  COMMITTED_HEAP_BYTES,
+  SPILL_SORT_MILLIS,
+  SPILL_WRITE_MILLIS,
+  SHUFFLE_MERGED_MEMORY_BYTES,
+  SHUFFLE_MERGED_DISK_BYTES
 }
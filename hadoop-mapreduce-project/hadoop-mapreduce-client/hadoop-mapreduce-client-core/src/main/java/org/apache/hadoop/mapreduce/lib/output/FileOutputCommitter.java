@@ -20,6 +20,18 @@
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -31,14 +43,18 @@
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.PathFilter;
+import org.apache.hadoop.mapreduce.Counter;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.JobStatus;
 import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.OutputCommitter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.util.Time;
+import org.apache.hadoop.util.concurrent.HadoopExecutors;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /** An {@link OutputCommitter} that commits files specified 
  * in job output directory i.e. ${mapreduce.output.fileoutputformat.outputdir}.
@@ -85,11 +101,19 @@ public class FileOutputCommitter extends OutputCommitter {
   // default value to be 1 to keep consistent with previous behavior
   public static final int FILEOUTPUTCOMMITTER_FAILURE_ATTEMPTS_DEFAULT = 1;
 
+  // Number of threads renaming task output in commit job (algorithm 3 only)
+  public static final String FILEOUTPUTCOMMITTER_MANIFEST_COMMIT_THREADS =
+      "mapreduce.fileoutputcommitter.manifest.commit.threads";
+  public static final int
+      FILEOUTPUTCOMMITTER_MANIFEST_COMMIT_THREADS_DEFAULT = 8;
+
   private Path outputPath = null;
   private Path workPath = null;
   private final int algorithmVersion;
   private final boolean skipCleanup;
   private final boolean ignoreCleanupFailures;
+  private final Map<Enum<?>, Long> jobCommitCounters =
+      new LinkedHashMap<Enum<?>, Long>();
 
   /**
    * Create a file output committer
@@ -121,8 +145,8 @@ public FileOutputCommitter(Path outputPath,
         conf.getInt(FILEOUTPUTCOMMITTER_ALGORITHM_VERSION,
                     FILEOUTPUTCOMMITTER_ALGORITHM_VERSION_DEFAULT);
     LOG.info("File Output Committer Algorithm version is " + algorithmVersion);
-    if (algorithmVersion != 1 && algorithmVersion != 2) {
-      throw new IOException("Only 1 or 2 algorithm version is supported");
+    if (algorithmVersion < 1 || algorithmVersion > 3) {
+      throw new IOException("Only 1, 2 or 3 algorithm version is supported");
     }
 
     // if skip cleanup
@@ -301,6 +325,12 @@ private static Path getCommittedTaskPath(int appAttemptId, TaskAttemptContext co
         String.valueOf(context.getTaskAttemptID().getTaskID()));
   }
 
+  private Path getCommittedTaskManifestPath(int appAttemptId,
+      TaskAttemptContext context) {
+    return getCommittedTaskPath(appAttemptId, context)
+        .suffix(TaskManifest.SUFFIX);
+  }
+
   private static class CommittedTaskFilter implements PathFilter {
     @Override
     public boolean accept(Path path) {
@@ -321,6 +351,13 @@ private FileStatus[] getAllCommittedTaskPaths(JobContext context)
     return fs.listStatus(jobAttemptPath, new CommittedTaskFilter());
   }
 
+  private static class TaskManifestFilter implements PathFilter {
+    @Override
+    public boolean accept(Path path) {
+      return path.getName().endsWith(TaskManifest.SUFFIX);
+    }
+  }
+
   /**
    * Get the directory that the task should write results into.
    * @return the work directory
@@ -377,6 +414,8 @@ public void commitJob(JobContext context) throws IOException {
   /**
    * The job has completed, so do following commit job, include:
    * Move all committed tasks to the final output dir (algorithm 1 only).
+   * Move every file listed in the manifests of the committed tasks to the
+   * final output dir, in parallel (algorithm 3 only).
    * Delete the temporary directory, including all of the work directories.
    * Create a _SUCCESS file to make it as successful.
    * @param context the job's context
@@ -387,12 +426,16 @@ protected void commitJobInternal(JobContext context) throws IOException {
       Path finalOutput = getOutputPath();
       FileSystem fs = finalOutput.getFileSystem(context.getConfiguration());
 
+      jobCommitCounters.clear();
       if (algorithmVersion == 1) {
         for (FileStatus stat: getAllCommittedTaskPaths(context)) {
           mergePaths(fs, stat, finalOutput);
         }
+      } else if (algorithmVersion == 3) {
+        commitTaskManifests(context, fs, finalOutput);
       }
 
+      long cleanupStart = Time.monotonicNow();
       if (skipCleanup) {
         LOG.info("Skip cleanup the _temporary folders under job's output " +
             "directory in commitJob.");
@@ -412,6 +455,11 @@ protected void commitJobInternal(JobContext context) throws IOException {
           }
         }
       }
+      if (algorithmVersion == 3) {
+        jobCommitCounters.put(
+            FileOutputCommitterCounter.JOB_COMMIT_CLEANUP_MILLIS,
+            Time.monotonicNow() - cleanupStart);
+      }
       // True if the job requires output.dir marked on successful job.
       // Note that by default it is set to true.
       if (context.getConfiguration().getBoolean(
@@ -431,6 +479,132 @@ protected void commitJobInternal(JobContext context) throws IOException {
     }
   }
 
+  /**
+   * Renames the files listed in the manifests of all committed tasks into the
+   * output directory.  Manifests are loaded, directories created and files
+   * renamed by a pool of threads, one phase after the other.  No file of the
+   * final output is looked up before it is renamed, as the output directory
+   * is new; a name two tasks wrote goes to whichever is renamed last.
+   */
+  private void commitTaskManifests(JobContext context, final FileSystem fs,
+      final Path finalOutput) throws IOException {
+    int threads = Math.max(1, context.getConfiguration().getInt(
+        FILEOUTPUTCOMMITTER_MANIFEST_COMMIT_THREADS,
+        FILEOUTPUTCOMMITTER_MANIFEST_COMMIT_THREADS_DEFAULT));
+    ExecutorService pool = HadoopExecutors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setDaemon(true)
+            .setNameFormat("FileOutputCommitter #%d").build());
+    try {
+      long start = Time.monotonicNow();
+      List<Callable<TaskManifest>> loads =
+          new ArrayList<Callable<TaskManifest>>();
+      for (final FileStatus stat : fs.listStatus(getJobAttemptPath(context),
+          new TaskManifestFilter())) {
+        loads.add(new Callable<TaskManifest>() {
+          @Override
+          public TaskManifest call() throws IOException {
+            return TaskManifest.load(fs, stat.getPath());
+          }
+        });
+      }
+      List<TaskManifest> manifests = runAll(pool, loads);
+      long loaded = Time.monotonicNow();
+
+      // only the deepest directories need creating, mkdirs makes the rest
+      Set<String> directories = new HashSet<String>();
+      for (TaskManifest manifest : manifests) {
+        directories.addAll(manifest.getDirectories());
+      }
+      Set<String> parents = new HashSet<String>();
+      for (String directory : directories) {
+        for (int i = directory.lastIndexOf(Path.SEPARATOR); i > 0;
+            i = directory.lastIndexOf(Path.SEPARATOR, i - 1)) {
+          if (!parents.add(directory.substring(0, i))) {
+            break;
+          }
+        }
+      }
+      directories.removeAll(parents);
+      List<Callable<Void>> mkdirs = new ArrayList<Callable<Void>>();
+      for (String directory : directories) {
+        final Path to = new Path(finalOutput, directory);
+        mkdirs.add(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException {
+            if (!fs.mkdirs(to)) {
+              throw new IOException("Failed to create " + to);
+            }
+            return null;
+          }
+        });
+      }
+      runAll(pool, mkdirs);
+      long created = Time.monotonicNow();
+
+      List<Callable<Void>> renames = new ArrayList<Callable<Void>>();
+      for (TaskManifest manifest : manifests) {
+        for (String file : manifest.getFiles()) {
+          final Path from = new Path(manifest.getAttemptPath(), file);
+          final Path to = new Path(finalOutput, file);
+          renames.add(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+              if (!fs.rename(from, to)
+                  && !(fs.delete(to, true) && fs.rename(from, to))) {
+                throw new IOException("Failed to rename " + from + " to "
+                    + to);
+              }
+              return null;
+            }
+          });
+        }
+      }
+      runAll(pool, renames);
+      long renamed = Time.monotonicNow();
+
+      jobCommitCounters.put(FileOutputCommitterCounter.JOB_COMMIT_MANIFESTS,
+          (long) manifests.size());
+      jobCommitCounters.put(FileOutputCommitterCounter.JOB_COMMIT_FILES,
+          (long) renames.size());
+      jobCommitCounters.put(FileOutputCommitterCounter.JOB_COMMIT_LOAD_MILLIS,
+          loaded - start);
+      jobCommitCounters.put(
+          FileOutputCommitterCounter.JOB_COMMIT_MKDIRS_MILLIS,
+          created - loaded);
+      jobCommitCounters.put(
+          FileOutputCommitterCounter.JOB_COMMIT_RENAME_MILLIS,
+          renamed - created);
+      LOG.info("Committed " + renames.size() + " files of "
+          + manifests.size() + " tasks to " + finalOutput + " in "
+          + (renamed - start) + " ms using " + threads + " threads");
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static <T> List<T> runAll(ExecutorService pool,
+      List<Callable<T>> calls) throws IOException {
+    List<Future<T>> futures = new ArrayList<Future<T>>(calls.size());
+    for (Callable<T> call : calls) {
+      futures.add(pool.submit(call));
+    }
+    List<T> results = new ArrayList<T>(futures.size());
+    try {
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while committing job");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+    return results;
+  }
+
   /**
    * Merge two paths together.  Anything in from will be moved into to, if there
    * are any name conflicts while merging the files or directories in from win.
@@ -568,7 +742,9 @@ public void commitTask(TaskAttemptContext context, Path taskAttemptPath)
       }
 
       if (taskAttemptDirStatus != null) {
-        if (algorithmVersion == 1) {
+        if (algorithmVersion == 3) {
+          commitTaskManifest(context, fs, taskAttemptPath);
+        } else if (algorithmVersion == 1) {
           Path committedTaskPath = getCommittedTaskPath(context);
           if (fs.exists(committedTaskPath)) {
              if (!fs.delete(committedTaskPath, true)) {
@@ -595,6 +771,43 @@ public void commitTask(TaskAttemptContext context, Path taskAttemptPath)
     }
   }
 
+  private void commitTaskManifest(TaskAttemptContext context, FileSystem fs,
+      Path taskAttemptPath) throws IOException {
+    long start = Time.monotonicNow();
+    TaskManifest manifest = TaskManifest.scan(fs, taskAttemptPath);
+    Path manifestPath =
+        getCommittedTaskManifestPath(getAppAttemptId(context), context);
+    manifest.save(fs, taskAttemptPath.suffix(TaskManifest.SUFFIX),
+        manifestPath);
+    incrCounter(context, FileOutputCommitterCounter.TASK_COMMIT_FILES,
+        manifest.getFiles().size());
+    incrCounter(context, FileOutputCommitterCounter.TASK_COMMIT_MILLIS,
+        Time.monotonicNow() - start);
+    LOG.info("Saved manifest of " + manifest.getFiles().size()
+        + " files of task '" + context.getTaskAttemptID() + "' to "
+        + manifestPath);
+  }
+
+  private static void incrCounter(TaskAttemptContext context,
+      Enum<?> name, long value) {
+    Counter counter = context.getCounter(name);
+    if (counter != null) {
+      counter.increment(value);
+    }
+  }
+
+  /**
+   * @return the counters of the phases of the last commit job, for
+   * algorithm 3.
+   */
+  @Override
+  @Private
+  @InterfaceStability.Unstable
+  public Map<Enum<?>, Long> getJobCommitCounters() {
+    return Collections.unmodifiableMap(
+        new LinkedHashMap<Enum<?>, Long>(jobCommitCounters));
+  }
+
   /**
    * Delete the work directory
    * @throws IOException 
@@ -671,8 +884,43 @@ public void recoverTask(TaskAttemptContext context)
       if (LOG.isDebugEnabled()) {
         LOG.debug("Trying to recover task from " + previousCommittedTaskPath);
       }
-      if (algorithmVersion == 1) {
-        if (fs.exists(previousCommittedTaskPath)) {
+      Path previousManifestPath =
+          getCommittedTaskManifestPath(previousAttempt, context);
+      if (algorithmVersion == 3) {
+        Path manifestPath =
+            getCommittedTaskManifestPath(getAppAttemptId(context), context);
+        if (fs.exists(previousManifestPath)) {
+          // the manifest still lists the files in the previous attempt's
+          // work directory, which is only removed by commit job
+          if (fs.exists(manifestPath) && !fs.delete(manifestPath, false)) {
+            throw new IOException("Could not delete " + manifestPath);
+          }
+          fs.mkdirs(manifestPath.getParent());
+          if (!fs.rename(previousManifestPath, manifestPath)) {
+            throw new IOException("Could not rename " + previousManifestPath
+                + " to " + manifestPath);
+          }
+        } else if (fs.exists(previousCommittedTaskPath)) {
+          // committed by algorithm 1 before the upgrade: list the files of
+          // its committed task directory, where they stay until commit job
+          LOG.info("Recovering task for upgrading scenario, listing files of "
+              + previousCommittedTaskPath + " in " + manifestPath);
+          fs.mkdirs(manifestPath.getParent());
+          TaskManifest.scan(fs, previousCommittedTaskPath).save(fs,
+              previousManifestPath, manifestPath);
+        } else {
+          LOG.warn(attemptId + " had no output to recover.");
+        }
+      } else if (algorithmVersion == 1) {
+        Path previousOutputPath = previousCommittedTaskPath;
+        if (!fs.exists(previousOutputPath)
+            && fs.exists(previousManifestPath)) {
+          // committed by algorithm 3: the work directory of the attempt
+          // holds the output, as a committed task directory would
+          previousOutputPath =
+              TaskManifest.load(fs, previousManifestPath).getAttemptPath();
+        }
+        if (fs.exists(previousOutputPath)) {
           Path committedTaskPath = getCommittedTaskPath(context);
           if (fs.exists(committedTaskPath)) {
             if (!fs.delete(committedTaskPath, true)) {
@@ -682,8 +930,8 @@ public void recoverTask(TaskAttemptContext context)
           //Rename can fail if the parent directory does not yet exist.
           Path committedParent = committedTaskPath.getParent();
           fs.mkdirs(committedParent);
-          if (!fs.rename(previousCommittedTaskPath, committedTaskPath)) {
-            throw new IOException("Could not rename " + previousCommittedTaskPath +
+          if (!fs.rename(previousOutputPath, committedTaskPath)) {
+            throw new IOException("Could not rename " + previousOutputPath +
                 " to " + committedTaskPath);
           }
         } else {
@@ -698,6 +946,12 @@ public void recoverTask(TaskAttemptContext context)
               + previousCommittedTaskPath + " to " + outputPath);
           FileStatus from = fs.getFileStatus(previousCommittedTaskPath);
           mergePaths(fs, from, outputPath);
+        } else if (fs.exists(previousManifestPath)) {
+          Path attemptPath =
+              TaskManifest.load(fs, previousManifestPath).getAttemptPath();
+          LOG.info("Recovering task for upgrading scenario, moving files from "
+              + attemptPath + " to " + outputPath);
+          mergePaths(fs, fs.getFileStatus(attemptPath), outputPath);
         }
         LOG.info("Done recovering task " + attemptId);
       }
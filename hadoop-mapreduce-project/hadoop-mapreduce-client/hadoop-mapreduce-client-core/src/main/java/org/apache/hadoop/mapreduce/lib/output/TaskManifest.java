@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapreduce.lib.output;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * The output of a task attempt committed by the manifest algorithm of the
+ * {@link FileOutputCommitter}.
+ *
+ * <p>Committing a task only writes the list of the files and directories its
+ * attempt wrote, relative to the attempt's work directory.  The files stay
+ * where they are until the job commit renames each of them straight to the
+ * output directory.</p>
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+class TaskManifest implements Writable {
+  static final String SUFFIX = ".manifest";
+  private static final int VERSION = 1;
+
+  private Path attemptPath;
+  private final List<String> directories = new ArrayList<String>();
+  private final List<String> files = new ArrayList<String>();
+
+  TaskManifest() {
+  }
+
+  /** Lists what a task attempt wrote into its work directory. */
+  static TaskManifest scan(FileSystem fs, Path attemptPath)
+      throws IOException {
+    TaskManifest manifest = new TaskManifest();
+    manifest.attemptPath = attemptPath;
+    manifest.scan(fs, attemptPath, "");
+    return manifest;
+  }
+
+  private void scan(FileSystem fs, Path dir, String prefix)
+      throws IOException {
+    for (FileStatus stat : fs.listStatus(dir)) {
+      String name = prefix + stat.getPath().getName();
+      if (stat.isDirectory()) {
+        directories.add(name);
+        scan(fs, stat.getPath(), name + Path.SEPARATOR);
+      } else {
+        files.add(name);
+      }
+    }
+  }
+
+  static TaskManifest load(FileSystem fs, Path path) throws IOException {
+    TaskManifest manifest = new TaskManifest();
+    FSDataInputStream in = fs.open(path);
+    try {
+      manifest.readFields(in);
+    } finally {
+      IOUtils.closeStream(in);
+    }
+    return manifest;
+  }
+
+  /**
+   * Writes the manifest to a temporary file and renames it into place, so
+   * that the job commit never sees part of one.
+   */
+  void save(FileSystem fs, Path tempPath, Path path) throws IOException {
+    FSDataOutputStream out = fs.create(tempPath, true);
+    try {
+      write(out);
+    } finally {
+      IOUtils.closeStream(out);
+    }
+    if (fs.exists(path) && !fs.delete(path, false)) {
+      throw new IOException("Could not delete " + path);
+    }
+    if (!fs.rename(tempPath, path)) {
+      throw new IOException("Could not rename " + tempPath + " to " + path);
+    }
+  }
+
+  /** @return the work directory of the attempt which wrote the output. */
+  Path getAttemptPath() {
+    return attemptPath;
+  }
+
+  List<String> getDirectories() {
+    return Collections.unmodifiableList(directories);
+  }
+
+  List<String> getFiles() {
+    return Collections.unmodifiableList(files);
+  }
+
+  @Override
+  public void write(DataOutput out) throws IOException {
+    WritableUtils.writeVInt(out, VERSION);
+    Text.writeString(out, attemptPath.toString());
+    writeNames(out, directories);
+    writeNames(out, files);
+  }
+
+  @Override
+  public void readFields(DataInput in) throws IOException {
+    int version = WritableUtils.readVInt(in);
+    if (version != VERSION) {
+      throw new IOException("Unsupported task manifest version " + version);
+    }
+    attemptPath = new Path(Text.readString(in));
+    readNames(in, directories);
+    readNames(in, files);
+  }
+
+  private static void writeNames(DataOutput out, List<String> names)
+      throws IOException {
+    WritableUtils.writeVInt(out, names.size());
+    for (String name : names) {
+      Text.writeString(out, name);
+    }
+  }
+
+  private static void readNames(DataInput in, List<String> names)
+      throws IOException {
+    names.clear();
+    int count = WritableUtils.readVInt(in);
+    for (int i = 0; i < count; ++i) {
+      names.add(Text.readString(in));
+    }
+  }
+}
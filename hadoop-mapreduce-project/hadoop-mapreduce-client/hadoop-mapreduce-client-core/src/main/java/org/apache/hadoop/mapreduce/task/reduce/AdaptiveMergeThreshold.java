@@ -0,0 +1,125 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapreduce.task.reduce;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.util.Time;
+
+/**
+ * Decides how much shuffled data is committed in memory before it is merged
+ * to disk.
+ *
+ * <p>The merge has to start while there is still room for the fetches in
+ * flight, or fetchers stall until it is done; starting it too early spills
+ * many small files instead.  This threshold leaves room for one segment per
+ * fetcher, sized by the running average of the segments shuffled so far,
+ * within the given bounds.  While the JVM spends more than
+ * {@link #GC_PRESSURE_LIMIT} of its time collecting garbage, the lower bound
+ * is used so that heap buffers are given back sooner.</p>
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+class AdaptiveMergeThreshold {
+  /** Share of wall clock time spent in GC above which memory is tight. */
+  static final double GC_PRESSURE_LIMIT = 0.1;
+  static final long GC_CHECK_INTERVAL_MS = 1000;
+  /** Weight of the latest segment in the running average. */
+  private static final double SEGMENT_WEIGHT = 0.2;
+
+  private final long memoryLimit;
+  private final long minThreshold;
+  private final long maxThreshold;
+  private final int fetchers;
+  private final boolean watchGc;
+
+  private double averageSegmentSize = -1;
+  private long lastGcCheck = -1;
+  private long lastGcTime;
+  private boolean gcPressure;
+
+  /**
+   * @param memoryLimit memory available to shuffled map outputs
+   * @param minThreshold lowest threshold, used until a segment is seen
+   * @param maxThreshold highest threshold
+   * @param fetchers number of fetchers shuffling in parallel
+   * @param watchGc whether the map outputs are on the heap, so that GC
+   *                pressure should bring the merge forward
+   */
+  AdaptiveMergeThreshold(long memoryLimit, long minThreshold,
+      long maxThreshold, int fetchers, boolean watchGc) {
+    this.memoryLimit = memoryLimit;
+    this.minThreshold = minThreshold;
+    this.maxThreshold = Math.max(minThreshold, maxThreshold);
+    this.fetchers = fetchers;
+    this.watchGc = watchGc;
+  }
+
+  /** Records the size of a map output committed to memory. */
+  synchronized void segmentCommitted(long size) {
+    if (averageSegmentSize < 0) {
+      averageSegmentSize = size;
+    } else {
+      averageSegmentSize += SEGMENT_WEIGHT * (size - averageSegmentSize);
+    }
+  }
+
+  /** @return the committed size at which the in-memory merge starts. */
+  synchronized long get() {
+    if (watchGc) {
+      checkGcPressure();
+    }
+    if (gcPressure || averageSegmentSize < 0) {
+      return minThreshold;
+    }
+    long headroom = (long) (fetchers * averageSegmentSize);
+    return Math.max(minThreshold,
+        Math.min(maxThreshold, memoryLimit - headroom));
+  }
+
+  private void checkGcPressure() {
+    long now = now();
+    if (lastGcCheck >= 0 && now - lastGcCheck < GC_CHECK_INTERVAL_MS) {
+      return;
+    }
+    long gcTime = getGcTimeMillis();
+    if (lastGcCheck >= 0) {
+      gcPressure =
+          gcTime - lastGcTime > GC_PRESSURE_LIMIT * (now - lastGcCheck);
+    }
+    lastGcCheck = now;
+    lastGcTime = gcTime;
+  }
+
+  protected long now() {
+    return Time.monotonicNow();
+  }
+
+  /** @return the total time the JVM has spent in garbage collection. */
+  protected long getGcTimeMillis() {
+    long total = 0;
+    for (GarbageCollectorMXBean gc :
+        ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(0, gc.getCollectionTime());
+    }
+    return total;
+  }
+}
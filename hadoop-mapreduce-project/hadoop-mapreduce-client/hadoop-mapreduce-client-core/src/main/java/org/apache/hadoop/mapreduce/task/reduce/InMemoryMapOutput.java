@@ -19,6 +19,8 @@
 
 import java.io.InputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -46,6 +48,9 @@
   private static final Log LOG = LogFactory.getLog(InMemoryMapOutput.class);
   private final byte[] memory;
   private BoundedByteArrayOutputStream byteStream;
+  // Off-heap map-outputs, used instead of memory when there is a pool
+  private final ShuffleBufferPool pool;
+  private final ByteBuffer offHeapMemory;
   // Decompression of map-outputs
   private final CompressionCodec codec;
   private final Decompressor decompressor;
@@ -54,10 +59,28 @@ public InMemoryMapOutput(Configuration conf, TaskAttemptID mapId,
                            MergeManagerImpl<K, V> merger,
                            int size, CompressionCodec codec,
                            boolean primaryMapOutput) {
+    this(conf, mapId, merger, size, codec, primaryMapOutput, null);
+  }
+
+  /**
+   * @param pool the pool to hold the map-output in, or null to hold it in a
+   *             byte array on the heap
+   */
+  InMemoryMapOutput(Configuration conf, TaskAttemptID mapId,
+                    MergeManagerImpl<K, V> merger,
+                    int size, CompressionCodec codec,
+                    boolean primaryMapOutput, ShuffleBufferPool pool) {
     super(conf, merger, mapId, (long)size, primaryMapOutput);
     this.codec = codec;
-    byteStream = new BoundedByteArrayOutputStream(size);
-    memory = byteStream.getBuffer();
+    this.pool = pool;
+    if (pool == null) {
+      byteStream = new BoundedByteArrayOutputStream(size);
+      memory = byteStream.getBuffer();
+      offHeapMemory = null;
+    } else {
+      memory = null;
+      offHeapMemory = pool.allocate(size);
+    }
     if (codec != null) {
       decompressor = CodecPool.getDecompressor(codec);
     } else {
@@ -65,6 +88,9 @@ public InMemoryMapOutput(Configuration conf, TaskAttemptID mapId,
     }
   }
 
+  /**
+   * @return the map-output, or null if it is held off the heap.
+   */
   public byte[] getMemory() {
     return memory;
   }
@@ -73,6 +99,43 @@ public BoundedByteArrayOutputStream getArrayStream() {
     return byteStream;
   }
 
+  /**
+   * @return the map-output held off the heap, or null if it is in
+   * {@link #getMemory()}.
+   */
+  ByteBuffer getOffHeapMemory() {
+    return offHeapMemory;
+  }
+
+  ShuffleBufferPool getPool() {
+    return pool;
+  }
+
+  /** @return a stream writing the map-output from its start. */
+  OutputStream getOutputStream() {
+    if (offHeapMemory == null) {
+      return byteStream;
+    }
+    final ByteBuffer out = offHeapMemory.duplicate();
+    return new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        if (!out.hasRemaining()) {
+          throw new IOException("Map-output of " + getMapId() + " is full");
+        }
+        out.put((byte) b);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        if (out.remaining() < len) {
+          throw new IOException("Map-output of " + getMapId() + " is full");
+        }
+        out.put(b, off, len);
+      }
+    };
+  }
+
   @Override
   protected void doShuffle(MapHost host, IFileInputStream iFin,
                       long compressedLength, long decompressedLength,
@@ -87,10 +150,15 @@ protected void doShuffle(MapHost host, IFileInputStream iFin,
     }
   
     try {
-      IOUtils.readFully(input, memory, 0, memory.length);
-      metrics.inputBytes(memory.length);
+      int length = (int) getSize();
+      if (offHeapMemory == null) {
+        IOUtils.readFully(input, memory, 0, length);
+      } else {
+        readFully(input, offHeapMemory.duplicate(), length);
+      }
+      metrics.inputBytes(length);
       reporter.progress();
-      LOG.info("Read " + memory.length + " bytes from map-output for " +
+      LOG.info("Read " + length + " bytes from map-output for " +
                 getMapId());
 
       /**
@@ -109,6 +177,19 @@ protected void doShuffle(MapHost host, IFileInputStream iFin,
     }
   }
 
+  private static void readFully(InputStream in, ByteBuffer out, int length)
+      throws IOException {
+    byte[] chunk = new byte[Math.min(length, 64 * 1024)];
+    while (length > 0) {
+      int n = in.read(chunk, 0, Math.min(length, chunk.length));
+      if (n < 0) {
+        throw new IOException("Premature EOF from inputStream");
+      }
+      out.put(chunk, 0, n);
+      length -= n;
+    }
+  }
+
   @Override
   public void commit() throws IOException {
     getMerger().closeInMemoryFile(this);
@@ -116,7 +197,10 @@ public void commit() throws IOException {
   
   @Override
   public void abort() {
-    getMerger().unreserve(memory.length);
+    if (offHeapMemory != null) {
+      pool.release(offHeapMemory);
+    }
+    getMerger().unreserve(getSize());
   }
 
   @Override
@@ -21,11 +21,13 @@
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataInputByteBuffer;
 import org.apache.hadoop.mapred.IFile.Reader;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
 
@@ -40,7 +42,13 @@
   private final DataInputBuffer memDataIn = new DataInputBuffer();
   private final int start;
   private final int length;
-  
+  // Map-outputs held off the heap are read through a copy of each record
+  private final ShuffleBufferPool pool;
+  private ByteBuffer offHeapData;
+  private final DataInputByteBuffer offHeapDataIn;
+  private byte[] keyBytes;
+  private byte[] valueBytes;
+
   public InMemoryReader(MergeManagerImpl<K,V> merger, TaskAttemptID taskAttemptId,
                         byte[] data, int start, int length, Configuration conf)
   throws IOException {
@@ -53,11 +61,41 @@ public InMemoryReader(MergeManagerImpl<K,V> merger, TaskAttemptID taskAttemptId,
     memDataIn.reset(buffer, start, length - start);
     this.start = start;
     this.length = length;
+    this.pool = null;
+    this.offHeapDataIn = null;
+  }
+
+  /**
+   * Reads a map-output held off the heap in a buffer of the given pool, which
+   * the buffer is returned to on {@link #close()}.
+   */
+  InMemoryReader(MergeManagerImpl<K,V> merger, TaskAttemptID taskAttemptId,
+                 ShuffleBufferPool pool, ByteBuffer data, Configuration conf)
+  throws IOException {
+    super(conf, null, data.limit(), null, null);
+    this.merger = merger;
+    this.taskAttemptId = taskAttemptId;
+    this.pool = pool;
+
+    offHeapData = data;
+    bufferSize = (int)fileLength;
+    offHeapDataIn = new DataInputByteBuffer();
+    keyBytes = new byte[0];
+    valueBytes = new byte[0];
+    this.start = 0;
+    this.length = bufferSize;
+    reset(0);
   }
 
   @Override
   public void reset(int offset) {
-    memDataIn.reset(buffer, start + offset, length - start - offset);
+    if (offHeapDataIn != null) {
+      ByteBuffer data = offHeapData.duplicate();
+      data.position(offset);
+      offHeapDataIn.reset(data);
+    } else {
+      memDataIn.reset(buffer, start + offset, length - start - offset);
+    }
     bytesRead = offset;
     eof = false;
   }
@@ -80,13 +118,20 @@ private void dumpOnError() {
     System.err.println("Dumping corrupt map-output of " + taskAttemptId + 
                        " to " + dumpFile.getAbsolutePath());
     try (FileOutputStream fos = new FileOutputStream(dumpFile)) {
-      fos.write(buffer, 0, bufferSize);
+      if (offHeapData != null) {
+        fos.getChannel().write(offHeapData.duplicate());
+      } else {
+        fos.write(buffer, 0, bufferSize);
+      }
     } catch (IOException ioe) {
       System.err.println("Failed to dump map-output of " + taskAttemptId);
     }
   }
   
   public boolean nextRawKey(DataInputBuffer key) throws IOException {
+    if (offHeapDataIn != null) {
+      return nextOffHeapKey(key);
+    }
     try {
       if (!positionToNextRecord(memDataIn)) {
         return false;
@@ -113,6 +158,10 @@ public boolean nextRawKey(DataInputBuffer key) throws IOException {
   }
   
   public void nextRawValue(DataInputBuffer value) throws IOException {
+    if (offHeapDataIn != null) {
+      nextOffHeapValue(value);
+      return;
+    }
     try {
       int pos = memDataIn.getPosition();
       byte[] data = memDataIn.getData();
@@ -134,11 +183,48 @@ public void nextRawValue(DataInputBuffer value) throws IOException {
       throw ioe;
     }
   }
-    
+
+  private boolean nextOffHeapKey(DataInputBuffer key) throws IOException {
+    try {
+      if (!positionToNextRecord(offHeapDataIn)) {
+        return false;
+      }
+      if (keyBytes.length < currentKeyLength) {
+        keyBytes = new byte[currentKeyLength << 1];
+      }
+      offHeapDataIn.readFully(keyBytes, 0, currentKeyLength);
+      key.reset(keyBytes, currentKeyLength);
+      bytesRead += currentKeyLength;
+      return true;
+    } catch (IOException ioe) {
+      dumpOnError();
+      throw ioe;
+    }
+  }
+
+  private void nextOffHeapValue(DataInputBuffer value) throws IOException {
+    try {
+      if (valueBytes.length < currentValueLength) {
+        valueBytes = new byte[currentValueLength << 1];
+      }
+      offHeapDataIn.readFully(valueBytes, 0, currentValueLength);
+      value.reset(valueBytes, currentValueLength);
+      bytesRead += currentValueLength;
+      ++recNo;
+    } catch (IOException ioe) {
+      dumpOnError();
+      throw ioe;
+    }
+  }
+
   public void close() {
     // Release
     dataIn = null;
     buffer = null;
+    if (offHeapData != null) {
+      pool.release(offHeapData);
+      offHeapData = null;
+    }
       // Inform the MergeManager
     if (merger != null) {
       merger.unreserve(bufferSize);
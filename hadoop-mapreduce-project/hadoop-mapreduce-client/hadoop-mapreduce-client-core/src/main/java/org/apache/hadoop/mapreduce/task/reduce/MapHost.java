@@ -40,6 +40,11 @@ public static enum State {
   private final String hostName;
   private final String baseUrl;
   private List<TaskAttemptID> maps = new ArrayList<TaskAttemptID>();
+  // Sum of the size hints of the known maps
+  private long knownMapsSize;
+  // Observed copy rate in bytes per ms, negative until the first copy
+  private double bytesPerMilli = -1;
+  private long copyMillis;
   
   public MapHost(String hostName, String baseUrl) {
     this.hostName = hostName;
@@ -59,7 +64,16 @@ public String getBaseUrl() {
   }
 
   public synchronized void addKnownMap(TaskAttemptID mapId) {
+    addKnownMap(mapId, 1);
+  }
+
+  /**
+   * @param sizeHint the expected size of the map output relative to the
+   *                 other map outputs
+   */
+  public synchronized void addKnownMap(TaskAttemptID mapId, long sizeHint) {
     maps.add(mapId);
+    knownMapsSize += sizeHint;
     if (state == State.IDLE) {
       state = State.PENDING;
     }
@@ -68,8 +82,38 @@ public synchronized void addKnownMap(TaskAttemptID mapId) {
   public synchronized List<TaskAttemptID> getAndClearKnownMaps() {
     List<TaskAttemptID> currentKnownMaps = maps;
     maps = new ArrayList<TaskAttemptID>();
+    knownMapsSize = 0;
     return currentKnownMaps;
   }
+
+  /** @return the sum of the size hints of the known map outputs. */
+  public synchronized long getKnownMapsSize() {
+    return knownMapsSize;
+  }
+
+  /**
+   * Records a map output copied from this host.
+   */
+  public synchronized void copied(long bytes, long millis) {
+    millis = Math.max(1, millis);
+    double rate = (double) bytes / millis;
+    bytesPerMilli = bytesPerMilli < 0 ? rate
+        : bytesPerMilli + 0.3 * (rate - bytesPerMilli);
+    copyMillis += millis;
+  }
+
+  /**
+   * @return the recent copy rate from this host in bytes per ms, or a
+   * negative value if nothing was copied yet.
+   */
+  public synchronized double getBytesPerMilli() {
+    return bytesPerMilli;
+  }
+
+  /** @return the total time spent copying map outputs from this host. */
+  public synchronized long getCopyMillis() {
+    return copyMillis;
+  }
   
   public synchronized void markBusy() {
     state = State.BUSY;
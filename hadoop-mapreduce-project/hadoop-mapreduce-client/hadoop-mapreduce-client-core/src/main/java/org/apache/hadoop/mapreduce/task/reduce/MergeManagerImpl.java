@@ -53,6 +53,7 @@
 import org.apache.hadoop.mapred.Task.CombineOutputCollector;
 import org.apache.hadoop.mapred.Task.CombineValuesIterator;
 import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.TaskCounter;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
 import org.apache.hadoop.mapreduce.TaskID;
 import org.apache.hadoop.mapreduce.CryptoUtils;
@@ -105,6 +106,10 @@
   
   private final int memToMemMergeOutputsThreshold; 
   private final long mergeThreshold;
+  private final AdaptiveMergeThreshold adaptiveMergeThreshold;
+
+  /** Direct buffers holding the map-outputs, if they are kept off-heap. */
+  private final ShuffleBufferPool bufferPool;
   
   private final int ioSortFactor;
 
@@ -126,6 +131,10 @@
   private final Counters.Counter reduceCombineInputCounter;
 
   private final Counters.Counter mergedMapOutputsCounter;
+
+  private final Counters.Counter mergedMemoryBytesCounter;
+
+  private final Counters.Counter mergedDiskBytesCounter;
   
   private final CompressionCodec codec;
   
@@ -155,6 +164,10 @@ public MergeManagerImpl(TaskAttemptID reduceId, JobConf jobConf,
     this.reduceCombineInputCounter = reduceCombineInputCounter;
     this.spilledRecordsCounter = spilledRecordsCounter;
     this.mergedMapOutputsCounter = mergedMapOutputsCounter;
+    this.mergedMemoryBytesCounter = reporter == null ? null
+        : reporter.getCounter(TaskCounter.SHUFFLE_MERGED_MEMORY_BYTES);
+    this.mergedDiskBytesCounter = reporter == null ? null
+        : reporter.getCounter(TaskCounter.SHUFFLE_MERGED_DISK_BYTES);
     this.mapOutputFile = mapOutputFile;
     this.mapOutputFile.setConf(jobConf);
     
@@ -170,10 +183,18 @@ public MergeManagerImpl(TaskAttemptID reduceId, JobConf jobConf,
           maxInMemCopyUse);
     }
 
-    // Allow unit tests to fix Runtime memory
-    this.memoryLimit = (long)(jobConf.getLong(
-        MRJobConfig.REDUCE_MEMORY_TOTAL_BYTES,
-        Runtime.getRuntime().maxMemory()) * maxInMemCopyUse);
+    final int offHeapMB = jobConf.getInt(MRJobConfig.SHUFFLE_OFFHEAP_BUFFER_MB,
+        MRJobConfig.DEFAULT_SHUFFLE_OFFHEAP_BUFFER_MB);
+    if (offHeapMB > 0) {
+      this.memoryLimit = (long) offHeapMB << 20;
+      this.bufferPool = new ShuffleBufferPool(memoryLimit);
+    } else {
+      // Allow unit tests to fix Runtime memory
+      this.memoryLimit = (long)(jobConf.getLong(
+          MRJobConfig.REDUCE_MEMORY_TOTAL_BYTES,
+          Runtime.getRuntime().maxMemory()) * maxInMemCopyUse);
+      this.bufferPool = null;
+    }
 
     this.ioSortFactor = jobConf.getInt(MRJobConfig.IO_SORT_FACTOR, 100);
 
@@ -203,7 +224,20 @@ public MergeManagerImpl(TaskAttemptID reduceId, JobConf jobConf,
                           jobConf.getFloat(
                             MRJobConfig.SHUFFLE_MERGE_PERCENT,
                             MRJobConfig.DEFAULT_SHUFFLE_MERGE_PERCENT));
+    if (jobConf.getBoolean(MRJobConfig.SHUFFLE_MERGE_ADAPTIVE,
+        MRJobConfig.DEFAULT_SHUFFLE_MERGE_ADAPTIVE)) {
+      // GC pressure says nothing about direct memory
+      this.adaptiveMergeThreshold = new AdaptiveMergeThreshold(memoryLimit,
+          mergeThreshold, memoryLimit - memoryLimit / 10,
+          jobConf.getInt(MRJobConfig.SHUFFLE_PARALLEL_COPIES, 5),
+          bufferPool == null);
+    } else {
+      this.adaptiveMergeThreshold = null;
+    }
     LOG.info("MergerManager: memoryLimit=" + memoryLimit + ", " +
+             "offHeap=" + (bufferPool != null) + ", " +
+             "adaptiveMergeThreshold=" + (adaptiveMergeThreshold != null) +
+             ", " +
              "maxSingleShuffleLimit=" + maxSingleShuffleLimit + ", " +
              "mergeThreshold=" + mergeThreshold + ", " + 
              "ioSortFactor=" + ioSortFactor + ", " +
@@ -253,6 +287,12 @@ ExceptionReporter getExceptionReporter() {
     return exceptionReporter;
   }
 
+  @VisibleForTesting
+  long getMergeThreshold() {
+    return adaptiveMergeThreshold == null
+        ? mergeThreshold : adaptiveMergeThreshold.get();
+  }
+
   @Override
   public void waitForResource() throws InterruptedException {
     inMemoryMerger.waitForMerge();
@@ -309,7 +349,7 @@ private synchronized InMemoryMapOutput<K, V> unconditionalReserve(
       TaskAttemptID mapId, long requestedSize, boolean primaryMapOutput) {
     usedMemory += requestedSize;
     return new InMemoryMapOutput<K,V>(jobConf, mapId, this, (int)requestedSize,
-                                      codec, primaryMapOutput);
+                                      codec, primaryMapOutput, bufferPool);
   }
   
   synchronized void unreserve(long size) {
@@ -323,11 +363,15 @@ public synchronized void closeInMemoryFile(InMemoryMapOutput<K,V> mapOutput) {
         + ", commitMemory -> " + commitMemory + ", usedMemory ->" + usedMemory);
 
     commitMemory+= mapOutput.getSize();
+    if (adaptiveMergeThreshold != null) {
+      adaptiveMergeThreshold.segmentCommitted(mapOutput.getSize());
+    }
 
     // Can hang if mergeThreshold is really low.
-    if (commitMemory >= mergeThreshold) {
+    final long threshold = getMergeThreshold();
+    if (commitMemory >= threshold) {
       LOG.info("Starting inMemoryMerger's merge since commitMemory=" +
-          commitMemory + " > mergeThreshold=" + mergeThreshold + 
+          commitMemory + " > mergeThreshold=" + threshold + 
           ". Current usedMemory=" + usedMemory);
       inMemoryMapOutputs.addAll(inMemoryMergedMapOutputs);
       inMemoryMergedMapOutputs.clear();
@@ -404,7 +448,7 @@ public void merge(List<InMemoryMapOutput<K, V>> inputs) throws IOException {
         unconditionalReserve(dummyMapId, mergeOutputSize, false);
       
       Writer<K, V> writer = 
-        new InMemoryWriter<K, V>(mergedMapOutputs.getArrayStream());
+        new InMemoryWriter<K, V>(mergedMapOutputs.getOutputStream());
       
       LOG.info("Initiating Memory-to-Memory merge with " + noInMemorySegments +
                " segments of total-size: " + mergeOutputSize);
@@ -539,6 +583,7 @@ public void merge(List<CompressAwarePath> inputs) throws IOException {
       // 1. Prepare the list of files to be merged. 
       for (CompressAwarePath file : inputs) {
         approxOutputSize += localFS.getFileStatus(file).getLen();
+        countShuffledOnDisk(file);
       }
 
       // add the checksum length
@@ -620,17 +665,24 @@ private long createInMemorySegments(List<InMemoryMapOutput<K,V>> inMemoryMapOutp
     // closed but not yet present in inMemoryMapOutputs
     long fullSize = 0L;
     for (InMemoryMapOutput<K,V> mo : inMemoryMapOutputs) {
-      fullSize += mo.getMemory().length;
+      fullSize += mo.getSize();
     }
     while(fullSize > leaveBytes) {
       InMemoryMapOutput<K,V> mo = inMemoryMapOutputs.remove(0);
-      byte[] data = mo.getMemory();
-      long size = data.length;
+      long size = mo.getSize();
       totalSize += size;
       fullSize -= size;
-      Reader<K,V> reader = new InMemoryReader<K,V>(MergeManagerImpl.this, 
-                                                   mo.getMapId(),
-                                                   data, 0, (int)size, jobConf);
+      if (mo.isPrimaryMapOutput()) {
+        incrCounter(mergedMemoryBytesCounter, size);
+      }
+      Reader<K,V> reader;
+      if (mo.getOffHeapMemory() != null) {
+        reader = new InMemoryReader<K,V>(MergeManagerImpl.this, mo.getMapId(),
+            mo.getPool(), mo.getOffHeapMemory(), jobConf);
+      } else {
+        reader = new InMemoryReader<K,V>(MergeManagerImpl.this, mo.getMapId(),
+            mo.getMemory(), 0, (int)size, jobConf);
+      }
       inMemorySegments.add(new Segment<K,V>(reader, true, 
                                             (mo.isPrimaryMapOutput() ? 
                                             mergedMapOutputsCounter : null)));
@@ -638,6 +690,22 @@ private long createInMemorySegments(List<InMemoryMapOutput<K,V>> inMemoryMapOutp
     return totalSize;
   }
 
+  /**
+   * Count a map output that was shuffled straight to disk the first time
+   * a merge reads it; the outputs of earlier merges were counted already.
+   */
+  private void countShuffledOnDisk(CompressAwarePath file) {
+    if (!file.toString().endsWith(Task.MERGED_OUTPUT_PREFIX)) {
+      incrCounter(mergedDiskBytesCounter, file.getCompressedSize());
+    }
+  }
+
+  private static void incrCounter(Counters.Counter counter, long bytes) {
+    if (counter != null) {
+      counter.increment(bytes);
+    }
+  }
+
   class RawKVIteratorReader extends IFile.Reader<K,V> {
 
     private final RawKeyValueIterator kvIter;
@@ -779,6 +847,7 @@ private RawKeyValueIterator finalMerge(JobConf job, FileSystem fs,
       long fileLength = fs.getFileStatus(file).getLen();
       onDiskBytes += fileLength;
       rawBytes += (file.getRawDataLength() > 0) ? file.getRawDataLength() : fileLength;
+      countShuffledOnDisk(file);
 
       LOG.debug("Disk file: " + file + " Length is " + fileLength);
       diskSegments.add(new Segment<K, V>(job, fs, file, codec, keepInputs,
@@ -76,7 +76,8 @@ public void init(ShuffleConsumerPlugin.Context context) {
     
     scheduler = new ShuffleSchedulerImpl<K, V>(jobConf, taskStatus, reduceId,
         this, copyPhase, context.getShuffledMapsCounter(),
-        context.getReduceShuffleBytes(), context.getFailedShuffleCounter());
+        context.getReduceShuffleBytes(), context.getFailedShuffleCounter(),
+        metrics);
     merger = createMergeManager(context);
   }
 
@@ -0,0 +1,105 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapreduce.task.reduce;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * A pool of direct buffers holding in-memory map outputs off the heap.
+ *
+ * <p>Direct memory is only returned to the OS once its buffer is garbage
+ * collected, so released buffers are kept and handed out again for segments
+ * of about the same size.  The pool never holds more than its capacity plus
+ * a quarter, counting buffers both in use and kept for reuse; the memory
+ * actually shuffled into it is bounded by the {@link MergeManagerImpl}.</p>
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+class ShuffleBufferPool {
+  private final long maxBytes;
+  private final TreeMap<Integer, ArrayDeque<ByteBuffer>> free =
+      new TreeMap<Integer, ArrayDeque<ByteBuffer>>();
+  private long freeBytes;
+  private long usedBytes;
+
+  ShuffleBufferPool(long capacity) {
+    this.maxBytes = capacity + capacity / 4;
+  }
+
+  /**
+   * @return a direct buffer whose limit is <code>size</code>, positioned at
+   * zero.  Its capacity may be up to a quarter larger.
+   */
+  synchronized ByteBuffer allocate(int size) {
+    ByteBuffer buffer = null;
+    Map.Entry<Integer, ArrayDeque<ByteBuffer>> fit = free.ceilingEntry(size);
+    if (fit != null && fit.getKey() <= size + size / 4) {
+      buffer = take(fit.getKey());
+    }
+    if (buffer == null) {
+      // drop kept buffers which would not fit alongside the new one
+      while (freeBytes > 0 && usedBytes + freeBytes + size > maxBytes) {
+        take(free.lastKey());
+      }
+      buffer = ByteBuffer.allocateDirect(size);
+    }
+    usedBytes += buffer.capacity();
+    buffer.clear();
+    buffer.limit(size);
+    return buffer;
+  }
+
+  private ByteBuffer take(int capacity) {
+    ArrayDeque<ByteBuffer> buffers = free.get(capacity);
+    ByteBuffer buffer = buffers.pollFirst();
+    if (buffers.isEmpty()) {
+      free.remove(capacity);
+    }
+    freeBytes -= capacity;
+    return buffer;
+  }
+
+  /** Returns a buffer obtained from {@link #allocate(int)} to the pool. */
+  synchronized void release(ByteBuffer buffer) {
+    usedBytes -= buffer.capacity();
+    if (usedBytes + freeBytes + buffer.capacity() > maxBytes) {
+      return;
+    }
+    ArrayDeque<ByteBuffer> buffers = free.get(buffer.capacity());
+    if (buffers == null) {
+      buffers = new ArrayDeque<ByteBuffer>();
+      free.put(buffer.capacity(), buffers);
+    }
+    buffers.addLast(buffer);
+    freeBytes += buffer.capacity();
+  }
+
+  synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  synchronized long getFreeBytes() {
+    return freeBytes;
+  }
+}
@@ -27,6 +27,8 @@
 import org.apache.hadoop.metrics2.lib.MutableCounterInt;
 import org.apache.hadoop.metrics2.lib.MutableCounterLong;
 import org.apache.hadoop.metrics2.lib.MutableGaugeInt;
+import org.apache.hadoop.metrics2.lib.MutableGaugeLong;
+import org.apache.hadoop.metrics2.lib.MutableRate;
 
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -43,6 +45,14 @@ public class ShuffleClientMetrics {
   private MutableCounterLong numBytes;
   @Metric
   private MutableGaugeInt numThreadsBusy;
+  @Metric("Time to copy a map output")
+  private MutableRate copyTime;
+  @Metric("Longest time to copy a single map output")
+  private MutableGaugeLong slowestCopyMillis;
+  @Metric("Longest total copy time spent on a single host")
+  private MutableGaugeLong criticalHostCopyMillis;
+  @Metric("Time to copy the last tenth of the map outputs")
+  private MutableGaugeLong shuffleTailMillis;
 
   private ShuffleClientMetrics() {
   }
@@ -69,4 +79,22 @@ public void threadBusy() {
   public void threadFree() {
     numThreadsBusy.decr();
   }
+
+  /**
+   * Records a map output copied in <code>millis</code> from a host which has
+   * taken <code>hostMillis</code> of copying in total.
+   */
+  public synchronized void copyCompleted(long millis, long hostMillis) {
+    copyTime.add(millis);
+    if (millis > slowestCopyMillis.value()) {
+      slowestCopyMillis.set(millis);
+    }
+    if (hostMillis > criticalHostCopyMillis.value()) {
+      criticalHostCopyMillis.set(hostMillis);
+    }
+  }
+
+  public void shuffleTail(long millis) {
+    shuffleTailMillis.set(millis);
+  }
 }
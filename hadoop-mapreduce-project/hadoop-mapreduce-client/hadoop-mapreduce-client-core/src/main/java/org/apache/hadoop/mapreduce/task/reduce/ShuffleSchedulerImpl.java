@@ -24,6 +24,7 @@
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -67,6 +68,8 @@ protected Long initialValue() {
   private static final long INITIAL_PENALTY = 10000;
   private static final float PENALTY_GROWTH_RATE = 1.3f;
   private final static int REPORT_FAILURE_LIMIT = 10;
+  // Share of the maps after which copying the rest is the shuffle tail
+  private static final float SHUFFLE_TAIL_START = 0.9f;
   private static final float BYTES_PER_MILLIS_TO_MBS = 1000f / 1024 / 1024;
   
   private final boolean[] finishedMaps;
@@ -109,6 +112,13 @@ protected Long initialValue() {
   private long maxPenalty = MRJobConfig.DEFAULT_MAX_SHUFFLE_FETCH_RETRY_DELAY;
   private int maxHostFailures;
 
+  private final boolean prioritizeFetches;
+  // Runtimes of the known maps, estimating the size of their outputs
+  private final Map<TaskAttemptID, Long> sizeHints =
+      new HashMap<TaskAttemptID, Long>();
+  private final ShuffleClientMetrics metrics;
+  private long tailStartTime = -1;
+
   public ShuffleSchedulerImpl(JobConf job, TaskStatus status,
                           TaskAttemptID reduceId,
                           ExceptionReporter reporter,
@@ -116,6 +126,18 @@ public ShuffleSchedulerImpl(JobConf job, TaskStatus status,
                           Counters.Counter shuffledMapsCounter,
                           Counters.Counter reduceShuffleBytes,
                           Counters.Counter failedShuffleCounter) {
+    this(job, status, reduceId, reporter, progress, shuffledMapsCounter,
+        reduceShuffleBytes, failedShuffleCounter, null);
+  }
+
+  public ShuffleSchedulerImpl(JobConf job, TaskStatus status,
+                          TaskAttemptID reduceId,
+                          ExceptionReporter reporter,
+                          Progress progress,
+                          Counters.Counter shuffledMapsCounter,
+                          Counters.Counter reduceShuffleBytes,
+                          Counters.Counter failedShuffleCounter,
+                          ShuffleClientMetrics metrics) {
     totalMaps = job.getNumMapTasks();
     abortFailureLimit = Math.max(30, totalMaps / 10);
     copyTimeTracker = new CopyTimeTracker();
@@ -142,6 +164,10 @@ public ShuffleSchedulerImpl(JobConf job, TaskStatus status,
     this.maxHostFailures = job.getInt(
         MRJobConfig.MAX_SHUFFLE_FETCH_HOST_FAILURES,
         MRJobConfig.DEFAULT_MAX_SHUFFLE_FETCH_HOST_FAILURES);
+    this.prioritizeFetches = job.getBoolean(
+        MRJobConfig.SHUFFLE_FETCH_PRIORITIZED,
+        MRJobConfig.DEFAULT_SHUFFLE_FETCH_PRIORITIZED);
+    this.metrics = metrics;
   }
 
   @Override
@@ -149,6 +175,10 @@ public void resolve(TaskCompletionEvent event) {
     switch (event.getTaskStatus()) {
     case SUCCEEDED:
       URI u = getBaseURI(reduceId, event.getTaskTrackerHttp());
+      synchronized (this) {
+        sizeHints.put(event.getTaskAttemptId(),
+            Math.max(1L, event.getTaskRunTime()));
+      }
       addKnownMapOutput(u.getHost() + ":" + u.getPort(),
           u.toString(),
           event.getTaskAttemptId());
@@ -197,6 +227,7 @@ public synchronized void copySucceeded(TaskAttemptID mapId,
     if (!finishedMaps[mapIndex]) {
       output.commit();
       finishedMaps[mapIndex] = true;
+      sizeHints.remove(mapId);
       shuffledMapsCounter.increment(1);
       if (--remainingMaps == 0) {
         notifyAll();
@@ -205,6 +236,8 @@ public synchronized void copySucceeded(TaskAttemptID mapId,
       // update single copy task status
       long copyMillis = (endMillis - startMillis);
       if (copyMillis == 0) copyMillis = 1;
+      host.copied(bytes, copyMillis);
+      updateCriticalPath(copyMillis, host);
       float bytesPerMillis = (float) bytes / copyMillis;
       float transferRate = bytesPerMillis * BYTES_PER_MILLIS_TO_MBS;
       String individualProgress = "copy task(" + mapId + " succeeded"
@@ -220,6 +253,21 @@ public synchronized void copySucceeded(TaskAttemptID mapId,
     }
   }
 
+  private void updateCriticalPath(long copyMillis, MapHost host) {
+    if (metrics == null) {
+      return;
+    }
+    metrics.copyCompleted(copyMillis, host.getCopyMillis());
+    long now = Time.monotonicNow();
+    if (tailStartTime < 0
+        && totalMaps - remainingMaps >= totalMaps * SHUFFLE_TAIL_START) {
+      tailStartTime = now;
+    }
+    if (remainingMaps == 0 && tailStartTime >= 0) {
+      metrics.shuffleTail(now - tailStartTime);
+    }
+  }
+
   private synchronized void updateStatus(String individualProgress) {
     int mapsDone = totalMaps - remainingMaps;
     long totalCopyMillis = copyTimeTracker.getCopyMillis();
@@ -294,6 +342,7 @@ public synchronized void copyFailed(TaskAttemptID mapId, MapHost host,
         getMaxHostFailures() ? true : false;
 
     if (failures >= abortFailureLimit) {
+      sizeHints.remove(mapId);
       try {
         throw new IOException(failures + " failures downloading " + mapId);
       } catch (IOException ie) {
@@ -344,6 +393,8 @@ private void checkAndInformMRAppMaster(
         || ((failures % maxFetchFailuresBeforeReporting) == 0) || hostFailed) {
       LOG.info("Reporting fetch failure for " + mapId + " to MRAppMaster.");
       status.addFetchFailedMap((org.apache.hadoop.mapred.TaskAttemptID) mapId);
+      // the map is declared failed and will be rerun as a new attempt
+      sizeHints.remove(mapId);
     }
   }
 
@@ -412,7 +463,7 @@ public synchronized void addKnownMapOutput(String hostName,
       host = new MapHost(hostName, hostUrl);
       mapLocations.put(hostName, host);
     }
-    host.addKnownMap(mapId);
+    host.addKnownMap(mapId, getSizeHint(mapId));
 
     // Mark the host as pending
     if (host.getState() == State.PENDING) {
@@ -424,11 +475,17 @@ public synchronized void addKnownMapOutput(String hostName,
 
   public synchronized void obsoleteMapOutput(TaskAttemptID mapId) {
     obsoleteMaps.add(mapId);
+    sizeHints.remove(mapId);
   }
 
   public synchronized void putBackKnownMapOutput(MapHost host,
                                                  TaskAttemptID mapId) {
-    host.addKnownMap(mapId);
+    host.addKnownMap(mapId, getSizeHint(mapId));
+  }
+
+  private long getSizeHint(TaskAttemptID mapId) {
+    Long hint = sizeHints.get(mapId);
+    return hint == null ? 1 : hint;
   }
 
 
@@ -438,10 +495,14 @@ public synchronized MapHost getHost() throws InterruptedException {
       }
 
       MapHost host = null;
-      Iterator<MapHost> iter = pendingHosts.iterator();
-      int numToPick = random.nextInt(pendingHosts.size());
-      for (int i=0; i <= numToPick; ++i) {
-        host = iter.next();
+      if (prioritizeFetches) {
+        host = getPrioritizedHost();
+      } else {
+        Iterator<MapHost> iter = pendingHosts.iterator();
+        int numToPick = random.nextInt(pendingHosts.size());
+        for (int i=0; i <= numToPick; ++i) {
+          host = iter.next();
+        }
       }
 
       pendingHosts.remove(host);
@@ -454,8 +515,52 @@ public synchronized MapHost getHost() throws InterruptedException {
       return host;
   }
 
+  /**
+   * Picks the pending host with the most map output left to copy, weighted
+   * by how fast it served earlier copies compared to the other hosts, so
+   * that the largest copies start early instead of holding up the end of the
+   * shuffle.
+   */
+  private MapHost getPrioritizedHost() {
+    double totalRate = 0;
+    int ratedHosts = 0;
+    for (MapHost host : mapLocations.values()) {
+      double rate = host.getBytesPerMilli();
+      if (rate >= 0) {
+        totalRate += rate;
+        ratedHosts++;
+      }
+    }
+    double meanRate = ratedHosts == 0 ? 0 : totalRate / ratedHosts;
+
+    MapHost best = null;
+    double bestScore = -1;
+    for (MapHost host : pendingHosts) {
+      double speed = 1;
+      double rate = host.getBytesPerMilli();
+      if (rate >= 0 && meanRate > 0) {
+        speed = Math.min(2, Math.max(0.5, rate / meanRate));
+      }
+      double score = host.getKnownMapsSize() * speed;
+      if (score > bestScore) {
+        best = host;
+        bestScore = score;
+      }
+    }
+    return best;
+  }
+
   public synchronized List<TaskAttemptID> getMapsForHost(MapHost host) {
     List<TaskAttemptID> list = host.getAndClearKnownMaps();
+    if (prioritizeFetches) {
+      // largest map outputs first
+      Collections.sort(list, new Comparator<TaskAttemptID>() {
+        @Override
+        public int compare(TaskAttemptID a, TaskAttemptID b) {
+          return Long.compare(getSizeHint(b), getSizeHint(a));
+        }
+      });
+    }
     Iterator<TaskAttemptID> itr = list.iterator();
     List<TaskAttemptID> result = new ArrayList<TaskAttemptID>();
     int includedMaps = 0;
@@ -474,7 +579,7 @@ public synchronized List<TaskAttemptID> getMapsForHost(MapHost host) {
     while (itr.hasNext()) {
       TaskAttemptID id = itr.next();
       if (!obsoleteMaps.contains(id) && !finishedMaps[id.getTaskID().getId()]) {
-        host.addKnownMap(id);
+        host.addKnownMap(id, getSizeHint(id));
       }
     }
     LOG.debug("assigned " + includedMaps + " of " + totalSize + " to " +
@@ -574,6 +679,9 @@ public void run() {
   public void close() throws InterruptedException {
     referee.interrupt();
     referee.join();
+    synchronized (this) {
+      sizeHints.clear();
+    }
   }
 
   public int getMaxHostFailures() {
@@ -23,6 +23,7 @@
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -160,8 +161,11 @@ private void testRecoveryInternal(int commitVersion, int recoveryVersion)
     if (commitVersion == 1) {
       assertTrue("Version 1 commits to temporary dir " + jtd, jtd.exists());
       validateContent(jtd);
-    } else {
+    } else if (commitVersion == 2) {
       assertFalse("Version 2 commits to output dir " + jtd, jtd.exists());
+    } else {
+      assertFalse("Version 3 commits a manifest of the attempt dir " + jtd,
+          jtd.exists());
     }
 
     //now while running the second app attempt, 
@@ -182,12 +186,17 @@ private void testRecoveryInternal(int commitVersion, int recoveryVersion)
     if (recoveryVersion == 1) {
       assertTrue("Version 1 recovers to " + jtd2, jtd2.exists());
       validateContent(jtd2);
-    } else {
+    } else if (recoveryVersion == 2) {
       assertFalse("Version 2 commits to output dir " + jtd2, jtd2.exists());
       if (commitVersion == 1) {
         assertTrue("Version 2  recovery moves to output dir from "
             + jtd , jtd.list().length == 0);
       }
+    } else {
+      assertFalse("Version 3 recovers a manifest, not a directory " + jtd2,
+          jtd2.exists());
+      assertTrue("Version 3 recovers a manifest of " + jtd2, new File(
+          jtd2.getPath() + TaskManifest.SUFFIX).exists());
     }
 
     committer2.commitJob(jContext2);
@@ -207,6 +216,22 @@ public void testRecoveryUpgradeV1V2() throws Exception {
     testRecoveryInternal(1, 2);
   }
 
+  public void testRecoveryV3() throws Exception {
+    testRecoveryInternal(3, 3);
+  }
+
+  public void testRecoveryUpgradeV1V3() throws Exception {
+    testRecoveryInternal(1, 3);
+  }
+
+  public void testRecoveryDowngradeV3V1() throws Exception {
+    testRecoveryInternal(3, 1);
+  }
+
+  public void testRecoveryDowngradeV3V2() throws Exception {
+    testRecoveryInternal(3, 2);
+  }
+
   private void validateContent(Path dir) throws IOException {
     validateContent(new File(dir.toUri().getPath()));
   }
@@ -271,10 +296,29 @@ private void testCommitterInternal(int version) throws Exception {
 
     // do commit
     committer.commitTask(tContext);
+    if (version == 3) {
+      Path manifest = committer.getCommittedTaskPath(tContext)
+          .suffix(TaskManifest.SUFFIX);
+      assertTrue("Version 3 commits a manifest " + manifest,
+          new File(manifest.toUri().getPath()).exists());
+      assertFalse("Version 3 leaves the output in the task attempt dir",
+          new File(outDir.toUri().getPath(), partFile).exists());
+    }
     committer.commitJob(jContext);
 
     // validate output
     validateContent(outDir);
+    if (version == 3) {
+      Map<Enum<?>, Long> counters = committer.getJobCommitCounters();
+      assertEquals(Long.valueOf(1),
+          counters.get(FileOutputCommitterCounter.JOB_COMMIT_MANIFESTS));
+      assertEquals(Long.valueOf(1),
+          counters.get(FileOutputCommitterCounter.JOB_COMMIT_FILES));
+      assertTrue(counters.containsKey(
+          FileOutputCommitterCounter.JOB_COMMIT_RENAME_MILLIS));
+    } else {
+      assertTrue(committer.getJobCommitCounters().isEmpty());
+    }
     FileUtil.fullyDelete(new File(outDir.toString()));
   }
 
@@ -285,6 +329,10 @@ public void testCommitterV1() throws Exception {
   public void testCommitterV2() throws Exception {
     testCommitterInternal(2);
   }
+
+  public void testCommitterV3() throws Exception {
+    testCommitterInternal(3);
+  }
   
   public void testCommitterWithDuplicatedCommitV1() throws Exception {
     testCommitterWithDuplicatedCommitInternal(1);
@@ -501,12 +549,16 @@ public void testMapFileOutputCommitterV2() throws Exception {
     testMapFileOutputCommitterInternal(2);
   }
 
+  public void testMapFileOutputCommitterV3() throws Exception {
+    testMapFileOutputCommitterInternal(3);
+  }
+
   public void testInvalidVersionNumber() throws IOException {
     Job job = Job.getInstance();
     FileOutputFormat.setOutputPath(job, outDir);
     Configuration conf = job.getConfiguration();
     conf.set(MRJobConfig.TASK_ATTEMPT_ID, attempt);
-    conf.setInt(FileOutputCommitter.FILEOUTPUTCOMMITTER_ALGORITHM_VERSION, 3);
+    conf.setInt(FileOutputCommitter.FILEOUTPUTCOMMITTER_ALGORITHM_VERSION, 4);
     TaskAttemptContext tContext = new TaskAttemptContextImpl(conf, taskID);
     try {
       new FileOutputCommitter(outDir, tContext);
@@ -560,6 +612,10 @@ public void testAbortV2() throws IOException, InterruptedException {
     testAbortInternal(2);
   }
 
+  public void testAbortV3() throws IOException, InterruptedException {
+    testAbortInternal(3);
+  }
+
   public static class FakeFileSystem extends RawLocalFileSystem {
     public FakeFileSystem() {
       super();
@@ -740,6 +796,10 @@ public void testConcurrentCommitTaskWithSubDirV2() throws Exception {
     testConcurrentCommitTaskWithSubDir(2);
   }
 
+  public void testConcurrentCommitTaskWithSubDirV3() throws Exception {
+    testConcurrentCommitTaskWithSubDir(3);
+  }
+
   public static String slurp(File f) throws IOException {
     int len = (int) f.length();
     byte[] buf = new byte[len];
@@ -18,6 +18,8 @@
 package org.apache.hadoop.mapreduce.task.reduce;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
@@ -35,8 +37,11 @@
 import org.apache.hadoop.fs.LocalFileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.BoundedByteArrayOutputStream;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.IFile;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.MROutputFiles;
 import org.apache.hadoop.mapred.MapOutputFile;
@@ -314,4 +319,115 @@ public void testZeroShuffleMemoryLimitPercent() throws Exception {
             new MROutputFiles());
     verifyReservedMapOutputType(mgr, 10L, "DISK");
   }
+
+  @Test
+  public void testOffHeapMapOutput() throws Exception {
+    final JobConf jobConf = new JobConf();
+    jobConf.setInt(MRJobConfig.SHUFFLE_OFFHEAP_BUFFER_MB, 1);
+    final MergeManagerImpl<Text, Text> mgr =
+        new MergeManagerImpl<>(null, jobConf, mock(LocalFileSystem.class),
+            null, null, null, null, null, null, null, null, null, null,
+            new MROutputFiles());
+    assertEquals(1L << 20, mgr.memoryLimit);
+
+    // write the map output on the heap first to learn its size
+    BoundedByteArrayOutputStream heap = new BoundedByteArrayOutputStream(4096);
+    writeRecords(new InMemoryWriter<Text, Text>(heap));
+    final TaskAttemptID mapId = TaskAttemptID.forName("attempt_0_1_m_1_1");
+    InMemoryMapOutput<Text, Text> out =
+        (InMemoryMapOutput<Text, Text>) mgr.reserve(mapId, heap.size(), 1);
+    assertNull("Map output should be off-heap", out.getMemory());
+    writeRecords(new InMemoryWriter<Text, Text>(out.getOutputStream()));
+    ShuffleBufferPool pool = out.getPool();
+    assertEquals(heap.size(), pool.getUsedBytes());
+
+    InMemoryReader<Text, Text> reader = new InMemoryReader<Text, Text>(mgr,
+        mapId, pool, out.getOffHeapMemory(), jobConf);
+    DataInputBuffer key = new DataInputBuffer();
+    DataInputBuffer value = new DataInputBuffer();
+    for (int pass = 0; pass < 2; pass++) {
+      for (int i = 0; i < 100; i++) {
+        assertTrue(reader.nextRawKey(key));
+        Text text = new Text();
+        text.readFields(key);
+        assertEquals("key" + i, text.toString());
+        reader.nextRawValue(value);
+        text.readFields(value);
+        assertEquals("value" + i, text.toString());
+      }
+      assertFalse(reader.nextRawKey(key));
+      reader.reset(0);
+    }
+    reader.close();
+    assertEquals(0, pool.getUsedBytes());
+
+    // a released buffer is handed out again for a map output of its size
+    InMemoryMapOutput<Text, Text> again =
+        (InMemoryMapOutput<Text, Text>) mgr.reserve(mapId, heap.size(), 1);
+    assertEquals(0, pool.getFreeBytes());
+    again.abort();
+    assertEquals(heap.size(), pool.getFreeBytes());
+  }
+
+  private void writeRecords(IFile.Writer<Text, Text> writer)
+      throws IOException {
+    DataOutputBuffer key = new DataOutputBuffer();
+    DataOutputBuffer value = new DataOutputBuffer();
+    for (int i = 0; i < 100; i++) {
+      key.reset();
+      value.reset();
+      new Text("key" + i).write(key);
+      new Text("value" + i).write(value);
+      DataInputBuffer k = new DataInputBuffer();
+      DataInputBuffer v = new DataInputBuffer();
+      k.reset(key.getData(), key.getLength());
+      v.reset(value.getData(), value.getLength());
+      writer.append(k, v);
+    }
+    writer.close();
+  }
+
+  @Test
+  public void testAdaptiveMergeThreshold() {
+    final long[] clock = {0};
+    final long[] gcTime = {0};
+    AdaptiveMergeThreshold threshold =
+        new AdaptiveMergeThreshold(1000, 600, 900, 4, true) {
+          @Override
+          protected long now() {
+            return clock[0];
+          }
+
+          @Override
+          protected long getGcTimeMillis() {
+            return gcTime[0];
+          }
+        };
+    assertEquals("No segment seen yet", 600, threshold.get());
+
+    // room is left for one segment per fetcher
+    threshold.segmentCommitted(50);
+    assertEquals(800, threshold.get());
+    threshold.segmentCommitted(10);
+    assertEquals(1000 - 4 * 42, threshold.get());
+    for (int i = 0; i < 100; i++) {
+      threshold.segmentCommitted(1);
+    }
+    assertEquals("Bounded by the maximum", 900, threshold.get());
+    for (int i = 0; i < 100; i++) {
+      threshold.segmentCommitted(500);
+    }
+    assertEquals("Bounded by the minimum", 600, threshold.get());
+    for (int i = 0; i < 100; i++) {
+      threshold.segmentCommitted(1);
+    }
+
+    // a second spent mostly collecting garbage merges as early as allowed
+    clock[0] += AdaptiveMergeThreshold.GC_CHECK_INTERVAL_MS;
+    gcTime[0] += 500;
+    assertEquals(600, threshold.get());
+    clock[0] += AdaptiveMergeThreshold.GC_CHECK_INTERVAL_MS;
+    gcTime[0] += 10;
+    assertEquals(900, threshold.get());
+  }
 }
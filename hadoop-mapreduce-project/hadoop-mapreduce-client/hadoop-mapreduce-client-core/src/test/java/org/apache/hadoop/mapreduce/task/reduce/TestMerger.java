@@ -40,11 +40,13 @@
 import org.apache.hadoop.io.DataInputBuffer;
 import org.apache.hadoop.io.RawComparator;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.Counters;
 import org.apache.hadoop.mapred.Counters.Counter;
 import org.apache.hadoop.mapred.IFile;
 import org.apache.hadoop.mapred.IFile.Reader;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.MROutputFiles;
+import org.apache.hadoop.mapred.MapOutputFile;
 import org.apache.hadoop.mapred.Merger;
 import org.apache.hadoop.mapred.Merger.Segment;
 import org.apache.hadoop.mapred.RawKeyValueIterator;
@@ -54,6 +56,7 @@
 import org.apache.hadoop.mapreduce.MRConfig;
 import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskCounter;
 import org.apache.hadoop.mapreduce.TaskID;
 import org.apache.hadoop.mapreduce.TaskType;
 import org.apache.hadoop.mapreduce.security.TokenCache;
@@ -206,6 +209,83 @@ public void testInMemoryAndOnDiskMerger() throws Throwable {
     Assert.assertEquals(0, mergeManager.onDiskMapOutputs.size());
   }
 
+  @Test
+  public void testMergedBytesCounters() throws Throwable {
+    JobID jobId = new JobID("a", 0);
+    TaskAttemptID reduceId = new TaskAttemptID(
+        new TaskID(jobId, TaskType.REDUCE, 0), 0);
+    final Counters counters = new Counters();
+    Reporter reporter = mock(Reporter.class);
+    when(reporter.getCounter(any(Enum.class))).thenAnswer(
+        new Answer<Counter>() {
+          @Override
+          public Counter answer(InvocationOnMock invocation) {
+            return counters.findCounter(
+                (Enum<?>) invocation.getArguments()[0]);
+          }
+        });
+    MapOutputFile mapOutputFile = new MROutputFiles();
+    MergeManagerImpl<Text, Text> mergeManager = new MergeManagerImpl<Text, Text>(
+        reduceId, jobConf, fs, new LocalDirAllocator(MRConfig.LOCAL_DIR),
+        reporter, null, null, null, null, null, null, null, new Progress(),
+        mapOutputFile);
+
+    // two map outputs merged from memory to disk before the final merge
+    long memoryBytes = 0;
+    List<InMemoryMapOutput<Text, Text>> merged =
+        new ArrayList<InMemoryMapOutput<Text, Text>>();
+    for (int i = 0; i < 2; i++) {
+      InMemoryMapOutput<Text, Text> mapOutput = inMemoryMapOutput(
+          mergeManager, new TaskID(jobId, TaskType.MAP, i), "key" + i);
+      memoryBytes += mapOutput.getSize();
+      merged.add(mapOutput);
+    }
+    mergeManager.createInMemoryMerger().merge(merged);
+
+    // one map output still in memory at the final merge
+    InMemoryMapOutput<Text, Text> kept = inMemoryMapOutput(
+        mergeManager, new TaskID(jobId, TaskType.MAP, 2), "key2");
+    memoryBytes += kept.getSize();
+    mergeManager.inMemoryMapOutputs.add(kept);
+
+    // one map output shuffled straight to disk
+    Map<String, String> map = new TreeMap<String, String>();
+    map.put("key3", "value");
+    byte[] bytes = writeMapOutput(conf, map);
+    Path path = mapOutputFile.getInputFileForWrite(
+        new TaskID(jobId, TaskType.MAP, 3), bytes.length);
+    FSDataOutputStream out = fs.create(path);
+    out.write(bytes);
+    out.close();
+    mergeManager.closeOnDiskFile(
+        new CompressAwarePath(path, bytes.length, bytes.length));
+
+    RawKeyValueIterator iter = mergeManager.close();
+    int records = 0;
+    while (iter.next()) {
+      records++;
+    }
+    iter.close();
+    Assert.assertEquals(4, records);
+    Assert.assertEquals(memoryBytes, counters.findCounter(
+        TaskCounter.SHUFFLE_MERGED_MEMORY_BYTES).getValue());
+    Assert.assertEquals(bytes.length, counters.findCounter(
+        TaskCounter.SHUFFLE_MERGED_DISK_BYTES).getValue());
+  }
+
+  private InMemoryMapOutput<Text, Text> inMemoryMapOutput(
+      MergeManagerImpl<Text, Text> mergeManager, TaskID mapId, String key)
+      throws IOException {
+    Map<String, String> map = new TreeMap<String, String>();
+    map.put(key, "value");
+    byte[] bytes = writeMapOutput(conf, map);
+    InMemoryMapOutput<Text, Text> mapOutput = new InMemoryMapOutput<Text, Text>(
+        conf, new TaskAttemptID(mapId, 0), mergeManager, bytes.length, null,
+        true);
+    System.arraycopy(bytes, 0, mapOutput.getMemory(), 0, bytes.length);
+    return mapOutput;
+  }
+
   private byte[] writeMapOutput(Configuration conf, Map<String, String> keysToValues)
       throws IOException {
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
@@ -17,7 +17,14 @@
  */
 package org.apache.hadoop.mapreduce.task.reduce;
 
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.LocalDirAllocator;
 import org.apache.hadoop.io.compress.CompressionCodec;
@@ -26,12 +33,14 @@
 import org.apache.hadoop.mapred.Reporter;
 import org.apache.hadoop.mapred.ShuffleConsumerPlugin;
 import org.apache.hadoop.mapred.Task;
+import org.apache.hadoop.mapred.TaskCompletionEvent;
 import org.apache.hadoop.mapred.TaskAttemptID;
 import org.apache.hadoop.mapred.TaskStatus;
 import org.apache.hadoop.mapred.TaskUmbilicalProtocol;
 import org.apache.hadoop.mapred.Counters.Counter;
 import org.apache.hadoop.mapred.Task.CombineOutputCollector;
 import org.apache.hadoop.mapreduce.JobID;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.TaskID;
 import org.apache.hadoop.mapreduce.TaskType;
 import org.apache.hadoop.util.Progress;
@@ -283,6 +292,75 @@ public void addFetchFailedMap(TaskAttemptID mapTaskId) {
     scheduler.copyFailed(failedAttemptID, host1, true, false);
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public <K, V> void testPrioritizedFetches() throws Exception {
+    JobConf job = new JobConf();
+    job.setNumMapTasks(6);
+    job.setBoolean(MRJobConfig.SHUFFLE_FETCH_PRIORITIZED, true);
+    TaskStatus status = new TaskStatus() {
+      @Override
+      public boolean getIsMap() {
+        return false;
+      }
+      @Override
+      public void addFetchFailedMap(TaskAttemptID mapTaskId) {
+      }
+    };
+    TaskAttemptID reduceId = new TaskAttemptID("314159", 0, TaskType.REDUCE,
+        0, 0);
+    Counter counter = mock(Counter.class);
+    ShuffleClientMetrics metrics = mock(ShuffleClientMetrics.class);
+    ShuffleSchedulerImpl<K, V> scheduler = new ShuffleSchedulerImpl<K, V>(job,
+        status, reduceId, null, new Progress(), counter, counter, counter,
+        metrics);
+    MapOutput<K, V> output = mock(MapOutput.class);
+
+    TaskAttemptID[] maps = new TaskAttemptID[6];
+    int[] runtimes = {100, 300, 1000, 10, 100, 100};
+    String[] hosts = {"host1", "host1", "host2", "host2", "host1", "host2"};
+    for (int i = 0; i < maps.length; i++) {
+      maps[i] = new TaskAttemptID("314159", 0, TaskType.MAP, i, 0);
+    }
+    for (int i = 0; i < 4; i++) {
+      resolve(scheduler, maps[i], hosts[i], runtimes[i]);
+    }
+
+    // the host with the most map output left goes first, biggest map first
+    MapHost host2 = scheduler.getHost();
+    Assert.assertEquals("host2:8080", host2.getHostName());
+    Assert.assertEquals(Arrays.asList(maps[2], maps[3]),
+        scheduler.getMapsForHost(host2));
+    scheduler.copySucceeded(maps[2], host2, 1000, 0, 1, output);
+    scheduler.copySucceeded(maps[3], host2, 1000, 0, 1, output);
+    scheduler.freeHost(host2);
+
+    MapHost host1 = scheduler.getHost();
+    Assert.assertEquals(Arrays.asList(maps[1], maps[0]),
+        scheduler.getMapsForHost(host1));
+    scheduler.copySucceeded(maps[1], host1, 10, 0, 10, output);
+    scheduler.putBackKnownMapOutput(host1, maps[0]);
+    scheduler.freeHost(host1);
+
+    // as much output is left on both hosts, the faster one goes first
+    resolve(scheduler, maps[4], hosts[4], runtimes[4]);
+    resolve(scheduler, maps[5], hosts[5], runtimes[5]);
+    Assert.assertSame(host2, scheduler.getHost());
+    Assert.assertSame(host1, scheduler.getHost());
+
+    verify(metrics, times(3)).copyCompleted(anyLong(), anyLong());
+    verify(metrics).copyCompleted(eq(10L), eq(10L));
+    scheduler.close();
+  }
+
+  private static <K, V> void resolve(ShuffleSchedulerImpl<K, V> scheduler,
+      TaskAttemptID mapId, String host, int runtime) {
+    TaskCompletionEvent event = new TaskCompletionEvent(0, mapId, 0, true,
+        TaskCompletionEvent.Status.SUCCEEDED, "http://" + host + ":8080/");
+    event.setTaskRunTime(runtime);
+    scheduler.resolve(event);
+  }
+
   private static String copyMessage(int attemptNo, double rate1, double rate2) {
     int attemptZero = attemptNo - 1;
     return String.format("copy task(attempt_test_0000_m_%06d_%d succeeded at %1.2f MB/s)"
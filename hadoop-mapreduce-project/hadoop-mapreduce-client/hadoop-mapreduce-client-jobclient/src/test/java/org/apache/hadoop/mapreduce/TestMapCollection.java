@@ -144,7 +144,8 @@ public void setConf(Configuration conf) {
   }
 
   public static class VariableComparator
-      implements RawComparator<KeyWritable>, Configurable {
+      implements RawComparator<KeyWritable>, NormalizedKeyComparator,
+                 Configurable {
     private boolean readLen;
     public VariableComparator() { }
     @Override
@@ -176,6 +177,10 @@ public int compare(byte[] b1, int s1, int l1,
       }
       return l1 - l2;
     }
+    @Override
+    public long getNormalizedKey(byte[] b, int s, int l) {
+      return ((long) l) << 32;
+    }
   }
 
   public static class SpillReducer
@@ -515,6 +520,28 @@ public void testRandom() throws Exception {
     runTest("random", job);
   }
 
+  @Test
+  public void testRandomNormalizedKey() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setInt(Job.COMPLETION_POLL_INTERVAL_KEY, 100);
+    Job job = Job.getInstance(conf);
+    conf = job.getConfiguration();
+    conf.setInt(MRJobConfig.IO_SORT_MB, 1);
+    conf.setBoolean(MRJobConfig.MAP_SORT_NORMALIZED_KEY, true);
+    conf.setClass("test.mapcollection.class", RandomFactory.class,
+        RecordFactory.class);
+    final Random r = new Random();
+    final long seed = r.nextLong();
+    LOG.info("SEED: " + seed);
+    r.setSeed(seed);
+    conf.set(MRJobConfig.MAP_SORT_SPILL_PERCENT,
+        Float.toString(Math.max(0.1f, r.nextFloat())));
+    RandomFactory.setLengths(conf, r, 1 << 14);
+    conf.setInt("test.spillmap.records", r.nextInt(500));
+    conf.setLong("test.randomfactory.seed", r.nextLong());
+    runTest("randomnormalized", job);
+  }
+
   @Test
   public void testRandomCompress() throws Exception {
     Configuration conf = new Configuration();
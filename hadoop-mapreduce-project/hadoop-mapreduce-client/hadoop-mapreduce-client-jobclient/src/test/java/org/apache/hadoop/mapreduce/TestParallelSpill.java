@@ -0,0 +1,220 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapreduce;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Random;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.mapreduce.lib.reduce.LongSumReducer;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that sorting and spilling map output on several threads, or by
+ * normalized keys, produces the same job output as the default spill.
+ */
+public class TestParallelSpill {
+  private static final File TEST_ROOT_DIR = new File(System.getProperty(
+      "test.build.data", "build/test/data"), UUID.randomUUID().toString());
+  private static final int RECORDS = 200000;
+  private static final int REDUCES = 5;
+
+  private static File input;
+
+  /** Emits RECORDS random keys, with many duplicates, for every line. */
+  public static class RandomKeyMapper
+      extends Mapper<LongWritable, Text, IntWritable, LongWritable> {
+    private final IntWritable key = new IntWritable();
+    private final LongWritable one = new LongWritable(1);
+
+    @Override
+    protected void map(LongWritable offset, Text line, Context context)
+        throws IOException, InterruptedException {
+      Random random = new Random(Long.parseLong(line.toString()));
+      for (int i = 0; i < RECORDS; ++i) {
+        key.set(random.nextInt(RECORDS / 4) - RECORDS / 8);
+        context.write(key, one);
+      }
+    }
+  }
+
+  /** A combiner counting the keys it sees in a user counter. */
+  public static class CountingSumReducer<K> extends LongSumReducer<K> {
+    static final String GROUP = "TestParallelSpill";
+    static final String KEYS = "CombinedKeys";
+
+    @Override
+    public void reduce(K key, Iterable<LongWritable> values, Context context)
+        throws IOException, InterruptedException {
+      context.getCounter(GROUP, KEYS).increment(1);
+      super.reduce(key, values, context);
+    }
+  }
+
+  @BeforeClass
+  public static void setUp() throws IOException {
+    input = new File(TEST_ROOT_DIR, "input");
+    assertTrue(input.mkdirs());
+    PrintWriter pw = new PrintWriter(new FileWriter(new File(input, "seeds")));
+    pw.println(42L);
+    pw.close();
+  }
+
+  private static Job runJob(String name, int spillThreads, boolean combine,
+      boolean compress) throws Exception {
+    return runJob(name, spillThreads, combine, compress, false);
+  }
+
+  private static Job runJob(String name, int spillThreads, boolean combine,
+      boolean compress, boolean normalizedKeys) throws Exception {
+    return runJob(name, spillThreads, combine ? LongSumReducer.class : null,
+        compress, normalizedKeys);
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static Job runJob(String name, int spillThreads,
+      Class<? extends Reducer> combiner, boolean compress,
+      boolean normalizedKeys) throws Exception {
+    return runJob(new Configuration(), name, spillThreads, combiner, compress,
+        normalizedKeys);
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static Job runJob(Configuration conf, String name,
+      int spillThreads, Class<? extends Reducer> combiner, boolean compress,
+      boolean normalizedKeys) throws Exception {
+    conf.set(MRConfig.FRAMEWORK_NAME, MRConfig.LOCAL_FRAMEWORK_NAME);
+    conf.set("fs.defaultFS", "file:///");
+    conf.setInt(Job.COMPLETION_POLL_INTERVAL_KEY, 100);
+    // force several spills
+    conf.setInt(MRJobConfig.IO_SORT_MB, 1);
+    conf.setInt(MRJobConfig.MAP_SORT_SPILL_THREADS, spillThreads);
+    conf.setBoolean(MRJobConfig.MAP_OUTPUT_COMPRESS, compress);
+    conf.setBoolean(MRJobConfig.MAP_SORT_NORMALIZED_KEY, normalizedKeys);
+    Job job = Job.getInstance(conf, name);
+    TextInputFormat.setInputPaths(job, new Path(input.getPath()));
+    TextOutputFormat.setOutputPath(job,
+        new Path(new File(TEST_ROOT_DIR, name).getPath()));
+    job.setMapperClass(RandomKeyMapper.class);
+    if (combiner != null) {
+      job.setCombinerClass(combiner);
+    }
+    job.setReducerClass(LongSumReducer.class);
+    job.setNumReduceTasks(REDUCES);
+    job.setOutputKeyClass(IntWritable.class);
+    job.setOutputValueClass(LongWritable.class);
+    assertTrue("Job failed!", job.waitForCompletion(false));
+    return job;
+  }
+
+  private static String output(Job job) throws IOException {
+    return MapReduceTestUtil.readOutput(
+        TextOutputFormat.getOutputPath(job), job.getConfiguration());
+  }
+
+  private static long counter(Job job, TaskCounter counter)
+      throws IOException {
+    return job.getCounters().findCounter(counter).getValue();
+  }
+
+  private static void checkSameOutput(String name, boolean combine,
+      boolean compress) throws Exception {
+    Job serial = runJob(name + "-serial", 1, combine, compress);
+    Job parallel = runJob(name + "-parallel", 4, combine, compress);
+    assertEquals(output(serial), output(parallel));
+    assertEquals(counter(serial, TaskCounter.MAP_OUTPUT_RECORDS),
+        counter(parallel, TaskCounter.MAP_OUTPUT_RECORDS));
+    assertEquals(counter(serial, TaskCounter.REDUCE_INPUT_GROUPS),
+        counter(parallel, TaskCounter.REDUCE_INPUT_GROUPS));
+    // every record is spilled at least once
+    assertTrue(counter(parallel, TaskCounter.SPILLED_RECORDS)
+        >= counter(parallel, combine
+            ? TaskCounter.COMBINE_OUTPUT_RECORDS
+            : TaskCounter.MAP_OUTPUT_RECORDS));
+    if (combine) {
+      assertTrue(counter(parallel, TaskCounter.COMBINE_INPUT_RECORDS)
+          > counter(parallel, TaskCounter.COMBINE_OUTPUT_RECORDS));
+    }
+  }
+
+  @Test
+  public void testParallelSpill() throws Exception {
+    checkSameOutput("plain", false, false);
+  }
+
+  @Test
+  public void testParallelSpillWithCombiner() throws Exception {
+    checkSameOutput("combine", true, false);
+  }
+
+  @Test
+  public void testParallelSpillUserCounters() throws Exception {
+    Job serial = runJob("counters-serial", 1, CountingSumReducer.class,
+        false, false);
+    Job parallel = runJob("counters-parallel", 4, CountingSumReducer.class,
+        false, false);
+    assertEquals(output(serial), output(parallel));
+    // every call of the combiner emits one record
+    long keys = parallel.getCounters().findCounter(
+        CountingSumReducer.GROUP, CountingSumReducer.KEYS).getValue();
+    assertEquals(counter(parallel, TaskCounter.COMBINE_OUTPUT_RECORDS), keys);
+    assertEquals(serial.getCounters().findCounter(
+        CountingSumReducer.GROUP, CountingSumReducer.KEYS).getValue(), keys);
+  }
+
+  @Test
+  public void testParallelSpillCompressed() throws Exception {
+    checkSameOutput("compress", true, true);
+  }
+
+  @Test
+  public void testParallelSpillSegmentLimit() throws Exception {
+    Job serial = runJob("limit-serial", 1, false, false);
+    Configuration conf = new Configuration();
+    // smaller than any partition, so one segment is in flight at a time
+    conf.setFloat(MRJobConfig.MAP_SORT_SPILL_SEGMENT_PERCENT, 0.001f);
+    Job parallel = runJob(conf, "limit-parallel", 4, null, false, false);
+    assertEquals(output(serial), output(parallel));
+    assertEquals(counter(serial, TaskCounter.SPILLED_RECORDS),
+        counter(parallel, TaskCounter.SPILLED_RECORDS));
+  }
+
+  @Test
+  public void testNormalizedKeys() throws Exception {
+    Job expected = runJob("normalized-expected", 1, false, false);
+    assertEquals(output(expected),
+        output(runJob("normalized-serial", 1, false, false, true)));
+    assertEquals(output(expected),
+        output(runJob("normalized-parallel", 4, true, false, true)));
+  }
+}
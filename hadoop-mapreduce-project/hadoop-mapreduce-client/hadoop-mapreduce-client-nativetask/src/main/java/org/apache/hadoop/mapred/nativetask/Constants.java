@@ -45,4 +45,11 @@ public class Constants {
   public static final String NATIVE_CLASS_LIBRARY_CUSTOM = "native.class.library.custom";
   public static final String NATIVE_CLASS_LIBRARY_BUILDIN = "native.class.library.buildin";
   public static final String NATIVE_MAPOUT_KEY_COMPARATOR = "native.map.output.key.comparator";
+
+  /**
+   * Whether a job the native collector cannot serve uses the Java collector
+   * instead of failing
+   */
+  public static final String NATIVE_COLLECTOR_FALLBACK = "native.collector.fallback";
+  public static final boolean NATIVE_COLLECTOR_FALLBACK_DEFVAL = true;
 }
@@ -28,6 +28,7 @@
 import org.apache.hadoop.mapred.InvalidJobConfException;
 import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.MapOutputCollector;
+import org.apache.hadoop.mapred.MapTask.MapOutputBuffer;
 import org.apache.hadoop.mapred.TaskAttemptID;
 import org.apache.hadoop.mapred.nativetask.handlers.NativeCollectorOnlyHandler;
 import org.apache.hadoop.mapred.nativetask.serde.INativeSerializer;
@@ -39,6 +40,11 @@
 
 /**
  * native map output collector wrapped in Java interface
+ *
+ * Jobs the native collector cannot serve, for their key type, comparator,
+ * codec or because the native library is missing, are collected by the Java
+ * {@link MapOutputBuffer} instead unless {@link Constants#NATIVE_COLLECTOR_FALLBACK}
+ * is turned off, so the native collector can be enabled for all jobs.
  */
 @InterfaceAudience.Private
 public class NativeMapOutputCollectorDelegator<K, V> implements MapOutputCollector<K, V> {
@@ -46,17 +52,26 @@
   private static Log LOG = LogFactory.getLog(NativeMapOutputCollectorDelegator.class);
   private JobConf job;
   private NativeCollectorOnlyHandler<K, V> handler;
+  private MapOutputCollector<K, V> fallback;
 
   private Context context;
   private StatusReportChecker updater;
 
   @Override
   public void collect(K key, V value, int partition) throws IOException, InterruptedException {
+    if (fallback != null) {
+      fallback.collect(key, value, partition);
+      return;
+    }
     handler.collect(key, value, partition);
   }
 
   @Override
   public void close() throws IOException, InterruptedException {
+    if (fallback != null) {
+      fallback.close();
+      return;
+    }
     handler.close();
     if (null != updater) {
       updater.stop();
@@ -66,9 +81,21 @@ public void close() throws IOException, InterruptedException {
 
   @Override
   public void flush() throws IOException, InterruptedException, ClassNotFoundException {
+    if (fallback != null) {
+      fallback.flush();
+      return;
+    }
     handler.flush();
   }
 
+  /**
+   * @return whether map output goes to the Java collector because the native
+   *         one cannot serve the job
+   */
+  public boolean isFallback() {
+    return fallback != null;
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public void init(Context context) throws IOException, ClassNotFoundException {
@@ -77,95 +104,106 @@ public void init(Context context) throws IOException, ClassNotFoundException {
 
     Platforms.init(job);
 
-    if (job.getNumReduceTasks() == 0) {
-      String message = "There is no reducer, no need to use native output collector";
+    final String unsupported = checkSupport();
+    if (unsupported != null) {
+      if (!job.getBoolean(Constants.NATIVE_COLLECTOR_FALLBACK,
+          Constants.NATIVE_COLLECTOR_FALLBACK_DEFVAL)) {
+        LOG.error(unsupported);
+        throw new InvalidJobConfException(unsupported);
+      }
+      LOG.warn(unsupported + ", falling back to "
+          + MapOutputBuffer.class.getName());
+      fallback = createFallback();
+      fallback.init(context);
+      return;
+    }
+
+    NativeRuntime.configure(job);
+
+    final long updateInterval = job.getLong(Constants.NATIVE_STATUS_UPDATE_INTERVAL,
+        Constants.NATIVE_STATUS_UPDATE_INTERVAL_DEFVAL);
+    updater = new StatusReportChecker(context.getReporter(), updateInterval);
+    updater.start();
+
+    this.handler = null;
+    try {
+      final Class<K> oKClass = (Class<K>) job.getMapOutputKeyClass();
+      final Class<K> oVClass = (Class<K>) job.getMapOutputValueClass();
+      final TaskAttemptID id = context.getMapTask().getTaskID();
+      final TaskContext taskContext = new TaskContext(job, null, null, oKClass, oVClass,
+          context.getReporter(), id);
+      handler = NativeCollectorOnlyHandler.create(taskContext);
+    } catch (final IOException e) {
+      String message = "Native output collector cannot be loaded;";
       LOG.error(message);
-      throw new InvalidJobConfException(message);
+      throw new IOException(message, e);
+    }
+
+    LOG.info("Native output collector can be successfully enabled!");
+  }
+
+  protected MapOutputCollector<K, V> createFallback() {
+    return new MapOutputBuffer<K, V>();
+  }
+
+  /**
+   * @return why the native collector cannot serve the job, or null if it can
+   */
+  private String checkSupport() {
+    if (job.getNumReduceTasks() == 0) {
+      return "There is no reducer, no need to use native output collector";
     }
 
+    final Class<?> keyCls = job.getMapOutputKeyClass();
     Class<?> comparatorClass = job.getClass(MRJobConfig.KEY_COMPARATOR, null,
         RawComparator.class);
     if (comparatorClass != null && !Platforms.define(comparatorClass)) {
-      String message = "Native output collector doesn't support customized java comparator "
-        + job.get(MRJobConfig.KEY_COMPARATOR);
-      LOG.error(message);
-      throw new InvalidJobConfException(message);
+      // the native collector looks up a native comparator per key class
+      final String nativeComparatorKey =
+          Constants.NATIVE_MAPOUT_KEY_COMPARATOR + "." + keyCls.getName();
+      if (job.get(nativeComparatorKey) == null) {
+        String nativeComparator = Platforms.getNativeComparator(comparatorClass);
+        if (nativeComparator == null) {
+          return "Native output collector doesn't support customized java comparator "
+            + job.get(MRJobConfig.KEY_COMPARATOR);
+        }
+        job.set(nativeComparatorKey, nativeComparator);
+      }
     }
 
-
-
     if (!QuickSort.class.getName().equals(job.get(Constants.MAP_SORT_CLASS))) {
-      String message = "Native-Task doesn't support sort class " +
+      return "Native-Task doesn't support sort class " +
         job.get(Constants.MAP_SORT_CLASS);
-      LOG.error(message);
-      throw new InvalidJobConfException(message);
     }
 
     if (job.getBoolean(MRConfig.SHUFFLE_SSL_ENABLED_KEY, false) == true) {
-      String message = "Native-Task doesn't support secure shuffle";
-      LOG.error(message);
-      throw new InvalidJobConfException(message);
+      return "Native-Task doesn't support secure shuffle";
     }
 
-    final Class<?> keyCls = job.getMapOutputKeyClass();
     try {
       @SuppressWarnings("rawtypes")
       final INativeSerializer serializer = NativeSerialization.getInstance().getSerializer(keyCls);
       if (null == serializer) {
-        String message = "Key type not supported. Cannot find serializer for " + keyCls.getName();
-        LOG.error(message);
-        throw new InvalidJobConfException(message);
+        return "Key type not supported. Cannot find serializer for " + keyCls.getName();
       } else if (!Platforms.support(keyCls.getName(), serializer, job)) {
-        String message = "Native output collector doesn't support this key, " +
+        return "Native output collector doesn't support this key, " +
           "this key is not comparable in native: " + keyCls.getName();
-        LOG.error(message);
-        throw new InvalidJobConfException(message);
       }
     } catch (final IOException e) {
-      String message = "Cannot find serializer for " + keyCls.getName();
-      LOG.error(message);
-      throw new IOException(message);
+      return "Cannot find serializer for " + keyCls.getName();
     }
 
-    final boolean ret = NativeRuntime.isNativeLibraryLoaded();
-    if (ret) {
-      if (job.getBoolean(MRJobConfig.MAP_OUTPUT_COMPRESS, false)) {
-        String codec = job.get(MRJobConfig.MAP_OUTPUT_COMPRESS_CODEC);
-        if (!NativeRuntime.supportsCompressionCodec(codec.getBytes(Charsets.UTF_8))) {
-          String message = "Native output collector doesn't support compression codec " + codec;
-          LOG.error(message);
-          throw new InvalidJobConfException(message);
-        }
-      }
-      NativeRuntime.configure(job);
-
-      final long updateInterval = job.getLong(Constants.NATIVE_STATUS_UPDATE_INTERVAL,
-          Constants.NATIVE_STATUS_UPDATE_INTERVAL_DEFVAL);
-      updater = new StatusReportChecker(context.getReporter(), updateInterval);
-      updater.start();
-
-    } else {
-      String message = "NativeRuntime cannot be loaded, please check that " +
+    if (!NativeRuntime.isNativeLibraryLoaded()) {
+      return "NativeRuntime cannot be loaded, please check that " +
         "libnativetask.so is in hadoop library dir";
-      LOG.error(message);
-      throw new InvalidJobConfException(message);
     }
-
-    this.handler = null;
-    try {
-      final Class<K> oKClass = (Class<K>) job.getMapOutputKeyClass();
-      final Class<K> oVClass = (Class<K>) job.getMapOutputValueClass();
-      final TaskAttemptID id = context.getMapTask().getTaskID();
-      final TaskContext taskContext = new TaskContext(job, null, null, oKClass, oVClass,
-          context.getReporter(), id);
-      handler = NativeCollectorOnlyHandler.create(taskContext);
-    } catch (final IOException e) {
-      String message = "Native output collector cannot be loaded;";
-      LOG.error(message);
-      throw new IOException(message, e);
+    if (job.getBoolean(MRJobConfig.MAP_OUTPUT_COMPRESS, false)) {
+      String codec = job.get(MRJobConfig.MAP_OUTPUT_COMPRESS_CODEC);
+      if (!NativeRuntime.supportsCompressionCodec(codec.getBytes(Charsets.UTF_8))) {
+        return "Native output collector doesn't support compression codec " + codec;
+      }
     }
-
-    LOG.info("Native output collector can be successfully enabled!");
+    return null;
   }
 
 }
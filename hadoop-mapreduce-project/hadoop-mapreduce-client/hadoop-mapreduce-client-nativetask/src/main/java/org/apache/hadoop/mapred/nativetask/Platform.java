@@ -19,7 +19,9 @@
 
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability;
@@ -42,6 +44,8 @@
 public abstract class Platform {
   private final NativeSerialization serialization;
   protected Set<String> keyClassNames = new HashSet<String>();
+  private final Map<String, String> nativeComparators =
+      new ConcurrentHashMap<String, String>();
 
   public Platform() {
     this.serialization = NativeSerialization.getInstance();
@@ -69,6 +73,30 @@ protected void registerKey(String keyClassName, Class<?> key) throws IOException
     keyClassNames.add(keyClassName);
   }
 
+  /**
+   * associate a custom Java comparator with a native comparator sorting keys
+   * in the same order, so that jobs setting the Java comparator with
+   * mapreduce.job.output.key.comparator.class can still sort natively
+   *
+   * @param comparatorClassName Java comparator class name
+   * @param nativeComparator    name of the native comparator function, see
+   *                            {@link INativeComparable}
+   */
+  protected void registerComparator(String comparatorClassName,
+      String nativeComparator) {
+    nativeComparators.put(comparatorClassName, nativeComparator);
+  }
+
+  /**
+   * @param keyComparator comparator set with
+   *                      mapreduce.job.output.key.comparator.class
+   * @return the native comparator registered for the Java comparator, or
+   *         null if there is none
+   */
+  protected String getNativeComparator(Class<?> keyComparator) {
+    return nativeComparators.get(keyComparator.getName());
+  }
+
   /**
    * whether a platform supports a specific key should at least satisfy two conditions
    *
@@ -64,6 +64,24 @@ public static boolean support(String keyClassName,
     return false;
   }
 
+  /**
+   * @return the native comparator some platform registered for a custom Java
+   *         comparator, or null if there is none
+   */
+  public static String getNativeComparator(Class<?> keyComparator) {
+    synchronized (platforms) {
+      for (Platform platform : platforms) {
+        String nativeComparator = platform.getNativeComparator(keyComparator);
+        if (nativeComparator != null) {
+          LOG.debug("platform " + platform.name() + " maps comparator "
+            + keyComparator.getName() + " to " + nativeComparator);
+          return nativeComparator;
+        }
+      }
+    }
+    return null;
+  }
+
   public static boolean define(Class<?> keyComparator) {
     synchronized (platforms) {
       for (Platform platform : platforms) {
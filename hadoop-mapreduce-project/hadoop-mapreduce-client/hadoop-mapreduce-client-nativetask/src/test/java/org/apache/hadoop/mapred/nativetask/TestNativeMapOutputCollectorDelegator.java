@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapred.nativetask;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.InvalidJobConfException;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.MapOutputCollector;
+import org.apache.hadoop.mapred.nativetask.testutil.MockPlatform;
+import org.apache.hadoop.mapred.nativetask.testutil.MockValueClass;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestNativeMapOutputCollectorDelegator {
+  private JobConf job;
+  private MapOutputCollector<Object, Object> javaCollector;
+  private NativeMapOutputCollectorDelegator<Object, Object> delegator;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    job = new JobConf();
+    job.setNumReduceTasks(1);
+    javaCollector = mock(MapOutputCollector.class);
+    delegator = new NativeMapOutputCollectorDelegator<Object, Object>() {
+      @Override
+      protected MapOutputCollector<Object, Object> createFallback() {
+        return javaCollector;
+      }
+    };
+  }
+
+  @Test
+  public void testFallbackForUnsupportedKey() throws Exception {
+    job.setMapOutputKeyClass(MockValueClass.class);
+    MapOutputCollector.Context context =
+        new MapOutputCollector.Context(null, job, null);
+    delegator.init(context);
+    assertTrue(delegator.isFallback());
+    verify(javaCollector).init(context);
+
+    Text key = new Text("key");
+    delegator.collect(key, key, 0);
+    delegator.flush();
+    delegator.close();
+    verify(javaCollector).collect(key, key, 0);
+    verify(javaCollector).flush();
+    verify(javaCollector).close();
+  }
+
+  @Test
+  public void testNoFallback() throws Exception {
+    job.setMapOutputKeyClass(MockValueClass.class);
+    job.setBoolean(Constants.NATIVE_COLLECTOR_FALLBACK, false);
+    try {
+      delegator.init(new MapOutputCollector.Context(null, job, null));
+      fail("Key type is not comparable in native");
+    } catch (InvalidJobConfException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains(
+          MockValueClass.class.getName()));
+    }
+  }
+
+  @Test
+  public void testRegisteredComparator() throws Exception {
+    // with the native library the collector is set up for real and needs
+    // the map task, which this context does not carry
+    assumeFalse(NativeRuntime.isNativeLibraryLoaded());
+    job.setMapOutputKeyClass(Text.class);
+    job.setClass(MRJobConfig.KEY_COMPARATOR,
+        MockPlatform.ReverseTextComparator.class, Object.class);
+    delegator.init(new MapOutputCollector.Context(null, job, null));
+    assertEquals(MockPlatform.NATIVE_COMPARATOR, job.get(
+        Constants.NATIVE_MAPOUT_KEY_COMPARATOR + "." + Text.class.getName()));
+  }
+}
@@ -0,0 +1,186 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapred.nativetask.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.MapTask;
+import org.apache.hadoop.mapred.nativetask.NativeMapOutputCollectorDelegator;
+import org.apache.hadoop.mapred.nativetask.NativeRuntime;
+import org.apache.hadoop.mapred.nativetask.combinertest.WordCount;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MRConfig;
+import org.apache.hadoop.mapreduce.MRJobConfig;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+/**
+ * Compares the Java and the native map output collector on a wordcount and a
+ * terasort shaped job, run with the local job runner.
+ *
+ * <p>Usage: <code>MapOutputCollectorBenchmark &lt;dir&gt; [megabytes]</code>.
+ * The native collector falls back to the Java one when the native library is
+ * not loaded, which is reported next to its timings.</p>
+ */
+public class MapOutputCollectorBenchmark extends Configured implements Tool {
+  private static final int KEY_LENGTH = 10;
+  private static final int VALUE_LENGTH = 90;
+  private static final String[] WORDS = { "the", "quick", "brown", "fox",
+      "jumps", "over", "lazy", "dog", "hadoop", "native", "task", "sort",
+      "spill", "merge", "shuffle", "collector" };
+
+  @Override
+  public int run(String[] args) throws Exception {
+    if (args.length < 1) {
+      System.err.println("Usage: MapOutputCollectorBenchmark <dir> [megabytes]");
+      return 2;
+    }
+    Path dir = new Path(args[0]);
+    long bytes = (args.length > 1 ? Long.parseLong(args[1]) : 64) << 20;
+    FileSystem fs = FileSystem.getLocal(getConf());
+    fs.delete(dir, true);
+
+    Path words = new Path(dir, "wordcount-input");
+    writeWords(fs, words, bytes);
+    Path records = new Path(dir, "terasort-input");
+    writeRecords(getConf(), records, bytes);
+
+    System.out.println("native library loaded: "
+        + NativeRuntime.isNativeLibraryLoaded());
+    for (Class<?> collector : new Class<?>[] { MapTask.MapOutputBuffer.class,
+        NativeMapOutputCollectorDelegator.class }) {
+      long millis = runWordCount(collector, words, new Path(dir,
+          "wordcount-" + collector.getSimpleName()));
+      report("wordcount", collector, millis);
+      millis = runTeraSort(collector, records, new Path(dir,
+          "terasort-" + collector.getSimpleName()));
+      report("terasort", collector, millis);
+    }
+    return 0;
+  }
+
+  private static void report(String job, Class<?> collector, long millis) {
+    System.out.println(String.format("%-10s %-36s %8d ms", job,
+        collector.getSimpleName(), millis));
+  }
+
+  private Job createJob(String name, Class<?> collector) throws IOException {
+    Configuration conf = new Configuration(getConf());
+    conf.set(MRConfig.FRAMEWORK_NAME, "local");
+    conf.set(MRJobConfig.MAP_OUTPUT_COLLECTOR_CLASS_ATTR, collector.getName());
+    Job job = Job.getInstance(conf, name);
+    job.setJarByClass(MapOutputCollectorBenchmark.class);
+    return job;
+  }
+
+  private long runWordCount(Class<?> collector, Path input, Path output)
+      throws Exception {
+    Job job = createJob("wordcount", collector);
+    job.setMapperClass(WordCount.TokenizerMapper.class);
+    job.setReducerClass(WordCount.IntSumReducer.class);
+    job.setOutputKeyClass(Text.class);
+    job.setOutputValueClass(IntWritable.class);
+    FileInputFormat.addInputPath(job, input);
+    FileOutputFormat.setOutputPath(job, output);
+    return waitForCompletion(job);
+  }
+
+  private long runTeraSort(Class<?> collector, Path input, Path output)
+      throws Exception {
+    Job job = createJob("terasort", collector);
+    job.setMapperClass(Mapper.class);
+    job.setReducerClass(Reducer.class);
+    job.setInputFormatClass(SequenceFileInputFormat.class);
+    job.setOutputKeyClass(BytesWritable.class);
+    job.setOutputValueClass(BytesWritable.class);
+    FileInputFormat.addInputPath(job, input);
+    FileOutputFormat.setOutputPath(job, output);
+    return waitForCompletion(job);
+  }
+
+  private static long waitForCompletion(Job job) throws Exception {
+    long start = System.nanoTime();
+    if (!job.waitForCompletion(false)) {
+      throw new IOException(job.getJobName() + " failed");
+    }
+    return (System.nanoTime() - start) / 1000000;
+  }
+
+  private static void writeWords(FileSystem fs, Path file, long bytes)
+      throws IOException {
+    Random random = new Random(0);
+    Writer out = new OutputStreamWriter(fs.create(file), "UTF-8");
+    try {
+      long written = 0;
+      while (written < bytes) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+          line.append(WORDS[random.nextInt(WORDS.length)])
+              .append(random.nextInt(1000)).append(' ');
+        }
+        line.append('\n');
+        out.write(line.toString());
+        written += line.length();
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  private static void writeRecords(Configuration conf, Path file, long bytes)
+      throws IOException {
+    Random random = new Random(0);
+    BytesWritable key = new BytesWritable(new byte[KEY_LENGTH]);
+    BytesWritable value = new BytesWritable(new byte[VALUE_LENGTH]);
+    SequenceFile.Writer out = SequenceFile.createWriter(conf,
+        SequenceFile.Writer.file(file),
+        SequenceFile.Writer.keyClass(BytesWritable.class),
+        SequenceFile.Writer.valueClass(BytesWritable.class));
+    try {
+      for (long written = 0; written < bytes;
+          written += KEY_LENGTH + VALUE_LENGTH) {
+        random.nextBytes(key.getBytes());
+        random.nextBytes(value.getBytes());
+        out.append(key, value);
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    System.exit(ToolRunner.run(new Configuration(),
+        new MapOutputCollectorBenchmark(), args));
+  }
+}
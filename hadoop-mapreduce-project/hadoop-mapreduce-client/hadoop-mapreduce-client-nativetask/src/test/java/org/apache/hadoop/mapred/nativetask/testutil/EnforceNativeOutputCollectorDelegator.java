@@ -21,6 +21,7 @@
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.mapred.nativetask.Constants;
 import org.apache.hadoop.mapred.nativetask.NativeMapOutputCollectorDelegator;
 
 public class EnforceNativeOutputCollectorDelegator<K, V>
@@ -31,6 +32,8 @@
   @Override
   public void init(Context context)
  throws IOException, ClassNotFoundException {
+    // fail rather than silently falling back to the Java collector
+    context.getJobConf().setBoolean(Constants.NATIVE_COLLECTOR_FALLBACK, false);
     try {
       super.init(context);
       nativetaskloaded = true;
@@ -0,0 +1,62 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.mapred.nativetask.testutil;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.nativetask.Platform;
+import org.apache.hadoop.mapred.nativetask.serde.INativeSerializer;
+
+/**
+ * A platform mapping a reverse order Java comparator of {@link Text} to a
+ * native comparator.
+ */
+public class MockPlatform extends Platform {
+  public static final String NATIVE_COMPARATOR = "MockPlatform.ReverseTextComparator";
+
+  /** Sorts Text keys in reverse order. */
+  public static class ReverseTextComparator extends Text.Comparator {
+    @Override
+    public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+      return -super.compare(b1, s1, l1, b2, s2, l2);
+    }
+  }
+
+  @Override
+  public void init() throws IOException {
+    registerComparator(ReverseTextComparator.class.getName(), NATIVE_COMPARATOR);
+  }
+
+  @Override
+  public String name() {
+    return "Mock";
+  }
+
+  @Override
+  protected boolean support(String keyClassName,
+      INativeSerializer<?> serializer, JobConf job) {
+    return false;
+  }
+
+  @Override
+  protected boolean define(Class<?> keyComparator) {
+    return false;
+  }
+}
@@ -33,7 +33,7 @@
 
 import static org.apache.hadoop.io.nativeio.NativeIO.POSIX.POSIX_FADV_DONTNEED;
 
-import org.jboss.netty.channel.DefaultFileRegion;
+import io.netty.channel.DefaultFileRegion;
 
 import com.google.common.annotations.VisibleForTesting;
 
@@ -53,6 +53,8 @@ public class FadvisedFileRegion extends DefaultFileRegion {
   private final FileChannel fileChannel;
   
   private ReadaheadRequest readaheadRequest;
+  /** Bytes written by {@link #customShuffleTransfer}. */
+  private long transferred;
 
   public FadvisedFileRegion(RandomAccessFile file, long position, long count,
       boolean manageOsCache, int readaheadLength, ReadaheadPool readaheadPool,
@@ -76,17 +78,25 @@ public long transferTo(WritableByteChannel target, long position)
       throws IOException {
     if (readaheadPool != null && readaheadLength > 0) {
       readaheadRequest = readaheadPool.readaheadStream(identifier, fd,
-          getPosition() + position, readaheadLength,
-          getPosition() + getCount(), readaheadRequest);
+          position() + position, readaheadLength,
+          position() + count(), readaheadRequest);
     }
     
     if(this.shuffleTransferToAllowed) {
       return super.transferTo(target, position);
     } else {
-      return customShuffleTransfer(target, position);
+      long written = customShuffleTransfer(target, position);
+      transferred += written;
+      return written;
     } 
   }
 
+  @Override
+  public long transfered() {
+    // the native transport updates the count of the superclass directly
+    return shuffleTransferToAllowed ? super.transfered() : transferred;
+  }
+
   /**
    * This method transfers data using local buffer. It transfers data from 
    * a disk to a local buffer in memory, and then it transfers data from the 
@@ -142,26 +152,24 @@ long customShuffleTransfer(WritableByteChannel target, long position)
   }
 
   
+  /**
+   * Called by Netty once the region has been written or dropped.  If the
+   * whole region was transferred, advise the OS that we don't need it to be
+   * cached anymore; this has to happen before the file is closed.
+   */
   @Override
-  public void releaseExternalResources() {
+  protected void deallocate() {
     if (readaheadRequest != null) {
       readaheadRequest.cancel();
     }
-    super.releaseExternalResources();
-  }
-  
-  /**
-   * Call when the transfer completes successfully so we can advise the OS that
-   * we don't need the region to be cached anymore.
-   */
-  public void transferSuccessful() {
-    if (manageOsCache && getCount() > 0) {
+    if (manageOsCache && count() > 0 && transfered() >= count()) {
       try {
         NativeIO.POSIX.getCacheManipulator().posixFadviseIfPossible(identifier,
-            fd, getPosition(), getCount(), POSIX_FADV_DONTNEED);
+            fd, position(), count(), POSIX_FADV_DONTNEED);
       } catch (Throwable t) {
         LOG.warn("Failed to manage OS cache for " + identifier, t);
       }
     }
+    super.deallocate();
   }
 }
@@ -20,17 +20,17 @@
 
 import static org.fusesource.leveldbjni.JniDBFactory.asString;
 import static org.fusesource.leveldbjni.JniDBFactory.bytes;
-import static org.jboss.netty.buffer.ChannelBuffers.wrappedBuffer;
-import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
-import static org.jboss.netty.handler.codec.http.HttpMethod.GET;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.FORBIDDEN;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.METHOD_NOT_ALLOWED;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.OK;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.UNAUTHORIZED;
-import static org.jboss.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static io.netty.buffer.Unpooled.wrappedBuffer;
+import static io.netty.handler.codec.http.HttpHeaders.Names.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpMethod.GET;
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.FORBIDDEN;
+import static io.netty.handler.codec.http.HttpResponseStatus.INTERNAL_SERVER_ERROR;
+import static io.netty.handler.codec.http.HttpResponseStatus.METHOD_NOT_ALLOWED;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpResponseStatus.UNAUTHORIZED;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -40,8 +40,10 @@
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -81,13 +83,13 @@
 import org.apache.hadoop.security.ssl.SSLFactory;
 import org.apache.hadoop.security.token.Token;
 import org.apache.hadoop.util.Shell;
-import org.apache.hadoop.util.concurrent.HadoopExecutors;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.proto.YarnServerCommonProtos.VersionProto;
 import org.apache.hadoop.yarn.server.api.ApplicationInitializationContext;
 import org.apache.hadoop.yarn.server.api.ApplicationTerminationContext;
 import org.apache.hadoop.yarn.server.api.AuxiliaryService;
+import org.apache.hadoop.yarn.server.api.ContainerTerminationContext;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.ContainerLocalizer;
 import org.apache.hadoop.yarn.server.records.Version;
 import org.apache.hadoop.yarn.server.records.impl.pb.VersionPBImpl;
@@ -98,35 +100,6 @@
 import org.iq80.leveldb.DBException;
 import org.iq80.leveldb.Logger;
 import org.iq80.leveldb.Options;
-import org.jboss.netty.bootstrap.ServerBootstrap;
-import org.jboss.netty.buffer.ChannelBuffers;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelFactory;
-import org.jboss.netty.channel.ChannelFuture;
-import org.jboss.netty.channel.ChannelFutureListener;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.channel.ChannelPipeline;
-import org.jboss.netty.channel.ChannelPipelineFactory;
-import org.jboss.netty.channel.ChannelStateEvent;
-import org.jboss.netty.channel.Channels;
-import org.jboss.netty.channel.ExceptionEvent;
-import org.jboss.netty.channel.MessageEvent;
-import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
-import org.jboss.netty.channel.group.ChannelGroup;
-import org.jboss.netty.channel.group.DefaultChannelGroup;
-import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
-import org.jboss.netty.handler.codec.frame.TooLongFrameException;
-import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
-import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
-import org.jboss.netty.handler.codec.http.HttpRequest;
-import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
-import org.jboss.netty.handler.codec.http.HttpResponse;
-import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
-import org.jboss.netty.handler.codec.http.HttpResponseStatus;
-import org.jboss.netty.handler.codec.http.QueryStringDecoder;
-import org.jboss.netty.handler.ssl.SslHandler;
-import org.jboss.netty.handler.stream.ChunkedWriteHandler;
-import org.jboss.netty.util.CharsetUtil;
 import org.mortbay.jetty.HttpHeaders;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -140,6 +113,50 @@
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.protobuf.ByteString;
 
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpRequestDecoder;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+
 public class ShuffleHandler extends AuxiliaryService {
 
   private static final Log LOG = LogFactory.getLog(ShuffleHandler.class);
@@ -171,9 +188,17 @@ public class ShuffleHandler extends AuxiliaryService {
   public static final long FETCH_RETRY_DELAY = 1000L;
   public static final String RETRY_AFTER_HEADER = "Retry-After";
 
+  private static final AttributeKey<ConnectionState> CONNECTION_STATE =
+      AttributeKey.valueOf("mapreduce.shuffle.connection.state");
+  private static final AttributeKey<Boolean> CONNECTION_REJECTED =
+      AttributeKey.valueOf("mapreduce.shuffle.connection.rejected");
+
   private int port;
-  private ChannelFactory selector;
-  private final ChannelGroup accepted = new DefaultChannelGroup();
+  private EventLoopGroup bossGroup;
+  private EventLoopGroup workerGroup;
+  private Class<? extends ServerChannel> serverChannelClass;
+  private final ChannelGroup accepted =
+      new DefaultChannelGroup(ImmediateEventExecutor.INSTANCE);
   protected HttpPipelineFactory pipelineFact;
   private int sslFileBufferSize;
   
@@ -191,6 +216,7 @@ public class ShuffleHandler extends AuxiliaryService {
 
   private Map<String,String> userRsrc;
   private JobTokenSecretManager secretManager;
+  private ShuffleMerger merger;
 
   private DB stateDb = null;
 
@@ -235,6 +261,10 @@ public class ShuffleHandler extends AuxiliaryService {
       "mapreduce.shuffle.transfer.buffer.size";
   public static final int DEFAULT_SHUFFLE_BUFFER_SIZE = 128 * 1024;
   
+  public static final String SHUFFLE_EPOLL_ENABLED =
+      "mapreduce.shuffle.epoll.enabled";
+  public static final boolean DEFAULT_SHUFFLE_EPOLL_ENABLED = false;
+
   public static final String  SHUFFLE_TRANSFERTO_ALLOWED = 
       "mapreduce.shuffle.transferTo.allowed";
   public static final boolean DEFAULT_SHUFFLE_TRANSFERTO_ALLOWED = true;
@@ -248,6 +278,22 @@ public class ShuffleHandler extends AuxiliaryService {
       "mapreduce.shuffle.max.session-open-files";
   public static final int DEFAULT_SHUFFLE_MAX_SESSION_OPEN_FILES = 3;
 
+  /* merge the map outputs of a node into one file per reduce partition,
+   see ShuffleMerger
+   */
+  public static final String SHUFFLE_PUSH_MERGE_ENABLED =
+      "mapreduce.shuffle.push-merge.enabled";
+  public static final boolean DEFAULT_SHUFFLE_PUSH_MERGE_ENABLED = false;
+
+  public static final String SHUFFLE_PUSH_MERGE_THREADS =
+      "mapreduce.shuffle.push-merge.threads";
+  public static final int DEFAULT_SHUFFLE_PUSH_MERGE_THREADS = 1;
+
+  public static final String SHUFFLE_PUSH_MERGE_MAX_BYTES =
+      "mapreduce.shuffle.push-merge.max-bytes";
+  public static final long DEFAULT_SHUFFLE_PUSH_MERGE_MAX_BYTES =
+      10L * 1024 * 1024 * 1024;
+
   boolean connectionKeepAliveEnabled = false;
   int connectionKeepAliveTimeOut;
   int mapOutputMetaInfoCacheSize;
@@ -262,6 +308,8 @@ static class ShuffleMetrics implements ChannelFutureListener {
         MutableCounterInt shuffleOutputsOK;
     @Metric("# of current shuffle connections")
         MutableGaugeInt shuffleConnections;
+    @Metric("# of map outputs merged into partition files")
+        MutableCounterInt shuffleOutputsMerged;
 
     @Override
     public void operationComplete(ChannelFuture future) throws Exception {
@@ -287,13 +335,13 @@ public ReduceMapFileCount(ReduceContext rc) {
     @Override
     public void operationComplete(ChannelFuture future) throws Exception {
       if (!future.isSuccess()) {
-        future.getChannel().close();
+        future.channel().close();
         return;
       }
       int waitCount = this.reduceContext.getMapsToWait().decrementAndGet();
       if (waitCount == 0) {
         metrics.operationComplete(future);
-        future.getChannel().close();
+        pipelineFact.getSHUFFLE().finishResponse(reduceContext);
       } else {
         pipelineFact.getSHUFFLE().sendMap(reduceContext);
       }
@@ -314,11 +362,12 @@ private static class ReduceContext {
     private String user;
     private Map<String, Shuffle.MapOutputInfo> infoMap;
     private String jobId;
+    private boolean keepAlive;
 
     public ReduceContext(List<String> mapIds, int rId,
                          ChannelHandlerContext context, String usr,
                          Map<String, Shuffle.MapOutputInfo> mapOutputInfoMap,
-                         String jobId) {
+                         String jobId, boolean keepAlive) {
 
       this.mapIds = mapIds;
       this.reduceId = rId;
@@ -339,6 +388,7 @@ public ReduceContext(List<String> mapIds, int rId,
       this.user = usr;
       this.infoMap = mapOutputInfoMap;
       this.jobId = jobId;
+      this.keepAlive = keepAlive;
     }
 
     public int getReduceId() {
@@ -372,6 +422,49 @@ public AtomicInteger getMapsToSend() {
     public AtomicInteger getMapsToWait() {
       return mapsToWait;
     }
+
+    public boolean isKeepAlive() {
+      return keepAlive;
+    }
+  }
+
+  /**
+   * Per-connection request state.  HTTP/1.1 lets a fetcher send its next
+   * request on a keep-alive connection before the current response is
+   * complete; such requests are held here and served in arrival order.
+   * Only accessed from the event loop of the connection.
+   */
+  static class ConnectionState {
+    private final ArrayDeque<FullHttpRequest> pending =
+        new ArrayDeque<FullHttpRequest>();
+    /** A request is being served. */
+    private boolean busy;
+    /** The response headers of the current request have been written. */
+    private boolean responseStarted;
+  }
+
+  /**
+   * Counts new connections on the acceptor thread, in the order they are
+   * accepted.  Connections over the limit are only marked here; the shuffle
+   * handler answers them once they are active.
+   */
+  @ChannelHandler.Sharable
+  class ConnectionLimiter extends ChannelInboundHandlerAdapter {
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg)
+        throws Exception {
+      Channel child = (Channel) msg;
+      if ((maxShuffleConnections > 0) &&
+          (accepted.size() >= maxShuffleConnections)) {
+        LOG.info(String.format("Current number of shuffle connections (%d) " +
+            "is greater than or equal to the max allowed shuffle connections " +
+            "(%d)", accepted.size(), maxShuffleConnections));
+        child.attr(CONNECTION_REJECTED).set(Boolean.TRUE);
+      } else {
+        accepted.add(child);
+      }
+      super.channelRead(ctx, msg);
+    }
   }
 
   ShuffleHandler(MetricsSystem ms) {
@@ -454,12 +547,26 @@ public void stopApplication(ApplicationTerminationContext context) {
     JobID jobId = new JobID(Long.toString(appId.getClusterTimestamp()), appId.getId());
     try {
       removeJobShuffleInfo(jobId);
+      if (merger != null) {
+        merger.removeJob(jobId.toString());
+      }
     } catch (IOException e) {
       LOG.error("Error during stopApp", e);
       // TODO add API to AuxiliaryServices to report failures
     }
   }
 
+  @Override
+  public void stopContainer(ContainerTerminationContext context) {
+    if (merger == null) {
+      return;
+    }
+    // any map output the container wrote is final by now
+    ApplicationId appId = context.getContainerId().getApplicationAttemptId()
+        .getApplicationId();
+    merger.mergeOutputs(appId, context.getUser());
+  }
+
   @Override
   protected void serviceInit(Configuration conf) throws Exception {
     manageOsCache = conf.getBoolean(SHUFFLE_MANAGE_OS_CACHE,
@@ -492,11 +599,21 @@ protected void serviceInit(Configuration conf) throws Exception {
     ThreadFactory workerFactory = new ThreadFactoryBuilder()
       .setNameFormat("ShuffleHandler Netty Worker #%d")
       .build();
-    
-    selector = new NioServerSocketChannelFactory(
-        HadoopExecutors.newCachedThreadPool(bossFactory),
-        HadoopExecutors.newCachedThreadPool(workerFactory),
-        maxShuffleThreads);
+
+    // The native transport hands DefaultFileRegions straight to sendfile(2),
+    // bypassing FadvisedFileRegion#transferTo, so it is only used when
+    // transferTo is allowed.
+    if (conf.getBoolean(SHUFFLE_EPOLL_ENABLED, DEFAULT_SHUFFLE_EPOLL_ENABLED)
+        && shuffleTransferToAllowed && Epoll.isAvailable()) {
+      LOG.info("Using native epoll transport for the shuffle");
+      bossGroup = new EpollEventLoopGroup(1, bossFactory);
+      workerGroup = new EpollEventLoopGroup(maxShuffleThreads, workerFactory);
+      serverChannelClass = EpollServerSocketChannel.class;
+    } else {
+      bossGroup = new NioEventLoopGroup(1, bossFactory);
+      workerGroup = new NioEventLoopGroup(maxShuffleThreads, workerFactory);
+      serverChannelClass = NioServerSocketChannel.class;
+    }
     super.serviceInit(new Configuration(conf));
   }
 
@@ -504,47 +621,65 @@ protected void serviceInit(Configuration conf) throws Exception {
   @Override
   protected void serviceStart() throws Exception {
     Configuration conf = getConfig();
+    sslFileBufferSize = conf.getInt(SUFFLE_SSL_FILE_BUFFER_SIZE_KEY,
+                                    DEFAULT_SUFFLE_SSL_FILE_BUFFER_SIZE);
+    connectionKeepAliveEnabled =
+        conf.getBoolean(SHUFFLE_CONNECTION_KEEP_ALIVE_ENABLED,
+          DEFAULT_SHUFFLE_CONNECTION_KEEP_ALIVE_ENABLED);
+    connectionKeepAliveTimeOut =
+        Math.max(1, conf.getInt(SHUFFLE_CONNECTION_KEEP_ALIVE_TIME_OUT,
+          DEFAULT_SHUFFLE_CONNECTION_KEEP_ALIVE_TIME_OUT));
+    mapOutputMetaInfoCacheSize =
+        Math.max(1, conf.getInt(SHUFFLE_MAPOUTPUT_META_INFO_CACHE_SIZE,
+          DEFAULT_SHUFFLE_MAPOUTPUT_META_INFO_CACHE_SIZE));
     userRsrc = new ConcurrentHashMap<String,String>();
     secretManager = new JobTokenSecretManager();
     recoverState(conf);
-    ServerBootstrap bootstrap = new ServerBootstrap(selector);
+    if (conf.getBoolean(SHUFFLE_PUSH_MERGE_ENABLED,
+        DEFAULT_SHUFFLE_PUSH_MERGE_ENABLED)) {
+      merger = new ShuffleMerger(conf, conf.getInt(SHUFFLE_PUSH_MERGE_THREADS,
+          DEFAULT_SHUFFLE_PUSH_MERGE_THREADS),
+          conf.getLong(SHUFFLE_PUSH_MERGE_MAX_BYTES,
+              DEFAULT_SHUFFLE_PUSH_MERGE_MAX_BYTES), metrics);
+      // the merged outputs of the jobs recovered above are kept
+      merger.start(userRsrc);
+    }
     try {
       pipelineFact = new HttpPipelineFactory(conf);
     } catch (Exception ex) {
       throw new RuntimeException(ex);
     }
-    bootstrap.setOption("backlog", conf.getInt(SHUFFLE_LISTEN_QUEUE_SIZE,
-        DEFAULT_SHUFFLE_LISTEN_QUEUE_SIZE));
-    bootstrap.setOption("child.keepAlive", true);
-    bootstrap.setPipelineFactory(pipelineFact);
+    ServerBootstrap bootstrap = new ServerBootstrap()
+        .group(bossGroup, workerGroup)
+        .channel(serverChannelClass)
+        .option(ChannelOption.SO_BACKLOG, conf.getInt(
+            SHUFFLE_LISTEN_QUEUE_SIZE, DEFAULT_SHUFFLE_LISTEN_QUEUE_SIZE))
+        .handler(new ConnectionLimiter())
+        .childOption(ChannelOption.SO_KEEPALIVE, true)
+        .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+        .childHandler(pipelineFact);
     port = conf.getInt(SHUFFLE_PORT_CONFIG_KEY, DEFAULT_SHUFFLE_PORT);
-    Channel ch = bootstrap.bind(new InetSocketAddress(port));
+    Channel ch = bootstrap.bind(new InetSocketAddress(port)).sync().channel();
     accepted.add(ch);
-    port = ((InetSocketAddress)ch.getLocalAddress()).getPort();
+    port = ((InetSocketAddress)ch.localAddress()).getPort();
     conf.set(SHUFFLE_PORT_CONFIG_KEY, Integer.toString(port));
     pipelineFact.SHUFFLE.setPort(port);
     LOG.info(getName() + " listening on port " + port);
     super.serviceStart();
-
-    sslFileBufferSize = conf.getInt(SUFFLE_SSL_FILE_BUFFER_SIZE_KEY,
-                                    DEFAULT_SUFFLE_SSL_FILE_BUFFER_SIZE);
-    connectionKeepAliveEnabled =
-        conf.getBoolean(SHUFFLE_CONNECTION_KEEP_ALIVE_ENABLED,
-          DEFAULT_SHUFFLE_CONNECTION_KEEP_ALIVE_ENABLED);
-    connectionKeepAliveTimeOut =
-        Math.max(1, conf.getInt(SHUFFLE_CONNECTION_KEEP_ALIVE_TIME_OUT,
-          DEFAULT_SHUFFLE_CONNECTION_KEEP_ALIVE_TIME_OUT));
-    mapOutputMetaInfoCacheSize =
-        Math.max(1, conf.getInt(SHUFFLE_MAPOUTPUT_META_INFO_CACHE_SIZE,
-          DEFAULT_SHUFFLE_MAPOUTPUT_META_INFO_CACHE_SIZE));
   }
 
   @Override
   protected void serviceStop() throws Exception {
     accepted.close().awaitUninterruptibly(10, TimeUnit.SECONDS);
-    if (selector != null) {
-      ServerBootstrap bootstrap = new ServerBootstrap(selector);
-      bootstrap.releaseExternalResources();
+    if (bossGroup != null) {
+      bossGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS);
+      workerGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS);
+      bossGroup.awaitTermination(10, TimeUnit.SECONDS);
+      workerGroup.awaitTermination(10, TimeUnit.SECONDS);
+    }
+    if (merger != null) {
+      merger.stop();
+      merger = null;
     }
     if (pipelineFact != null) {
       pipelineFact.destroy();
@@ -755,7 +890,7 @@ public void log(String message) {
     }
   }
 
-  class HttpPipelineFactory implements ChannelPipelineFactory {
+  class HttpPipelineFactory extends ChannelInitializer<SocketChannel> {
 
     final Shuffle SHUFFLE;
     private SSLFactory sslFactory;
@@ -781,17 +916,19 @@ public void destroy() {
     }
 
     @Override
-    public ChannelPipeline getPipeline() throws Exception {
-      ChannelPipeline pipeline = Channels.pipeline();
+    protected void initChannel(SocketChannel ch) throws Exception {
+      ChannelPipeline pipeline = ch.pipeline();
       if (sslFactory != null) {
         pipeline.addLast("ssl", new SslHandler(sslFactory.createSSLEngine()));
       }
       pipeline.addLast("decoder", new HttpRequestDecoder());
-      pipeline.addLast("aggregator", new HttpChunkAggregator(1 << 16));
+      pipeline.addLast("aggregator", new HttpObjectAggregator(1 << 16));
       pipeline.addLast("encoder", new HttpResponseEncoder());
       pipeline.addLast("chunking", new ChunkedWriteHandler());
+      // lets the shuffle close keep-alive connections left idle
+      pipeline.addLast("idle",
+          new IdleStateHandler(connectionKeepAliveTimeOut, 0, 0));
       pipeline.addLast("shuffle", SHUFFLE);
-      return pipeline;
       // TODO factor security manager into pipeline
       // TODO factor out encode/decode to permit binary shuffle
       // TODO factor out decode of index to permit alt. models
@@ -799,7 +936,8 @@ public ChannelPipeline getPipeline() throws Exception {
 
   }
 
-  class Shuffle extends SimpleChannelUpstreamHandler {
+  @ChannelHandler.Sharable
+  class Shuffle extends ChannelInboundHandlerAdapter {
     private static final int MAX_WEIGHT = 10 * 1024 * 1024;
     private static final int EXPIRE_AFTER_ACCESS_MINUTES = 5;
     private static final int ALLOWED_CONCURRENCY = 16;
@@ -873,32 +1011,113 @@ private List<String> splitMaps(List<String> mapq) {
     }
 
     @Override
-    public void channelOpen(ChannelHandlerContext ctx, ChannelStateEvent evt) 
-        throws Exception {
-      if ((maxShuffleConnections > 0) && (accepted.size() >= maxShuffleConnections)) {
-        LOG.info(String.format("Current number of shuffle connections (%d) is " + 
-            "greater than or equal to the max allowed shuffle connections (%d)", 
-            accepted.size(), maxShuffleConnections));
-
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+      if (ctx.channel().attr(CONNECTION_REJECTED).get() != null) {
         Map<String, String> headers = new HashMap<String, String>(1);
         // notify fetchers to backoff for a while before closing the connection
         // if the shuffle connection limit is hit. Fetchers are expected to
         // handle this notification gracefully, that is, not treating this as a
         // fetch failure.
         headers.put(RETRY_AFTER_HEADER, String.valueOf(FETCH_RETRY_DELAY));
+        // do not serve a request that arrives before the close completes
+        ctx.channel().config().setAutoRead(false);
         sendError(ctx, "", TOO_MANY_REQ_STATUS, headers);
         return;
       }
-      accepted.add(evt.getChannel());
-      super.channelOpen(ctx, evt);
-     
+      super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+      ConnectionState state = ctx.channel().attr(CONNECTION_STATE).get();
+      if (state != null) {
+        for (FullHttpRequest request : state.pending) {
+          request.release();
+        }
+        state.pending.clear();
+      }
+      super.channelInactive(ctx);
     }
 
     @Override
-    public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt)
         throws Exception {
-      HttpRequest request = (HttpRequest) evt.getMessage();
-      if (request.getMethod() != GET) {
+      if (evt instanceof IdleStateEvent
+          && ((IdleStateEvent) evt).state() == IdleState.READER_IDLE) {
+        ConnectionState state = getConnectionState(ctx.channel());
+        if (!state.busy) {
+          if (LOG.isDebugEnabled()) {
+            LOG.debug("Closing idle shuffle connection " + ctx.channel());
+          }
+          ctx.close();
+        }
+        return;
+      }
+      super.userEventTriggered(ctx, evt);
+    }
+
+    private ConnectionState getConnectionState(Channel ch) {
+      ConnectionState state = ch.attr(CONNECTION_STATE).get();
+      if (state == null) {
+        state = new ConnectionState();
+        ch.attr(CONNECTION_STATE).set(state);
+      }
+      return state;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg)
+        throws Exception {
+      FullHttpRequest request = (FullHttpRequest) msg;
+      ConnectionState state = getConnectionState(ctx.channel());
+      if (state.busy) {
+        // pipelined behind a response still being written
+        state.pending.add(request);
+        return;
+      }
+      state.busy = true;
+      try {
+        serveRequest(ctx, request);
+      } finally {
+        request.release();
+      }
+    }
+
+    /**
+     * Completes the response of the current request and, on a keep-alive
+     * connection, goes on with the next pipelined request if there is one.
+     */
+    void finishResponse(ReduceContext reduceContext) {
+      final ChannelHandlerContext ctx = reduceContext.getCtx();
+      final ConnectionState state = getConnectionState(ctx.channel());
+      state.responseStarted = false;
+      ChannelFuture lastContent =
+          ctx.channel().writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+      if (!reduceContext.isKeepAlive()) {
+        lastContent.addListener(ChannelFutureListener.CLOSE);
+        return;
+      }
+      FullHttpRequest next = state.pending.poll();
+      if (next == null) {
+        state.busy = false;
+        return;
+      }
+      try {
+        serveRequest(ctx, next);
+      } catch (Exception e) {
+        ctx.pipeline().fireExceptionCaught(e);
+      } finally {
+        next.release();
+      }
+    }
+
+    private void serveRequest(ChannelHandlerContext ctx,
+        FullHttpRequest request) throws Exception {
+      if (request.decoderResult().isFailure()) {
+        sendError(ctx, BAD_REQUEST);
+        return;
+      }
+      if (request.method() != GET) {
           sendError(ctx, METHOD_NOT_ALLOWED);
           return;
       }
@@ -911,9 +1130,10 @@ public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
                   request.headers()
                       .get(ShuffleHeader.HTTP_HEADER_VERSION) : null)) {
         sendError(ctx, "Incompatible shuffle request version", BAD_REQUEST);
+        return;
       }
       final Map<String,List<String>> q =
-        new QueryStringDecoder(request.getUri()).getParameters();
+        new QueryStringDecoder(request.uri()).parameters();
       final List<String> keepAliveList = q.get("keepAlive");
       boolean keepAliveParam = false;
       if (keepAliveList != null && keepAliveList.size() == 1) {
@@ -927,7 +1147,7 @@ public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
       final List<String> reduceQ = q.get("reduce");
       final List<String> jobQ = q.get("job");
       if (LOG.isDebugEnabled()) {
-        LOG.debug("RECV: " + request.getUri() +
+        LOG.debug("RECV: " + request.uri() +
             "\n  mapId: " + mapIds +
             "\n  reduceId: " + reduceQ +
             "\n  jobId: " + jobQ +
@@ -962,7 +1182,7 @@ public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
         sendError(ctx, "Bad job parameter", BAD_REQUEST);
         return;
       }
-      final String reqUri = request.getUri();
+      final String reqUri = request.uri();
       if (null == reqUri) {
         // TODO? add upstream?
         sendError(ctx, FORBIDDEN);
@@ -980,7 +1200,7 @@ public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
 
       Map<String, MapOutputInfo> mapOutputInfoMap =
           new HashMap<String, MapOutputInfo>();
-      Channel ch = evt.getChannel();
+      Channel ch = ctx.channel();
       String user = userRsrc.get(jobId);
 
       try {
@@ -988,15 +1208,25 @@ public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
           response, keepAliveParam, mapOutputInfoMap);
       } catch(IOException e) {
         ch.write(response);
+        getConnectionState(ch).responseStarted = true;
         LOG.error("Shuffle error in populating headers :", e);
         String errorMessage = getErrorMessage(e);
         sendError(ctx,errorMessage , INTERNAL_SERVER_ERROR);
         return;
       }
+      if (merger != null) {
+        sortByFileOffset(mapIds, mapOutputInfoMap);
+      }
       ch.write(response);
-      //Initialize one ReduceContext object per messageReceived call
+      getConnectionState(ch).responseStarted = true;
+      // the connection stays open only if the response carries its length
+      boolean keepAlive = HttpHeaders.KEEP_ALIVE.equalsIgnoreCase(
+          response.headers().get(HttpHeaders.CONNECTION))
+          && !CONNECTION_CLOSE.equalsIgnoreCase(
+              request.headers().get(HttpHeaders.CONNECTION));
+      //Initialize one ReduceContext object per request
       ReduceContext reduceContext = new ReduceContext(mapIds, reduceId, ctx,
-          user, mapOutputInfoMap, jobId);
+          user, mapOutputInfoMap, jobId, keepAlive);
       for (int i = 0; i < Math.min(maxSessionOpenFiles, mapIds.size()); i++) {
         ChannelFuture nextMap = sendMap(reduceContext);
         if(nextMap == null) {
@@ -1007,7 +1237,7 @@ public void messageReceived(ChannelHandlerContext ctx, MessageEvent evt)
 
     /**
      * Calls sendMapOutput for the mapId pointed by ReduceContext.mapsToSend
-     * and increments it. This method is first called by messageReceived()
+     * and increments it. This method is first called by channelRead()
      * maxSessionOpenFiles times and then on the completion of every
      * sendMapOutput operation. This limits the number of open files on a node,
      * which can get really large(exhausting file descriptors on the NM) if all
@@ -1032,7 +1262,7 @@ public ChannelFuture sendMap(ReduceContext reduceContext)
           }
           nextMap = sendMapOutput(
               reduceContext.getCtx(),
-              reduceContext.getCtx().getChannel(),
+              reduceContext.getCtx().channel(),
               reduceContext.getUser(), mapId,
               reduceContext.getReduceId(), info);
           if (null == nextMap) {
@@ -1051,6 +1281,31 @@ public ChannelFuture sendMap(ReduceContext reduceContext)
       return nextMap;
     }
 
+    /**
+     * Orders the maps by where their segments are on disk, so merged
+     * segments are sent in the order of the merged files.  Maps without
+     * cached info keep their relative order after the others.
+     */
+    private void sortByFileOffset(List<String> mapIds,
+        final Map<String, MapOutputInfo> infoMap) {
+      Collections.sort(mapIds, new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+          MapOutputInfo infoA = infoMap.get(a);
+          MapOutputInfo infoB = infoMap.get(b);
+          if (infoA == null || infoB == null) {
+            return infoA == null ? (infoB == null ? 0 : 1) : -1;
+          }
+          int cmp = infoA.mapOutputFileName.compareTo(infoB.mapOutputFileName);
+          if (cmp != 0) {
+            return cmp;
+          }
+          return Long.compare(infoA.indexRecord.startOffset,
+              infoB.indexRecord.startOffset);
+        }
+      });
+    }
+
     private String getErrorMessage(Throwable t) {
       StringBuffer sb = new StringBuffer(t.getMessage());
       while (t.getCause() != null) {
@@ -1074,6 +1329,14 @@ private String getBaseLocation(String jobId, String user) {
 
     protected MapOutputInfo getMapOutputInfo(String mapId, int reduce,
         String jobId, String user) throws IOException {
+      if (merger != null) {
+        ShuffleMerger.MergedPartition merged =
+            merger.getPartition(jobId, reduce);
+        IndexRecord record = merged == null ? null : merged.getIndex(mapId);
+        if (record != null) {
+          return new MapOutputInfo(merged.getFile(), record, true);
+        }
+      }
       AttemptPathInfo pathInfo;
       try {
         AttemptPathIdentifier identifier = new AttemptPathIdentifier(
@@ -1151,10 +1414,18 @@ protected void setResponseHeaders(HttpResponse response,
     class MapOutputInfo {
       final Path mapOutputFileName;
       final IndexRecord indexRecord;
+      /** The segment is in a partition file written by the merger. */
+      final boolean merged;
 
       MapOutputInfo(Path mapOutputFileName, IndexRecord indexRecord) {
+        this(mapOutputFileName, indexRecord, false);
+      }
+
+      MapOutputInfo(Path mapOutputFileName, IndexRecord indexRecord,
+          boolean merged) {
         this.mapOutputFileName = mapOutputFileName;
         this.indexRecord = indexRecord;
+        this.merged = merged;
       }
     }
 
@@ -1213,36 +1484,31 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx, Channel ch,
           new File(mapOutputInfo.mapOutputFileName.toString());
       RandomAccessFile spill;
       try {
-        spill = SecureIOUtils.openForRandomRead(spillfile, "r", user, null);
+        // merged partition files belong to the NodeManager, not the user
+        spill = SecureIOUtils.openForRandomRead(spillfile, "r",
+            mapOutputInfo.merged ? null : user, null);
       } catch (FileNotFoundException e) {
         LOG.info(spillfile + " not found");
         return null;
       }
       ChannelFuture writeFuture;
-      if (ch.getPipeline().get(SslHandler.class) == null) {
+      if (ch.pipeline().get(SslHandler.class) == null) {
+        // the region advises the OS cache and closes the spill once Netty
+        // releases it after the transfer
+        // TODO error handling; distinguish IO/connection failures,
+        //      attribute to appropriate spill output
         final FadvisedFileRegion partition = new FadvisedFileRegion(spill,
             info.startOffset, info.partLength, manageOsCache, readaheadLength,
             readaheadPool, spillfile.getAbsolutePath(), 
             shuffleBufferSize, shuffleTransferToAllowed);
-        writeFuture = ch.write(partition);
-        writeFuture.addListener(new ChannelFutureListener() {
-            // TODO error handling; distinguish IO/connection failures,
-            //      attribute to appropriate spill output
-          @Override
-          public void operationComplete(ChannelFuture future) {
-            if (future.isSuccess()) {
-              partition.transferSuccessful();
-            }
-            partition.releaseExternalResources();
-          }
-        });
+        writeFuture = ch.writeAndFlush(partition);
       } else {
         // HTTPS cannot be done with zero copy.
         final FadvisedChunkedFile chunk = new FadvisedChunkedFile(spill,
             info.startOffset, info.partLength, sslFileBufferSize,
             manageOsCache, readaheadLength, readaheadPool,
             spillfile.getAbsolutePath());
-        writeFuture = ch.write(chunk);
+        writeFuture = ch.writeAndFlush(chunk);
       }
       metrics.shuffleConnections.incr();
       metrics.shuffleOutputBytes.incr(info.partLength); // optimistic
@@ -1261,7 +1527,16 @@ protected void sendError(ChannelHandlerContext ctx, String message,
 
     protected void sendError(ChannelHandlerContext ctx, String msg,
         HttpResponseStatus status, Map<String, String> headers) {
-      HttpResponse response = new DefaultHttpResponse(HTTP_1_1, status);
+      ConnectionState state = ctx.channel().attr(CONNECTION_STATE).get();
+      if (state != null && state.responseStarted) {
+        // the status line is already out; all that is left is to cut the
+        // response short
+        ctx.channel().writeAndFlush(Unpooled.EMPTY_BUFFER)
+            .addListener(ChannelFutureListener.CLOSE);
+        return;
+      }
+      FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1,
+          status, Unpooled.copiedBuffer(msg, CharsetUtil.UTF_8));
       response.headers().set(CONTENT_TYPE, "text/plain; charset=UTF-8");
       // Put shuffle version into http header
       response.headers().set(ShuffleHeader.HTTP_HEADER_NAME,
@@ -1271,18 +1546,16 @@ protected void sendError(ChannelHandlerContext ctx, String msg,
       for (Map.Entry<String, String> header : headers.entrySet()) {
         response.headers().set(header.getKey(), header.getValue());
       }
-      response.setContent(
-          ChannelBuffers.copiedBuffer(msg, CharsetUtil.UTF_8));
 
       // Close the connection as soon as the error message is sent.
-      ctx.getChannel().write(response).addListener(ChannelFutureListener.CLOSE);
+      ctx.channel().writeAndFlush(response)
+          .addListener(ChannelFutureListener.CLOSE);
     }
 
     @Override
-    public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e)
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
         throws Exception {
-      Channel ch = e.getChannel();
-      Throwable cause = e.getCause();
+      Channel ch = ctx.channel();
       if (cause instanceof TooLongFrameException) {
         sendError(ctx, BAD_REQUEST);
         return;
@@ -1299,8 +1572,8 @@ public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e)
       }
 
       LOG.error("Shuffle error: ", cause);
-      if (ch.isConnected()) {
-        LOG.error("Shuffle error " + e);
+      if (ch.isActive()) {
+        LOG.error("Shuffle error " + cause);
         sendError(ctx, INTERNAL_SERVER_ERROR);
       }
     }
@@ -0,0 +1,518 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.mapred;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalDirAllocator;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.SecureIOUtils;
+import org.apache.hadoop.mapred.ShuffleHandler.ShuffleMetrics;
+import org.apache.hadoop.mapreduce.TaskType;
+import org.apache.hadoop.util.concurrent.HadoopExecutors;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.ContainerLocalizer;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Merges the map outputs written on this node into one file per reduce
+ * partition.
+ *
+ * <p>Without merging, a reducer fetching the outputs of many maps from a node
+ * reads one small segment out of every map output file.  Once a container
+ * stops, the map outputs it left behind are appended, partition by partition,
+ * to per-partition files of the job, and the shuffle serves segments from
+ * there, so a reducer fetching a batch of maps reads a single file front to
+ * back.</p>
+ *
+ * <p>Once the segments of a map output are on disk in the partition files,
+ * they are recorded in a merge index next to them and the map output itself
+ * is deleted, so a node does not keep two copies of its map outputs.  The
+ * merge index is reloaded when the shuffle service recovers the job after a
+ * restart.  Map outputs which are not merged yet, could not be merged, or
+ * would take the merged files of the node over their size limit are served
+ * from their own files.</p>
+ */
+class ShuffleMerger {
+  private static final Log LOG = LogFactory.getLog(ShuffleMerger.class);
+
+  static final String MERGE_DIR = "shuffle-merge";
+  static final String MERGE_INDEX = "merge.index";
+
+  private final Configuration conf;
+  private final JobConf jobConf;
+  private final ShuffleMetrics metrics;
+  private final long maxBytes;
+  /** Bytes of the partition files of all jobs, guarded by this. */
+  private long mergedBytes;
+  private final LocalDirAllocator lDirAlloc =
+      new LocalDirAllocator(YarnConfiguration.NM_LOCAL_DIRS);
+  private final ConcurrentMap<String, MergedJob> jobs =
+      new ConcurrentHashMap<String, MergedJob>();
+  private final ExecutorService mergeThreads;
+
+  /** The map outputs of one job merged into one file for a partition. */
+  static class MergedPartition {
+    private final Path file;
+    private final ConcurrentMap<String, IndexRecord> index =
+        new ConcurrentHashMap<String, IndexRecord>();
+    private long length;
+
+    MergedPartition(Path file) {
+      this.file = file;
+    }
+
+    Path getFile() {
+      return file;
+    }
+
+    /**
+     * @return where the segment of the given map attempt is in the merged
+     * file, or null if it has not been merged.
+     */
+    IndexRecord getIndex(String mapId) {
+      return index.get(mapId);
+    }
+
+    /**
+     * Copies a segment to the end of the merged file and forces it to disk.
+     * The segment is not served before it is published; an unpublished copy
+     * just takes up space.
+     *
+     * @return where the copy is in the merged file.
+     */
+    synchronized IndexRecord append(String mapId, FileChannel src,
+        IndexRecord rec) throws IOException {
+      RandomAccessFile out = new RandomAccessFile(file.toUri().getPath(), "rw");
+      try {
+        FileChannel dst = out.getChannel();
+        src.position(rec.startOffset);
+        long copied = 0;
+        while (copied < rec.partLength) {
+          long n = dst.transferFrom(src, length + copied,
+              rec.partLength - copied);
+          if (n <= 0) {
+            throw new IOException("Unexpected end of map output for " + mapId);
+          }
+          copied += n;
+        }
+        dst.force(false);
+      } finally {
+        out.close();
+      }
+      IndexRecord merged =
+          new IndexRecord(length, rec.rawLength, rec.partLength);
+      length += rec.partLength;
+      return merged;
+    }
+
+    void publish(String mapId, IndexRecord rec) {
+      index.put(mapId, rec);
+    }
+
+    /** Restores a segment read back from the merge index. */
+    synchronized void recover(String mapId, IndexRecord rec) {
+      index.put(mapId, rec);
+      length = Math.max(length, rec.startOffset + rec.partLength);
+    }
+
+    synchronized long getLength() {
+      return length;
+    }
+  }
+
+  private static class MergedJob {
+    private final String user;
+    private final Set<String> attempts =
+        Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final ConcurrentMap<Integer, MergedPartition> partitions =
+        new ConcurrentHashMap<Integer, MergedPartition>();
+    /** A scan of the map output directories is queued and not started. */
+    private final AtomicBoolean scanQueued = new AtomicBoolean();
+    // guarded by this
+    private boolean removed;
+    private long bytes;
+    private Path mergeIndex;
+
+    MergedJob(String user) {
+      this.user = user;
+    }
+  }
+
+  ShuffleMerger(Configuration conf, int threads, long maxBytes,
+      ShuffleMetrics metrics) {
+    this.conf = conf;
+    this.jobConf = new JobConf(conf);
+    this.metrics = metrics;
+    this.maxBytes = maxBytes;
+    this.mergeThreads = HadoopExecutors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setNameFormat("ShuffleMerger #%d")
+            .setDaemon(true).build());
+  }
+
+  /**
+   * Reloads the merged map outputs of the jobs recovered by the shuffle
+   * service, and removes the merged files of any other job.
+   *
+   * @param jobUsers the user of each recovered job.
+   */
+  void start(Map<String, String> jobUsers) throws IOException {
+    for (Path dir : lDirAlloc.getAllLocalPathsToRead(MERGE_DIR, conf)) {
+      File[] jobDirs = new File(dir.toUri().getPath()).listFiles();
+      if (jobDirs == null) {
+        continue;
+      }
+      for (File jobDir : jobDirs) {
+        String jobId = jobDir.getName();
+        String user = jobUsers.get(jobId);
+        File mergeIndex = new File(jobDir, MERGE_INDEX);
+        if (user != null && mergeIndex.isFile()) {
+          try {
+            recoverJob(jobId, user, mergeIndex);
+          } catch (IOException e) {
+            LOG.warn("Unable to recover merged map outputs of " + jobId, e);
+          }
+        }
+      }
+    }
+    FileSystem localFs = FileSystem.getLocal(conf);
+    for (Path dir : lDirAlloc.getAllLocalPathsToRead(MERGE_DIR, conf)) {
+      File[] jobDirs = new File(dir.toUri().getPath()).listFiles();
+      if (jobDirs == null) {
+        continue;
+      }
+      for (File jobDir : jobDirs) {
+        if (!jobs.containsKey(jobDir.getName())) {
+          LOG.info("Removing stale merged map outputs in " + jobDir);
+          localFs.delete(new Path(jobDir.getAbsolutePath()), true);
+        }
+      }
+    }
+  }
+
+  private void recoverJob(String jobId, String user, File mergeIndex)
+      throws IOException {
+    MergedJob job = new MergedJob(user);
+    job.mergeIndex = new Path(mergeIndex.getAbsolutePath());
+    DataInputStream in = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(mergeIndex)));
+    try {
+      while (true) {
+        String mapId;
+        int reduce;
+        IndexRecord rec;
+        try {
+          mapId = in.readUTF();
+          reduce = in.readInt();
+          rec = new IndexRecord(in.readLong(), in.readLong(), in.readLong());
+        } catch (EOFException e) {
+          // the end of the index, or a record cut short by a crash
+          break;
+        }
+        MergedPartition partition = job.partitions.get(reduce);
+        if (partition == null) {
+          partition = new MergedPartition(lDirAlloc.getLocalPathToRead(
+              MERGE_DIR + "/" + jobId + "/part-" + reduce + ".out", conf));
+          job.partitions.put(reduce, partition);
+        }
+        partition.recover(mapId, rec);
+        job.attempts.add(mapId);
+      }
+    } finally {
+      IOUtils.closeStream(in);
+    }
+    for (MergedPartition partition : job.partitions.values()) {
+      job.bytes += partition.getLength();
+    }
+    synchronized (this) {
+      mergedBytes += job.bytes;
+    }
+    jobs.put(jobId, job);
+    LOG.info("Recovered " + job.attempts.size()
+        + " merged map outputs of " + jobId);
+  }
+
+  void stop() throws InterruptedException {
+    mergeThreads.shutdownNow();
+    mergeThreads.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Queues the merge of every map output of the application on this node
+   * which has not been merged yet.  Calls made while an earlier scan of the
+   * map output directories is still queued are folded into it.
+   */
+  void mergeOutputs(final ApplicationId appId, String user) {
+    final String jobId = new JobID(Long.toString(appId.getClusterTimestamp()),
+        appId.getId()).toString();
+    MergedJob job = jobs.get(jobId);
+    if (job == null) {
+      MergedJob newJob = new MergedJob(user);
+      job = jobs.putIfAbsent(jobId, newJob);
+      if (job == null) {
+        job = newJob;
+      }
+    }
+    if (!job.scanQueued.compareAndSet(false, true)) {
+      return;
+    }
+    final MergedJob mergedJob = job;
+    mergeThreads.execute(new Runnable() {
+      @Override
+      public void run() {
+        mergedJob.scanQueued.set(false);
+        try {
+          scanOutputs(mergedJob, jobId, appId);
+        } catch (IOException e) {
+          LOG.warn("Unable to merge map outputs of " + appId, e);
+        }
+      }
+    });
+  }
+
+  /**
+   * Queues a merge for the map outputs which are not known yet.  Merged map
+   * outputs are deleted, so a scan only visits the attempts which have not
+   * been merged.
+   */
+  private void scanOutputs(final MergedJob mergedJob, final String jobId,
+      ApplicationId appId) throws IOException {
+    String base = ContainerLocalizer.USERCACHE + "/" + mergedJob.user + "/"
+        + ContainerLocalizer.APPCACHE + "/" + appId + "/output";
+    for (Path dir : lDirAlloc.getAllLocalPathsToRead(base, conf)) {
+      File[] attemptDirs = new File(dir.toUri().getPath()).listFiles();
+      if (attemptDirs == null) {
+        continue;
+      }
+      for (final File attemptDir : attemptDirs) {
+        final String attemptId = attemptDir.getName();
+        if (mergedJob.attempts.contains(attemptId)
+            || !isMapAttempt(attemptId)) {
+          continue;
+        }
+        final File indexFile = new File(attemptDir, "file.out.index");
+        final File dataFile = new File(attemptDir, "file.out");
+        if (!indexFile.isFile() || !dataFile.isFile()
+            || !mergedJob.attempts.add(attemptId)) {
+          continue;
+        }
+        mergeThreads.execute(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              merge(mergedJob, jobId, attemptId, attemptDir, indexFile,
+                  dataFile);
+            } catch (IOException e) {
+              LOG.warn("Unable to merge map output of " + attemptId
+                  + ", it is served from its own file", e);
+            }
+          }
+        });
+      }
+    }
+  }
+
+  private static boolean isMapAttempt(String attemptId) {
+    try {
+      return TaskAttemptID.forName(attemptId).getTaskType()
+          == TaskType.MAP;
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+  }
+
+  private void merge(MergedJob job, String jobId, String attemptId,
+      File attemptDir, File indexFile, File dataFile) throws IOException {
+    SpillRecord spill = new SpillRecord(
+        new Path(indexFile.getAbsolutePath()), jobConf, job.user);
+    long length = 0;
+    for (int reduce = 0; reduce < spill.size(); reduce++) {
+      length += spill.getIndex(reduce).partLength;
+    }
+    if (!reserve(job, length)) {
+      return;
+    }
+    MergedPartition[] partitions = new MergedPartition[spill.size()];
+    IndexRecord[] merged = new IndexRecord[spill.size()];
+    RandomAccessFile in =
+        SecureIOUtils.openForRandomRead(dataFile, "r", job.user, null);
+    try {
+      FileChannel src = in.getChannel();
+      for (int reduce = 0; reduce < spill.size(); reduce++) {
+        partitions[reduce] = getOrCreatePartition(job, jobId, reduce);
+        if (partitions[reduce] == null) {
+          return;
+        }
+        merged[reduce] =
+            partitions[reduce].append(attemptId, src, spill.getIndex(reduce));
+      }
+    } finally {
+      IOUtils.closeStream(in);
+    }
+    if (!writeMergeIndex(job, jobId, attemptId, merged)) {
+      return;
+    }
+    for (int reduce = 0; reduce < spill.size(); reduce++) {
+      partitions[reduce].publish(attemptId, merged[reduce]);
+    }
+    metrics.shuffleOutputsMerged.incr();
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Merged " + spill.size() + " partitions of " + attemptId);
+    }
+    // the merged copy is on disk and indexed, the map output is not needed
+    if (!dataFile.delete() || !indexFile.delete() || !attemptDir.delete()) {
+      LOG.info("Unable to delete the merged map output in " + attemptDir);
+    }
+  }
+
+  /**
+   * Accounts for the bytes a map output adds to the partition files.
+   *
+   * @return false if the job is removed, or the partition files of the node
+   * would grow over their limit.
+   */
+  private boolean reserve(MergedJob job, long length) {
+    synchronized (job) {
+      if (job.removed) {
+        return false;
+      }
+      synchronized (this) {
+        if (mergedBytes + length > maxBytes) {
+          LOG.info("Not merging a map output of " + length + " bytes, "
+              + mergedBytes + " bytes of the " + maxBytes + " allowed are "
+              + "merged already");
+          return false;
+        }
+        mergedBytes += length;
+      }
+      job.bytes += length;
+      return true;
+    }
+  }
+
+  /**
+   * Appends where the segments of a map output are in the partition files
+   * to the merge index of the job, and syncs it.
+   *
+   * @return false if the job has been removed.
+   */
+  private boolean writeMergeIndex(MergedJob job, String jobId,
+      String attemptId, IndexRecord[] merged) throws IOException {
+    synchronized (job) {
+      if (job.removed) {
+        return false;
+      }
+      if (job.mergeIndex == null) {
+        Path file = lDirAlloc.getLocalPathForWrite(
+            MERGE_DIR + "/" + jobId + "/" + MERGE_INDEX, conf);
+        FileSystem.getLocal(conf).mkdirs(file.getParent());
+        job.mergeIndex = file;
+      }
+      FileOutputStream out =
+          new FileOutputStream(job.mergeIndex.toUri().getPath(), true);
+      try {
+        DataOutputStream dout =
+            new DataOutputStream(new BufferedOutputStream(out));
+        for (int reduce = 0; reduce < merged.length; reduce++) {
+          dout.writeUTF(attemptId);
+          dout.writeInt(reduce);
+          dout.writeLong(merged[reduce].startOffset);
+          dout.writeLong(merged[reduce].rawLength);
+          dout.writeLong(merged[reduce].partLength);
+        }
+        dout.flush();
+        out.getFD().sync();
+      } finally {
+        IOUtils.closeStream(out);
+      }
+      return true;
+    }
+  }
+
+  private MergedPartition getOrCreatePartition(MergedJob job, String jobId,
+      int reduce) throws IOException {
+    synchronized (job) {
+      if (job.removed) {
+        return null;
+      }
+      MergedPartition partition = job.partitions.get(reduce);
+      if (partition == null) {
+        Path file = lDirAlloc.getLocalPathForWrite(
+            MERGE_DIR + "/" + jobId + "/part-" + reduce + ".out", conf);
+        FileSystem.getLocal(conf).mkdirs(file.getParent());
+        partition = new MergedPartition(file);
+        job.partitions.put(reduce, partition);
+      }
+      return partition;
+    }
+  }
+
+  /**
+   * @return the merged partition of the job, or null if no map output has
+   * been merged for it.
+   */
+  MergedPartition getPartition(String jobId, int reduce) {
+    MergedJob job = jobs.get(jobId);
+    return job == null ? null : job.partitions.get(reduce);
+  }
+
+  /** Forgets the merged map outputs of the job and deletes their files. */
+  void removeJob(String jobId) throws IOException {
+    MergedJob job = jobs.remove(jobId);
+    if (job == null) {
+      return;
+    }
+    synchronized (job) {
+      job.removed = true;
+      synchronized (this) {
+        mergedBytes -= job.bytes;
+      }
+    }
+    FileSystem localFs = FileSystem.getLocal(conf);
+    for (Path dir : lDirAlloc.getAllLocalPathsToRead(
+        MERGE_DIR + "/" + jobId, conf)) {
+      localFs.delete(dir, true);
+    }
+  }
+}
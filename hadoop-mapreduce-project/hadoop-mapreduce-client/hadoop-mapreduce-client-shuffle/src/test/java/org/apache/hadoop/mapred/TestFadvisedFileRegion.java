@@ -104,7 +104,7 @@ public void testCustomShuffleTransfer() throws IOException {
       Assert.assertEquals(count, targetFile.length());
     } finally {
       if (fileRegion != null) {
-        fileRegion.releaseExternalResources();
+        fileRegion.release();
       }
       IOUtils.cleanup(LOG, target);
       IOUtils.cleanup(LOG, targetFile);
@@ -22,29 +22,41 @@
 import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
 import static org.apache.hadoop.test.MockitoMaker.make;
 import static org.apache.hadoop.test.MockitoMaker.stub;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertTrue;
-import static org.jboss.netty.buffer.ChannelBuffers.wrappedBuffer;
-import static org.jboss.netty.handler.codec.http.HttpResponseStatus.OK;
-import static org.jboss.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static io.netty.buffer.Unpooled.wrappedBuffer;
+import static io.netty.handler.codec.http.HttpResponseStatus.OK;
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assume.assumeTrue;
 
+import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.Socket;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.CheckedOutputStream;
 import java.util.zip.Checksum;
 
+import com.google.common.base.Charsets;
+import com.google.common.base.Supplier;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
@@ -68,25 +80,19 @@
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.security.token.Token;
 import org.apache.hadoop.service.ServiceStateException;
+import org.apache.hadoop.test.GenericTestUtils;
 import org.apache.hadoop.util.PureJavaCrc32;
 import org.apache.hadoop.util.StringUtils;
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.server.api.ApplicationInitializationContext;
 import org.apache.hadoop.yarn.server.api.ApplicationTerminationContext;
+import org.apache.hadoop.yarn.server.api.ContainerTerminationContext;
 import org.apache.hadoop.yarn.server.nodemanager.containermanager.localizer.ContainerLocalizer;
 import org.apache.hadoop.yarn.server.records.Version;
-import org.jboss.netty.channel.Channel;
-import org.jboss.netty.channel.ChannelFuture;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.channel.socket.SocketChannel;
-import org.jboss.netty.channel.MessageEvent;
-import org.jboss.netty.channel.AbstractChannel;
-import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
-import org.jboss.netty.handler.codec.http.HttpRequest;
-import org.jboss.netty.handler.codec.http.HttpResponse;
-import org.jboss.netty.handler.codec.http.HttpResponseStatus;
-import org.jboss.netty.handler.codec.http.HttpMethod;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
@@ -94,6 +100,22 @@
 import org.mockito.Mockito;
 import org.mortbay.jetty.HttpHeaders;
 
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.DecoderResult;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.AttributeKey;
+import io.netty.util.DefaultAttributeMap;
+
 public class TestShuffleHandler {
   static final long MiB = 1024 * 1024; 
   private static final Log LOG = LogFactory.getLog(TestShuffleHandler.class);
@@ -134,7 +156,8 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
           for (int i = 0; i < 100; ++i) {
             header.write(dob);
           }
-          return ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+          return ch.writeAndFlush(
+              wrappedBuffer(dob.getData(), 0, dob.getLength()));
         }
       };
     }
@@ -150,8 +173,8 @@ protected Shuffle getShuffle(final Configuration conf) {
         protected void verifyRequest(String appid, ChannelHandlerContext ctx,
             HttpRequest request, HttpResponse response, URL requestUri)
             throws IOException {
-          SocketChannel channel = (SocketChannel)(ctx.getChannel());
-          socketKeepAlive = channel.getConfig().isKeepAlive();
+          SocketChannel channel = (SocketChannel)(ctx.channel());
+          socketKeepAlive = channel.config().isKeepAlive();
         }
       };
     }
@@ -262,14 +285,15 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
             for (int i = 0; i < 100000; ++i) {
               header.write(dob);
             }
-            return ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+            return ch.writeAndFlush(
+                wrappedBuffer(dob.getData(), 0, dob.getLength()));
           }
           @Override
           protected void sendError(ChannelHandlerContext ctx,
               HttpResponseStatus status) {
             if (failures.size() == 0) {
               failures.add(new Error());
-              ctx.getChannel().close();
+              ctx.channel().close();
             }
           }
           @Override
@@ -277,7 +301,7 @@ protected void sendError(ChannelHandlerContext ctx, String message,
               HttpResponseStatus status) {
             if (failures.size() == 0) {
               failures.add(new Error());
-              ctx.getChannel().close();
+              ctx.channel().close();
             }
           }
         };
@@ -338,12 +362,13 @@ protected void populateHeaders(List<String> mapIds, String jobId,
               String user, int reduce, HttpRequest request,
               HttpResponse response, boolean keepAliveParam,
               Map<String, MapOutputInfo> infoMap) throws IOException {
-            // Send some dummy data (populate content length details)
+            // Send some dummy data (populate content length details); the
+            // length must cover everything sendMapOutput writes, as the
+            // connection is kept open for the next request
             ShuffleHeader header =
                 new ShuffleHeader("attempt_12345_1_m_1_0", 5678, 5678, 1);
             DataOutputBuffer dob = new DataOutputBuffer();
             header.write(dob);
-            dob = new DataOutputBuffer();
             for (int i = 0; i < 100000; ++i) {
               header.write(dob);
             }
@@ -375,7 +400,8 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
             for (int i = 0; i < 100000; ++i) {
               header.write(dob);
             }
-            return ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+            return ch.writeAndFlush(
+                wrappedBuffer(dob.getData(), 0, dob.getLength()));
           }
 
           @Override
@@ -383,7 +409,7 @@ protected void sendError(ChannelHandlerContext ctx,
               HttpResponseStatus status) {
             if (failures.size() == 0) {
               failures.add(new Error());
-              ctx.getChannel().close();
+              ctx.channel().close();
             }
           }
 
@@ -392,7 +418,7 @@ protected void sendError(ChannelHandlerContext ctx, String message,
               HttpResponseStatus status) {
             if (failures.size() == 0) {
               failures.add(new Error());
-              ctx.getChannel().close();
+              ctx.channel().close();
             }
           }
         };
@@ -480,6 +506,484 @@ public void testSocketKeepAlive() throws Exception {
     }
   }
 
+  /**
+   * Several fetchers each pipeline a batch of requests over one kept-alive
+   * connection; every response must come back whole and in request order.
+   * The fetch is repeated with the native transport when it is available,
+   * logging the time taken by each transport.
+   *
+   * @throws Exception exception
+   */
+  @Test(timeout = 60000)
+  public void testPipelinedFetchers() throws Exception {
+    File absLogDir = new File("target",
+        TestShuffleHandler.class.getSimpleName() + "PipelineDir")
+        .getAbsoluteFile();
+    try {
+      long nio = runPipelinedFetchers(absLogDir, false);
+      LOG.info("NIO transport served pipelined fetchers in " + nio + " ms");
+      if (Epoll.isAvailable()) {
+        long epoll = runPipelinedFetchers(absLogDir, true);
+        LOG.info("Epoll transport served pipelined fetchers in " + epoll
+            + " ms");
+      }
+    } finally {
+      FileUtil.fullyDelete(absLogDir);
+    }
+  }
+
+  private long runPipelinedFetchers(File absLogDir, boolean epoll)
+      throws Exception {
+    final int maps = 8;
+    final int fetchers = 4;
+    final int partLength = 256 * 1024;
+    Configuration conf = new Configuration();
+    conf.setInt(ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY, 0);
+    conf.setBoolean(ShuffleHandler.SHUFFLE_CONNECTION_KEEP_ALIVE_ENABLED, true);
+    conf.setBoolean(ShuffleHandler.SHUFFLE_EPOLL_ENABLED, epoll);
+    conf.setBoolean(ShuffleHandler.SHUFFLE_TRANSFERTO_ALLOWED, true);
+    conf.set(YarnConfiguration.NM_LOCAL_DIRS, absLogDir.getAbsolutePath());
+    ApplicationId appId = ApplicationId.newInstance(12345, 1);
+    String user = "randomUser";
+    for (int i = 0; i < maps; i++) {
+      createMapOutput(absLogDir, user, appId.toString(),
+          "attempt_12345_1_m_" + i + "_0", 1, partLength, conf);
+    }
+    ShuffleHandler shuffleHandler = new ShuffleHandler() {
+      @Override
+      protected Shuffle getShuffle(Configuration conf) {
+        return new Shuffle(conf) {
+          @Override
+          protected void verifyRequest(String appid, ChannelHandlerContext ctx,
+              HttpRequest request, HttpResponse response, URL requestUri)
+              throws IOException {
+            // Do nothing.
+          }
+        };
+      }
+    };
+    shuffleHandler.init(conf);
+    ExecutorService executor = Executors.newFixedThreadPool(fetchers);
+    try {
+      shuffleHandler.start();
+      DataOutputBuffer outputBuffer = new DataOutputBuffer();
+      Token<JobTokenIdentifier> jt =
+          new Token<JobTokenIdentifier>("identifier".getBytes(),
+              "password".getBytes(), new Text(user), new Text("shuffleService"));
+      jt.write(outputBuffer);
+      shuffleHandler.initializeApplication(
+          new ApplicationInitializationContext(user, appId,
+              ByteBuffer.wrap(outputBuffer.getData(), 0,
+                  outputBuffer.getLength())));
+      final int port = Integer.parseInt(shuffleHandler.getConfig().get(
+          ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY));
+
+      long start = System.currentTimeMillis();
+      List<Future<Void>> results = new ArrayList<Future<Void>>();
+      for (int f = 0; f < fetchers; f++) {
+        results.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws IOException {
+            fetchPipelined(port, maps, partLength);
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> result : results) {
+        result.get();
+      }
+      return System.currentTimeMillis() - start;
+    } finally {
+      executor.shutdownNow();
+      shuffleHandler.stop();
+    }
+  }
+
+  /**
+   * Sends one request per map in a single write, then reads the responses
+   * back from the same connection.
+   */
+  private static void fetchPipelined(int port, int maps, int partLength)
+      throws IOException {
+    Socket socket = new Socket("127.0.0.1", port);
+    try {
+      StringBuilder requests = new StringBuilder();
+      for (int i = 0; i < maps; i++) {
+        requests.append("GET /mapOutput?job=job_12345_0001&reduce=0&map=")
+            .append("attempt_12345_1_m_").append(i).append("_0 HTTP/1.1\r\n")
+            .append("Host: 127.0.0.1\r\n")
+            .append(ShuffleHeader.HTTP_HEADER_NAME).append(": ")
+            .append(ShuffleHeader.DEFAULT_HTTP_HEADER_NAME).append("\r\n")
+            .append(ShuffleHeader.HTTP_HEADER_VERSION).append(": ")
+            .append(ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION).append("\r\n")
+            .append("\r\n");
+      }
+      OutputStream out = socket.getOutputStream();
+      out.write(requests.toString().getBytes(Charsets.UTF_8));
+      out.flush();
+
+      DataInputStream in = new DataInputStream(
+          new BufferedInputStream(socket.getInputStream()));
+      byte[] data = new byte[partLength];
+      for (int i = 0; i < maps; i++) {
+        assertEquals("HTTP/1.1 200 OK", readLine(in));
+        long contentLength = -1;
+        for (String line = readLine(in); !line.isEmpty();
+            line = readLine(in)) {
+          if (line.toLowerCase().startsWith("content-length:")) {
+            contentLength = Long.parseLong(line.substring(15).trim());
+          }
+        }
+        DataOutputBuffer expected = new DataOutputBuffer();
+        new ShuffleHeader("attempt_12345_1_m_" + i + "_0", partLength,
+            partLength, 0).write(expected);
+        byte[] header = new byte[expected.getLength()];
+        in.readFully(header);
+        assertArrayEquals(
+            Arrays.copyOf(expected.getData(), expected.getLength()), header);
+        in.readFully(data);
+        for (int j = 0; j < partLength; j++) {
+          assertEquals((byte) (i + j), data[j]);
+        }
+        assertTrue("response must be delimited by its length",
+            contentLength > partLength);
+      }
+    } finally {
+      socket.close();
+    }
+  }
+
+  private static String readLine(DataInputStream in) throws IOException {
+    StringBuilder line = new StringBuilder();
+    for (int b = in.read(); b != '\n'; b = in.read()) {
+      if (b == -1) {
+        throw new EOFException("Connection closed by the shuffle server");
+      }
+      if (b != '\r') {
+        line.append((char) b);
+      }
+    }
+    return line.toString();
+  }
+
+  /**
+   * Writes a map output whose partitions hold partLength bytes each, the
+   * byte at offset j of partition p being (map + p + j).
+   */
+  private static void createMapOutput(File logDir, String user, String appId,
+      String appAttemptId, int partitions, int partLength, Configuration conf)
+      throws IOException {
+    File appAttemptDir = new File(StringUtils.join(Path.SEPARATOR,
+        new String[] { logDir.getAbsolutePath(),
+            ContainerLocalizer.USERCACHE, user,
+            ContainerLocalizer.APPCACHE, appId, "output", appAttemptId }));
+    appAttemptDir.mkdirs();
+    int map = Integer.parseInt(appAttemptId.split("_")[4]);
+    byte[] data = new byte[partLength];
+    SpillRecord spill = new SpillRecord(partitions);
+    FileOutputStream out =
+        new FileOutputStream(new File(appAttemptDir, "file.out"));
+    try {
+      for (int p = 0; p < partitions; p++) {
+        for (int j = 0; j < partLength; j++) {
+          data[j] = (byte) (map + p + j);
+        }
+        out.write(data);
+        spill.putIndex(new IndexRecord((long) p * partLength, partLength,
+            partLength), p);
+      }
+    } finally {
+      out.close();
+    }
+    spill.writeToFile(new Path(new File(appAttemptDir, "file.out.index")
+        .getAbsolutePath()), new JobConf(conf));
+  }
+
+  /**
+   * Map outputs are merged into partition files once their container stops
+   * and deleted, and a fetch is then served from the merged files alone, in
+   * any order of the requested maps.
+   *
+   * @throws Exception exception
+   */
+  @Test(timeout = 30000)
+  public void testPushMerge() throws Exception {
+    final int maps = 3;
+    final int partitions = 4;
+    final int partLength = 4096;
+    final File absLogDir = new File("target",
+        TestShuffleHandler.class.getSimpleName() + "MergeDir")
+        .getAbsoluteFile();
+    Configuration conf = createMergeConf(absLogDir);
+    final ApplicationId appId = ApplicationId.newInstance(12345, 1);
+    final String user = "randomUser";
+    final List<String> mapIds = createMapOutputs(absLogDir, user, appId,
+        maps, partitions, partLength, conf);
+    final ShuffleHandler shuffleHandler = createMergingShuffleHandler();
+    shuffleHandler.init(conf);
+    try {
+      shuffleHandler.start();
+      startMerge(shuffleHandler, user, appId);
+      GenericTestUtils.waitFor(new Supplier<Boolean>() {
+        @Override
+        public Boolean get() {
+          return shuffleHandler.metrics.shuffleOutputsMerged.value() == maps
+              && countMapOutputs(absLogDir, user, appId, mapIds) == 0;
+        }
+      }, 10, 10000);
+
+      File mergeDir = new File(absLogDir,
+          ShuffleMerger.MERGE_DIR + "/job_12345_0001");
+      assertTrue(new File(mergeDir, ShuffleMerger.MERGE_INDEX).isFile());
+      for (int reduce = 0; reduce < partitions; reduce++) {
+        assertEquals((long) maps * partLength,
+            new File(mergeDir, "part-" + reduce + ".out").length());
+      }
+      fetchMapOutputs(shuffleHandler, mapIds, partitions, partLength);
+
+      shuffleHandler.stopApplication(new ApplicationTerminationContext(appId));
+      Assert.assertFalse("merged outputs should be removed with the job",
+          mergeDir.exists());
+    } finally {
+      shuffleHandler.stop();
+      FileUtil.fullyDelete(absLogDir);
+    }
+  }
+
+  /**
+   * Map outputs which would take the merged files over
+   * {@link ShuffleHandler#SHUFFLE_PUSH_MERGE_MAX_BYTES} are not merged, and
+   * are still served from their own files.
+   *
+   * @throws Exception exception
+   */
+  @Test(timeout = 30000)
+  public void testPushMergeMaxBytes() throws Exception {
+    final int maps = 3;
+    final int partitions = 4;
+    final int partLength = 4096;
+    final File absLogDir = new File("target",
+        TestShuffleHandler.class.getSimpleName() + "MergeMaxBytesDir")
+        .getAbsoluteFile();
+    Configuration conf = createMergeConf(absLogDir);
+    // room for two map outputs
+    conf.setLong(ShuffleHandler.SHUFFLE_PUSH_MERGE_MAX_BYTES,
+        2L * partitions * partLength);
+    final ApplicationId appId = ApplicationId.newInstance(12345, 1);
+    final String user = "randomUser";
+    final List<String> mapIds = createMapOutputs(absLogDir, user, appId,
+        maps, partitions, partLength, conf);
+    final ShuffleHandler shuffleHandler = createMergingShuffleHandler();
+    shuffleHandler.init(conf);
+    try {
+      shuffleHandler.start();
+      startMerge(shuffleHandler, user, appId);
+      GenericTestUtils.waitFor(new Supplier<Boolean>() {
+        @Override
+        public Boolean get() {
+          return shuffleHandler.metrics.shuffleOutputsMerged.value() == 2
+              && countMapOutputs(absLogDir, user, appId, mapIds) == 1;
+        }
+      }, 10, 10000);
+
+      File mergeDir = new File(absLogDir,
+          ShuffleMerger.MERGE_DIR + "/job_12345_0001");
+      for (int reduce = 0; reduce < partitions; reduce++) {
+        assertEquals(2L * partLength,
+            new File(mergeDir, "part-" + reduce + ".out").length());
+      }
+      fetchMapOutputs(shuffleHandler, mapIds, partitions, partLength);
+    } finally {
+      shuffleHandler.stop();
+      FileUtil.fullyDelete(absLogDir);
+    }
+  }
+
+  /**
+   * The merged map outputs of a job are still served after the shuffle
+   * service restarts and recovers the job, though the map outputs themselves
+   * are deleted.
+   *
+   * @throws Exception exception
+   */
+  @Test(timeout = 30000)
+  public void testPushMergeRecovery() throws Exception {
+    final int maps = 3;
+    final int partitions = 4;
+    final int partLength = 4096;
+    final File absLogDir = new File("target",
+        TestShuffleHandler.class.getSimpleName() + "MergeRecoveryDir")
+        .getAbsoluteFile();
+    final File tmpDir = new File(absLogDir, "recovery");
+    tmpDir.mkdirs();
+    Configuration conf = createMergeConf(absLogDir);
+    final ApplicationId appId = ApplicationId.newInstance(12345, 1);
+    final String user = "randomUser";
+    final List<String> mapIds = createMapOutputs(absLogDir, user, appId,
+        maps, partitions, partLength, conf);
+    ShuffleHandler shuffleHandler = createMergingShuffleHandler();
+    shuffleHandler.setRecoveryPath(new Path(tmpDir.toString()));
+    shuffleHandler.init(conf);
+    try {
+      shuffleHandler.start();
+      startMerge(shuffleHandler, user, appId);
+      final ShuffleHandler merging = shuffleHandler;
+      GenericTestUtils.waitFor(new Supplier<Boolean>() {
+        @Override
+        public Boolean get() {
+          return merging.metrics.shuffleOutputsMerged.value() == maps
+              && countMapOutputs(absLogDir, user, appId, mapIds) == 0;
+        }
+      }, 10, 10000);
+
+      // emulate shuffle handler restart
+      shuffleHandler.close();
+      shuffleHandler = createMergingShuffleHandler();
+      shuffleHandler.setRecoveryPath(new Path(tmpDir.toString()));
+      shuffleHandler.init(conf);
+      shuffleHandler.start();
+
+      fetchMapOutputs(shuffleHandler, mapIds, partitions, partLength);
+    } finally {
+      shuffleHandler.close();
+      FileUtil.fullyDelete(absLogDir);
+    }
+  }
+
+  private static Configuration createMergeConf(File localDir) {
+    Configuration conf = new Configuration();
+    conf.setInt(ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY, 0);
+    conf.setBoolean(ShuffleHandler.SHUFFLE_PUSH_MERGE_ENABLED, true);
+    conf.set(YarnConfiguration.NM_LOCAL_DIRS, localDir.getAbsolutePath());
+    return conf;
+  }
+
+  private static List<String> createMapOutputs(File localDir, String user,
+      ApplicationId appId, int maps, int partitions, int partLength,
+      Configuration conf) throws IOException {
+    List<String> mapIds = new ArrayList<String>();
+    for (int i = 0; i < maps; i++) {
+      mapIds.add("attempt_12345_1_m_" + i + "_0");
+      createMapOutput(localDir, user, appId.toString(), mapIds.get(i),
+          partitions, partLength, conf);
+    }
+    return mapIds;
+  }
+
+  private static int countMapOutputs(File localDir, String user,
+      ApplicationId appId, List<String> mapIds) {
+    int count = 0;
+    for (String mapId : mapIds) {
+      File attemptDir = new File(StringUtils.join(Path.SEPARATOR,
+          new String[] { localDir.getAbsolutePath(),
+              ContainerLocalizer.USERCACHE, user, ContainerLocalizer.APPCACHE,
+              appId.toString(), "output", mapId }));
+      if (attemptDir.exists()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static ShuffleHandler createMergingShuffleHandler() {
+    return new ShuffleHandler() {
+      @Override
+      protected Shuffle getShuffle(Configuration conf) {
+        return new Shuffle(conf) {
+          @Override
+          protected void verifyRequest(String appid, ChannelHandlerContext ctx,
+              HttpRequest request, HttpResponse response, URL requestUri)
+              throws IOException {
+            // Do nothing.
+          }
+        };
+      }
+    };
+  }
+
+  /**
+   * Registers the application and stops one of its containers, which starts
+   * merging its map outputs.
+   */
+  private static void startMerge(ShuffleHandler shuffleHandler, String user,
+      ApplicationId appId) throws IOException {
+    DataOutputBuffer outputBuffer = new DataOutputBuffer();
+    Token<JobTokenIdentifier> jt =
+        new Token<JobTokenIdentifier>("identifier".getBytes(),
+            "password".getBytes(), new Text(user), new Text("shuffleService"));
+    jt.write(outputBuffer);
+    shuffleHandler.initializeApplication(
+        new ApplicationInitializationContext(user, appId,
+            ByteBuffer.wrap(outputBuffer.getData(), 0,
+                outputBuffer.getLength())));
+    ContainerId containerId = ContainerId.newContainerId(
+        ApplicationAttemptId.newInstance(appId, 1), 2);
+    shuffleHandler.stopContainer(new ContainerTerminationContext(user,
+        containerId, Resource.newInstance(1024, 1)));
+  }
+
+  /**
+   * Fetches every partition of the maps, requested last map first, and
+   * checks their contents.
+   */
+  private static void fetchMapOutputs(ShuffleHandler shuffleHandler,
+      List<String> mapIds, int partitions, int partLength)
+      throws IOException {
+    List<String> requested = new ArrayList<String>(mapIds);
+    Collections.rotate(requested, 1);
+    for (int reduce = 0; reduce < partitions; reduce++) {
+      URL url = new URL("http://127.0.0.1:"
+          + shuffleHandler.getConfig().get(
+              ShuffleHandler.SHUFFLE_PORT_CONFIG_KEY)
+          + "/mapOutput?job=job_12345_0001&reduce=" + reduce + "&map="
+          + StringUtils.join(",", requested));
+      HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+      conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_NAME,
+          ShuffleHeader.DEFAULT_HTTP_HEADER_NAME);
+      conn.setRequestProperty(ShuffleHeader.HTTP_HEADER_VERSION,
+          ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION);
+      conn.connect();
+      assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+      DataInputStream input = new DataInputStream(conn.getInputStream());
+      List<String> received = new ArrayList<String>();
+      byte[] data = new byte[partLength];
+      for (int i = 0; i < mapIds.size(); i++) {
+        int map = readMergedHeader(input, mapIds, partLength, reduce);
+        received.add(mapIds.get(map));
+        input.readFully(data);
+        for (int j = 0; j < partLength; j++) {
+          assertEquals((byte) (map + reduce + j), data[j]);
+        }
+      }
+      input.close();
+      Collections.sort(received);
+      assertEquals(mapIds, received);
+    }
+  }
+
+  /**
+   * Reads a shuffle header and returns the index of the map it belongs to.
+   * All the map ids have the same length, hence so do their headers.
+   */
+  private static int readMergedHeader(DataInputStream input,
+      List<String> mapIds, int partLength, int reduce) throws IOException {
+    DataOutputBuffer expected = new DataOutputBuffer();
+    new ShuffleHeader(mapIds.get(0), partLength, partLength, reduce)
+        .write(expected);
+    byte[] header = new byte[expected.getLength()];
+    input.readFully(header);
+    for (int map = 0; map < mapIds.size(); map++) {
+      expected.reset();
+      new ShuffleHeader(mapIds.get(map), partLength, partLength, reduce)
+          .write(expected);
+      if (Arrays.equals(header,
+          Arrays.copyOf(expected.getData(), expected.getLength()))) {
+        return map;
+      }
+    }
+    throw new AssertionError("Unexpected shuffle header");
+  }
+
   /**
    * simulate a reducer that sends an invalid shuffle-header - sometimes a wrong
    * header_name and sometimes a wrong version
@@ -566,7 +1070,8 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
             for (int i=0; i<100000; ++i) {
               header.write(dob);
             }
-            return ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+            return ch.writeAndFlush(
+                wrappedBuffer(dob.getData(), 0, dob.getLength()));
           }
         };
       }
@@ -609,7 +1114,7 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
     try {
       rc = conns[2].getResponseCode();
       Assert.assertEquals("Expected a too-many-requests response code",
-          ShuffleHandler.TOO_MANY_REQ_STATUS.getCode(), rc);
+          ShuffleHandler.TOO_MANY_REQ_STATUS.code(), rc);
       long backoff = Long.valueOf(
           conns[2].getHeaderField(ShuffleHandler.RETRY_AFTER_HEADER));
       Assert.assertTrue("The backoff value cannot be negative.", backoff > 0);
@@ -989,7 +1494,7 @@ protected void sendError(ChannelHandlerContext ctx, String message,
               HttpResponseStatus status) {
             if (failures.size() == 0) {
               failures.add(new Error(message));
-              ctx.getChannel().close();
+              ctx.channel().close();
             }
           }
           @Override
@@ -1001,7 +1506,8 @@ protected ChannelFuture sendMapOutput(ChannelHandlerContext ctx,
                 new ShuffleHeader("attempt_12345_1_m_1_0", 5678, 5678, 1);
             DataOutputBuffer dob = new DataOutputBuffer();
             header.write(dob);
-            return ch.write(wrappedBuffer(dob.getData(), 0, dob.getLength()));
+            return ch.writeAndFlush(
+                wrappedBuffer(dob.getData(), 0, dob.getLength()));
           }
         };
       }
@@ -1055,24 +1561,26 @@ public void testSendMapCount() throws Exception {
 
     final ChannelHandlerContext mockCtx =
         Mockito.mock(ChannelHandlerContext.class);
-    final MessageEvent mockEvt = Mockito.mock(MessageEvent.class);
-    final Channel mockCh = Mockito.mock(AbstractChannel.class);
+    final Channel mockCh = Mockito.mock(Channel.class);
+    final DefaultAttributeMap attributes = new DefaultAttributeMap();
 
     // Mock HttpRequest and ChannelFuture
-    final HttpRequest mockHttpRequest = createMockHttpRequest();
+    final FullHttpRequest mockHttpRequest = createMockHttpRequest();
     final ChannelFuture mockFuture = createMockChannelFuture(mockCh,
         listenerList);
 
     // Mock Netty Channel Context and Channel behavior
-    Mockito.doReturn(mockCh).when(mockCtx).getChannel();
-    Mockito.when(mockCtx.getChannel()).thenReturn(mockCh);
+    Mockito.doReturn(mockCh).when(mockCtx).channel();
     Mockito.doReturn(mockFuture).when(mockCh).write(Mockito.any(Object.class));
-    Mockito.when(mockCh.write(Object.class)).thenReturn(mockFuture);
-
-    //Mock MessageEvent behavior
-    Mockito.doReturn(mockCh).when(mockEvt).getChannel();
-    Mockito.when(mockEvt.getChannel()).thenReturn(mockCh);
-    Mockito.doReturn(mockHttpRequest).when(mockEvt).getMessage();
+    Mockito.doReturn(mockFuture).when(mockCh)
+        .writeAndFlush(Mockito.any(Object.class));
+    Mockito.doAnswer(new Answer() {
+      @Override
+      public Object answer(InvocationOnMock invocation) throws Throwable {
+        return attributes.attr(
+            (AttributeKey<?>) invocation.getArguments()[0]);
+      }
+    }).when(mockCh).attr(Mockito.any(AttributeKey.class));
 
     final ShuffleHandler sh = new MockShuffleHandler();
     Configuration conf = new Configuration();
@@ -1080,7 +1588,7 @@ public void testSendMapCount() throws Exception {
     sh.start();
     int maxOpenFiles =conf.getInt(ShuffleHandler.SHUFFLE_MAX_SESSION_OPEN_FILES,
         ShuffleHandler.DEFAULT_SHUFFLE_MAX_SESSION_OPEN_FILES);
-    sh.getShuffle(conf).messageReceived(mockCtx, mockEvt);
+    sh.getShuffle(conf).channelRead(mockCtx, mockHttpRequest);
     assertTrue("Number of Open files should not exceed the configured " +
             "value!-Not Expected",
         listenerList.size() <= maxOpenFiles);
@@ -1096,7 +1604,7 @@ public void testSendMapCount() throws Exception {
   public ChannelFuture createMockChannelFuture(Channel mockCh,
       final List<ShuffleHandler.ReduceMapFileCount> listenerList) {
     final ChannelFuture mockFuture = Mockito.mock(ChannelFuture.class);
-    Mockito.when(mockFuture.getChannel()).thenReturn(mockCh);
+    Mockito.when(mockFuture.channel()).thenReturn(mockCh);
     Mockito.doReturn(true).when(mockFuture).isSuccess();
     Mockito.doAnswer(new Answer() {
       @Override
@@ -1113,9 +1621,17 @@ public Object answer(InvocationOnMock invocation) throws Throwable {
     return mockFuture;
   }
 
-  public HttpRequest createMockHttpRequest() {
-    HttpRequest mockHttpRequest = Mockito.mock(HttpRequest.class);
-    Mockito.doReturn(HttpMethod.GET).when(mockHttpRequest).getMethod();
+  public FullHttpRequest createMockHttpRequest() {
+    FullHttpRequest mockHttpRequest = Mockito.mock(FullHttpRequest.class);
+    Mockito.doReturn(DecoderResult.SUCCESS).when(mockHttpRequest)
+        .decoderResult();
+    Mockito.doReturn(HttpMethod.GET).when(mockHttpRequest).method();
+    DefaultHttpHeaders headers = new DefaultHttpHeaders();
+    headers.set(ShuffleHeader.HTTP_HEADER_NAME,
+        ShuffleHeader.DEFAULT_HTTP_HEADER_NAME);
+    headers.set(ShuffleHeader.HTTP_HEADER_VERSION,
+        ShuffleHeader.DEFAULT_HTTP_HEADER_VERSION);
+    Mockito.doReturn(headers).when(mockHttpRequest).headers();
     Mockito.doAnswer(new Answer() {
       @Override
       public Object answer(InvocationOnMock invocation) throws Throwable {
@@ -1124,7 +1640,7 @@ public Object answer(InvocationOnMock invocation) throws Throwable {
           uri = uri.concat("&map=attempt_12345_1_m_" + i + "_0");
         return uri;
       }
-    }).when(mockHttpRequest).getUri();
+    }).when(mockHttpRequest).uri();
     return mockHttpRequest;
   }
 }
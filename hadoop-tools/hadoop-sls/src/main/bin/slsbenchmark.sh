@@ -0,0 +1,83 @@
+#!/usr/bin/env bash
+#
+#  Licensed under the Apache License, Version 2.0 (the "License");
+#  you may not use this file except in compliance with the License.
+#  You may obtain a copy of the License at
+#
+#    http://www.apache.org/licenses/LICENSE-2.0
+#
+#  Unless required by applicable law or agreed to in writing, software
+#  distributed under the License is distributed on an "AS IS" BASIS,
+#  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+#  See the License for the specific language governing permissions and
+#  limitations under the License. See accompanying LICENSE file.
+#
+
+function hadoop_usage()
+{
+  echo "Usage: slsbenchmark.sh <OPTIONS> "
+  echo "                 [--schedulers=<CLASS1,CLASS2,...>]"
+  echo "                 [--output-dir=<SLS_BENCHMARK_OUTPUT_DIRECTORY>]"
+}
+
+function parse_args()
+{
+  for i in "$@"; do
+    case $i in
+      --schedulers=*)
+        schedulers=${i#*=}
+      ;;
+      --output-dir=*)
+        outputdir=${i#*=}
+      ;;
+      *)
+        hadoop_error "ERROR: Invalid option ${i}"
+        hadoop_exit_with_usage 1
+      ;;
+    esac
+  done
+}
+
+function calculate_classpath
+{
+  hadoop_add_to_classpath_tools hadoop-sls
+}
+
+function run_benchmark() {
+  if [[ -n "${schedulers}" ]] ; then
+    hadoop_add_param args -schedulers "-schedulers ${schedulers}"
+  fi
+
+  if [[ -n "${outputdir}" ]] ; then
+    hadoop_add_param args -output "-output ${outputdir}"
+  fi
+
+  hadoop_add_client_opts
+
+  hadoop_finalize
+  # shellcheck disable=SC2086
+  hadoop_java_exec sls org.apache.hadoop.yarn.sls.benchmark.SchedulerBenchmark ${args}
+}
+
+# let's locate libexec...
+if [[ -n "${HADOOP_HOME}" ]]; then
+  HADOOP_DEFAULT_LIBEXEC_DIR="${HADOOP_HOME}/libexec"
+else
+  this="${BASH_SOURCE-$0}"
+  bin=$(cd -P -- "$(dirname -- "${this}")" >/dev/null && pwd -P)
+  HADOOP_DEFAULT_LIBEXEC_DIR="${bin}/../../../../../libexec"
+fi
+
+HADOOP_LIBEXEC_DIR="${HADOOP_LIBEXEC_DIR:-$HADOOP_DEFAULT_LIBEXEC_DIR}"
+# shellcheck disable=SC2034
+HADOOP_NEW_CONFIG=true
+if [[ -f "${HADOOP_LIBEXEC_DIR}/hadoop-config.sh" ]]; then
+  . "${HADOOP_LIBEXEC_DIR}/hadoop-config.sh"
+else
+  echo "ERROR: Cannot execute ${HADOOP_LIBEXEC_DIR}/hadoop-config.sh." 2>&1
+  exit 1
+fi
+
+parse_args "${@}"
+calculate_classpath
+run_benchmark
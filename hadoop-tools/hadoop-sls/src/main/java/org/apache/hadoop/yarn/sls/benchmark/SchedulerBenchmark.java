@@ -0,0 +1,593 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.sls.benchmark;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.UniformReservoir;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.GnuParser;
+import org.apache.commons.cli.Options;
+import org.apache.hadoop.classification.InterfaceAudience.Private;
+import org.apache.hadoop.classification.InterfaceStability.Unstable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.util.Time;
+import org.apache.hadoop.yarn.api.protocolrecords.GetNewApplicationRequest;
+import org.apache.hadoop.yarn.api.protocolrecords.SubmitApplicationRequest;
+import org.apache.hadoop.yarn.api.records.ApplicationAccessType;
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ApplicationSubmissionContext;
+import org.apache.hadoop.yarn.api.records.Container;
+import org.apache.hadoop.yarn.api.records.ContainerExitStatus;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.api.records.ContainerLaunchContext;
+import org.apache.hadoop.yarn.api.records.ContainerState;
+import org.apache.hadoop.yarn.api.records.ContainerStatus;
+import org.apache.hadoop.yarn.api.records.NodeId;
+import org.apache.hadoop.yarn.api.records.Priority;
+import org.apache.hadoop.yarn.api.records.ResourceRequest;
+import org.apache.hadoop.yarn.api.records.UpdateContainerRequest;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.server.resourcemanager.ResourceManager;
+import org.apache.hadoop.yarn.server.resourcemanager.nodelabels.RMNodeLabelsManager;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMApp;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppEventType;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttempt;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttemptState;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.event.RMAppAttemptRegistrationEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNode;
+import org.apache.hadoop.yarn.server.resourcemanager.rmnode.UpdatedContainerInfo;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.Allocation;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.QueueMetrics;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.ResourceScheduler;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.NodeAddedSchedulerEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.NodeUpdateSchedulerEvent;
+import org.apache.hadoop.yarn.sls.conf.SLSConfiguration;
+import org.apache.hadoop.yarn.sls.nodemanager.NodeInfo;
+import org.apache.hadoop.yarn.sls.scheduler.RMNodeWrapper;
+import org.apache.hadoop.yarn.util.Records;
+import org.apache.hadoop.yarn.util.resource.Resources;
+import org.apache.log4j.Logger;
+
+/**
+ * Measures the throughput of a scheduler under a {@link SyntheticWorkload}.
+ *
+ * <p>Unlike {@link org.apache.hadoop.yarn.sls.SLSRunner}, nothing is
+ * simulated in time: the benchmark runs a number of rounds as fast as the
+ * scheduler allows.  In each round, one thread sends a node update for every
+ * node to the scheduler, as the scheduler event dispatcher of the RM does,
+ * while the application masters call allocate from a pool of threads, as the
+ * RPC handlers of the RM do.  The nodes are only known to the scheduler; the
+ * applications are submitted to the RM as unmanaged applications.  Containers
+ * are reported running by the node update following their allocation and
+ * completed after the number of rounds the workload picked for them, and an
+ * application is killed once all its containers completed.</p>
+ *
+ * <p>Each run reports the containers allocated per second, the latency
+ * distribution of node updates, and the time the scheduling threads spent
+ * blocked on monitors or waiting for locks while calling the scheduler.</p>
+ */
+@Private
+@Unstable
+public class SchedulerBenchmark {
+  private static final Logger LOG = Logger.getLogger(SchedulerBenchmark.class);
+
+  private static final int LATENCY_SAMPLES = 1 << 16;
+  private static final Priority PRIORITY = Priority.newInstance(1);
+
+  private final Configuration conf;
+  private final int numNodes;
+  private final int nodesPerRack;
+  private final int numRounds;
+  private final int amThreads;
+  private final int nmMemoryMB;
+  private final int nmVCores;
+  private final long seed;
+
+  /** The outcome of benchmarking one scheduler. */
+  public static class Result {
+    private final String scheduler;
+    private final int nodes;
+    private final int rounds;
+    private final long elapsedMs;
+    private final int appsSubmitted;
+    private final int appsFinished;
+    private final long allocations;
+    private final Snapshot nodeUpdateMicros;
+    private final long blockedCount;
+    private final long blockedMs;
+    private final long waitedCount;
+    private final long waitedMs;
+
+    Result(String scheduler, int nodes, int rounds, long elapsedMs,
+        int appsSubmitted, int appsFinished, long allocations,
+        Snapshot nodeUpdateMicros, long[] contention) {
+      this.scheduler = scheduler;
+      this.nodes = nodes;
+      this.rounds = rounds;
+      this.elapsedMs = elapsedMs;
+      this.appsSubmitted = appsSubmitted;
+      this.appsFinished = appsFinished;
+      this.allocations = allocations;
+      this.nodeUpdateMicros = nodeUpdateMicros;
+      this.blockedCount = contention[0];
+      this.blockedMs = contention[1];
+      this.waitedCount = contention[2];
+      this.waitedMs = contention[3];
+    }
+
+    public long getAllocations() {
+      return allocations;
+    }
+
+    public double getAllocationsPerSecond() {
+      return elapsedMs == 0 ? 0 : allocations * 1000.0 / elapsedMs;
+    }
+
+    public double getRoundsPerSecond() {
+      return elapsedMs == 0 ? 0 : rounds * 1000.0 / elapsedMs;
+    }
+
+    public int getAppsSubmitted() {
+      return appsSubmitted;
+    }
+
+    public int getAppsFinished() {
+      return appsFinished;
+    }
+
+    /** @return node update latencies, in microseconds. */
+    public Snapshot getNodeUpdateMicros() {
+      return nodeUpdateMicros;
+    }
+
+    /**
+     * @return the contention of the scheduling threads, or -1 if the JVM
+     * does not measure it.
+     */
+    public long getBlockedMs() {
+      return blockedMs;
+    }
+
+    public long getWaitedMs() {
+      return waitedMs;
+    }
+
+    Map<String, Object> toMap() {
+      Map<String, Object> map = new LinkedHashMap<String, Object>();
+      map.put("scheduler", scheduler);
+      map.put("nodes", nodes);
+      map.put("rounds", rounds);
+      map.put("elapsed.ms", elapsedMs);
+      map.put("rounds.per.second", getRoundsPerSecond());
+      map.put("apps.submitted", appsSubmitted);
+      map.put("apps.finished", appsFinished);
+      map.put("allocations", allocations);
+      map.put("allocations.per.second", getAllocationsPerSecond());
+      map.put("node.update.us.p50", nodeUpdateMicros.getMedian());
+      map.put("node.update.us.p90", nodeUpdateMicros.getValue(0.9));
+      map.put("node.update.us.p99", nodeUpdateMicros.get99thPercentile());
+      map.put("node.update.us.p999", nodeUpdateMicros.get999thPercentile());
+      map.put("node.update.us.max", nodeUpdateMicros.getMax());
+      map.put("blocked.count", blockedCount);
+      map.put("blocked.ms", blockedMs);
+      map.put("waited.count", waitedCount);
+      map.put("waited.ms", waitedMs);
+      return map;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%s: %d nodes, %d rounds in %d ms (%.1f/s), %d of"
+          + " %d apps finished, %d allocations (%.1f/s); node update us p50"
+          + " %.0f p90 %.0f p99 %.0f p99.9 %.0f max %d; blocked %d times for"
+          + " %d ms, waited %d times for %d ms", scheduler, nodes, rounds,
+          elapsedMs, getRoundsPerSecond(), appsFinished, appsSubmitted,
+          allocations,
+          getAllocationsPerSecond(), nodeUpdateMicros.getMedian(),
+          nodeUpdateMicros.getValue(0.9),
+          nodeUpdateMicros.get99thPercentile(),
+          nodeUpdateMicros.get999thPercentile(), nodeUpdateMicros.getMax(),
+          blockedCount, blockedMs, waitedCount, waitedMs);
+    }
+  }
+
+  public SchedulerBenchmark(Configuration conf) {
+    this.conf = conf;
+    numNodes = conf.getInt(SLSConfiguration.BENCHMARK_NODES,
+        SLSConfiguration.BENCHMARK_NODES_DEFAULT);
+    nodesPerRack = Math.max(1, conf.getInt(
+        SLSConfiguration.BENCHMARK_NODES_PER_RACK,
+        SLSConfiguration.BENCHMARK_NODES_PER_RACK_DEFAULT));
+    numRounds = conf.getInt(SLSConfiguration.BENCHMARK_ROUNDS,
+        SLSConfiguration.BENCHMARK_ROUNDS_DEFAULT);
+    amThreads = Math.max(1, conf.getInt(SLSConfiguration.BENCHMARK_AM_THREADS,
+        SLSConfiguration.BENCHMARK_AM_THREADS_DEFAULT));
+    nmMemoryMB = conf.getInt(SLSConfiguration.NM_MEMORY_MB,
+        SLSConfiguration.NM_MEMORY_MB_DEFAULT);
+    nmVCores = conf.getInt(SLSConfiguration.NM_VCORES,
+        SLSConfiguration.NM_VCORES_DEFAULT);
+    seed = conf.getLong(SLSConfiguration.BENCHMARK_SEED,
+        SLSConfiguration.BENCHMARK_SEED_DEFAULT);
+  }
+
+  /**
+   * Runs the workload against a new RM using the given scheduler.
+   */
+  public Result run(String schedulerClass) throws Exception {
+    Configuration rmConf = new YarnConfiguration();
+    rmConf.set(YarnConfiguration.RM_SCHEDULER, schedulerClass);
+    // the unmanaged application masters register, but then call the
+    // scheduler directly and never heartbeat to the ApplicationMasterService,
+    // keep them alive
+    rmConf.setInt(YarnConfiguration.RM_AM_EXPIRY_INTERVAL_MS,
+        (int) TimeUnit.DAYS.toMillis(1));
+    rmConf.setLong(
+        YarnConfiguration.RM_AMRM_TOKEN_MASTER_KEY_ROLLING_INTERVAL_SECS,
+        TimeUnit.DAYS.toSeconds(4));
+    ResourceManager rm = new ResourceManager();
+    rm.init(rmConf);
+    rm.start();
+    try {
+      return new Run(rm, schedulerClass).execute();
+    } finally {
+      rm.stop();
+      // let the next run start from fresh metrics
+      QueueMetrics.clearQueueMetrics();
+      DefaultMetricsSystem.shutdown();
+    }
+  }
+
+  private static class BenchmarkNode {
+    private final RMNode node;
+    /* containers acquired by their application, reported on the next update */
+    private final Queue<RunningContainer> acquired =
+        new ConcurrentLinkedQueue<RunningContainer>();
+    /* running containers by the round they complete in */
+    private final Map<Integer, List<RunningContainer>> running =
+        new HashMap<Integer, List<RunningContainer>>();
+
+    BenchmarkNode(RMNode node) {
+      this.node = node;
+    }
+  }
+
+  private static class BenchmarkApp {
+    private final ApplicationId appId;
+    private final SyntheticWorkload.AppSpec spec;
+    private final AtomicInteger completed = new AtomicInteger();
+    private ApplicationAttemptId attemptId;
+    private boolean asked;
+
+    BenchmarkApp(ApplicationId appId, SyntheticWorkload.AppSpec spec) {
+      this.appId = appId;
+      this.spec = spec;
+    }
+  }
+
+  private static class RunningContainer {
+    private final ContainerId containerId;
+    private final BenchmarkApp app;
+
+    RunningContainer(ContainerId containerId, BenchmarkApp app) {
+      this.containerId = containerId;
+      this.app = app;
+    }
+  }
+
+  /** The state of benchmarking one scheduler. */
+  private class Run {
+    private final ResourceManager rm;
+    private final ResourceScheduler scheduler;
+    private final String schedulerName;
+    private final SyntheticWorkload workload;
+    private final Map<NodeId, BenchmarkNode> nodes =
+        new LinkedHashMap<NodeId, BenchmarkNode>();
+    private final List<Queue<BenchmarkApp>> newApps =
+        new ArrayList<Queue<BenchmarkApp>>();
+    private final Phaser rounds = new Phaser(1 + amThreads);
+
+    private final Histogram nodeUpdateMicros =
+        new Histogram(new UniformReservoir(LATENCY_SAMPLES));
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicInteger appsFinished = new AtomicInteger();
+    private final ThreadMXBean threadBean =
+        ManagementFactory.getThreadMXBean();
+    /* blocked count and ms, waited count and ms */
+    private final AtomicLong[] contention = {new AtomicLong(),
+        new AtomicLong(), new AtomicLong(), new AtomicLong()};
+    private int appsSubmitted;
+
+    Run(ResourceManager rm, String schedulerClass) {
+      this.rm = rm;
+      this.scheduler = rm.getResourceScheduler();
+      this.schedulerName =
+          schedulerClass.substring(schedulerClass.lastIndexOf('.') + 1);
+      this.workload = new SyntheticWorkload(conf, seed);
+      for (int i = 0; i < amThreads; i++) {
+        newApps.add(new ConcurrentLinkedQueue<BenchmarkApp>());
+      }
+    }
+
+    Result execute() throws Exception {
+      if (threadBean.isThreadContentionMonitoringSupported()) {
+        threadBean.setThreadContentionMonitoringEnabled(true);
+      }
+      for (int i = 0; i < numNodes; i++) {
+        RMNode node = NodeInfo.newNodeInfo("/rack" + (i / nodesPerRack),
+            "node" + i, Resources.createResource(nmMemoryMB, nmVCores));
+        nodes.put(node.getNodeID(), new BenchmarkNode(node));
+        scheduler.handle(new NodeAddedSchedulerEvent(node));
+      }
+      LOG.info("Benchmarking " + schedulerName + " with " + numNodes
+          + " nodes for " + numRounds + " rounds");
+
+      List<Thread> threads = new ArrayList<Thread>();
+      for (int i = 0; i < amThreads; i++) {
+        final Queue<BenchmarkApp> queue = newApps.get(i);
+        Thread thread = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            runAMs(queue);
+          }
+        }, "Benchmark AM #" + i);
+        thread.setDaemon(true);
+        thread.start();
+        threads.add(thread);
+      }
+
+      long start = Time.monotonicNow();
+      try {
+        for (int round = 0; round < numRounds; round++) {
+          for (int i = workload.nextArrivals(); i > 0; i--) {
+            newApps.get(appsSubmitted % amThreads).add(submit());
+            appsSubmitted++;
+          }
+          rounds.arriveAndAwaitAdvance();
+          ThreadInfo before = getThreadInfo();
+          for (BenchmarkNode node : nodes.values()) {
+            update(node, round);
+          }
+          addContention(before, getThreadInfo());
+        }
+        // lets the AM threads finish the last round
+        rounds.arriveAndAwaitAdvance();
+      } finally {
+        rounds.forceTermination();
+      }
+      long elapsed = Time.monotonicNow() - start;
+      for (Thread thread : threads) {
+        thread.join();
+      }
+
+      long[] totals = new long[contention.length];
+      for (int i = 0; i < totals.length; i++) {
+        totals[i] = threadBean.isThreadContentionMonitoringEnabled()
+            ? contention[i].get() : -1;
+      }
+      return new Result(schedulerName, numNodes, numRounds, elapsed,
+          appsSubmitted, appsFinished.get(), allocations.get(),
+          nodeUpdateMicros.getSnapshot(), totals);
+    }
+
+    private BenchmarkApp submit() throws Exception {
+      SyntheticWorkload.AppSpec spec = workload.nextApp();
+      ApplicationId appId = rm.getClientRMService().getNewApplication(
+          Records.newRecord(GetNewApplicationRequest.class))
+          .getApplicationId();
+      ApplicationSubmissionContext appSubContext =
+          Records.newRecord(ApplicationSubmissionContext.class);
+      appSubContext.setApplicationId(appId);
+      appSubContext.setMaxAppAttempts(1);
+      appSubContext.setQueue(spec.getQueue());
+      appSubContext.setPriority(Priority.newInstance(0));
+      ContainerLaunchContext conLauContext =
+          Records.newRecord(ContainerLaunchContext.class);
+      conLauContext.setApplicationACLs(
+          new HashMap<ApplicationAccessType, String>());
+      appSubContext.setAMContainerSpec(conLauContext);
+      appSubContext.setUnmanagedAM(true);
+      SubmitApplicationRequest subAppRequest =
+          Records.newRecord(SubmitApplicationRequest.class);
+      subAppRequest.setApplicationSubmissionContext(appSubContext);
+      rm.getClientRMService().submitApplication(subAppRequest);
+      return new BenchmarkApp(appId, spec);
+    }
+
+    /**
+     * Reports the containers launched and completed since the previous round
+     * on the node, and lets the scheduler allocate on it.
+     */
+    private void update(BenchmarkNode node, int round) {
+      List<ContainerStatus> launched = new ArrayList<ContainerStatus>();
+      List<ContainerStatus> completed = new ArrayList<ContainerStatus>();
+      RunningContainer container;
+      while ((container = node.acquired.poll()) != null) {
+        launched.add(ContainerStatus.newInstance(container.containerId,
+            ContainerState.RUNNING, "", ContainerExitStatus.INVALID));
+        int end = round + container.app.spec.getRounds();
+        List<RunningContainer> ending = node.running.get(end);
+        if (ending == null) {
+          ending = new ArrayList<RunningContainer>();
+          node.running.put(end, ending);
+        }
+        ending.add(container);
+      }
+      List<RunningContainer> ended = node.running.remove(round);
+      if (ended != null) {
+        for (RunningContainer done : ended) {
+          completed.add(ContainerStatus.newInstance(done.containerId,
+              ContainerState.COMPLETE, "", ContainerExitStatus.SUCCESS));
+          done.app.completed.incrementAndGet();
+        }
+      }
+      RMNodeWrapper update = new RMNodeWrapper(node.node,
+          Collections.singletonList(
+              new UpdatedContainerInfo(launched, completed)));
+      long start = System.nanoTime();
+      scheduler.handle(new NodeUpdateSchedulerEvent(update));
+      nodeUpdateMicros.update((System.nanoTime() - start) / 1000);
+    }
+
+    /**
+     * Heartbeats the application masters handed to one thread, once per
+     * round, while the nodes of that round are updated.
+     */
+    private void runAMs(Queue<BenchmarkApp> queue) {
+      List<BenchmarkApp> apps = new ArrayList<BenchmarkApp>();
+      int phase;
+      // the phase is negative once terminated, and past the number of rounds
+      // after the last one
+      while ((phase = rounds.arriveAndAwaitAdvance()) >= 0
+          && phase <= numRounds) {
+        BenchmarkApp app;
+        while ((app = queue.poll()) != null) {
+          apps.add(app);
+        }
+        ThreadInfo before = getThreadInfo();
+        for (Iterator<BenchmarkApp> it = apps.iterator(); it.hasNext();) {
+          if (heartbeat(it.next())) {
+            it.remove();
+            appsFinished.incrementAndGet();
+          }
+        }
+        addContention(before, getThreadInfo());
+      }
+    }
+
+    /** @return whether all containers of the application completed. */
+    @SuppressWarnings("unchecked")
+    private boolean heartbeat(BenchmarkApp app) {
+      RMApp rmApp = rm.getRMContext().getRMApps().get(app.appId);
+      if (app.attemptId == null) {
+        RMAppAttempt attempt = rmApp.getCurrentAppAttempt();
+        if (attempt == null
+            || attempt.getAppAttemptState() != RMAppAttemptState.LAUNCHED) {
+          return false;
+        }
+        app.attemptId = attempt.getAppAttemptId();
+        rm.getRMContext().getDispatcher().getEventHandler().handle(
+            new RMAppAttemptRegistrationEvent(app.attemptId, "localhost", 0,
+                ""));
+        return false;
+      }
+      List<ResourceRequest> ask = Collections.emptyList();
+      if (!app.asked) {
+        if (rmApp.getCurrentAppAttempt().getAppAttemptState()
+            != RMAppAttemptState.RUNNING) {
+          return false;
+        }
+        app.asked = true;
+        // the ask does not pass through the ApplicationMasterService, which
+        // would normalize its label expression
+        ask = Collections.singletonList(ResourceRequest.newInstance(PRIORITY,
+            ResourceRequest.ANY, app.spec.getCapability(),
+            app.spec.getContainers(), true, RMNodeLabelsManager.NO_LABEL));
+      }
+      Allocation allocation = scheduler.allocate(app.attemptId, ask,
+          Collections.<ContainerId>emptyList(),
+          Collections.<String>emptyList(), Collections.<String>emptyList(),
+          Collections.<UpdateContainerRequest>emptyList(),
+          Collections.<UpdateContainerRequest>emptyList());
+      for (Container container : allocation.getContainers()) {
+        nodes.get(container.getNodeId()).acquired.add(
+            new RunningContainer(container.getId(), app));
+        allocations.incrementAndGet();
+      }
+      if (app.completed.get() < app.spec.getContainers()) {
+        return false;
+      }
+      rm.getRMContext().getDispatcher().getEventHandler().handle(
+          new RMAppEvent(app.appId, RMAppEventType.KILL,
+              "All containers completed"));
+      return true;
+    }
+
+    private ThreadInfo getThreadInfo() {
+      return threadBean.getThreadInfo(Thread.currentThread().getId());
+    }
+
+    private void addContention(ThreadInfo before, ThreadInfo after) {
+      contention[0].addAndGet(
+          after.getBlockedCount() - before.getBlockedCount());
+      contention[1].addAndGet(
+          after.getBlockedTime() - before.getBlockedTime());
+      contention[2].addAndGet(
+          after.getWaitedCount() - before.getWaitedCount());
+      contention[3].addAndGet(
+          after.getWaitedTime() - before.getWaitedTime());
+    }
+  }
+
+  public static void main(String args[]) throws Exception {
+    Options options = new Options();
+    options.addOption("schedulers", true,
+        "scheduler classes to benchmark, separated by commas");
+    options.addOption("output", true, "output directory");
+    CommandLine cmd = new GnuParser().parse(options, args);
+
+    Configuration conf = new Configuration(false);
+    conf.addResource("sls-runner.xml");
+    String schedulers = cmd.getOptionValue("schedulers",
+        new YarnConfiguration().get(YarnConfiguration.RM_SCHEDULER,
+            YarnConfiguration.DEFAULT_RM_SCHEDULER));
+
+    SchedulerBenchmark benchmark = new SchedulerBenchmark(conf);
+    List<Map<String, Object>> results = new ArrayList<Map<String, Object>>();
+    for (String scheduler : schedulers.split(",")) {
+      Result result = benchmark.run(scheduler.trim());
+      System.out.println(result);
+      results.add(result.toMap());
+    }
+
+    String output = cmd.getOptionValue("output");
+    if (output != null) {
+      File outputDir = new File(output);
+      if (!outputDir.exists() && !outputDir.mkdirs()) {
+        System.err.println("ERROR: Cannot create output directory "
+            + outputDir.getAbsolutePath());
+        System.exit(1);
+      }
+      new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(
+          new File(outputDir, "benchmark.json"), results);
+    }
+  }
+}
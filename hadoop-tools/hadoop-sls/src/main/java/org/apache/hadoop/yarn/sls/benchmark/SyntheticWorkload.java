@@ -0,0 +1,140 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.sls.benchmark;
+
+import java.util.Random;
+
+import org.apache.hadoop.classification.InterfaceAudience.Private;
+import org.apache.hadoop.classification.InterfaceStability.Unstable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.sls.conf.SLSConfiguration;
+import org.apache.hadoop.yarn.util.resource.Resources;
+
+/**
+ * Generates the applications run by {@link SchedulerBenchmark}.  Applications
+ * arrive at a Poisson distributed number per round and are spread over the
+ * configured queues.  The number of containers of an application, their size
+ * and the number of rounds they run for are uniformly distributed between the
+ * configured bounds; all containers of an application are alike.
+ */
+@Private
+@Unstable
+public class SyntheticWorkload {
+  /** An application of the workload. */
+  public static class AppSpec {
+    private final String queue;
+    private final int containers;
+    private final Resource capability;
+    private final int rounds;
+
+    AppSpec(String queue, int containers, Resource capability, int rounds) {
+      this.queue = queue;
+      this.containers = containers;
+      this.capability = capability;
+      this.rounds = rounds;
+    }
+
+    public String getQueue() {
+      return queue;
+    }
+
+    public int getContainers() {
+      return containers;
+    }
+
+    public Resource getCapability() {
+      return capability;
+    }
+
+    /** @return how many rounds each container runs for. */
+    public int getRounds() {
+      return rounds;
+    }
+  }
+
+  private final Random random;
+  private final String[] queues;
+  private final double appsPerRound;
+  private final int minContainers, maxContainers;
+  private final int minMemoryMB, maxMemoryMB;
+  private final int minVCores, maxVCores;
+  private final int minRounds, maxRounds;
+
+  public SyntheticWorkload(Configuration conf, long seed) {
+    random = new Random(seed);
+    queues = conf.getTrimmedStrings(SLSConfiguration.BENCHMARK_QUEUES,
+        SLSConfiguration.BENCHMARK_QUEUES_DEFAULT);
+    appsPerRound = conf.getFloat(SLSConfiguration.BENCHMARK_APPS_PER_ROUND,
+        SLSConfiguration.BENCHMARK_APPS_PER_ROUND_DEFAULT);
+    minContainers = conf.getInt(SLSConfiguration.BENCHMARK_APP_CONTAINERS_MIN,
+        SLSConfiguration.BENCHMARK_APP_CONTAINERS_MIN_DEFAULT);
+    maxContainers = conf.getInt(SLSConfiguration.BENCHMARK_APP_CONTAINERS_MAX,
+        SLSConfiguration.BENCHMARK_APP_CONTAINERS_MAX_DEFAULT);
+    minMemoryMB = conf.getInt(SLSConfiguration.CONTAINER_MEMORY_MB,
+        SLSConfiguration.CONTAINER_MEMORY_MB_DEFAULT);
+    maxMemoryMB = conf.getInt(
+        SLSConfiguration.BENCHMARK_CONTAINER_MEMORY_MB_MAX, minMemoryMB);
+    minVCores = conf.getInt(SLSConfiguration.CONTAINER_VCORES,
+        SLSConfiguration.CONTAINER_VCORES_DEFAULT);
+    maxVCores = conf.getInt(
+        SLSConfiguration.BENCHMARK_CONTAINER_VCORES_MAX, minVCores);
+    minRounds = conf.getInt(SLSConfiguration.BENCHMARK_CONTAINER_ROUNDS_MIN,
+        SLSConfiguration.BENCHMARK_CONTAINER_ROUNDS_MIN_DEFAULT);
+    maxRounds = conf.getInt(SLSConfiguration.BENCHMARK_CONTAINER_ROUNDS_MAX,
+        SLSConfiguration.BENCHMARK_CONTAINER_ROUNDS_MAX_DEFAULT);
+    if (queues.length == 0 || appsPerRound < 0 || minContainers < 1
+        || maxContainers < minContainers || maxMemoryMB < minMemoryMB
+        || maxVCores < minVCores || minRounds < 1 || maxRounds < minRounds) {
+      throw new IllegalArgumentException("Invalid synthetic workload, check "
+          + SLSConfiguration.BENCHMARK_PREFIX + "* and "
+          + SLSConfiguration.CONTAINER_PREFIX + "*");
+    }
+  }
+
+  /** @return the number of applications arriving in the next round. */
+  public int nextArrivals() {
+    // Knuth's method, in steps so that large rates do not underflow
+    int arrivals = -1;
+    double rate = appsPerRound;
+    double p = 1;
+    do {
+      arrivals++;
+      p *= random.nextDouble();
+      while (p < 1 && rate > 0) {
+        double step = Math.min(rate, 500);
+        p *= Math.exp(step);
+        rate -= step;
+      }
+    } while (p > 1);
+    return arrivals;
+  }
+
+  /** @return the next application to submit. */
+  public AppSpec nextApp() {
+    String queue = queues[random.nextInt(queues.length)];
+    return new AppSpec(queue, uniform(minContainers, maxContainers),
+        Resources.createResource(uniform(minMemoryMB, maxMemoryMB),
+            uniform(minVCores, maxVCores)),
+        uniform(minRounds, maxRounds));
+  }
+
+  private int uniform(int min, int max) {
+    return min + random.nextInt(max - min + 1);
+  }
+}
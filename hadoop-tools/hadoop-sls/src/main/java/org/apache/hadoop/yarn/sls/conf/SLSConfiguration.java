@@ -70,4 +70,41 @@ public class SLSConfiguration {
   public static final String CONTAINER_VCORES = CONTAINER_PREFIX + "vcores";
   public static final int CONTAINER_VCORES_DEFAULT = 1;
 
+  // benchmark
+  public static final String BENCHMARK_PREFIX = PREFIX + "benchmark.";
+  public static final String BENCHMARK_NODES = BENCHMARK_PREFIX + "nodes";
+  public static final int BENCHMARK_NODES_DEFAULT = 10000;
+  public static final String BENCHMARK_NODES_PER_RACK = BENCHMARK_PREFIX
+          + "nodes.per.rack";
+  public static final int BENCHMARK_NODES_PER_RACK_DEFAULT = 40;
+  public static final String BENCHMARK_ROUNDS = BENCHMARK_PREFIX + "rounds";
+  public static final int BENCHMARK_ROUNDS_DEFAULT = 100;
+  public static final String BENCHMARK_AM_THREADS = BENCHMARK_PREFIX
+          + "am.threads";
+  public static final int BENCHMARK_AM_THREADS_DEFAULT = 10;
+  public static final String BENCHMARK_SEED = BENCHMARK_PREFIX + "seed";
+  public static final long BENCHMARK_SEED_DEFAULT = 1;
+  // synthetic workload
+  public static final String BENCHMARK_QUEUES = BENCHMARK_PREFIX + "queues";
+  public static final String BENCHMARK_QUEUES_DEFAULT = "default";
+  public static final String BENCHMARK_APPS_PER_ROUND = BENCHMARK_PREFIX
+          + "apps.per.round";
+  public static final float BENCHMARK_APPS_PER_ROUND_DEFAULT = 10;
+  public static final String BENCHMARK_APP_CONTAINERS_MIN = BENCHMARK_PREFIX
+          + "app.containers.min";
+  public static final int BENCHMARK_APP_CONTAINERS_MIN_DEFAULT = 1;
+  public static final String BENCHMARK_APP_CONTAINERS_MAX = BENCHMARK_PREFIX
+          + "app.containers.max";
+  public static final int BENCHMARK_APP_CONTAINERS_MAX_DEFAULT = 100;
+  public static final String BENCHMARK_CONTAINER_MEMORY_MB_MAX =
+          BENCHMARK_PREFIX + "container.memory.mb.max";
+  public static final String BENCHMARK_CONTAINER_VCORES_MAX =
+          BENCHMARK_PREFIX + "container.vcores.max";
+  public static final String BENCHMARK_CONTAINER_ROUNDS_MIN = BENCHMARK_PREFIX
+          + "container.rounds.min";
+  public static final int BENCHMARK_CONTAINER_ROUNDS_MIN_DEFAULT = 1;
+  public static final String BENCHMARK_CONTAINER_ROUNDS_MAX = BENCHMARK_PREFIX
+          + "container.rounds.max";
+  public static final int BENCHMARK_CONTAINER_ROUNDS_MAX_DEFAULT = 10;
+
 }
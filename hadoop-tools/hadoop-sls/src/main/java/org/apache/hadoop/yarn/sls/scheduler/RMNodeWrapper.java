@@ -50,6 +50,11 @@ public RMNodeWrapper(RMNode node) {
     this.node = node;
     updates = node.pullContainerUpdates();
   }
+
+  public RMNodeWrapper(RMNode node, List<UpdatedContainerInfo> updates) {
+    this.node = node;
+    this.updates = updates;
+  }
   
   @Override
   public NodeId getNodeID() {
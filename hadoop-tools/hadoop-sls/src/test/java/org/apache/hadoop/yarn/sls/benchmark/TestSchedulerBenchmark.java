@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.sls.benchmark;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.CapacityScheduler;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.fair.FairScheduler;
+import org.apache.hadoop.yarn.sls.conf.SLSConfiguration;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSchedulerBenchmark {
+
+  private Configuration createConf() {
+    Configuration conf = new Configuration(false);
+    conf.setInt(SLSConfiguration.BENCHMARK_NODES, 20);
+    conf.setInt(SLSConfiguration.BENCHMARK_NODES_PER_RACK, 5);
+    conf.setInt(SLSConfiguration.BENCHMARK_ROUNDS, 3000);
+    conf.setInt(SLSConfiguration.BENCHMARK_AM_THREADS, 2);
+    conf.set(SLSConfiguration.BENCHMARK_QUEUES,
+        "sls_queue_1,sls_queue_2,sls_queue_3");
+    conf.setFloat(SLSConfiguration.BENCHMARK_APPS_PER_ROUND, 0.01f);
+    conf.setInt(SLSConfiguration.BENCHMARK_APP_CONTAINERS_MAX, 10);
+    conf.setInt(SLSConfiguration.BENCHMARK_CONTAINER_MEMORY_MB_MAX, 2048);
+    conf.setInt(SLSConfiguration.BENCHMARK_CONTAINER_VCORES_MAX, 2);
+    conf.setInt(SLSConfiguration.BENCHMARK_CONTAINER_ROUNDS_MAX, 5);
+    return conf;
+  }
+
+  @Test
+  public void testSyntheticWorkload() {
+    SyntheticWorkload workload = new SyntheticWorkload(createConf(), 1);
+    int arrivals = 0;
+    for (int i = 0; i < 10000; i++) {
+      arrivals += workload.nextArrivals();
+    }
+    // mean 100, standard deviation 10
+    Assert.assertTrue("Unexpected arrivals " + arrivals,
+        arrivals > 50 && arrivals < 150);
+    for (int i = 0; i < 100; i++) {
+      SyntheticWorkload.AppSpec app = workload.nextApp();
+      Assert.assertTrue(app.getQueue().startsWith("sls_queue_"));
+      Assert.assertTrue(app.getContainers() >= 1
+          && app.getContainers() <= 10);
+      Assert.assertTrue(app.getCapability().getMemorySize() >= 1024
+          && app.getCapability().getMemorySize() <= 2048);
+      Assert.assertTrue(app.getCapability().getVirtualCores() >= 1
+          && app.getCapability().getVirtualCores() <= 2);
+      Assert.assertTrue(app.getRounds() >= 1 && app.getRounds() <= 5);
+    }
+
+    Configuration conf = createConf();
+    conf.setFloat(SLSConfiguration.BENCHMARK_APPS_PER_ROUND, 2000);
+    workload = new SyntheticWorkload(conf, 1);
+    arrivals = workload.nextArrivals();
+    Assert.assertTrue("Unexpected arrivals " + arrivals,
+        arrivals > 1800 && arrivals < 2200);
+  }
+
+  @Test (timeout = 120000)
+  public void testBenchmark() throws Exception {
+    SchedulerBenchmark benchmark = new SchedulerBenchmark(createConf());
+    for (Class<?> scheduler :
+        new Class<?>[] {CapacityScheduler.class, FairScheduler.class}) {
+      SchedulerBenchmark.Result result = benchmark.run(scheduler.getName());
+      Assert.assertTrue(result.toString(), result.getAppsSubmitted() > 0);
+      Assert.assertTrue(result.toString(), result.getAppsFinished() > 0);
+      Assert.assertTrue(result.toString(), result.getAllocations() > 0);
+      Assert.assertTrue(result.toString(),
+          result.getAllocationsPerSecond() > 0);
+      Assert.assertTrue(result.toString(), result.getRoundsPerSecond() > 0);
+      Assert.assertEquals(result.toString(), 3000 * 20,
+          result.getNodeUpdateMicros().size());
+    }
+  }
+}
@@ -162,6 +162,15 @@ private static void addDeprecatedKeys() {
       RM_PREFIX + "amlauncher.thread-count";
   public static final int DEFAULT_RM_AMLAUNCHER_THREAD_COUNT = 50;
 
+  /**
+   * Number of event queues of the RM dispatcher.  Events of applications and
+   * nodes are spread over them by application and node, other events go to
+   * the first one.
+   */
+  public static final String RM_DISPATCHER_SHARDS =
+      RM_PREFIX + "dispatcher.shards";
+  public static final int DEFAULT_RM_DISPATCHER_SHARDS = 1;
+
   /** Retry times to connect with NM.*/
   public static final String RM_NODEMANAGER_CONNECT_RETRIES =
       RM_PREFIX + "nodemanager-connect-retries";
@@ -494,6 +503,29 @@ public static boolean isAclEnabled(Configuration conf) {
       RM_PREFIX + "nodemanagers.heartbeat-interval-ms";
   public static final long DEFAULT_RM_NM_HEARTBEAT_INTERVAL_MS = 1000;
 
+  /**
+   * Whether the RM lengthens the heartbeat interval of NMs on which nothing
+   * changes, up to {@link #RM_NM_HEARTBEAT_INTERVAL_MAX_MS}.
+   */
+  public static final String RM_NM_HEARTBEAT_INTERVAL_SCALING_ENABLE =
+      RM_PREFIX + "nodemanagers.heartbeat-interval-scaling-enable";
+  public static final boolean DEFAULT_RM_NM_HEARTBEAT_INTERVAL_SCALING_ENABLE =
+      false;
+
+  /** Longest heartbeat interval the RM sets for an idle NM. */
+  public static final String RM_NM_HEARTBEAT_INTERVAL_MAX_MS =
+      RM_PREFIX + "nodemanagers.heartbeat-interval-max-ms";
+  public static final long DEFAULT_RM_NM_HEARTBEAT_INTERVAL_MAX_MS = 10000;
+
+  /**
+   * Whether NM heartbeats which neither report container changes nor leave
+   * room for pending requests skip the scheduler.
+   */
+  public static final String RM_NODE_UPDATE_COALESCING_ENABLED =
+      RM_PREFIX + "node-update-coalescing.enabled";
+  public static final boolean DEFAULT_RM_NODE_UPDATE_COALESCING_ENABLED =
+      false;
+
   /** Number of worker threads that write the history data. */
   public static final String RM_HISTORY_WRITER_MULTI_THREADED_DISPATCHER_POOL_SIZE =
       RM_PREFIX + "history-writer.multi-threaded-dispatcher.pool-size";
@@ -600,6 +632,29 @@ public static boolean isAclEnabled(Configuration conf) {
   public static final String ZK_RM_STATE_STORE_ROOT_NODE_ACL =
       ZK_STATE_STORE_PREFIX + "root-node.acl";
 
+  /**
+   * Maximum number of application and attempt store operations the
+   * ZKRMStateStore commits in one ZooKeeper transaction.  1 commits each
+   * operation on its own.
+   */
+  public static final String ZK_RM_STATE_STORE_BATCH_MAX_OPS =
+      ZK_STATE_STORE_PREFIX + "batch.max-ops";
+  public static final int DEFAULT_ZK_RM_STATE_STORE_BATCH_MAX_OPS = 1;
+
+  /** How long a store operation may wait for others to join its batch. */
+  public static final String ZK_RM_STATE_STORE_BATCH_WAIT_MS =
+      ZK_STATE_STORE_PREFIX + "batch.wait-ms";
+  public static final long DEFAULT_ZK_RM_STATE_STORE_BATCH_WAIT_MS = 10;
+
+  /**
+   * Application states larger than this many bytes are stored compressed.
+   * A negative value disables compression.
+   */
+  public static final String ZK_RM_STATE_STORE_COMPRESSION_THRESHOLD_BYTES =
+      ZK_STATE_STORE_PREFIX + "compression.threshold-bytes";
+  public static final int
+      DEFAULT_ZK_RM_STATE_STORE_COMPRESSION_THRESHOLD_BYTES = -1;
+
   /** HA related configs */
   public static final String RM_HA_PREFIX = RM_PREFIX + "ha.";
   public static final String RM_HA_ENABLED = RM_HA_PREFIX + "enabled";
@@ -749,7 +749,7 @@ private synchronized ResourcePBImpl convertFromProtoFormat(ResourceProto p) {
   }
 
   private synchronized ResourceProto convertToProtoFormat(Resource r) {
-    return ((ResourcePBImpl) r).getProto();
+    return ResourcePBImpl.getProto(r);
   }
 
   private synchronized PreemptionMessagePBImpl convertFromProtoFormat(PreemptionMessageProto p) {
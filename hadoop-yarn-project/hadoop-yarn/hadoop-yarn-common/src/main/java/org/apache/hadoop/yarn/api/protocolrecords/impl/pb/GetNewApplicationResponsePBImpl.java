@@ -164,7 +164,7 @@ private Resource convertFromProtoFormat(ResourceProto resource) {
   }
 
   private ResourceProto convertToProtoFormat(Resource resource) {
-	  return ((ResourcePBImpl)resource).getProto();
+	  return ResourcePBImpl.getProto(resource);
   }
 
 }  
@@ -438,7 +438,7 @@ private Resource convertFromProtoFormat(ResourceProto resource) {
   }
 
   private ResourceProto convertToProtoFormat(Resource resource) {
-    return ((ResourcePBImpl)resource).getProto();
+    return ResourcePBImpl.getProto(resource);
   }
 
   private ContainerPBImpl convertFromProtoFormat(ContainerProto p) {
@@ -80,18 +80,18 @@ public String toString() {
 
   private void mergeLocalToBuilder() {
     if (this.usedResources != null
-        && !((ResourcePBImpl) this.usedResources).getProto().equals(
+        && !ResourcePBImpl.getProto(this.usedResources).equals(
             builder.getUsedResources())) {
       builder.setUsedResources(convertToProtoFormat(this.usedResources));
     }
     if (this.reservedResources != null
-        && !((ResourcePBImpl) this.reservedResources).getProto().equals(
+        && !ResourcePBImpl.getProto(this.reservedResources).equals(
             builder.getReservedResources())) {
       builder.setReservedResources(
           convertToProtoFormat(this.reservedResources));
     }
     if (this.neededResources != null
-        && !((ResourcePBImpl) this.neededResources).getProto().equals(
+        && !ResourcePBImpl.getProto(this.neededResources).equals(
             builder.getNeededResources())) {
       builder.setNeededResources(convertToProtoFormat(this.neededResources));
     }
@@ -229,7 +229,7 @@ private ResourcePBImpl convertFromProtoFormat(ResourceProto p) {
   }
 
   private ResourceProto convertToProtoFormat(Resource t) {
-    return ((ResourcePBImpl)t).getProto();
+    return ResourcePBImpl.getProto(t);
   }
 
   @Override
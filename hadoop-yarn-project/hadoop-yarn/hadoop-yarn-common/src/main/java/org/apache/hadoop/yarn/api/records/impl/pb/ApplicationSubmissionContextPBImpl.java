@@ -119,7 +119,7 @@ private void mergeLocalToBuilder() {
       builder.setAmContainerSpec(convertToProtoFormat(this.amContainer));
     }
     if (this.resource != null &&
-        !((ResourcePBImpl) this.resource).getProto().equals(
+        !ResourcePBImpl.getProto(this.resource).equals(
             builder.getResource())) {
       builder.setResource(convertToProtoFormat(this.resource));
     }
@@ -462,7 +462,7 @@ private ResourcePBImpl convertFromProtoFormat(ResourceProto p) {
   }
 
   private ResourceProto convertToProtoFormat(Resource t) {
-    return ((ResourcePBImpl)t).getProto();
+    return ResourcePBImpl.getProto(t);
   }
 
   @Override
@@ -271,7 +271,7 @@ private void mergeLocalToBuilder() {
       builder.setNodeId(convertToProtoFormat(this.nodeId));
     }
     if (this.resource != null
-        && !((ResourcePBImpl) this.resource).getProto().equals(
+        && !ResourcePBImpl.getProto(this.resource).equals(
           builder.getResource())) {
       builder.setResource(convertToProtoFormat(this.resource));
     }
@@ -318,7 +318,7 @@ private ResourcePBImpl convertFromProtoFormat(ResourceProto p) {
   }
 
   private ResourceProto convertToProtoFormat(Resource t) {
-    return ((ResourcePBImpl) t).getProto();
+    return ResourcePBImpl.getProto(t);
   }
 
   private PriorityPBImpl convertFromProtoFormat(PriorityProto p) {
@@ -339,7 +339,7 @@ private ExecutionTypeProto convertToProtoFormat(ExecutionType e) {
   }
 
   private ResourceProto convertToProtoFormat(Resource e) {
-    return ((ResourcePBImpl)e).getProto();
+    return ResourcePBImpl.getProto(e);
   }
 
   private ResourcePBImpl convertFromProtoFormat(ResourceProto p) {
@@ -254,12 +254,12 @@ private void mergeLocalToBuilder() {
       builder.setNodeId(convertToProtoFormat(this.nodeId));
     }
     if (this.used != null
-        && !((ResourcePBImpl) this.used).getProto().equals(
+        && !ResourcePBImpl.getProto(this.used).equals(
             builder.getUsed())) {
       builder.setUsed(convertToProtoFormat(this.used));
     }
     if (this.capability != null
-        && !((ResourcePBImpl) this.capability).getProto().equals(
+        && !ResourcePBImpl.getProto(this.capability).equals(
             builder.getCapability())) {
       builder.setCapability(convertToProtoFormat(this.capability));
     }
@@ -310,7 +310,7 @@ private ResourcePBImpl convertFromProtoFormat(ResourceProto p) {
   }
 
   private ResourceProto convertToProtoFormat(Resource r) {
-    return ((ResourcePBImpl) r).getProto();
+    return ResourcePBImpl.getProto(r);
   }
 
   private ResourceUtilizationPBImpl convertFromProtoFormat(
@@ -344,7 +344,7 @@ public static ContainerUpdateType convertFromProtoFormat(
    * Resource
    */
   public static synchronized ResourceProto convertToProtoFormat(Resource r) {
-    return ((ResourcePBImpl) r).getProto();
+    return ResourcePBImpl.getProto(r);
   }
 
   public static Resource convertFromProtoFormat(ResourceProto resource) {
@@ -146,7 +146,7 @@ private ResourcePBImpl convertFromProtoFormat(ResourceProto p) {
   }
 
   private ResourceProto convertToProtoFormat(Resource p) {
-    return ((ResourcePBImpl)p).getProto();
+    return ResourcePBImpl.getProto(p);
   }
 
   private void mergeLocalToBuilder() {
@@ -80,7 +80,7 @@ private void maybeInitBuilder() {
   
   private ResourceProto convertToProtoFormat(
       Resource resource) {
-    return ((ResourcePBImpl)resource).getProto();
+    return ResourcePBImpl.getProto(resource);
   }
   
   private ResourcePBImpl convertFromProtoFormat(
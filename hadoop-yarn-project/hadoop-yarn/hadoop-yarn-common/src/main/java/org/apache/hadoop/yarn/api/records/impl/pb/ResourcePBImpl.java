@@ -47,6 +47,21 @@ public ResourceProto getProto() {
     return proto;
   }
 
+  /**
+   * Get the proto of a resource of any implementation, such as the ones the
+   * scheduler creates through {@link
+   * org.apache.hadoop.yarn.util.resource.Resources}.
+   */
+  public static ResourceProto getProto(Resource r) {
+    if (r instanceof ResourcePBImpl) {
+      return ((ResourcePBImpl) r).getProto();
+    }
+    return ResourceProto.newBuilder()
+        .setMemory(r.getMemorySize())
+        .setVirtualCores(r.getVirtualCores())
+        .build();
+  }
+
   private void maybeInitBuilder() {
     if (viaProto || builder == null) {
       builder = ResourceProto.newBuilder(proto);
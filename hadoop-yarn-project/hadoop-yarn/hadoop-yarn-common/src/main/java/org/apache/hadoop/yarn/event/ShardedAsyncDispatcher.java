@@ -0,0 +1,197 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.event;
+
+import static org.apache.hadoop.metrics2.lib.Interns.info;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.classification.InterfaceAudience.Public;
+import org.apache.hadoop.classification.InterfaceStability.Unstable;
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.metrics2.MetricsSource;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableRate;
+import org.apache.hadoop.service.CompositeService;
+import org.apache.hadoop.util.Time;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * Dispatches {@link Event}s on several threads, each with its own queue.
+ * Events are spread over the shards by the key {@link #getShardKey(Event)}
+ * gives them, so the events of one entity are handled in the order they
+ * were sent, while those of different entities are handled in parallel.
+ * Events without a key all go to the first shard.
+ *
+ * <p>The queue size and dispatch time of every shard are published as
+ * metrics under the name of the dispatcher.</p>
+ */
+@SuppressWarnings("rawtypes")
+@Public
+@Unstable
+public abstract class ShardedAsyncDispatcher extends CompositeService
+    implements Dispatcher, MetricsSource {
+
+  private static final Log LOG =
+      LogFactory.getLog(ShardedAsyncDispatcher.class);
+
+  private final List<ShardDispatcher> shards;
+  private final EventHandler handlerInstance = new ShardingEventHandler();
+  private final MetricsRegistry registry;
+
+  /**
+   * @param name the name of the dispatcher, and of its metrics
+   * @param numShards the number of event queues and threads
+   */
+  public ShardedAsyncDispatcher(String name, int numShards) {
+    super(name);
+    registry = new MetricsRegistry(info(name, "Sharded event dispatcher"));
+    numShards = Math.max(1, numShards);
+    shards = new ArrayList<ShardDispatcher>(numShards);
+    for (int i = 0; i < numShards; i++) {
+      ShardDispatcher shard = new ShardDispatcher(registry.newRate(
+          "Shard" + i + "Dispatch", "Time to dispatch an event on shard " + i,
+          false));
+      shards.add(shard);
+      addService(shard);
+    }
+  }
+
+  /**
+   * @param event an event about to be queued
+   * @return the entity whose events have to stay in order, or null if the
+   * event has none
+   */
+  protected abstract Object getShardKey(Event event);
+
+  @VisibleForTesting
+  int getShard(Event event) {
+    Object key = getShardKey(event);
+    return key == null ? 0 : (key.hashCode() & Integer.MAX_VALUE)
+        % shards.size();
+  }
+
+  public int getNumShards() {
+    return shards.size();
+  }
+
+  @VisibleForTesting
+  public int getQueueSize(int shard) {
+    return shards.get(shard).getQueueSize();
+  }
+
+  @Override
+  protected void serviceStart() throws Exception {
+    super.serviceStart();
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    // A dispatcher replacing one of the same name, as the RM does on every
+    // HA transition, starts before the old one stops; it takes the metrics
+    // over instead of failing to register them.
+    if (ms.getSource(getName()) != null) {
+      ms.unregisterSource(getName());
+    }
+    try {
+      ms.register(getName(), "Sharded event dispatcher", this);
+    } catch (RuntimeException e) {
+      LOG.warn("Unable to register metrics of " + getName(), e);
+    }
+  }
+
+  @Override
+  protected void serviceStop() throws Exception {
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    if (ms.getSource(getName()) == this) {
+      ms.unregisterSource(getName());
+    }
+    super.serviceStop();
+  }
+
+  public void setDrainEventsOnStop() {
+    for (ShardDispatcher shard : shards) {
+      shard.setDrainEventsOnStop();
+    }
+  }
+
+  @Override
+  public void register(Class<? extends Enum> eventType,
+      EventHandler handler) {
+    for (ShardDispatcher shard : shards) {
+      shard.register(eventType, handler);
+    }
+  }
+
+  @Override
+  public EventHandler getEventHandler() {
+    return handlerInstance;
+  }
+
+  @Override
+  public void getMetrics(MetricsCollector collector, boolean all) {
+    MetricsRecordBuilder rb = collector.addRecord(registry.info());
+    for (int i = 0; i < shards.size(); i++) {
+      rb.addGauge(info("Shard" + i + "QueueSize",
+          "Events waiting on shard " + i), shards.get(i).getQueueSize());
+    }
+    registry.snapshot(rb, all);
+  }
+
+  private class ShardingEventHandler implements EventHandler<Event> {
+    @SuppressWarnings("unchecked")
+    @Override
+    public void handle(Event event) {
+      shards.get(getShard(event)).getEventHandler().handle(event);
+    }
+  }
+
+  /** One queue and thread of the dispatcher. */
+  private static class ShardDispatcher extends AsyncDispatcher {
+    private final BlockingQueue<Event> queue;
+    private final MutableRate dispatchTime;
+
+    ShardDispatcher(MutableRate dispatchTime) {
+      this(new LinkedBlockingQueue<Event>(), dispatchTime);
+    }
+
+    private ShardDispatcher(BlockingQueue<Event> queue,
+        MutableRate dispatchTime) {
+      super(queue);
+      this.queue = queue;
+      this.dispatchTime = dispatchTime;
+    }
+
+    int getQueueSize() {
+      return queue.size();
+    }
+
+    @Override
+    protected void dispatch(Event event) {
+      long start = Time.monotonicNow();
+      super.dispatch(event);
+      dispatchTime.add(Time.monotonicNow() - start);
+    }
+  }
+}
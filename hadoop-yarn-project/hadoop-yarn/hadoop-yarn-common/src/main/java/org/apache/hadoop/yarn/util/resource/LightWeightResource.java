@@ -0,0 +1,81 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.hadoop.yarn.util.resource;
+
+import org.apache.hadoop.classification.InterfaceAudience.Private;
+import org.apache.hadoop.classification.InterfaceStability.Unstable;
+import org.apache.hadoop.yarn.api.records.Resource;
+
+/**
+ * A {@link Resource} which only holds its values, for the resources the
+ * scheduler computes with.
+ *
+ * A protobuf backed resource keeps a builder and rebuilds its proto whenever
+ * it is read after a change, which makes the many short lived resources of
+ * scheduling costly. A resource of this class is converted to a proto only
+ * if it is set in a record sent over the wire.
+ */
+@Private
+@Unstable
+class LightWeightResource extends Resource {
+  private long memory;
+  private int vcores;
+
+  LightWeightResource(long memory, int vcores) {
+    this.memory = memory;
+    this.vcores = vcores;
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public int getMemory() {
+    return (int) memory;
+  }
+
+  @Override
+  public long getMemorySize() {
+    return memory;
+  }
+
+  @Override
+  @SuppressWarnings("deprecation")
+  public void setMemory(int memory) {
+    this.memory = memory;
+  }
+
+  @Override
+  public void setMemorySize(long memory) {
+    this.memory = memory;
+  }
+
+  @Override
+  public int getVirtualCores() {
+    return vcores;
+  }
+
+  @Override
+  public void setVirtualCores(int vcores) {
+    this.vcores = vcores;
+  }
+
+  @Override
+  public int compareTo(Resource other) {
+    int diff = Long.compare(memory, other.getMemorySize());
+    return diff != 0 ? diff : Integer.compare(vcores, other.getVirtualCores());
+  }
+}
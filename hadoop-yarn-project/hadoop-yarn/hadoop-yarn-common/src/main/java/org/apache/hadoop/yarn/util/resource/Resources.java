@@ -21,7 +21,6 @@
 import org.apache.hadoop.classification.InterfaceAudience;
 import org.apache.hadoop.classification.InterfaceStability.Unstable;
 import org.apache.hadoop.yarn.api.records.Resource;
-import org.apache.hadoop.yarn.util.Records;
 
 @InterfaceAudience.LimitedPrivate({"YARN", "MapReduce"})
 @Unstable
@@ -123,21 +122,20 @@ public static Resource createResource(int memory) {
   }
 
   public static Resource createResource(int memory, int cores) {
-    Resource resource = Records.newRecord(Resource.class);
-    resource.setMemorySize(memory);
-    resource.setVirtualCores(cores);
-    return resource;
+    return new LightWeightResource(memory, cores);
   }
 
   public static Resource createResource(long memory) {
     return createResource(memory, (memory > 0) ? 1 : 0);
   }
 
+  /**
+   * Create a resource to compute with. It is not backed by a protobuf, which
+   * makes it cheap to create and update; it is converted when it is set in a
+   * record.
+   */
   public static Resource createResource(long memory, int cores) {
-    Resource resource = Records.newRecord(Resource.class);
-    resource.setMemorySize(memory);
-    resource.setVirtualCores(cores);
-    return resource;
+    return new LightWeightResource(memory, cores);
   }
 
   public static Resource none() {
@@ -152,6 +150,16 @@ public static Resource clone(Resource res) {
     return createResource(res.getMemorySize(), res.getVirtualCores());
   }
 
+  /**
+   * Set the values of {@code lhs} to the ones of {@code rhs}, which reuses
+   * {@code lhs} where {@link #clone(Resource)} would create a resource.
+   */
+  public static Resource setTo(Resource lhs, Resource rhs) {
+    lhs.setMemorySize(rhs.getMemorySize());
+    lhs.setVirtualCores(rhs.getVirtualCores());
+    return lhs;
+  }
+
   public static Resource addTo(Resource lhs, Resource rhs) {
     lhs.setMemorySize(lhs.getMemorySize() + rhs.getMemorySize());
     lhs.setVirtualCores(lhs.getVirtualCores() + rhs.getVirtualCores());
@@ -172,6 +180,17 @@ public static Resource subtract(Resource lhs, Resource rhs) {
     return subtractFrom(clone(lhs), rhs);
   }
 
+  /**
+   * Subtract {@code rhs} from {@code lhs}, and set the values which became
+   * negative to zero, without creating any new {@link Resource} object
+   */
+  public static Resource subtractFromNonNegative(Resource lhs, Resource rhs) {
+    lhs.setMemorySize(Math.max(0, lhs.getMemorySize() - rhs.getMemorySize()));
+    lhs.setVirtualCores(
+        Math.max(0, lhs.getVirtualCores() - rhs.getVirtualCores()));
+    return lhs;
+  }
+
   public static Resource negate(Resource resource) {
     return subtract(NONE, resource);
   }
@@ -308,6 +327,16 @@ public static boolean fitsIn(ResourceCalculator rc, Resource cluster,
     return rc.fitsIn(cluster, smaller, bigger);
   }
   
+  /**
+   * Set {@code lhs} to the component-wise minimum of itself and {@code rhs}
+   * without creating any new {@link Resource} object
+   */
+  public static Resource componentwiseMinTo(Resource lhs, Resource rhs) {
+    lhs.setMemorySize(Math.min(lhs.getMemorySize(), rhs.getMemorySize()));
+    lhs.setVirtualCores(Math.min(lhs.getVirtualCores(), rhs.getVirtualCores()));
+    return lhs;
+  }
+
   public static Resource componentwiseMin(Resource lhs, Resource rhs) {
     return createResource(Math.min(lhs.getMemorySize(), rhs.getMemorySize()),
         Math.min(lhs.getVirtualCores(), rhs.getVirtualCores()));
@@ -0,0 +1,170 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.event;
+
+import static org.apache.hadoop.test.MetricsAsserts.assertCounter;
+import static org.apache.hadoop.test.MetricsAsserts.assertGauge;
+import static org.apache.hadoop.test.MetricsAsserts.getMetrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.metrics2.MetricsRecordBuilder;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestShardedAsyncDispatcher {
+
+  private enum KeyedEventType {
+    TEST
+  }
+
+  private static class KeyedEvent extends AbstractEvent<KeyedEventType> {
+    private final String key;
+    private final int seq;
+
+    KeyedEvent(String key, int seq) {
+      super(KeyedEventType.TEST);
+      this.key = key;
+      this.seq = seq;
+    }
+  }
+
+  private static class KeyedDispatcher extends ShardedAsyncDispatcher {
+    KeyedDispatcher(int numShards) {
+      super("TestShardedAsyncDispatcher", numShards);
+    }
+
+    @Override
+    protected Object getShardKey(Event event) {
+      return event instanceof KeyedEvent ? ((KeyedEvent) event).key : null;
+    }
+  }
+
+  @Test
+  public void testShardSelection() {
+    KeyedDispatcher disp = new KeyedDispatcher(4);
+    Assert.assertEquals(4, disp.getNumShards());
+    Assert.assertEquals(0, disp.getShard(new Event<KeyedEventType>() {
+      @Override
+      public KeyedEventType getType() {
+        return KeyedEventType.TEST;
+      }
+
+      @Override
+      public long getTimestamp() {
+        return -1;
+      }
+    }));
+    Assert.assertEquals(disp.getShard(new KeyedEvent("app1", 0)),
+        disp.getShard(new KeyedEvent("app1", 1)));
+    Assert.assertEquals(1, new KeyedDispatcher(0).getNumShards());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test(timeout = 10000)
+  public void testEventsOfAKeyStayInOrder() throws Exception {
+    final int keys = 16;
+    final int eventsPerKey = 200;
+    final Map<String, List<Integer>> seen =
+        new HashMap<String, List<Integer>>();
+    final Set<String> threads =
+        Collections.synchronizedSet(new HashSet<String>());
+    final CountDownLatch done = new CountDownLatch(keys * eventsPerKey);
+    for (int k = 0; k < keys; k++) {
+      seen.put("key" + k,
+          Collections.synchronizedList(new ArrayList<Integer>()));
+    }
+
+    KeyedDispatcher disp = new KeyedDispatcher(4);
+    disp.register(KeyedEventType.class, new EventHandler<KeyedEvent>() {
+      @Override
+      public void handle(KeyedEvent event) {
+        seen.get(event.key).add(event.seq);
+        threads.add(Thread.currentThread().getName() + "@"
+            + System.identityHashCode(Thread.currentThread()));
+        done.countDown();
+      }
+    });
+    disp.init(new Configuration());
+    disp.start();
+    for (int i = 0; i < eventsPerKey; i++) {
+      for (int k = 0; k < keys; k++) {
+        disp.getEventHandler().handle(new KeyedEvent("key" + k, i));
+      }
+    }
+    Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+    disp.stop();
+
+    for (List<Integer> events : seen.values()) {
+      Assert.assertEquals(eventsPerKey, events.size());
+      for (int i = 0; i < eventsPerKey; i++) {
+        Assert.assertEquals("Events of a key out of order",
+            i, (int) events.get(i));
+      }
+    }
+    Assert.assertTrue("Events not handled in parallel", threads.size() > 1);
+
+    MetricsRecordBuilder rb = getMetrics(disp);
+    for (int i = 0; i < disp.getNumShards(); i++) {
+      assertGauge("Shard" + i + "QueueSize", 0, rb);
+      Assert.assertEquals(0, disp.getQueueSize(i));
+    }
+    assertCounter("Shard" + disp.getShard(new KeyedEvent("key0", 0))
+        + "DispatchNumOps", (long) eventsPerKey
+        * countKeysOnShardOf(disp, "key0", keys), rb);
+  }
+
+  @Test
+  public void testReplacingDispatcherTakesOverMetrics() {
+    KeyedDispatcher old = new KeyedDispatcher(2);
+    old.init(new Configuration());
+    old.start();
+    KeyedDispatcher replacement = new KeyedDispatcher(2);
+    replacement.init(new Configuration());
+    replacement.start();
+    old.stop();
+
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    Assert.assertSame(replacement, ms.getSource(replacement.getName()));
+    replacement.stop();
+    Assert.assertNull(ms.getSource(replacement.getName()));
+  }
+
+  private static int countKeysOnShardOf(KeyedDispatcher disp, String key,
+      int keys) {
+    int shard = disp.getShard(new KeyedEvent(key, 0));
+    int count = 0;
+    for (int k = 0; k < keys; k++) {
+      if (disp.getShard(new KeyedEvent("key" + k, 0)) == shard) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
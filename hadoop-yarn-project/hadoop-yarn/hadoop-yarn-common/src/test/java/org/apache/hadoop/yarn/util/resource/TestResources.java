@@ -19,7 +19,11 @@
 package org.apache.hadoop.yarn.util.resource;
 
 import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.api.records.impl.pb.ResourcePBImpl;
+import org.apache.hadoop.yarn.proto.YarnProtos.ResourceProto;
 import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class TestResources {
@@ -46,5 +50,30 @@ public void testCompareToWithNoneResource() {
     assertTrue(Resources.none().compareTo(
         createResource(0, 1)) < 0);
   }
-  
+
+  @Test(timeout=1000)
+  public void testInPlaceArithmetic() {
+    Resource lhs = Resources.createResource(4096, 4);
+    assertSame(lhs, Resources.setTo(lhs, createResource(2048, 8)));
+    assertEquals(createResource(2048, 8), lhs);
+    assertSame(lhs,
+        Resources.subtractFromNonNegative(lhs, createResource(1024, 10)));
+    assertEquals(createResource(1024, 0), lhs);
+    assertSame(lhs, Resources.componentwiseMinTo(lhs, createResource(512, 2)));
+    assertEquals(createResource(512, 0), lhs);
+  }
+
+  @Test(timeout=1000)
+  public void testLightWeightResource() {
+    Resource resource = Resources.createResource(1024, 2);
+    assertEquals(createResource(1024, 2), resource);
+    assertEquals(createResource(1024, 2).hashCode(), resource.hashCode());
+    assertEquals(0, resource.compareTo(createResource(1024, 2)));
+    assertTrue(resource.compareTo(createResource(1024, 3)) < 0);
+    assertTrue(resource.compareTo(createResource(512, 3)) > 0);
+
+    ResourceProto proto = ResourcePBImpl.getProto(resource);
+    assertEquals(resource, new ResourcePBImpl(proto));
+    assertEquals(proto, ResourcePBImpl.getProto(new ResourcePBImpl(proto)));
+  }
 }
@@ -190,7 +190,7 @@ private void mergeLocalToBuilder() {
       builder.setContainerId(convertToProtoFormat(this.containerId));
     }
     if (this.resource != null
-        && !((ResourcePBImpl) this.resource).getProto().equals(
+        && !ResourcePBImpl.getProto(this.resource).equals(
           builder.getAllocatedResource())) {
       builder.setAllocatedResource(convertToProtoFormat(this.resource));
     }
@@ -232,7 +232,7 @@ private ContainerIdProto convertToProtoFormat(ContainerId containerId) {
   }
 
   private ResourceProto convertToProtoFormat(Resource resource) {
-    return ((ResourcePBImpl) resource).getProto();
+    return ResourcePBImpl.getProto(resource);
   }
 
   private ResourcePBImpl convertFromProtoFormat(ResourceProto resource) {
@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.util.resource.DominantResourceCalculator;
+import org.apache.hadoop.yarn.util.resource.ResourceCalculator;
+import org.apache.hadoop.yarn.util.resource.Resources;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the resource accounting of a scheduler allocation cycle: for
+ * every application of a queue, the headroom is computed from the queue and
+ * user limits, and the request is allocated on the node if it fits.
+ *
+ * The cycle is run with protobuf backed resources, as the scheduler used to
+ * create, with the resources {@link Resources} creates now, and with in-place
+ * arithmetic on reused resources. Run it with "-prof gc" to see the
+ * allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResourceArithmeticBenchmark {
+
+  /** Number of applications considered in one allocation cycle. */
+  @Param({"1000"})
+  private int apps;
+
+  private final ResourceCalculator rc = new DominantResourceCalculator();
+  private Resource cluster;
+  private Resource queueLimit;
+  private Resource userLimit;
+  private Resource request;
+  private Resource[] queueUsed;
+  private Resource[] userUsed;
+  private Resource[] nodeAvailable;
+
+  @Setup
+  public void setUp() {
+    cluster = Resources.createResource(1000L * 64 * 1024, 1000 * 32);
+    queueLimit = Resources.multiply(cluster, 0.5);
+    userLimit = Resources.multiply(cluster, 0.1);
+    request = Resources.createResource(2048, 1);
+    queueUsed = new Resource[apps];
+    userUsed = new Resource[apps];
+    nodeAvailable = new Resource[apps];
+    for (int i = 0; i < apps; i++) {
+      queueUsed[i] = Resources.multiply(queueLimit, (i % 100) / 100.0);
+      userUsed[i] = Resources.multiply(userLimit, (i % 10) / 10.0);
+      nodeAvailable[i] = Resources.createResource(8192 * (i % 4), 4 * (i % 4));
+    }
+  }
+
+  /** The cycle with every intermediate resource backed by a protobuf. */
+  @Benchmark
+  public int protobufResources() {
+    int allocated = 0;
+    for (int i = 0; i < apps; i++) {
+      Resource queueHeadroom = pbSubtract(queueLimit, queueUsed[i]);
+      Resource userHeadroom = pbSubtract(userLimit, userUsed[i]);
+      Resource headroom = Resource.newInstance(
+          Math.min(queueHeadroom.getMemorySize(),
+              userHeadroom.getMemorySize()),
+          Math.min(queueHeadroom.getVirtualCores(),
+              userHeadroom.getVirtualCores()));
+      if (Resources.fitsIn(request, headroom)
+          && Resources.fitsIn(request, nodeAvailable[i])) {
+        Resource available = pbSubtract(nodeAvailable[i], request);
+        if (Resources.greaterThan(rc, cluster, available, Resources.none())) {
+          allocated++;
+        }
+      }
+    }
+    return allocated;
+  }
+
+  private static Resource pbSubtract(Resource lhs, Resource rhs) {
+    Resource out = Resource.newInstance(lhs.getMemorySize(),
+        lhs.getVirtualCores());
+    return Resources.subtractFrom(out, rhs);
+  }
+
+  /** The same cycle through the {@link Resources} helpers. */
+  @Benchmark
+  public int resources() {
+    int allocated = 0;
+    for (int i = 0; i < apps; i++) {
+      Resource headroom = Resources.componentwiseMin(
+          Resources.subtract(queueLimit, queueUsed[i]),
+          Resources.subtract(userLimit, userUsed[i]));
+      if (Resources.fitsIn(request, headroom)
+          && Resources.fitsIn(request, nodeAvailable[i])) {
+        Resource available = Resources.subtract(nodeAvailable[i], request);
+        if (Resources.greaterThan(rc, cluster, available, Resources.none())) {
+          allocated++;
+        }
+      }
+    }
+    return allocated;
+  }
+
+  /** The same cycle reusing two scratch resources. */
+  @Benchmark
+  public int inPlace() {
+    Resource headroom = Resources.createResource(0, 0);
+    Resource scratch = Resources.createResource(0, 0);
+    int allocated = 0;
+    for (int i = 0; i < apps; i++) {
+      Resources.subtractFrom(Resources.setTo(headroom, queueLimit),
+          queueUsed[i]);
+      Resources.componentwiseMinTo(headroom, Resources.subtractFrom(
+          Resources.setTo(scratch, userLimit), userUsed[i]));
+      if (Resources.fitsIn(request, headroom)
+          && Resources.fitsIn(request, nodeAvailable[i])) {
+        Resources.subtractFrom(Resources.setTo(scratch, nodeAvailable[i]),
+            request);
+        if (Resources.greaterThan(rc, cluster, scratch, Resources.none())) {
+          allocated++;
+        }
+      }
+    }
+    return allocated;
+  }
+}
@@ -257,7 +257,7 @@ private void mergeLocalToBuilder() {
     }
 
     if (this.resource != null
-        && !((ResourcePBImpl) this.resource).getProto().equals(
+        && !ResourcePBImpl.getProto(this.resource).equals(
           builder.getResource())) {
       builder.setResource(convertToProtoFormat(this.resource));
     }
@@ -295,7 +295,7 @@ private ResourcePBImpl convertFromProtoFormat(ResourceProto p) {
   }
 
   private ResourceProto convertToProtoFormat(Resource t) {
-    return ((ResourcePBImpl) t).getProto();
+    return ResourcePBImpl.getProto(t);
   }
 
   private ContainerStateProto
@@ -359,7 +359,7 @@ private static ResourcePBImpl convertFromProtoFormat(ResourceProto p) {
   }
 
   private static ResourceProto convertToProtoFormat(Resource t) {
-    return ((ResourcePBImpl)t).getProto();
+    return ResourcePBImpl.getProto(t);
   }
 
   private static NMContainerStatusPBImpl convertFromProtoFormat(
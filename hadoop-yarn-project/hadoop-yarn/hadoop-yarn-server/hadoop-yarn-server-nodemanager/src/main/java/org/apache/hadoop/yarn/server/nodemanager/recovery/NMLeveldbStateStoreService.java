@@ -374,7 +374,7 @@ public void storeContainerResourceChanged(ContainerId containerId,
       try {
         // New value will overwrite old values for the same key
         batch.put(bytes(keyResChng),
-            ((ResourcePBImpl) capability).getProto().toByteArray());
+            ResourcePBImpl.getProto(capability).toByteArray());
         batch.put(bytes(keyVersion), bytes(Integer.toString(containerVersion)));
         db.write(batch);
       } finally {
@@ -27,10 +27,12 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -151,6 +153,7 @@
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppKillByClientEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppMoveEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppState;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppSummary;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttempt;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttemptEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttemptEventType;
@@ -210,6 +213,13 @@ public class ClientRMService extends AbstractService implements
       RMAppState.KILLED, RMAppState.FINAL_SAVING, RMAppState.KILLING);
   private static final EnumSet<RMAppState> ACTIVE_APP_STATES = EnumSet.of(
       RMAppState.ACCEPTED, RMAppState.RUNNING);
+  private static final Comparator<RMAppSummary> SUMMARY_COMPARATOR =
+      new Comparator<RMAppSummary>() {
+        @Override
+        public int compare(RMAppSummary a, RMAppSummary b) {
+          return a.getApplicationId().compareTo(b.getApplicationId());
+        }
+      };
 
   public ClientRMService(RMContext rmContext, YarnScheduler scheduler,
       RMAppManager rmAppManager, ApplicationACLsManager applicationACLsManager,
@@ -834,6 +844,24 @@ public GetApplicationsResponse getApplications(
   public GetApplicationsResponse getApplications(
       GetApplicationsRequest request, boolean caseSensitive)
       throws YarnException {
+    return getApplications(request, caseSensitive, 0);
+  }
+
+  /**
+   * Get a page of the applications matching the
+   * {@link GetApplicationsRequest}, ordered by application id. The first
+   * <code>offset</code> matching applications the caller may see are
+   * skipped, and at most the limit of the request are returned.
+   *
+   * Applications are filtered on the {@link RMAppSummary} they publish,
+   * without taking their locks, so only the applications on the page are
+   * locked to build their reports.  Only the first offset + limit matches
+   * are kept while filtering, and access is checked for those only.
+   */
+  @Private
+  public GetApplicationsResponse getApplications(
+      GetApplicationsRequest request, boolean caseSensitive, long offset)
+      throws YarnException {
     UserGroupInformation callerUGI;
     try {
       callerUGI = UserGroupInformation.getCurrentUser();
@@ -854,89 +882,57 @@ public GetApplicationsResponse getApplications(
     ApplicationsRequestScope scope = request.getScope();
 
     final Map<ApplicationId, RMApp> apps = rmContext.getRMApps();
-    Iterator<RMApp> appsIter;
-    // If the query filters by queues, we can avoid considering apps outside
-    // of those queues by asking the scheduler for the apps in those queues.
-    if (queues != null && !queues.isEmpty()) {
-      // Construct an iterator over apps in given queues
-      // Collect list of lists to avoid copying all apps
-      final List<List<ApplicationAttemptId>> queueAppLists =
-          new ArrayList<List<ApplicationAttemptId>>();
-      for (String queue : queues) {
-        List<ApplicationAttemptId> appsInQueue = scheduler.getAppsInQueue(queue);
-        if (appsInQueue != null && !appsInQueue.isEmpty()) {
-          queueAppLists.add(appsInQueue);
-        }
-      }
-      appsIter = new Iterator<RMApp>() {
-        Iterator<List<ApplicationAttemptId>> appListIter = queueAppLists.iterator();
-        Iterator<ApplicationAttemptId> schedAppsIter;
-
-        @Override
-        public boolean hasNext() {
-          // Because queueAppLists has no empty lists, hasNext is whether the
-          // current list hasNext or whether there are any remaining lists
-          return (schedAppsIter != null && schedAppsIter.hasNext())
-              || appListIter.hasNext();
-        }
-        @Override
-        public RMApp next() {
-          if (schedAppsIter == null || !schedAppsIter.hasNext()) {
-            schedAppsIter = appListIter.next().iterator();
-          }
-          return apps.get(schedAppsIter.next().getApplicationId());
-        }
-        @Override
-        public void remove() {
-          throw new UnsupportedOperationException("Remove not supported");
-        }
-      };
-    } else {
-      appsIter = apps.values().iterator();
-    }
-    
-    List<ApplicationReport> reports = new ArrayList<ApplicationReport>();
-    while (appsIter.hasNext() && reports.size() < limit) {
-      RMApp application = appsIter.next();
+    // the page is the first offset + limit matches in application id order,
+    // kept in a heap with the greatest id on top
+    long pageSize = limit > Long.MAX_VALUE - offset
+        ? Long.MAX_VALUE : offset + limit;
+    PriorityQueue<RMAppSummary> page = new PriorityQueue<RMAppSummary>(11,
+        Collections.reverseOrder(SUMMARY_COMPARATOR));
+    for (RMApp application : apps.values()) {
+      RMAppSummary summary = application.getSummary();
 
       // Check if current application falls under the specified scope
       if (scope == ApplicationsRequestScope.OWN &&
-          !callerUGI.getUserName().equals(application.getUser())) {
+          !callerUGI.getUserName().equals(summary.getUser())) {
         continue;
       }
 
       if (applicationTypes != null && !applicationTypes.isEmpty()) {
         String appTypeToMatch = caseSensitive
-            ? application.getApplicationType()
-            : StringUtils.toLowerCase(application.getApplicationType());
+            ? summary.getApplicationType()
+            : StringUtils.toLowerCase(summary.getApplicationType());
         if (!applicationTypes.contains(appTypeToMatch)) {
           continue;
         }
       }
 
       if (applicationStates != null && !applicationStates.isEmpty()) {
-        if (!applicationStates.contains(application
-            .createApplicationState())) {
+        if (!applicationStates.contains(summary.getState())) {
           continue;
         }
       }
 
       if (users != null && !users.isEmpty() &&
-          !users.contains(application.getUser())) {
+          !users.contains(summary.getUser())) {
         continue;
       }
 
-      if (start != null && !start.containsLong(application.getStartTime())) {
+      if (queues != null && !queues.isEmpty() &&
+          !queues.contains(summary.getQueue())) {
         continue;
       }
 
-      if (finish != null && !finish.containsLong(application.getFinishTime())) {
+      if (start != null && !start.containsLong(summary.getStartTime())) {
+        continue;
+      }
+
+      if (finish != null && !finish.containsLong(summary.getFinishTime())) {
         continue;
       }
 
       if (tags != null && !tags.isEmpty()) {
-        Set<String> appTags = application.getApplicationTags();
-        if (appTags == null || appTags.isEmpty()) {
+        Set<String> appTags = summary.getApplicationTags();
+        if (appTags.isEmpty()) {
           continue;
         }
         boolean match = false;
@@ -951,13 +947,35 @@ public void remove() {
         }
       }
 
+      if (page.size() >= pageSize
+          && SUMMARY_COMPARATOR.compare(summary, page.peek()) > 0) {
+        continue;
+      }
+
       // checkAccess can grab the scheduler lock so call it last
-      boolean allowAccess = checkAccess(callerUGI, application.getUser(),
-          ApplicationAccessType.VIEW_APP, application);
-      if (scope == ApplicationsRequestScope.VIEWABLE && !allowAccess) {
+      if (scope == ApplicationsRequestScope.VIEWABLE
+          && !checkAccess(callerUGI, summary.getUser(),
+              ApplicationAccessType.VIEW_APP, application)) {
         continue;
       }
 
+      page.add(summary);
+      if (page.size() > pageSize) {
+        page.poll();
+      }
+    }
+
+    List<RMAppSummary> matches = new ArrayList<RMAppSummary>(page);
+    Collections.sort(matches, SUMMARY_COMPARATOR);
+    List<ApplicationReport> reports = new ArrayList<ApplicationReport>();
+    for (RMAppSummary summary : matches.subList(
+        (int) Math.min(offset, matches.size()), matches.size())) {
+      RMApp application = apps.get(summary.getApplicationId());
+      if (application == null) {
+        continue;
+      }
+      boolean allowAccess = checkAccess(callerUGI, summary.getUser(),
+          ApplicationAccessType.VIEW_APP, application);
       reports.add(application.createAndGetApplicationReport(
           callerUGI.getUserName(), allowAccess));
     }
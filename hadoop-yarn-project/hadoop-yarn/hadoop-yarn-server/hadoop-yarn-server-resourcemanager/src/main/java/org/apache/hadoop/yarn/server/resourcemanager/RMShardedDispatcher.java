@@ -0,0 +1,53 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager;
+
+import org.apache.hadoop.classification.InterfaceAudience.Private;
+import org.apache.hadoop.classification.InterfaceStability.Unstable;
+import org.apache.hadoop.yarn.event.Event;
+import org.apache.hadoop.yarn.event.ShardedAsyncDispatcher;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttemptEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeEvent;
+
+/**
+ * The RM dispatcher used when it has more than one shard.  The events of an
+ * application and its attempts share a shard, and so do the events of a
+ * node; all other events go to the first shard.
+ */
+@Private
+@Unstable
+public class RMShardedDispatcher extends ShardedAsyncDispatcher {
+
+  public RMShardedDispatcher(int numShards) {
+    super("RMDispatcher", numShards);
+  }
+
+  @Override
+  protected Object getShardKey(Event event) {
+    if (event instanceof RMAppEvent) {
+      return ((RMAppEvent) event).getApplicationId();
+    } else if (event instanceof RMAppAttemptEvent) {
+      return ((RMAppAttemptEvent) event).getApplicationAttemptId()
+          .getApplicationId();
+    } else if (event instanceof RMNodeEvent) {
+      return ((RMNodeEvent) event).getNodeId();
+    }
+    return null;
+  }
+}
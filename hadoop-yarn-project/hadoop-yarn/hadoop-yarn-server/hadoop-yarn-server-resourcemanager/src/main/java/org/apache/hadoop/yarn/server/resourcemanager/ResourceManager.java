@@ -388,6 +388,11 @@ protected EventHandler<SchedulerEvent> createSchedulerEventDispatcher() {
   }
 
   protected Dispatcher createDispatcher() {
+    int shards = conf.getInt(YarnConfiguration.RM_DISPATCHER_SHARDS,
+        YarnConfiguration.DEFAULT_RM_DISPATCHER_SHARDS);
+    if (shards > 1) {
+      return new RMShardedDispatcher(shards);
+    }
     return new AsyncDispatcher();
   }
 
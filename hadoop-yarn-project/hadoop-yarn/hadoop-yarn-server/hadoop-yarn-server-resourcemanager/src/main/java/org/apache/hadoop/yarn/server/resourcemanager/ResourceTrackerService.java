@@ -79,6 +79,7 @@
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeReconnectEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeStartedEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeStatusEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerUtils;
 import org.apache.hadoop.yarn.server.resourcemanager.security.NMTokenSecretManagerInRM;
 import org.apache.hadoop.yarn.server.resourcemanager.security.RMContainerTokenSecretManager;
 import org.apache.hadoop.yarn.server.resourcemanager.security.authorize.RMPolicyProvider;
@@ -106,6 +107,8 @@ public class ResourceTrackerService extends AbstractService implements
   private final WriteLock writeLock;
 
   private long nextHeartBeatInterval;
+  private boolean heartBeatIntervalScaling;
+  private long maxHeartBeatInterval;
   private Server server;
   private InetSocketAddress resourceTrackerAddress;
   private String minimumNodeManagerVersion;
@@ -153,6 +156,12 @@ protected void serviceInit(Configuration conf) throws Exception {
           + YarnConfiguration.RM_NM_HEARTBEAT_INTERVAL_MS
           + " should be larger than 0.");
     }
+    heartBeatIntervalScaling = conf.getBoolean(
+        YarnConfiguration.RM_NM_HEARTBEAT_INTERVAL_SCALING_ENABLE,
+        YarnConfiguration.DEFAULT_RM_NM_HEARTBEAT_INTERVAL_SCALING_ENABLE);
+    maxHeartBeatInterval = Math.max(nextHeartBeatInterval,
+        conf.getLong(YarnConfiguration.RM_NM_HEARTBEAT_INTERVAL_MAX_MS,
+            YarnConfiguration.DEFAULT_RM_NM_HEARTBEAT_INTERVAL_MAX_MS));
 
     minAllocMb = conf.getInt(
         YarnConfiguration.RM_SCHEDULER_MINIMUM_ALLOCATION_MB,
@@ -549,7 +558,8 @@ public NodeHeartbeatResponse nodeHeartbeat(NodeHeartbeatRequest request)
     NodeHeartbeatResponse nodeHeartBeatResponse = YarnServerBuilderUtils
         .newNodeHeartbeatResponse(lastNodeHeartbeatResponse.
             getResponseId() + 1, NodeAction.NORMAL, null, null, null, null,
-            nextHeartBeatInterval);
+            getNextHeartBeatInterval(rmNode, remoteNodeStatus,
+                lastNodeHeartbeatResponse));
     rmNode.updateNodeHeartbeatResponseForCleanup(nodeHeartBeatResponse);
     rmNode.updateNodeHeartbeatResponseForContainersDecreasing(
         nodeHeartBeatResponse);
@@ -611,6 +621,34 @@ public NodeHeartbeatResponse nodeHeartbeat(NodeHeartbeatRequest request)
     return nodeHeartBeatResponse;
   }
 
+  /**
+   * Picks the interval until the next heartbeat of a node.  Without scaling,
+   * or while the node reports finished containers or has room for pending
+   * requests, it is the configured interval; otherwise the previous interval
+   * is doubled, up to the configured maximum.
+   */
+  private long getNextHeartBeatInterval(RMNode rmNode, NodeStatus status,
+      NodeHeartbeatResponse lastResponse) {
+    if (!heartBeatIntervalScaling
+        || rmNode.getState() != NodeState.RUNNING
+        || hasFinishedContainers(status)
+        || SchedulerUtils.hasRoomForPendingRequests(rmContext.getScheduler(),
+            rmNode)) {
+      return nextHeartBeatInterval;
+    }
+    return Math.min(maxHeartBeatInterval, Math.max(nextHeartBeatInterval,
+        2 * lastResponse.getNextHeartBeatInterval()));
+  }
+
+  private static boolean hasFinishedContainers(NodeStatus status) {
+    for (ContainerStatus container : status.getContainersStatuses()) {
+      if (container.getState() == ContainerState.COMPLETE) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private void setAppCollectorsMapToResponse(
       List<ApplicationId> runningApps, NodeHeartbeatResponse response) {
     Map<ApplicationId, String> liveAppCollectorsMap = new
@@ -34,7 +34,6 @@
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -47,6 +46,8 @@
   private static final Log LOG =
       LogFactory.getLog(FifoCandidatesSelector.class);
   private PreemptableResourceCalculator preemptableAmountCalculator;
+  private final PreemptionCandidateIndex candidateIndex =
+      new PreemptionCandidateIndex();
 
   FifoCandidatesSelector(
       CapacitySchedulerPreemptionContext preemptionContext) {
@@ -72,6 +73,7 @@ public Map<ApplicationAttemptId, Set<RMContainer>> selectCandidates(
             selectedCandidates);
 
     List<RMContainer> skippedAMContainerlist = new ArrayList<>();
+    candidateIndex.startRound();
 
     // Loop all leaf queues
     for (String queueName : preemptionContext.getLeafQueueNames()) {
@@ -122,7 +124,7 @@ public Map<ApplicationAttemptId, Set<RMContainer>> selectCandidates(
         }
 
         // preempt other containers
-        Resource skippedAMSize = Resource.newInstance(0, 0);
+        Resource skippedAMSize = Resources.createResource(0, 0);
         Iterator<FiCaSchedulerApp> desc =
             leafQueue.getOrderingPolicy().getPreemptionIterator();
         while (desc.hasNext()) {
@@ -298,12 +300,7 @@ private void preemptFrom(FiCaSchedulerApp app,
     // if more resources are to be freed go through all live containers in
     // reverse priority and reverse allocation order and mark them for
     // preemption
-    List<RMContainer> liveContainers =
-        new ArrayList<>(app.getLiveContainers());
-
-    sortContainers(liveContainers);
-
-    for (RMContainer c : liveContainers) {
+    for (RMContainer c : candidateIndex.getLiveContainers(app)) {
       if (resToObtainByPartition.isEmpty()) {
         return;
       }
@@ -339,17 +336,7 @@ private void preemptFrom(FiCaSchedulerApp app,
    */
   @VisibleForTesting
   static void sortContainers(List<RMContainer> containers){
-    Collections.sort(containers, new Comparator<RMContainer>() {
-      @Override
-      public int compare(RMContainer a, RMContainer b) {
-        int schedKeyComp = b.getAllocatedSchedulerKey()
-                .compareTo(a.getAllocatedSchedulerKey());
-        if (schedKeyComp != 0) {
-          return schedKeyComp;
-        }
-        return b.getContainerId().compareTo(a.getContainerId());
-      }
-    });
+    Collections.sort(containers, PreemptionCandidateIndex.PREEMPTION_ORDER);
   }
 
   private void addToPreemptMap(
@@ -29,15 +29,21 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.Set;
 
 /**
  * Calculate how much resources need to be preempted for each queue,
  * will be used by {@link PreemptionCandidatesSelector}
+ *
+ * The ideal assignment of the children of a parent queue is only computed
+ * again when the state of a queue below it, the resources it is assigned or
+ * the preemption allowed changed since the previous round.
  */
 public class PreemptableResourceCalculator {
   private static final Log LOG =
@@ -47,6 +53,57 @@ public class PreemptableResourceCalculator {
   private final ResourceCalculator rc;
   private boolean isReservedPreemptionCandidatesSelector;
 
+  // The ideal assignments computed in the previous and in the current round,
+  // by partition and parent queue name
+  private Map<String, Map<String, LevelAssignment>> lastAssignments =
+      new HashMap<>();
+  private Map<String, Map<String, LevelAssignment>> assignments =
+      new HashMap<>();
+  private int reusedAssignments;
+
+  /**
+   * The ideal assignment computed for the children of a queue, with the
+   * inputs it was computed from besides the state of the queues below.
+   */
+  private static class LevelAssignment {
+    private final Resource idealAssigned;
+    private final Resource totalPreemptionAllowed;
+    private final Resource[] childIdealAssigned;
+    private final Resource[] childToBePreempted;
+
+    LevelAssignment(TempQueuePerPartition parent,
+        Resource totalPreemptionAllowed) {
+      this.idealAssigned = Resources.clone(parent.idealAssigned);
+      this.totalPreemptionAllowed = Resources.clone(totalPreemptionAllowed);
+      List<TempQueuePerPartition> children = parent.getChildren();
+      childIdealAssigned = new Resource[children.size()];
+      childToBePreempted = new Resource[children.size()];
+      for (int i = 0; i < children.size(); i++) {
+        childIdealAssigned[i] = Resources.clone(children.get(i).idealAssigned);
+        childToBePreempted[i] = Resources.clone(children.get(i).toBePreempted);
+      }
+    }
+
+    /**
+     * @return whether this assignment still holds for the queue: nothing
+     * changed below it, and it is assigned the same resources.
+     */
+    boolean holdsFor(TempQueuePerPartition parent,
+        Resource totalPreemptionAllowed) {
+      return !parent.subtreeChanged
+          && idealAssigned.equals(parent.idealAssigned)
+          && this.totalPreemptionAllowed.equals(totalPreemptionAllowed);
+    }
+
+    void assignTo(TempQueuePerPartition parent) {
+      List<TempQueuePerPartition> children = parent.getChildren();
+      for (int i = 0; i < children.size(); i++) {
+        children.get(i).idealAssigned = Resources.clone(childIdealAssigned[i]);
+        children.get(i).toBePreempted = Resources.clone(childToBePreempted[i]);
+      }
+    }
+  }
+
   static class TQComparator implements Comparator<TempQueuePerPartition> {
     private ResourceCalculator rc;
     private Resource clusterRes;
@@ -107,7 +164,7 @@ public PreemptableResourceCalculator(
    */
   private void resetCapacity(ResourceCalculator rc, Resource clusterResource,
       Collection<TempQueuePerPartition> queues, boolean ignoreGuar) {
-    Resource activeCap = Resource.newInstance(0, 0);
+    Resource activeCap = Resources.createResource(0, 0);
 
     if (ignoreGuar) {
       for (TempQueuePerPartition q : queues) {
@@ -189,9 +246,10 @@ private void computeFixpointAllocation(ResourceCalculator rc,
     }
 
     //assign all cluster resources until no more demand, or no resources are left
+    Resource stepFactor = Resources.createResource(1, 1);
     while (!orderedByNeed.isEmpty()
         && Resources.greaterThan(rc,tot_guarant, unassigned,Resources.none())) {
-      Resource wQassigned = Resource.newInstance(0, 0);
+      Resource wQassigned = Resources.createResource(0, 0);
       // we compute normalizedGuarantees capacity based on currently active
       // queues
       resetCapacity(rc, unassigned, orderedByNeed, ignoreGuarantee);
@@ -208,10 +266,11 @@ private void computeFixpointAllocation(ResourceCalculator rc,
           .hasNext();) {
         TempQueuePerPartition sub = i.next();
         Resource wQavail = Resources.multiplyAndNormalizeUp(rc,
-            unassigned, sub.normalizedGuarantee, Resource.newInstance(1, 1));
+            unassigned, sub.normalizedGuarantee, stepFactor);
         Resource wQidle = sub.offer(wQavail, rc, tot_guarant,
             isReservedPreemptionCandidatesSelector);
-        Resource wQdone = Resources.subtract(wQavail, wQidle);
+        // wQavail is not used once offered, it becomes what was done
+        Resource wQdone = Resources.subtractFrom(wQavail, wQidle);
 
         if (Resources.greaterThan(rc, tot_guarant,
             wQdone, Resources.none())) {
@@ -276,7 +335,7 @@ private void computeIdealResourceDistribution(ResourceCalculator rc,
 
     // based on ideal assignment computed above and current assignment we derive
     // how much preemption is required overall
-    Resource totPreemptionNeeded = Resource.newInstance(0, 0);
+    Resource totPreemptionNeeded = Resources.createResource(0, 0);
     for (TempQueuePerPartition t:queues) {
       if (Resources.greaterThan(rc, tot_guarant,
           t.getUsed(), t.idealAssigned)) {
@@ -317,9 +376,26 @@ private void recursivelyComputeIdealAssignment(
       TempQueuePerPartition root, Resource totalPreemptionAllowed) {
     if (root.getChildren() != null &&
         root.getChildren().size() > 0) {
-      // compute ideal distribution at this level
-      computeIdealResourceDistribution(rc, root.getChildren(),
-          totalPreemptionAllowed, root.idealAssigned);
+      Map<String, LevelAssignment> last = lastAssignments.get(root.partition);
+      LevelAssignment assignment = last == null ? null
+          : last.get(root.queueName);
+      if (assignment != null
+          && assignment.holdsFor(root, totalPreemptionAllowed)) {
+        // the distribution at this level would not change
+        assignment.assignTo(root);
+        reusedAssignments++;
+      } else {
+        // compute ideal distribution at this level
+        computeIdealResourceDistribution(rc, root.getChildren(),
+            totalPreemptionAllowed, root.idealAssigned);
+        assignment = new LevelAssignment(root, totalPreemptionAllowed);
+      }
+      Map<String, LevelAssignment> current = assignments.get(root.partition);
+      if (current == null) {
+        current = new HashMap<>();
+        assignments.put(root.partition, current);
+      }
+      current.put(root.queueName, assignment);
       // compute recursively for lower levels and build list of leafs
       for(TempQueuePerPartition t : root.getChildren()) {
         recursivelyComputeIdealAssignment(t, totalPreemptionAllowed);
@@ -404,6 +480,8 @@ private void updatePreemptableExtras(TempQueuePerPartition cur) {
 
   public void computeIdealAllocation(Resource clusterResource,
       Resource totalPreemptionAllowed) {
+    assignments = new HashMap<>();
+    reusedAssignments = 0;
     for (String partition : context.getAllPartitions()) {
       TempQueuePerPartition tRoot = context.getQueueByPartition(
           CapacitySchedulerConfiguration.ROOT, partition);
@@ -414,6 +492,11 @@ public void computeIdealAllocation(Resource clusterResource,
       tRoot.idealAssigned = tRoot.getGuaranteed();
       recursivelyComputeIdealAssignment(tRoot, totalPreemptionAllowed);
     }
+    lastAssignments = assignments;
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Reused the ideal assignment of " + reusedAssignments
+          + " parent queues");
+    }
 
     // based on ideal allocation select containers to be preempted from each
     // calculate resource-to-obtain by partition for each leaf queues
@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.monitor.capacity;
+
+import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ContainerId;
+import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainer;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.common.fica.FiCaSchedulerApp;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Keeps the live containers of applications in the order they are preempted
+ * in: reversed priority order first, and then reversed container id order.
+ *
+ * The index is kept across preemption rounds. An application whose live
+ * containers did not change since the previous round is not looked at
+ * again; for the others, the containers allocated since are added and the
+ * completed ones dropped, instead of sorting all of them again.
+ */
+class PreemptionCandidateIndex {
+  static final Comparator<RMContainer> PREEMPTION_ORDER =
+      new Comparator<RMContainer>() {
+        @Override
+        public int compare(RMContainer a, RMContainer b) {
+          int schedKeyComp = b.getAllocatedSchedulerKey()
+              .compareTo(a.getAllocatedSchedulerKey());
+          if (schedKeyComp != 0) {
+            return schedKeyComp;
+          }
+          return b.getContainerId().compareTo(a.getContainerId());
+        }
+      };
+
+  private final Map<ApplicationAttemptId, AppIndex> apps = new HashMap<>();
+  private long round;
+
+  private static class AppIndex {
+    private final NavigableSet<RMContainer> ordered =
+        new TreeSet<>(PREEMPTION_ORDER);
+    private final Map<ContainerId, IndexedContainer> indexed =
+        new HashMap<>();
+    private long lastRound;
+    private long liveContainersVersion = -1;
+  }
+
+  private static class IndexedContainer {
+    private RMContainer container;
+    private long round;
+
+    IndexedContainer(RMContainer container) {
+      this.container = container;
+    }
+  }
+
+  /**
+   * Starts a new preemption round. The indexes of the applications which were
+   * not looked at in the previous round are dropped.
+   */
+  void startRound() {
+    for (Iterator<AppIndex> it = apps.values().iterator(); it.hasNext();) {
+      if (it.next().lastRound < round) {
+        it.remove();
+      }
+    }
+    round++;
+  }
+
+  /**
+   * @return the live containers of the application in preemption order. The
+   * set is only valid until the next call for the same application.
+   */
+  NavigableSet<RMContainer> getLiveContainers(FiCaSchedulerApp app) {
+    ApplicationAttemptId appAttemptId = app.getApplicationAttemptId();
+    AppIndex index = apps.get(appAttemptId);
+    if (index == null) {
+      index = new AppIndex();
+      apps.put(appAttemptId, index);
+    }
+    index.lastRound = round;
+
+    // read before the containers, so that a change made while they are
+    // walked is seen by the next round
+    long version = app.getLiveContainersVersion();
+    if (version == index.liveContainersVersion) {
+      return index.ordered;
+    }
+    Collection<RMContainer> liveContainers =
+        app.getLiveContainersMap().values();
+    for (RMContainer c : liveContainers) {
+      IndexedContainer entry = index.indexed.get(c.getContainerId());
+      if (entry == null) {
+        entry = new IndexedContainer(c);
+        index.indexed.put(c.getContainerId(), entry);
+        index.ordered.add(c);
+      } else if (entry.container != c) {
+        index.ordered.remove(entry.container);
+        entry.container = c;
+        index.ordered.add(c);
+      }
+      entry.round = round;
+    }
+    if (index.indexed.size() > liveContainers.size()) {
+      // drop the containers which completed
+      for (Iterator<IndexedContainer> it = index.indexed.values().iterator();
+           it.hasNext();) {
+        IndexedContainer entry = it.next();
+        if (entry.round != round) {
+          index.ordered.remove(entry.container);
+          it.remove();
+        }
+      }
+    }
+    index.liveContainersVersion = version;
+    return index.ordered;
+  }
+}
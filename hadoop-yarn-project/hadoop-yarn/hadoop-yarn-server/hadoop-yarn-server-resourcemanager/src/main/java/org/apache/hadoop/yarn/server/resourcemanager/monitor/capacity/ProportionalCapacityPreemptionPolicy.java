@@ -102,6 +102,8 @@
     new HashMap<>();
   private Map<String, Map<String, TempQueuePerPartition>> queueToPartitions =
       new HashMap<>();
+  private Map<String, Map<String, TempQueuePerPartition>>
+      previousQueueToPartitions = new HashMap<>();
   private List<PreemptionCandidatesSelector>
       candidatesSelectionPolicies = new ArrayList<>();
   private Set<String> allPartitions;
@@ -309,9 +311,11 @@ private void containerBasedPreemptOrKill(CSQueue root,
     partitions.add(RMNodeLabelsManager.NO_LABEL);
     this.allPartitions = ImmutableSet.copyOf(partitions);
 
-    // extract a summary of the queues from scheduler
+    // extract a summary of the queues from scheduler, and keep the one of the
+    // previous round to find the queues whose state changed
     synchronized (scheduler) {
-      queueToPartitions.clear();
+      previousQueueToPartitions = queueToPartitions;
+      queueToPartitions = new HashMap<>();
 
       for (String partitionToLookAt : allPartitions) {
         cloneQueues(root, Resources
@@ -397,6 +401,7 @@ public Map<RMContainer, Long> getToPreemptContainers() {
   private TempQueuePerPartition cloneQueues(CSQueue curQueue,
       Resource partitionResource, String partitionToLookAt) {
     TempQueuePerPartition ret;
+    boolean childChanged = false;
     synchronized (curQueue) {
       String queueName = curQueue.getQueueName();
       QueueCapacities qc = curQueue.getQueueCapacities();
@@ -437,9 +442,14 @@ private TempQueuePerPartition cloneQueues(CSQueue curQueue,
           TempQueuePerPartition subq = cloneQueues(c, partitionResource,
               partitionToLookAt);
           ret.addChild(subq);
+          childChanged |= subq.subtreeChanged;
         }
       }
     }
+    Map<String, TempQueuePerPartition> previous =
+        previousQueueToPartitions.get(ret.queueName);
+    ret.subtreeChanged = childChanged || previous == null
+        || !ret.hasSameInputs(previous.get(partitionToLookAt));
     addTempQueuePartition(ret);
     return ret;
   }
@@ -56,6 +56,10 @@ public class TempQueuePerPartition {
   LeafQueue leafQueue;
   boolean preemptionDisabled;
 
+  // Whether the inputs of this queue or of a queue below it changed since
+  // the previous round, see #hasSameInputs
+  boolean subtreeChanged = true;
+
   TempQueuePerPartition(String queueName, Resource current,
       boolean preemptionDisabled, String partition, Resource killable,
       float absCapacity, float absMaxCapacity, Resource totalPartitionResource,
@@ -72,13 +76,13 @@ public class TempQueuePerPartition {
       pending = Resources.createResource(0);
     }
 
-    this.idealAssigned = Resource.newInstance(0, 0);
-    this.actuallyToBePreempted = Resource.newInstance(0, 0);
-    this.toBePreempted = Resource.newInstance(0, 0);
+    this.idealAssigned = Resources.createResource(0, 0);
+    this.actuallyToBePreempted = Resources.createResource(0, 0);
+    this.toBePreempted = Resources.createResource(0, 0);
     this.normalizedGuarantee = Float.NaN;
     this.children = new ArrayList<>();
-    this.untouchableExtra = Resource.newInstance(0, 0);
-    this.preemptableExtra = Resource.newInstance(0, 0);
+    this.untouchableExtra = Resources.createResource(0, 0);
+    this.preemptableExtra = Resources.createResource(0, 0);
     this.preemptionDisabled = preemptionDisabled;
     this.partition = partition;
     this.killable = killable;
@@ -119,36 +123,63 @@ public Resource getUsedDeductReservd() {
   // the unused ones
   Resource offer(Resource avail, ResourceCalculator rc,
       Resource clusterResource, boolean considersReservedResource) {
-    Resource absMaxCapIdealAssignedDelta = Resources.componentwiseMax(
-        Resources.subtract(getMax(), idealAssigned),
-        Resource.newInstance(0, 0));
+    Resource absMaxCapIdealAssignedDelta =
+        Resources.subtractFromNonNegative(getMax(), idealAssigned);
+    /*
+     * When we're using FifoPreemptionSelector
+     * (considerReservedResource = false).
+     *
+     * We should deduct reserved resource to avoid excessive preemption:
+     *
+     * For example, if an under-utilized queue has used = reserved = 20.
+     * Preemption policy will try to preempt 20 containers
+     * (which is not satisfied) from different hosts.
+     *
+     * In FifoPreemptionSelector, there's no guarantee that preempted
+     * resource can be used by pending request, so policy will preempt
+     * resources repeatly.
+     */
+    Resource wanted = Resources.clone(getUsed());
+    if (!considersReservedResource) {
+      Resources.subtractFrom(wanted, reserved);
+    }
+    Resources.subtractFrom(Resources.addTo(wanted, pending), idealAssigned);
     // remain = avail - min(avail, (max - assigned), (current + pending - assigned))
     Resource accepted = Resources.min(rc, clusterResource,
-        absMaxCapIdealAssignedDelta, Resources.min(rc, clusterResource, avail,
-            Resources
-                /*
-                 * When we're using FifoPreemptionSelector
-                 * (considerReservedResource = false).
-                 *
-                 * We should deduct reserved resource to avoid excessive preemption:
-                 *
-                 * For example, if an under-utilized queue has used = reserved = 20.
-                 * Preemption policy will try to preempt 20 containers
-                 * (which is not satisfied) from different hosts.
-                 *
-                 * In FifoPreemptionSelector, there's no guarantee that preempted
-                 * resource can be used by pending request, so policy will preempt
-                 * resources repeatly.
-                 */
-                .subtract(Resources.add(
-                    (considersReservedResource ? getUsed() :
-                      getUsedDeductReservd()),
-                    pending), idealAssigned)));
+        absMaxCapIdealAssignedDelta,
+        Resources.min(rc, clusterResource, avail, wanted));
     Resource remain = Resources.subtract(avail, accepted);
     Resources.addTo(idealAssigned, accepted);
     return remain;
   }
 
+  /**
+   * @return whether the state copied from the scheduler for this queue is the
+   * same as for the given queue, usually the copy of the previous round.
+   * Children are compared by name only.
+   */
+  boolean hasSameInputs(TempQueuePerPartition other) {
+    if (other == null || !queueName.equals(other.queueName)
+        || !partition.equals(other.partition)
+        || preemptionDisabled != other.preemptionDisabled
+        || absCapacity != other.absCapacity
+        || absMaxCapacity != other.absMaxCapacity
+        || !current.equals(other.current)
+        || !pending.equals(other.pending)
+        || !reserved.equals(other.reserved)
+        || !killable.equals(other.killable)
+        || !totalPartitionResource.equals(other.totalPartitionResource)
+        || children.size() != other.children.size()) {
+      return false;
+    }
+    for (int i = 0; i < children.size(); i++) {
+      if (!children.get(i).queueName.equals(other.children.get(i).queueName)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public Resource getGuaranteed() {
     return Resources.multiply(totalPartitionResource, absCapacity);
   }
@@ -178,14 +209,14 @@ public void updatePreemptableExtras(ResourceCalculator rc) {
       }
     } else {
       // If it is a parent queue
-      Resource childrensPreemptable = Resource.newInstance(0, 0);
+      Resource childrensPreemptable = Resources.createResource(0, 0);
       for (TempQueuePerPartition child : children) {
         Resources.addTo(childrensPreemptable, child.preemptableExtra);
       }
       // untouchableExtra = max(extra - childrenPreemptable, 0)
       if (Resources.greaterThanOrEqual(rc, totalPartitionResource,
           childrensPreemptable, extra)) {
-        untouchableExtra = Resource.newInstance(0, 0);
+        untouchableExtra = Resources.createResource(0, 0);
       } else {
         untouchableExtra = Resources.subtract(extra, childrensPreemptable);
       }
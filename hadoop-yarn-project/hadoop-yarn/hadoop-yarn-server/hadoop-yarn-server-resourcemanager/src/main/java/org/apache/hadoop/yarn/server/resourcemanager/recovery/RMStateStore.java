@@ -50,6 +50,7 @@
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.event.AsyncDispatcher;
 import org.apache.hadoop.yarn.event.Dispatcher;
+import org.apache.hadoop.yarn.event.Event;
 import org.apache.hadoop.yarn.event.EventHandler;
 import org.apache.hadoop.yarn.proto.YarnProtos.ReservationAllocationStateProto;
 import org.apache.hadoop.yarn.security.client.RMDelegationTokenIdentifier;
@@ -1130,7 +1131,7 @@ private boolean notifyStoreOperationFailedInternal(
    * @param event App event containing the app id and event type
    */
   private void notifyApplication(RMAppEvent event) {
-    rmDispatcher.getEventHandler().handle(event);
+    notifyStoreOperationCompleted(event);
   }
   
   @SuppressWarnings("unchecked")
@@ -1141,6 +1142,17 @@ private void notifyApplication(RMAppEvent event) {
    * id and event type
    */
   private void notifyApplicationAttempt(RMAppAttemptEvent event) {
+    notifyStoreOperationCompleted(event);
+  }
+
+  /**
+   * This method is called to send the event telling the ResourceManager that
+   * a store operation has completed. Stores which commit their operations
+   * asynchronously hold the event back until the operation is durable.
+   * @param event the event to send
+   */
+  @SuppressWarnings("unchecked")
+  protected void notifyStoreOperationCompleted(Event event) {
     rmDispatcher.getEventHandler().handle(event);
   }
   
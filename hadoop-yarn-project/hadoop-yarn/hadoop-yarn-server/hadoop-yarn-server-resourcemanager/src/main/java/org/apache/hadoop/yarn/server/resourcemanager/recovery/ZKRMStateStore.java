@@ -30,12 +30,14 @@
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.IOUtils;
 import org.apache.hadoop.security.token.delegation.DelegationKey;
+import org.apache.hadoop.util.Time;
 import org.apache.hadoop.util.ZKUtil;
 import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
 import org.apache.hadoop.yarn.api.records.ReservationId;
 import org.apache.hadoop.yarn.conf.HAUtil;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
+import org.apache.hadoop.yarn.event.Event;
 import org.apache.hadoop.yarn.exceptions.YarnRuntimeException;
 import org.apache.hadoop.yarn.proto.YarnServerCommonProtos.VersionProto;
 import org.apache.hadoop.yarn.proto.YarnServerResourceManagerRecoveryProtos.AMRMTokenSecretManagerStateProto;
@@ -72,6 +74,9 @@
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * {@link RMStateStore} implementation backed by ZooKeeper.
@@ -116,6 +121,15 @@
  * Also, AMRMToken has been removed from ApplicationAttemptState.
  *
  * Changes from 1.2 to 1.3, Addition of ReservationSystem state.
+ *
+ * Application and attempt state changes can be committed in batches: the
+ * operations stored within
+ * {@link YarnConfiguration#ZK_RM_STATE_STORE_BATCH_WAIT_MS} of each other, up
+ * to {@link YarnConfiguration#ZK_RM_STATE_STORE_BATCH_MAX_OPS} of them, share
+ * one ZooKeeper transaction, and are only acknowledged to the RM once it is
+ * committed. Application states larger than
+ * {@link YarnConfiguration#ZK_RM_STATE_STORE_COMPRESSION_THRESHOLD_BYTES} are
+ * stored gzip compressed.
  */
 @Private
 @Unstable
@@ -164,6 +178,25 @@ public class ZKRMStateStore extends RMStateStore {
   @VisibleForTesting
   protected CuratorFramework curatorFramework;
 
+  /* Batching of application and attempt state changes */
+  // stay well below the 1 MB a ZooKeeper request is limited to by default
+  private static final long BATCH_MAX_BYTES = 512 * 1024;
+  private int batchMaxOps;
+  private long batchWaitMs;
+  private final List<BatchedOp> batch = new ArrayList<BatchedOp>();
+  // whether the paths touched by the batch exist once it is committed
+  private final Map<String, Boolean> batchedPaths =
+      new HashMap<String, Boolean>();
+  private final List<Event> batchCompletions = new ArrayList<Event>();
+  private int batchStoreOps;
+  private long batchBytes;
+  private long batchStartTime;
+  private Thread batchCommitThread;
+
+  private int compressionThreshold;
+  private static final ZKRMStateStoreMetrics metrics =
+      ZKRMStateStoreMetrics.getInstance();
+
   /**
    * Given the {@link Configuration} and {@link ACL}s used (sourceACLs) for
    * ZooKeeper access, construct the {@link ACL}s for the store's root node.
@@ -217,6 +250,14 @@ public synchronized void initInternal(Configuration conf)
         YarnConfiguration.DEFAULT_RM_ZK_TIMEOUT_MS);
 
     zkAcl = RMZKUtils.getZKAcls(conf);
+    batchMaxOps = Math.max(1,
+        conf.getInt(YarnConfiguration.ZK_RM_STATE_STORE_BATCH_MAX_OPS,
+            YarnConfiguration.DEFAULT_ZK_RM_STATE_STORE_BATCH_MAX_OPS));
+    batchWaitMs = conf.getLong(YarnConfiguration.ZK_RM_STATE_STORE_BATCH_WAIT_MS,
+        YarnConfiguration.DEFAULT_ZK_RM_STATE_STORE_BATCH_WAIT_MS);
+    compressionThreshold = conf.getInt(
+        YarnConfiguration.ZK_RM_STATE_STORE_COMPRESSION_THRESHOLD_BYTES,
+        YarnConfiguration.DEFAULT_ZK_RM_STATE_STORE_COMPRESSION_THRESHOLD_BYTES);
 
     if (HAUtil.isHAEnabled(conf)) {
       String zkRootNodeAclConf = HAUtil.getConfValueForRMInstance
@@ -274,6 +315,10 @@ public synchronized void startInternal() throws Exception {
     create(dtSequenceNumberPath);
     create(amrmTokenSecretManagerRoot);
     create(reservationRoot);
+    if (batchMaxOps > 1) {
+      batchCommitThread = new BatchCommitThread();
+      batchCommitThread.start();
+    }
   }
 
   private void logRootNodeAcls(String prefix) throws Exception {
@@ -308,14 +353,26 @@ private void setRootNodeAcls() throws Exception {
   }
 
   @Override
-  protected synchronized void closeInternal() throws Exception {
+  protected void closeInternal() throws Exception {
     if (verifyActiveStatusThread != null) {
       verifyActiveStatusThread.interrupt();
       verifyActiveStatusThread.join(1000);
     }
+    // not synchronized, the thread needs the lock to see it is interrupted
+    if (batchCommitThread != null) {
+      batchCommitThread.interrupt();
+      batchCommitThread.join(1000);
+    }
 
-    if (!HAUtil.isHAEnabled(getConfig())) {
-      IOUtils.closeStream(curatorFramework);
+    synchronized (this) {
+      try {
+        commitBatch();
+      } catch (Exception e) {
+        LOG.warn("Unable to commit the pending store operations on close", e);
+      }
+      if (!HAUtil.isHAEnabled(getConfig())) {
+        IOUtils.closeStream(curatorFramework);
+      }
     }
   }
 
@@ -375,6 +432,7 @@ public synchronized long getAndIncrementEpoch() throws Exception {
 
   @Override
   public synchronized RMState loadState() throws Exception {
+    commitBatch();
     RMState rmState = new RMState();
     // recover DelegationTokenSecretManager
     loadRMDTSecretManagerState(rmState);
@@ -539,7 +597,7 @@ private synchronized void loadRMAppState(RMState rmState) throws Exception {
         ApplicationId appId = ApplicationId.fromString(childNodeName);
         ApplicationStateDataPBImpl appState =
             new ApplicationStateDataPBImpl(
-                ApplicationStateDataProto.parseFrom(childData));
+                ApplicationStateDataProto.parseFrom(decompress(childData)));
 
         if (!appId.equals(
             appState.getApplicationSubmissionContext().getApplicationId())) {
@@ -586,9 +644,9 @@ public synchronized void storeApplicationStateInternal(ApplicationId appId,
       LOG.debug("Storing info for app: " + appId + " at: " + nodeCreatePath);
     }
 
-    byte[] appStateData = appStateDataPB.getProto().toByteArray();
-    safeCreate(nodeCreatePath, appStateData, zkAcl,
-        CreateMode.PERSISTENT);
+    byte[] appStateData = compress(appStateDataPB.getProto().toByteArray());
+    batchCreate(nodeCreatePath, appStateData);
+    endStoreOp();
   }
 
   @Override
@@ -602,16 +660,16 @@ protected synchronized void updateApplicationStateInternal(
           + nodeUpdatePath);
     }
 
-    byte[] appStateData = appStateDataPB.getProto().toByteArray();
+    byte[] appStateData = compress(appStateDataPB.getProto().toByteArray());
 
-    if (exists(nodeUpdatePath)) {
-      safeSetData(nodeUpdatePath, appStateData, -1);
+    if (batchedExists(nodeUpdatePath)) {
+      batchSetData(nodeUpdatePath, appStateData);
     } else {
-      safeCreate(nodeUpdatePath, appStateData, zkAcl,
-          CreateMode.PERSISTENT);
+      batchCreate(nodeUpdatePath, appStateData);
       LOG.debug(appId + " znode didn't exist. Created a new znode to"
           + " update the application state.");
     }
+    endStoreOp();
   }
 
   @Override
@@ -629,7 +687,8 @@ protected synchronized void storeApplicationAttemptStateInternal(
     }
 
     byte[] attemptStateData = attemptStateDataPB.getProto().toByteArray();
-    safeCreate(nodeCreatePath, attemptStateData, zkAcl, CreateMode.PERSISTENT);
+    batchCreate(nodeCreatePath, attemptStateData);
+    endStoreOp();
   }
 
   @Override
@@ -649,14 +708,14 @@ protected synchronized void updateApplicationAttemptStateInternal(
 
     byte[] attemptStateData = attemptStateDataPB.getProto().toByteArray();
 
-    if (exists(nodeUpdatePath)) {
-      safeSetData(nodeUpdatePath, attemptStateData, -1);
+    if (batchedExists(nodeUpdatePath)) {
+      batchSetData(nodeUpdatePath, attemptStateData);
     } else {
-      safeCreate(nodeUpdatePath, attemptStateData, zkAcl,
-          CreateMode.PERSISTENT);
+      batchCreate(nodeUpdatePath, attemptStateData);
       LOG.debug(appAttemptId + " znode didn't exist. Created a new znode to"
           + " update the application attempt state.");
     }
+    endStoreOp();
   }
 
   @Override
@@ -672,7 +731,8 @@ protected synchronized void removeApplicationAttemptInternal(
           + attemptIdRemovePath);
     }
 
-    safeDelete(attemptIdRemovePath);
+    batchDelete(attemptIdRemovePath);
+    endStoreOp();
   }
 
   @Override
@@ -690,10 +750,11 @@ protected synchronized void removeApplicationStateInternal(
     for (ApplicationAttemptId attemptId : appState.attempts.keySet()) {
       String attemptRemovePath =
           getNodePath(appIdRemovePath, attemptId.toString());
-      safeDelete(attemptRemovePath);
+      batchDelete(attemptRemovePath);
     }
 
-    safeDelete(appIdRemovePath);
+    batchDelete(appIdRemovePath);
+    endStoreOp();
   }
 
   @Override
@@ -808,12 +869,14 @@ protected synchronized void removeRMDTMasterKeyState(
 
   @Override
   public synchronized void deleteStore() throws Exception {
+    commitBatch();
     delete(zkRootNodePath);
   }
 
   @Override
   public synchronized void removeApplication(ApplicationId removeAppId)
       throws Exception {
+    commitBatch();
     String appIdRemovePath = getNodePath(rmAppRoot, removeAppId.toString());
     delete(appIdRemovePath);
   }
@@ -972,6 +1035,154 @@ private void safeSetData(String path, byte[] data, int version)
     transaction.commit();
   }
 
+  /**
+   * Whether the znode exists once the pending batch is committed.
+   */
+  private boolean batchedExists(String path) throws Exception {
+    Boolean exists = batchedPaths.get(path);
+    return exists != null ? exists : exists(path);
+  }
+
+  private void batchCreate(String path, byte[] data) throws Exception {
+    if (!batchedExists(path)) {
+      batch.add(new BatchedOp(BatchedOp.Type.CREATE, path, data));
+      batchedPaths.put(path, true);
+      batchBytes += data.length;
+    }
+  }
+
+  private void batchSetData(String path, byte[] data) {
+    batch.add(new BatchedOp(BatchedOp.Type.SET_DATA, path, data));
+    batchBytes += data.length;
+  }
+
+  private void batchDelete(String path) throws Exception {
+    if (batchedExists(path)) {
+      batch.add(new BatchedOp(BatchedOp.Type.DELETE, path, null));
+      batchedPaths.put(path, false);
+    }
+  }
+
+  /**
+   * Ends a store operation whose znode operations were added to the batch,
+   * and commits the batch if it is full.
+   */
+  private void endStoreOp() throws Exception {
+    if (batchStoreOps++ == 0) {
+      batchStartTime = Time.monotonicNow();
+      notifyAll();
+    }
+    if (batchStoreOps >= batchMaxOps || batchBytes >= BATCH_MAX_BYTES) {
+      commitBatch();
+    }
+  }
+
+  /**
+   * Commits the pending batch in one transaction and then acknowledges its
+   * store operations. If the commit fails, none of them is acknowledged.
+   */
+  private synchronized void commitBatch() throws Exception {
+    if (batchStoreOps == 0) {
+      return;
+    }
+    List<BatchedOp> ops = new ArrayList<BatchedOp>(batch);
+    List<Event> completions = new ArrayList<Event>(batchCompletions);
+    int storeOps = batchStoreOps;
+    long startTime = batchStartTime;
+    batch.clear();
+    batchedPaths.clear();
+    batchCompletions.clear();
+    batchStoreOps = 0;
+    batchBytes = 0;
+
+    if (!ops.isEmpty()) {
+      SafeTransaction transaction = new SafeTransaction();
+      for (BatchedOp op : ops) {
+        switch (op.type) {
+        case CREATE:
+          transaction.create(op.path, op.data, zkAcl, CreateMode.PERSISTENT);
+          break;
+        case SET_DATA:
+          transaction.setData(op.path, op.data, -1);
+          break;
+        default:
+          transaction.delete(op.path);
+        }
+      }
+      long commitStart = Time.monotonicNow();
+      transaction.commit();
+      long now = Time.monotonicNow();
+      metrics.addBatch(storeOps, now - commitStart, now - startTime);
+    }
+    for (Event completion : completions) {
+      super.notifyStoreOperationCompleted(completion);
+    }
+  }
+
+  @Override
+  protected synchronized void notifyStoreOperationCompleted(Event event) {
+    if (batchStoreOps > 0) {
+      batchCompletions.add(event);
+    } else {
+      super.notifyStoreOperationCompleted(event);
+    }
+  }
+
+  /**
+   * Compresses the data if it is larger than the configured threshold.
+   */
+  @VisibleForTesting
+  byte[] compress(byte[] data) throws IOException {
+    if (compressionThreshold < 0 || data.length <= compressionThreshold) {
+      return data;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2);
+    GZIPOutputStream out = new GZIPOutputStream(bytes);
+    try {
+      out.write(data);
+    } finally {
+      out.close();
+    }
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Decompresses the data if it was compressed by {@link #compress(byte[])}.
+   * A serialized protobuf never starts with the gzip magic number, which
+   * would be a field with the invalid wire type 7.
+   */
+  @VisibleForTesting
+  static byte[] decompress(byte[] data) throws IOException {
+    if (data.length < 2 || (data[0] & 0xff) != 0x1f
+        || (data[1] & 0xff) != 0x8b) {
+      return data;
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+    GZIPInputStream in =
+        new GZIPInputStream(new ByteArrayInputStream(data));
+    try {
+      IOUtils.copyBytes(in, out, 4096, false);
+    } finally {
+      in.close();
+    }
+    return out.toByteArray();
+  }
+
+  /** A znode operation waiting in the batch. */
+  private static class BatchedOp {
+    enum Type { CREATE, SET_DATA, DELETE }
+
+    private final Type type;
+    private final String path;
+    private final byte[] data;
+
+    BatchedOp(Type type, String path, byte[] data) {
+      this.type = type;
+      this.path = path;
+      this.data = data;
+    }
+  }
+
   /**
    * Use curator transactions to ensure zk-operations are performed in an all
    * or nothing fashion. This is equivalent to using ZooKeeper#multi.
@@ -1037,4 +1248,42 @@ public void run() {
       }
     }
   }
+
+  /**
+   * Commits the pending batch once its oldest store operation has waited for
+   * the configured time.
+   */
+  private class BatchCommitThread extends Thread {
+    BatchCommitThread() {
+      super(BatchCommitThread.class.getName());
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      while (!isInterrupted()) {
+        Exception failure = null;
+        synchronized (ZKRMStateStore.this) {
+          try {
+            long wait = batchStoreOps == 0
+                ? 0 : batchStartTime + batchWaitMs - Time.monotonicNow();
+            if (batchStoreOps == 0 || wait > 0) {
+              ZKRMStateStore.this.wait(batchStoreOps == 0 ? 0 : wait);
+              continue;
+            }
+            commitBatch();
+          } catch (InterruptedException ie) {
+            LOG.info(getName() + " thread interrupted! Exiting!");
+            return;
+          } catch (Exception e) {
+            failure = e;
+          }
+        }
+        // outside the lock, the store's dispatcher may be waiting for it
+        if (failure != null) {
+          notifyStoreOperationFailed(failure);
+        }
+      }
+    }
+  }
 }
@@ -0,0 +1,102 @@
+/**
+* Licensed to the Apache Software Foundation (ASF) under one
+* or more contributor license agreements.  See the NOTICE file
+* distributed with this work for additional information
+* regarding copyright ownership.  The ASF licenses this file
+* to you under the Apache License, Version 2.0 (the
+* "License"); you may not use this file except in compliance
+* with the License.  You may obtain a copy of the License at
+*
+*     http://www.apache.org/licenses/LICENSE-2.0
+*
+* Unless required by applicable law or agreed to in writing, software
+* distributed under the License is distributed on an "AS IS" BASIS,
+* WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+* See the License for the specific language governing permissions and
+* limitations under the License.
+*/
+package org.apache.hadoop.yarn.server.resourcemanager.recovery;
+
+import static org.apache.hadoop.metrics2.lib.Interns.info;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsInfo;
+import org.apache.hadoop.metrics2.MetricsSource;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.annotation.Metric;
+import org.apache.hadoop.metrics2.annotation.Metrics;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
+import org.apache.hadoop.metrics2.lib.MutableRate;
+import org.apache.hadoop.metrics2.lib.MutableStat;
+
+/**
+ * Metrics of the ZooKeeper transactions committing application and attempt
+ * state in the {@link ZKRMStateStore}.  This should be a singleton.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+@Metrics(context="yarn")
+public class ZKRMStateStoreMetrics implements MetricsSource {
+
+  @Metric("# of ZooKeeper transactions committing store operations")
+  MutableCounterLong batches;
+
+  @Metric(value = "Store operations per ZooKeeper transaction",
+      sampleName = "Batches", valueName = "Ops")
+  MutableStat batchSize;
+
+  @Metric("Time to commit a ZooKeeper transaction")
+  MutableRate commitLatency;
+
+  @Metric("Time from a store operation to its commit")
+  MutableRate storeLatency;
+
+  private static final MetricsInfo RECORD_INFO =
+      info("ZKRMStateStoreMetrics", "ZooKeeper RM state store metrics");
+
+  private final MetricsRegistry registry;
+
+  private static final ZKRMStateStoreMetrics INSTANCE =
+      new ZKRMStateStoreMetrics();
+
+  public static ZKRMStateStoreMetrics getInstance() {
+    return INSTANCE;
+  }
+
+  private ZKRMStateStoreMetrics() {
+    registry = new MetricsRegistry(RECORD_INFO);
+    registry.tag(RECORD_INFO, "ResourceManager");
+
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    if (ms != null) {
+      ms.register(RECORD_INFO.name(), RECORD_INFO.description(), this);
+    }
+  }
+
+  @Override
+  public synchronized void getMetrics(MetricsCollector collector, boolean all) {
+    registry.snapshot(collector.addRecord(registry.info()), all);
+  }
+
+  /**
+   * Records a committed transaction.
+   * @param ops the number of store operations in it
+   * @param commitTime the time the commit took
+   * @param waitTime the time its oldest operation waited for the commit,
+   *                 including the commit
+   */
+  public void addBatch(int ops, long commitTime, long waitTime) {
+    batches.incr();
+    batchSize.add(ops);
+    commitLatency.add(commitTime);
+    storeLatency.add(waitTime);
+  }
+
+  public long getNumBatches() {
+    return batches.value();
+  }
+}
@@ -257,6 +257,13 @@ ApplicationReport createAndGetApplicationReport(String clientUserName,
    * @return the external user-facing state of ApplicationMaster.
    */
   YarnApplicationState createApplicationState();
+
+  /**
+   * The latest snapshot of the fields application listings filter on.  It is
+   * published without locking the {@link RMApp}.
+   * @return the summary of the {@link RMApp}.
+   */
+  RMAppSummary getSummary();
   
   /**
    * Get RMAppMetrics of the {@link RMApp}.
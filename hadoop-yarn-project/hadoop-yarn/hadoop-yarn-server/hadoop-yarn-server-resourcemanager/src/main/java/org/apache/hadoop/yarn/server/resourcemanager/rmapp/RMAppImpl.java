@@ -160,6 +160,8 @@ public class RMAppImpl implements RMApp, Recoverable {
   private String collectorAddr;
   // This field isn't protected by readlock now.
   private volatile RMAppAttempt currentAttempt;
+  // Published after every transition, read without the lock by listings.
+  private volatile RMAppSummary summary;
   private String queue;
   private EventHandler handler;
   private static final AppFinishedTransition FINISHED_TRANSITION =
@@ -529,7 +531,7 @@ public RMAppImpl(ApplicationId applicationId, RMContext rmContext,
       }
     }
 
-
+    this.summary = RMAppSummary.newInstance(this);
   }
 
   /**
@@ -617,6 +619,7 @@ public String getQueue() {
   @Override
   public void setQueue(String queue) {
     this.queue = queue;
+    this.summary = RMAppSummary.newInstance(this);
   }
 
   @Override
@@ -879,6 +882,8 @@ public void handle(RMAppEvent event) {
         LOG.info(appID + " State change from " + oldState + " to "
             + getState() + " on event=" + event.getType());
       }
+      // transitions may also set the finish time
+      this.summary = RMAppSummary.newInstance(this);
     } finally {
       this.writeLock.unlock();
     }
@@ -1579,6 +1584,11 @@ public boolean isAppFinalStateStored() {
         || state.equals(RMAppState.KILLED);
   }
 
+  @Override
+  public RMAppSummary getSummary() {
+    return this.summary;
+  }
+
   @Override
   public YarnApplicationState createApplicationState() {
     RMAppState rmAppState = getState();
@@ -0,0 +1,99 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.resourcemanager.rmapp;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.YarnApplicationState;
+
+/**
+ * An immutable snapshot of the fields of an {@link RMApp} that application
+ * listings filter on.  An app publishes a new snapshot whenever one of them
+ * changes, so listings can filter all retained apps without taking the lock
+ * of any of them.
+ */
+public class RMAppSummary {
+  private final ApplicationId applicationId;
+  private final String user;
+  private final String queue;
+  private final String applicationType;
+  private final Set<String> applicationTags;
+  private final YarnApplicationState state;
+  private final long startTime;
+  private final long finishTime;
+
+  public RMAppSummary(ApplicationId applicationId, String user, String queue,
+      String applicationType, Set<String> applicationTags,
+      YarnApplicationState state, long startTime, long finishTime) {
+    this.applicationId = applicationId;
+    this.user = user;
+    this.queue = queue;
+    this.applicationType = applicationType;
+    this.applicationTags = applicationTags == null
+        ? Collections.<String>emptySet()
+        : Collections.unmodifiableSet(new HashSet<String>(applicationTags));
+    this.state = state;
+    this.startTime = startTime;
+    this.finishTime = finishTime;
+  }
+
+  /**
+   * Takes a snapshot of the app through its getters.
+   */
+  public static RMAppSummary newInstance(RMApp app) {
+    return new RMAppSummary(app.getApplicationId(), app.getUser(),
+        app.getQueue(), app.getApplicationType(), app.getApplicationTags(),
+        app.createApplicationState(), app.getStartTime(), app.getFinishTime());
+  }
+
+  public ApplicationId getApplicationId() {
+    return applicationId;
+  }
+
+  public String getUser() {
+    return user;
+  }
+
+  public String getQueue() {
+    return queue;
+  }
+
+  public String getApplicationType() {
+    return applicationType;
+  }
+
+  public Set<String> getApplicationTags() {
+    return applicationTags;
+  }
+
+  public YarnApplicationState getState() {
+    return state;
+  }
+
+  public long getStartTime() {
+    return startTime;
+  }
+
+  public long getFinishTime() {
+    return finishTime;
+  }
+}
@@ -39,6 +39,7 @@
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.classification.InterfaceAudience.Private;
 import org.apache.hadoop.classification.InterfaceStability.Unstable;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.net.Node;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.util.Time;
@@ -54,6 +55,7 @@
 import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.api.records.ResourceOption;
 import org.apache.hadoop.yarn.api.records.ResourceUtilization;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.event.EventHandler;
 import org.apache.hadoop.yarn.factories.RecordFactory;
 import org.apache.hadoop.yarn.factory.providers.RecordFactoryProvider;
@@ -109,6 +111,8 @@ public class RMNodeImpl implements RMNode, EventHandler<RMNodeEvent> {
 
   private final ConcurrentLinkedQueue<UpdatedContainerInfo> nodeUpdateQueue;
   private volatile boolean nextHeartBeat = true;
+  /* Whether heartbeats changing nothing for the scheduler are not sent to it */
+  private final boolean coalesceNodeUpdates;
 
   private final NodeId nodeId;
   private final RMContext context;
@@ -375,6 +379,15 @@ public RMNodeImpl(NodeId nodeId, RMContext context, String hostName,
     this.nodeUpdateQueue = new ConcurrentLinkedQueue<UpdatedContainerInfo>();
 
     this.containerAllocationExpirer = context.getContainerAllocationExpirer();
+
+    // the opportunistic container allocator tracks node queues from every
+    // node update
+    Configuration conf = context.getYarnConfiguration();
+    this.coalesceNodeUpdates = conf != null
+        && conf.getBoolean(YarnConfiguration.RM_NODE_UPDATE_COALESCING_ENABLED,
+            YarnConfiguration.DEFAULT_RM_NODE_UPDATE_COALESCING_ENABLED)
+        && !YarnConfiguration.isOpportunisticContainerAllocationEnabled(conf)
+        && !YarnConfiguration.isDistSchedulingEnabled(conf);
   }
 
   @Override
@@ -1204,7 +1217,7 @@ public NodeState transition(RMNodeImpl rmNode, RMNodeEvent event) {
         rmNode.handleLogAggregationStatus(logAggregationReportsForApps);
       }
 
-      if(rmNode.nextHeartBeat) {
+      if(rmNode.nextHeartBeat && rmNode.hasSchedulerUpdate()) {
         rmNode.nextHeartBeat = false;
         rmNode.context.getDispatcher().getEventHandler().handle(
             new NodeUpdateSchedulerEvent(rmNode));
@@ -1271,6 +1284,19 @@ public List<UpdatedContainerInfo> pullContainerUpdates() {
     return latestContainerInfoList;
   }
 
+  /**
+   * @return whether the scheduler has to see the latest heartbeat: it
+   * reported launched, finished or increased containers, or the scheduler
+   * could allocate on the node.
+   */
+  private boolean hasSchedulerUpdate() {
+    return !coalesceNodeUpdates || getState() != NodeState.RUNNING
+        || !nodeUpdateQueue.isEmpty()
+        || !nmReportedIncreasedContainers.isEmpty()
+        || SchedulerUtils.hasRoomForPendingRequests(context.getScheduler(),
+            this);
+  }
+
   @VisibleForTesting
   public void setNextHeartBeat(boolean nextHeartBeat) {
     this.nextHeartBeat = nextHeartBeat;
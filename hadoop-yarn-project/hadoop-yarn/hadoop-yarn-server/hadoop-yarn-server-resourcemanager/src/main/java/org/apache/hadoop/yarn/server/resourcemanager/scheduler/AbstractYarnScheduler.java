@@ -975,7 +975,7 @@ protected synchronized void nodeUpdate(RMNode nm) {
     List<ContainerStatus> completedContainers = updateNewContainerInfo(nm);
 
     // Process completed containers
-    Resource releasedResources = Resource.newInstance(0, 0);
+    Resource releasedResources = Resources.createResource(0, 0);
     int releasedContainers = updateCompletedContainers(completedContainers,
         releasedResources);
 
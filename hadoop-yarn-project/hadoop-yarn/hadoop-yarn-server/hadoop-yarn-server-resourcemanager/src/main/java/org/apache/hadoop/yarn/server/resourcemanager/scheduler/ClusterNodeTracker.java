@@ -34,6 +34,7 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -55,6 +56,18 @@
   private Map<String, N> nodeNameToNodeMap = new HashMap<>();
   private Map<String, List<N>> nodesPerRack = new HashMap<>();
 
+  // Nodes sorted by score, kept only while a NodeScorer is set
+  private NodeScorer nodeScorer;
+  private final Map<NodeId, Double> nodeScores = new HashMap<>();
+  private final TreeSet<N> scoredNodes = new TreeSet<>(new Comparator<N>() {
+    @Override
+    public int compare(N n1, N n2) {
+      int c = Double.compare(nodeScores.get(n1.getNodeID()),
+          nodeScores.get(n2.getNodeID()));
+      return c != 0 ? c : n1.getNodeID().compareTo(n2.getNodeID());
+    }
+  });
+
   private Resource clusterCapacity = Resources.clone(Resources.none());
   private Resource staleClusterCapacity = null;
 
@@ -80,6 +93,10 @@ public void addNode(N node) {
       }
       nodesList.add(node);
 
+      if (nodeScorer != null) {
+        scoreNode(node);
+      }
+
       // Update cluster capacity
       Resources.addTo(clusterCapacity, node.getTotalResource());
 
@@ -173,6 +190,11 @@ public N removeNode(NodeId nodeId) {
         }
       }
 
+      if (nodeScorer != null) {
+        scoredNodes.remove(node);
+        nodeScores.remove(nodeId);
+      }
+
       // Update cluster capacity
       Resources.subtractFrom(clusterCapacity, node.getTotalResource());
 
@@ -185,6 +207,74 @@ public N removeNode(NodeId nodeId) {
     }
   }
 
+  /**
+   * Sets how nodes are ordered by {@link #getScoredNodes(int)}, scoring all
+   * current nodes.
+   * @param scorer the scorer, or null to stop keeping nodes sorted
+   */
+  public void setNodeScorer(NodeScorer scorer) {
+    writeLock.lock();
+    try {
+      nodeScorer = scorer;
+      scoredNodes.clear();
+      nodeScores.clear();
+      if (scorer != null) {
+        for (N node : nodes.values()) {
+          scoreNode(node);
+        }
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Scores the node again after its allocation changed.
+   */
+  public void updateNodeScore(N node) {
+    writeLock.lock();
+    try {
+      if (nodeScorer != null && nodes.get(node.getNodeID()) == node) {
+        scoreNode(node);
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private void scoreNode(N node) {
+    if (nodeScores.containsKey(node.getNodeID())) {
+      // the order is by the old score until the node is taken out
+      scoredNodes.remove(node);
+    }
+    nodeScores.put(node.getNodeID(), nodeScorer.score(node));
+    scoredNodes.add(node);
+  }
+
+  /**
+   * @param limit the maximum number of nodes to return
+   * @param minimum the resource a node must have unallocated to be returned
+   * @return the nodes with the lowest scores among those with room for the
+   * minimum, lowest first; empty if no {@link NodeScorer} is set
+   */
+  public List<N> getScoredNodes(int limit, Resource minimum) {
+    readLock.lock();
+    try {
+      List<N> nodeList = new ArrayList<>(Math.min(limit, scoredNodes.size()));
+      for (N node : scoredNodes) {
+        if (nodeList.size() >= limit) {
+          break;
+        }
+        if (Resources.fitsIn(minimum, node.getUnallocatedResource())) {
+          nodeList.add(node);
+        }
+      }
+      return nodeList;
+    } finally {
+      readLock.unlock();
+    }
+  }
+
   public void setConfiguredMaxAllocation(Resource resource) {
     writeLock.lock();
     try {
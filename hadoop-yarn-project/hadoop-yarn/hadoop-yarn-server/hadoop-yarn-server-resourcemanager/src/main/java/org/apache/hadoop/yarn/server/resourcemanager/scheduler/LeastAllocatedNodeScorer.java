@@ -0,0 +1,48 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.yarn.api.records.Resource;
+
+/**
+ * Tries the least allocated nodes first, which spreads containers across the
+ * cluster.  A node is as allocated as its most allocated resource.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+public class LeastAllocatedNodeScorer implements NodeScorer {
+  @Override
+  public double score(SchedulerNode node) {
+    return getAllocatedShare(node);
+  }
+
+  /**
+   * @return the largest share of any resource of the node which is allocated
+   */
+  static double getAllocatedShare(SchedulerNode node) {
+    Resource total = node.getTotalResource();
+    Resource allocated = node.getAllocatedResource();
+    double memory = total.getMemorySize() <= 0 ? 1
+        : (double) allocated.getMemorySize() / total.getMemorySize();
+    double vcores = total.getVirtualCores() <= 0 ? 1
+        : (double) allocated.getVirtualCores() / total.getVirtualCores();
+    return Math.max(memory, vcores);
+  }
+}
@@ -0,0 +1,37 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+
+/**
+ * Orders the nodes a scheduler looks at when it places containers on more
+ * than the node which heartbeated.  {@link ClusterNodeTracker} keeps the
+ * nodes sorted by their score, and re-scores a node whenever the scheduler
+ * reports that its allocation changed.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+public interface NodeScorer {
+  /**
+   * @param node the node to score
+   * @return the score of the node; nodes with lower scores are tried first
+   */
+  double score(SchedulerNode node);
+}
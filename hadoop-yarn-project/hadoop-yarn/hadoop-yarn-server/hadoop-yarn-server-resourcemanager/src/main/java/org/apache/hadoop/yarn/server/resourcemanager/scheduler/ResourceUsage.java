@@ -77,7 +77,7 @@ private static class UsageByLabel {
     public UsageByLabel(String label) {
       resArr = new Resource[ResourceType.values().length];
       for (int i = 0; i < resArr.length; i++) {
-        resArr[i] = Resource.newInstance(0, 0);
+        resArr[i] = Resources.createResource(0, 0);
       };
     }
     
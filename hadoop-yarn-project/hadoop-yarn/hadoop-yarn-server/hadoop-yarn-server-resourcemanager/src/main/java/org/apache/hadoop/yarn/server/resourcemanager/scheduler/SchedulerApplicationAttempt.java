@@ -103,13 +103,14 @@ public class SchedulerApplicationAttempt implements SchedulableEntity {
   protected ApplicationAttemptId attemptId;
   protected Map<ContainerId, RMContainer> liveContainers =
       new ConcurrentHashMap<>();
+  private final AtomicLong liveContainersVersion = new AtomicLong(0);
   protected final Map<SchedulerRequestKey, Map<NodeId, RMContainer>>
       reservedContainers = new HashMap<>();
 
   private final ConcurrentHashMultiset<SchedulerRequestKey> reReservations =
       ConcurrentHashMultiset.create();
   
-  private volatile Resource resourceLimit = Resource.newInstance(0, 0);
+  private volatile Resource resourceLimit = Resources.createResource(0, 0);
   private boolean unmanagedAM = true;
   private boolean amRunning = false;
   private LogAggregationContext logAggregationContext;
@@ -233,6 +234,23 @@ public Collection<RMContainer> getLiveContainers() {
     }
   }
 
+  /**
+   * Get a number that grows each time a container is added to or removed
+   * from the live containers of the application, so that a caller can tell
+   * whether {@link #getLiveContainersMap()} changed without walking it.
+   * @return the version of the live containers
+   */
+  public long getLiveContainersVersion() {
+    return liveContainersVersion.get();
+  }
+
+  /**
+   * To be called after each change of {@link #liveContainers}.
+   */
+  protected void liveContainersChanged() {
+    liveContainersVersion.incrementAndGet();
+  }
+
   public AppSchedulingInfo getAppSchedulingInfo() {
     return this.appSchedulingInfo;
   }
@@ -351,6 +369,7 @@ public void addRMContainer(
     try {
       writeLock.lock();
       liveContainers.put(id, rmContainer);
+      liveContainersChanged();
       if (rmContainer.getExecutionType() == ExecutionType.OPPORTUNISTIC) {
         this.attemptOpportunisticResourceUsage.incUsed(
             rmContainer.getAllocatedResource());
@@ -369,6 +388,7 @@ public void removeRMContainer(ContainerId containerId) {
       writeLock.lock();
       RMContainer rmContainer = liveContainers.remove(containerId);
       if (rmContainer != null) {
+        liveContainersChanged();
         if (rmContainer.getExecutionType() == ExecutionType.OPPORTUNISTIC) {
           this.attemptOpportunisticResourceUsage
               .decUsed(rmContainer.getAllocatedResource());
@@ -912,7 +932,6 @@ public ApplicationResourceUsageReport getResourceUsageReport() {
     }
   }
 
-  @VisibleForTesting
   public Map<ContainerId, RMContainer> getLiveContainersMap() {
     return this.liveContainers;
   }
@@ -927,6 +946,7 @@ public void transferStateFromPreviousAttempt(
     try {
       writeLock.lock();
       this.liveContainers = appAttempt.getLiveContainersMap();
+      liveContainersChanged();
       // this.reReservations = appAttempt.reReservations;
       this.attemptResourceUsage.copyAllUsed(appAttempt.attemptResourceUsage);
       this.setHeadroom(appAttempt.resourceLimit);
@@ -983,6 +1003,7 @@ public void recoverContainer(SchedulerNode node,
       LOG.info("SchedulerAttempt " + getApplicationAttemptId()
           + " is recovering container " + rmContainer.getContainerId());
       liveContainers.put(rmContainer.getContainerId(), rmContainer);
+      liveContainersChanged();
       attemptResourceUsage.incUsed(node.getPartition(),
           rmContainer.getContainer().getResource());
 
@@ -21,6 +21,7 @@
 import org.apache.hadoop.yarn.api.records.ContainerId;
 import org.apache.hadoop.yarn.api.records.NodeId;
 import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.util.resource.Resources;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -75,7 +76,7 @@ public SchedulerHealth() {
     schedulerOperationCounts = new ConcurrentHashMap<>();
     schedulerOperationAggregateCounts = new ConcurrentHashMap<>();
     for (Operation op : Operation.values()) {
-      lastSchedulerRunDetails.put(op, Resource.newInstance(0, 0));
+      lastSchedulerRunDetails.put(op, Resources.createResource(0, 0));
       schedulerOperationCounts.put(op, 0L);
       schedulerHealthDetails.put(op, new DetailedInformation(0, null, null,
         null));
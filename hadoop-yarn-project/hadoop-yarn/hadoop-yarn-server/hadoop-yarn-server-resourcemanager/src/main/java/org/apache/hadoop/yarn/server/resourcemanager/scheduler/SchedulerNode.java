@@ -53,8 +53,8 @@ public abstract class SchedulerNode {
 
   private static final Log LOG = LogFactory.getLog(SchedulerNode.class);
 
-  private Resource unallocatedResource = Resource.newInstance(0, 0);
-  private Resource allocatedResource = Resource.newInstance(0, 0);
+  private Resource unallocatedResource = Resources.createResource(0, 0);
+  private Resource allocatedResource = Resources.createResource(0, 0);
   private Resource totalResource;
   private RMContainer reservedContainer;
   private volatile int numContainers;
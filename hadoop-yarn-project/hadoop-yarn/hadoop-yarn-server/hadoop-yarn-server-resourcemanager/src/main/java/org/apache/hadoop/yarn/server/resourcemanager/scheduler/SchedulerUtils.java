@@ -41,6 +41,7 @@
 import org.apache.hadoop.yarn.security.AccessType;
 import org.apache.hadoop.yarn.server.resourcemanager.RMContext;
 import org.apache.hadoop.yarn.server.resourcemanager.nodelabels.RMNodeLabelsManager;
+import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNode;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.SchedulingMode;
 import org.apache.hadoop.yarn.util.resource.ResourceCalculator;
 import org.apache.hadoop.yarn.util.resource.Resources;
@@ -417,4 +418,26 @@ public static boolean hasPendingResourceRequest(ResourceCalculator rc,
     }
     return hasPendingResourceRequest(rc, usage, partitionToLookAt, cluster);
   }
+
+  /**
+   * Tells whether the scheduler could allocate a container on the node: the
+   * node has room for a minimum allocation and applications have pending
+   * requests.  Pending requests are only counted for the default partition,
+   * so this is assumed for nodes with labels.
+   */
+  @Private
+  public static boolean hasRoomForPendingRequests(YarnScheduler scheduler,
+      RMNode node) {
+    if (!node.getNodeLabels().isEmpty()) {
+      return true;
+    }
+    QueueMetrics metrics = scheduler.getRootQueueMetrics();
+    if (metrics != null && metrics.getPendingContainers() == 0) {
+      return false;
+    }
+    SchedulerNode schedulerNode = scheduler.getSchedulerNode(node.getNodeID());
+    return schedulerNode == null
+        || Resources.fitsIn(scheduler.getMinimumResourceCapability(),
+            schedulerNode.getUnallocatedResource());
+  }
 }
@@ -68,7 +68,7 @@ public CSAssignment(FiCaSchedulerApp application,
   }
 
   public CSAssignment(SkippedType skipped) {
-    this(Resource.newInstance(0, 0), NodeType.NODE_LOCAL, null, null, skipped,
+    this(Resources.createResource(0, 0), NodeType.NODE_LOCAL, null, null, skipped,
       false);
   }
 
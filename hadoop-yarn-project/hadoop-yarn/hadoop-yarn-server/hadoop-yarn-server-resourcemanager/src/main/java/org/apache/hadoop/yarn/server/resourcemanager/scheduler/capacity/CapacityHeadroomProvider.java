@@ -57,7 +57,7 @@ public Resource getHeadroom() {
       headroom = queue.getHeadroom(user, queueCurrentLimit, clusterResource,
           application);
     } else {
-      headroom = Resource.newInstance(0, 0);
+      headroom = Resources.createResource(0, 0);
       for (String partition : requestedPartitions) {
         Resource partitionHeadRoom = queue.getHeadroom(user, queueCurrentLimit,
             clusterResource, application, partition);
@@ -21,7 +21,6 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
@@ -32,7 +31,9 @@
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.lang.StringUtils;
@@ -91,6 +92,7 @@
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.AbstractYarnScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.Allocation;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.AppSchedulingInfo;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.NodeFilter;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.NodeType;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.PreemptableResourceScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.Queue;
@@ -103,6 +105,8 @@
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerApplicationAttempt;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerDynamicEditException;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerNode;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerRequestKey;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerAppUtils;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerUtils;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.activities.ActivityDiagnosticConstant;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.activities.ActivitiesLogger;
@@ -129,6 +133,7 @@
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.SchedulerEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.SchedulerEventType;
 import org.apache.hadoop.yarn.server.resourcemanager.security.RMContainerTokenSecretManager;
+import org.apache.hadoop.yarn.server.utils.BuilderUtils;
 import org.apache.hadoop.yarn.server.utils.Lock;
 import org.apache.hadoop.yarn.util.resource.DefaultResourceCalculator;
 import org.apache.hadoop.yarn.util.resource.ResourceCalculator;
@@ -229,7 +234,23 @@ public Configuration getConf() {
   private boolean usePortForNodeName;
 
   private boolean scheduleAsynchronously;
-  private AsyncScheduleThread asyncSchedulerThread;
+  private List<AsyncScheduleThread> asyncSchedulerThreads;
+  private ResourceCommitterThread resourceCommitterThread;
+  /** Allocations proposed by the scheduling threads, null with only one. */
+  private BlockingQueue<AllocationProposal> pendingProposals;
+  /** Nodes with a proposal waiting for the committer. */
+  private final Set<NodeId> proposedNodes =
+      Collections.newSetFromMap(new ConcurrentHashMap<NodeId, Boolean>());
+
+  private volatile boolean multiNodePlacementEnabled;
+  private volatile int multiNodePlacementLookahead;
+
+  private static final NodeFilter RESERVED_NODES = new NodeFilter() {
+    @Override
+    public boolean accept(SchedulerNode node) {
+      return node.getReservedContainer() != null;
+    }
+  };
   private RMNodeLabelsManager labelManager;
 
   /**
@@ -311,12 +332,24 @@ private void initScheduler(Configuration configuration) throws
       activitiesManager.init(conf);
       initializeQueues(this.conf);
       this.isLazyPreemptionEnabled = conf.getLazyPreemptionEnabled();
+      initMultiNodePlacement();
 
       scheduleAsynchronously = this.conf.getScheduleAynschronously();
       asyncScheduleInterval = this.conf.getLong(ASYNC_SCHEDULER_INTERVAL,
           DEFAULT_ASYNC_SCHEDULER_INTERVAL);
+      int asyncSchedulingThreads = 0;
       if (scheduleAsynchronously) {
-        asyncSchedulerThread = new AsyncScheduleThread(this);
+        asyncSchedulingThreads = this.conf.getAsyncSchedulingThreads();
+        asyncSchedulerThreads = new ArrayList<AsyncScheduleThread>();
+        for (int i = 0; i < asyncSchedulingThreads; i++) {
+          asyncSchedulerThreads.add(
+              new AsyncScheduleThread(this, i, asyncSchedulingThreads));
+        }
+        if (asyncSchedulingThreads > 1) {
+          pendingProposals = new LinkedBlockingQueue<AllocationProposal>(
+              this.conf.getAsyncSchedulingMaximumPendingProposals());
+          resourceCommitterThread = new ResourceCommitterThread(this);
+        }
       }
 
       LOG.info("Initialized CapacityScheduler with " + "calculator="
@@ -324,7 +357,8 @@ private void initScheduler(Configuration configuration) throws
           + getMinimumResourceCapability() + ">, " + "maximumAllocation=<"
           + getMaximumResourceCapability() + ">, " + "asynchronousScheduling="
           + scheduleAsynchronously + ", " + "asyncScheduleInterval="
-          + asyncScheduleInterval + "ms");
+          + asyncScheduleInterval + "ms, " + "asyncSchedulingThreads="
+          + asyncSchedulingThreads);
     } finally {
       writeLock.unlock();
     }
@@ -335,9 +369,14 @@ private void startSchedulerThreads() {
       writeLock.lock();
       activitiesManager.start();
       if (scheduleAsynchronously) {
-        Preconditions.checkNotNull(asyncSchedulerThread,
-            "asyncSchedulerThread is null");
-        asyncSchedulerThread.start();
+        Preconditions.checkNotNull(asyncSchedulerThreads,
+            "asyncSchedulerThreads is null");
+        if (resourceCommitterThread != null) {
+          resourceCommitterThread.start();
+        }
+        for (AsyncScheduleThread t : asyncSchedulerThreads) {
+          t.start();
+        }
       }
     } finally {
       writeLock.unlock();
@@ -361,9 +400,15 @@ public void serviceStart() throws Exception {
   public void serviceStop() throws Exception {
     try {
       writeLock.lock();
-      if (scheduleAsynchronously && asyncSchedulerThread != null) {
-        asyncSchedulerThread.interrupt();
-        asyncSchedulerThread.join(THREAD_JOIN_TIMEOUT_MS);
+      if (scheduleAsynchronously && asyncSchedulerThreads != null) {
+        for (AsyncScheduleThread t : asyncSchedulerThreads) {
+          t.interrupt();
+          t.join(THREAD_JOIN_TIMEOUT_MS);
+        }
+        if (resourceCommitterThread != null) {
+          resourceCommitterThread.interrupt();
+          resourceCommitterThread.join(THREAD_JOIN_TIMEOUT_MS);
+        }
       }
     } finally {
       writeLock.unlock();
@@ -393,6 +438,7 @@ public void reinitialize(Configuration newConf, RMContext rmContext)
 
       // update lazy preemption
       this.isLazyPreemptionEnabled = this.conf.getLazyPreemptionEnabled();
+      initMultiNodePlacement();
     } finally {
       writeLock.unlock();
     }
@@ -402,6 +448,34 @@ long getAsyncScheduleInterval() {
     return asyncScheduleInterval;
   }
 
+  private void initMultiNodePlacement() {
+    multiNodePlacementEnabled = conf.getMultiNodePlacementEnabled();
+    multiNodePlacementLookahead = conf.getMultiNodePlacementLookahead();
+    nodeTracker.setNodeScorer(
+        multiNodePlacementEnabled ? conf.getNodeScorer() : null);
+  }
+
+  private void updateNodeScore(FiCaSchedulerNode node) {
+    if (multiNodePlacementEnabled && node != null) {
+      nodeTracker.updateNodeScore(node);
+    }
+  }
+
+  /**
+   * @return the best scored nodes, followed by any other node holding a
+   * reservation, which only an allocation on that node can fulfill
+   */
+  List<FiCaSchedulerNode> getCandidateNodes() {
+    List<FiCaSchedulerNode> candidates = nodeTracker.getScoredNodes(
+        multiNodePlacementLookahead, minimumAllocation);
+    for (FiCaSchedulerNode node : nodeTracker.getNodes(RESERVED_NODES)) {
+      if (!candidates.contains(node)) {
+        candidates.add(node);
+      }
+    }
+    return candidates;
+  }
+
   private final static Random random = new Random(System.currentTimeMillis());
   
   /**
@@ -409,43 +483,96 @@ long getAsyncScheduleInterval() {
    * @param cs
    */
   static void schedule(CapacityScheduler cs) {
-    // First randomize the start point
-    int current = 0;
-    Collection<FiCaSchedulerNode> nodes = cs.nodeTracker.getAllNodes();
-    int start = random.nextInt(nodes.size());
-    for (FiCaSchedulerNode node : nodes) {
-      if (current++ >= start) {
-        cs.allocateContainersToNode(node);
+    schedule(cs, 0, 1);
+  }
+
+  /**
+   * Schedule on the share of the nodes of one of several scheduling
+   * threads.  The thread with the given index takes every count-th node and
+   * walks them once, starting at a random one.  A single thread walks all
+   * nodes twice, see {@link #schedule(CapacityScheduler)}.
+   * @param cs
+   * @param index the index of the scheduling thread
+   * @param count the number of scheduling threads
+   */
+  static void schedule(CapacityScheduler cs, int index, int count) {
+    try {
+      if (cs.multiNodePlacementEnabled) {
+        List<FiCaSchedulerNode> candidates = cs.getCandidateNodes();
+        for (int i = index; i < candidates.size(); i += count) {
+          cs.scheduleOnNode(candidates.get(i));
+        }
+        Thread.sleep(cs.getAsyncScheduleInterval());
+        return;
+      }
+      List<FiCaSchedulerNode> nodes = cs.nodeTracker.getAllNodes();
+      if (count > 1) {
+        int share = (nodes.size() - index + count - 1) / count;
+        if (share > 0) {
+          int first = random.nextInt(share);
+          for (int i = 0; i < share; i++) {
+            cs.scheduleOnNode(nodes.get(index + (first + i) % share * count));
+          }
+        }
+        Thread.sleep(cs.getAsyncScheduleInterval());
+        return;
+      }
+      // First randomize the start point
+      int current = 0;
+      int start = random.nextInt(nodes.size());
+      for (FiCaSchedulerNode node : nodes) {
+        if (current++ >= start) {
+          cs.scheduleOnNode(node);
+        }
+      }
+      // Now, just get everyone to be safe
+      for (FiCaSchedulerNode node : nodes) {
+        cs.scheduleOnNode(node);
       }
+      Thread.sleep(cs.getAsyncScheduleInterval());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
-    // Now, just get everyone to be safe
-    for (FiCaSchedulerNode node : nodes) {
-      cs.allocateContainersToNode(node);
+  }
+
+  private void scheduleOnNode(FiCaSchedulerNode node)
+      throws InterruptedException {
+    if (pendingProposals == null) {
+      allocateContainersToNode(node);
+    } else {
+      proposeAllocation(node);
     }
-    try {
-      Thread.sleep(cs.getAsyncScheduleInterval());
-    } catch (InterruptedException e) {}
   }
-  
+
   static class AsyncScheduleThread extends Thread {
 
     private final CapacityScheduler cs;
+    private final int index;
+    private final int count;
     private AtomicBoolean runSchedules = new AtomicBoolean(false);
 
     public AsyncScheduleThread(CapacityScheduler cs) {
+      this(cs, 0, 1);
+    }
+
+    AsyncScheduleThread(CapacityScheduler cs, int index, int count) {
       this.cs = cs;
+      this.index = index;
+      this.count = count;
       setDaemon(true);
     }
 
     @Override
     public void run() {
-      while (true) {
+      while (!isInterrupted()) {
         if (!runSchedules.get()) {
           try {
             Thread.sleep(100);
-          } catch (InterruptedException ie) {}
+          } catch (InterruptedException ie) {
+            return;
+          }
         } else {
-          schedule(cs);
+          schedule(cs, index, count);
         }
       }
     }
@@ -460,6 +587,323 @@ public void suspendSchedule() {
 
   }
 
+  /**
+   * A container a scheduling thread chose for an application on a node,
+   * within the queue and user limits it saw.  The committer only checks that
+   * the node still has room and the application still asks for it.
+   */
+  static class AllocationProposal {
+    private final FiCaSchedulerNode node;
+    private final FiCaSchedulerApp application;
+    private final SchedulerRequestKey schedulerKey;
+    private final NodeType type;
+    private final Resource capability;
+    private final long proposeTime;
+
+    AllocationProposal(FiCaSchedulerNode node, FiCaSchedulerApp application,
+        SchedulerRequestKey schedulerKey, NodeType type, Resource capability) {
+      this.node = node;
+      this.application = application;
+      this.schedulerKey = schedulerKey;
+      this.type = type;
+      this.capability = capability;
+      this.proposeTime = Time.monotonicNow();
+    }
+
+    FiCaSchedulerNode getNode() {
+      return node;
+    }
+
+    FiCaSchedulerApp getApplication() {
+      return application;
+    }
+
+    SchedulerRequestKey getSchedulerKey() {
+      return schedulerKey;
+    }
+
+    NodeType getType() {
+      return type;
+    }
+
+    Resource getCapability() {
+      return capability;
+    }
+  }
+
+  /**
+   * Applies the allocations proposed by the scheduling threads one at a
+   * time, so the queues and nodes only ever change under one writer.
+   */
+  static class ResourceCommitterThread extends Thread {
+    private final CapacityScheduler cs;
+
+    ResourceCommitterThread(CapacityScheduler cs) {
+      super("ResourceCommitterThread");
+      this.cs = cs;
+      setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+      while (!isInterrupted()) {
+        try {
+          cs.commitProposal(cs.pendingProposals.take());
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Queues an allocation on the node for the committer, if one could
+   * succeed.  The container is chosen here, under the read lock, so the
+   * scheduling threads work on nodes in parallel and the committer only
+   * checks and applies what they found.
+   * @return whether an allocation was proposed
+   */
+  @VisibleForTesting
+  boolean proposeAllocation(FiCaSchedulerNode node)
+      throws InterruptedException {
+    AllocationProposal proposal;
+    try {
+      readLock.lock();
+      proposal = findAllocation(node);
+    } finally {
+      readLock.unlock();
+    }
+    if (proposal == null || !proposedNodes.add(node.getNodeID())) {
+      return false;
+    }
+    pendingProposals.put(proposal);
+    return true;
+  }
+
+  /**
+   * Finds a container for the node, if it is still tracked and has no
+   * reservation.  Proposals never reserve and never wait for locality: the
+   * first application, in queue and application order, with a request the
+   * unallocated resource of the node holds gets it, if the queue, its
+   * parents and the user limit of the application allow one more container.
+   */
+  @VisibleForTesting
+  AllocationProposal findAllocation(FiCaSchedulerNode node) {
+    if (rmContext.isWorkPreservingRecoveryEnabled() && !rmContext
+        .isSchedulerReadyForAllocatingContainers()) {
+      return null;
+    }
+    if (nodeTracker.getNode(node.getNodeID()) != node
+        || node.getReservedContainer() != null) {
+      return null;
+    }
+    if (calculator.computeAvailableContainers(node.getUnallocatedResource(),
+        minimumAllocation) <= 0) {
+      return null;
+    }
+    return findAllocation(root, node);
+  }
+
+  private AllocationProposal findAllocation(CSQueue queue,
+      FiCaSchedulerNode node) {
+    if (!((AbstractCSQueue) queue).accessibleToPartition(
+        node.getPartition())) {
+      return null;
+    }
+    if (!(queue instanceof LeafQueue)) {
+      for (CSQueue child : queue.getChildQueues()) {
+        AllocationProposal proposal = findAllocation(child, node);
+        if (proposal != null) {
+          return proposal;
+        }
+      }
+      return null;
+    }
+    LeafQueue leafQueue = (LeafQueue) queue;
+    for (FiCaSchedulerApp application : leafQueue.getApplications()) {
+      if (SchedulerAppUtils.isPlaceBlacklisted(application, node, LOG)) {
+        continue;
+      }
+      for (SchedulerRequestKey schedulerKey : application
+          .getSchedulerKeys()) {
+        NodeType type = getLocalityType(application, schedulerKey, node);
+        if (type == null) {
+          continue;
+        }
+        Resource capability = application.getResourceRequest(schedulerKey,
+            ResourceRequest.ANY).getCapability();
+        if (!Resources.fitsIn(capability, node.getUnallocatedResource())) {
+          continue;
+        }
+        if (!leafQueue.canAssignToApplication(getClusterResource(),
+            application, node.getPartition(), capability)) {
+          break;
+        }
+        if (!canAssignToParents(leafQueue, node.getPartition(), capability)) {
+          return null;
+        }
+        return new AllocationProposal(node, application, schedulerKey, type,
+            capability);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Checks that every parent of the queue has room for the resource on the
+   * partition, as they check before assigning to their children.
+   */
+  private boolean canAssignToParents(CSQueue queue, String nodePartition,
+      Resource required) {
+    Resource clusterResource = getClusterResource();
+    for (CSQueue parent = queue.getParent(); parent != null;
+         parent = parent.getParent()) {
+      ResourceLimits limits = new ResourceLimits(
+          labelManager.getResourceByLabel(nodePartition, clusterResource));
+      if (!((AbstractCSQueue) parent).canAssignToThisQueue(clusterResource,
+          nodePartition, limits, Resources.none(),
+          SchedulingMode.RESPECT_PARTITION_EXCLUSIVITY)
+          || !Resources.greaterThanOrEqual(calculator, clusterResource,
+              limits.getHeadroom(), required)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * The locality an allocation of the request on the node has, the best
+   * one with outstanding containers, or <code>null</code> if the request is
+   * not pending on the node's partition or may not relax to the node.
+   */
+  private static NodeType getLocalityType(FiCaSchedulerApp application,
+      SchedulerRequestKey schedulerKey, FiCaSchedulerNode node) {
+    ResourceRequest anyRequest = application.getResourceRequest(schedulerKey,
+        ResourceRequest.ANY);
+    if (anyRequest == null || anyRequest.getNumContainers() <= 0
+        || !SchedulerUtils.checkResourceRequestMatchingNodePartition(
+            anyRequest.getNodeLabelExpression(), node.getPartition(),
+            SchedulingMode.RESPECT_PARTITION_EXCLUSIVITY)) {
+      return null;
+    }
+    ResourceRequest nodeRequest = application.getResourceRequest(
+        schedulerKey, node.getNodeName());
+    if (nodeRequest != null && nodeRequest.getNumContainers() > 0) {
+      return NodeType.NODE_LOCAL;
+    }
+    ResourceRequest rackRequest = application.getResourceRequest(
+        schedulerKey, node.getRackName());
+    if (rackRequest != null) {
+      if (!rackRequest.getRelaxLocality()) {
+        return null;
+      }
+      if (rackRequest.getNumContainers() > 0) {
+        return NodeType.RACK_LOCAL;
+      }
+    }
+    return anyRequest.getRelaxLocality() ? NodeType.OFF_SWITCH : null;
+  }
+
+  /**
+   * The request of the given locality an allocation would be taken from, or
+   * <code>null</code> if it has no outstanding containers any more.
+   */
+  private static ResourceRequest getPendingRequest(
+      FiCaSchedulerApp application, SchedulerRequestKey schedulerKey,
+      FiCaSchedulerNode node, NodeType type) {
+    ResourceRequest anyRequest = application.getResourceRequest(schedulerKey,
+        ResourceRequest.ANY);
+    if (anyRequest == null || anyRequest.getNumContainers() <= 0) {
+      return null;
+    }
+    String resourceName = ResourceRequest.ANY;
+    if (type == NodeType.NODE_LOCAL) {
+      resourceName = node.getNodeName();
+    } else if (type == NodeType.RACK_LOCAL) {
+      resourceName = node.getRackName();
+    }
+    ResourceRequest request = application.getResourceRequest(schedulerKey,
+        resourceName);
+    return request != null && request.getNumContainers() > 0
+        ? request : null;
+  }
+
+  /**
+   * Allocates the proposed container unless the node was removed, got a
+   * reservation or no longer has room for it, or the application no longer
+   * asks for it.  Limits are not checked again.
+   * @return whether the proposal allocated a container
+   */
+  @VisibleForTesting
+  boolean commitProposal(AllocationProposal proposal) {
+    FiCaSchedulerNode node = proposal.node;
+    FiCaSchedulerApp application = proposal.application;
+    boolean accepted = false;
+    try {
+      writeLock.lock();
+      if (nodeTracker.getNode(node.getNodeID()) == node
+          && node.getReservedContainer() == null
+          && Resources.fitsIn(proposal.capability,
+              node.getUnallocatedResource())
+          && getApplicationAttempt(application.getApplicationAttemptId())
+              == application
+          && !application.isStopped()) {
+        ResourceRequest request = getPendingRequest(application,
+            proposal.schedulerKey, node, proposal.type);
+        accepted = request != null
+            && request.getCapability().equals(proposal.capability)
+            && applyProposal(proposal, request);
+      }
+    } finally {
+      proposedNodes.remove(node.getNodeID());
+      writeLock.unlock();
+    }
+    CapacitySchedulerMetrics.getInstance().addCommit(accepted,
+        Time.monotonicNow() - proposal.proposeTime);
+    if (!accepted && LOG.isDebugEnabled()) {
+      LOG.debug("Rejected allocation proposal for "
+          + application.getApplicationAttemptId() + " on "
+          + node.getNodeID());
+    }
+    return accepted;
+  }
+
+  private boolean applyProposal(AllocationProposal proposal,
+      ResourceRequest request) {
+    FiCaSchedulerNode node = proposal.node;
+    FiCaSchedulerApp application = proposal.application;
+    SchedulerRequestKey schedulerKey = proposal.schedulerKey;
+    Container container = BuilderUtils.newContainer(
+        BuilderUtils.newContainerId(application.getApplicationAttemptId(),
+            application.getNewContainerId()),
+        node.getNodeID(), node.getRMNode().getHttpAddress(),
+        proposal.capability, schedulerKey.getPriority(), null,
+        schedulerKey.getAllocationRequestId());
+    RMContainer rmContainer = application.allocate(proposal.type, node,
+        schedulerKey, request, container);
+    if (rmContainer == null) {
+      return false;
+    }
+    node.allocateContainer(rmContainer);
+    application.incNumAllocatedContainers(proposal.type, proposal.type);
+
+    // charge the queue, its user and the parent queues the same way a
+    // recovered container is charged
+    LeafQueue queue = application.getCSLeafQueue();
+    queue.recoverContainer(getClusterResource(), application, rmContainer);
+
+    CSAssignment assignment =
+        new CSAssignment(proposal.capability, proposal.type);
+    Resources.addTo(assignment.getAssignmentInformation().getAllocated(),
+        proposal.capability);
+    assignment.getAssignmentInformation().addAllocationDetails(
+        container.getId(), queue.getQueuePath());
+    assignment.getAssignmentInformation().incrAllocations();
+    updateSchedulerHealth(lastNodeUpdateTime, node, assignment);
+    updateNodeScore(node);
+    return true;
+  }
+
   static class QueueHook {
     public CSQueue hook(CSQueue queue) {
       return queue;
@@ -1099,10 +1543,16 @@ protected synchronized void nodeUpdate(RMNode nm) {
       writeLock.lock();
       setLastNodeUpdateTime(Time.now());
       super.nodeUpdate(nm);
+      FiCaSchedulerNode node = getNode(nm.getNodeID());
+      updateNodeScore(node);
       if (!scheduleAsynchronously) {
         ActivitiesLogger.NODE.startNodeUpdateRecording(activitiesManager,
             nm.getNodeID());
-        allocateContainersToNode(getNode(nm.getNodeID()));
+        if (multiNodePlacementEnabled) {
+          allocateContainersToCandidateNodes(node);
+        } else {
+          allocateContainersToNode(node);
+        }
         ActivitiesLogger.NODE.finishNodeUpdateRecording(activitiesManager,
             nm.getNodeID());
       }
@@ -1119,6 +1569,7 @@ private void updateNodeAndQueueResource(RMNode nm,
     try {
       writeLock.lock();
       updateNodeResource(nm, resourceOption);
+      updateNodeScore(getNode(nm.getNodeID()));
       Resource clusterResource = getClusterResource();
       root.updateClusterResource(clusterResource,
           new ResourceLimits(clusterResource));
@@ -1210,19 +1661,57 @@ private void updateSchedulerHealth(long now, FiCaSchedulerNode node,
       .getAssignmentInformation().getReserved());
  }
 
+  /**
+   * Allocates on the best scored node with room instead of the node which
+   * heartbeated, so that placement does not wait for the right node to
+   * heartbeat.  Only the heartbeat gives the applications a scheduling
+   * opportunity, so the heartbeating node is tried as usual when nothing was
+   * allocated on the best node, or first if it holds a reservation.
+   */
+  private void allocateContainersToCandidateNodes(FiCaSchedulerNode node) {
+    if (node == null) {
+      return;
+    }
+    if (node.getReservedContainer() == null) {
+      List<FiCaSchedulerNode> best =
+          nodeTracker.getScoredNodes(1, minimumAllocation);
+      if (!best.isEmpty() && best.get(0) != node) {
+        FiCaSchedulerNode candidate = best.get(0);
+        boolean allocated;
+        try {
+          candidate.setSchedulingOpportunity(false);
+          allocated = tryAllocateContainersToNode(candidate);
+        } finally {
+          candidate.setSchedulingOpportunity(true);
+        }
+        if (allocated) {
+          return;
+        }
+      }
+    }
+    allocateContainersToNode(node);
+  }
+
   @VisibleForTesting
   public void allocateContainersToNode(FiCaSchedulerNode node) {
+    tryAllocateContainersToNode(node);
+  }
+
+  /**
+   * @return whether a container was allocated
+   */
+  private boolean tryAllocateContainersToNode(FiCaSchedulerNode node) {
     try {
       writeLock.lock();
       if (rmContext.isWorkPreservingRecoveryEnabled() && !rmContext
           .isSchedulerReadyForAllocatingContainers()) {
-        return;
+        return false;
       }
 
       if (!nodeTracker.exists(node.getNodeID())) {
         LOG.info("Skipping scheduling as the node " + node.getNodeID()
             + " has been removed");
-        return;
+        return false;
       }
 
       // reset allocation and reservation stats before we start doing any work
@@ -1230,6 +1719,7 @@ public void allocateContainersToNode(FiCaSchedulerNode node) {
           new CSAssignment(Resources.none(), NodeType.NODE_LOCAL));
 
       CSAssignment assignment;
+      boolean allocated = false;
 
       // Assign new containers...
       // 1. Check for reserved applications
@@ -1255,6 +1745,7 @@ public void allocateContainersToNode(FiCaSchedulerNode node) {
                     getClusterResource())),
             SchedulingMode.RESPECT_PARTITION_EXCLUSIVITY);
         if (assignment.isFulfilledReservation()) {
+          allocated = true;
           CSAssignment tmp = new CSAssignment(
               reservedContainer.getReservedResource(), assignment.getType());
           Resources.addTo(assignment.getAssignmentInformation().getAllocated(),
@@ -1300,26 +1791,27 @@ public void allocateContainersToNode(FiCaSchedulerNode node) {
           if (Resources.greaterThan(calculator, getClusterResource(),
               assignment.getResource(), Resources.none())) {
             updateSchedulerHealth(lastNodeUpdateTime, node, assignment);
-            return;
+            return allocated || assignment.getAssignmentInformation()
+                .getNumAllocations() > 0;
           }
 
           // Only do non-exclusive allocation when node has node-labels.
           if (StringUtils.equals(node.getPartition(),
               RMNodeLabelsManager.NO_LABEL)) {
-            return;
+            return allocated;
           }
 
           // Only do non-exclusive allocation when the node-label supports that
           try {
             if (rmContext.getNodeLabelManager().isExclusiveNodeLabel(
                 node.getPartition())) {
-              return;
+              return allocated;
             }
           } catch (IOException e) {
             LOG.warn(
                 "Exception when trying to get exclusivity of node label=" + node
                     .getPartition(), e);
-            return;
+            return allocated;
           }
 
           // Try to use NON_EXCLUSIVE
@@ -1331,13 +1823,17 @@ public void allocateContainersToNode(FiCaSchedulerNode node) {
                       getClusterResource())),
               SchedulingMode.IGNORE_PARTITION_EXCLUSIVITY);
           updateSchedulerHealth(lastNodeUpdateTime, node, assignment);
+          allocated |= assignment.getAssignmentInformation()
+              .getNumAllocations() > 0;
         }
       } else{
         LOG.info("Skipping scheduling since node " + node.getNodeID()
             + " is reserved by application " + node.getReservedContainer()
             .getContainerId().getApplicationAttemptId());
       }
+      return allocated;
     } finally {
+      updateNodeScore(node);
       writeLock.unlock();
     }
   }
@@ -1504,7 +2000,9 @@ private void addNode(RMNode nodeManager) {
               + clusterResource);
 
       if (scheduleAsynchronously && getNumClusterNodes() == 1) {
-        asyncSchedulerThread.beginSchedule();
+        for (AsyncScheduleThread t : asyncSchedulerThreads) {
+          t.beginSchedule();
+        }
       }
     } finally {
       writeLock.unlock();
@@ -1550,7 +2048,9 @@ private void removeNode(RMNode nodeInfo) {
       int numNodes = nodeTracker.nodeCount();
 
       if (scheduleAsynchronously && numNodes == 0) {
-        asyncSchedulerThread.suspendSchedule();
+        for (AsyncScheduleThread t : asyncSchedulerThreads) {
+          t.suspendSchedule();
+        }
       }
 
       LOG.info(
@@ -1617,6 +2117,7 @@ protected void completedContainerInternal(
     LeafQueue queue = (LeafQueue) application.getQueue();
     queue.completedContainer(getClusterResource(), application, node,
         rmContainer, containerStatus, event, null, true);
+    updateNodeScore(node);
   }
   
   @Override
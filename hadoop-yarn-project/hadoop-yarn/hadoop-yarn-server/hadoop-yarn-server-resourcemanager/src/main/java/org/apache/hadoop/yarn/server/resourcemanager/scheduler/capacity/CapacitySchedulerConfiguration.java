@@ -48,6 +48,8 @@
 import org.apache.hadoop.yarn.server.resourcemanager.nodelabels.RMNodeLabelsManager;
 import org.apache.hadoop.yarn.server.resourcemanager.placement.UserGroupMappingPlacementRule.QueueMapping;
 import org.apache.hadoop.yarn.server.resourcemanager.reservation.ReservationSchedulerConfiguration;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.LeastAllocatedNodeScorer;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.NodeScorer;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerUtils;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.policy.FairOrderingPolicy;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.policy.FifoOrderingPolicy;
@@ -204,6 +206,60 @@ public class CapacitySchedulerConfiguration extends ReservationSchedulerConfigur
   @Private
   public static final boolean DEFAULT_SCHEDULE_ASYNCHRONOUSLY_ENABLE = false;
 
+  /**
+   * Number of threads looking for nodes to allocate on when scheduling
+   * asynchronously.  With more than one, every thread takes a share of the
+   * nodes and proposes containers on them within the queue and user limits,
+   * which a single committer thread validates and applies.  Proposals do not
+   * reserve, do not wait for locality and only use the node's own partition.
+   */
+  @Private
+  public static final String SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_THREADS =
+      SCHEDULE_ASYNCHRONOUSLY_PREFIX + ".maximum-threads";
+
+  @Private
+  public static final int DEFAULT_SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_THREADS = 1;
+
+  @Private
+  public static final String SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_PENDING_PROPOSALS =
+      SCHEDULE_ASYNCHRONOUSLY_PREFIX + ".maximum-pending-proposals";
+
+  @Private
+  public static final int
+      DEFAULT_SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_PENDING_PROPOSALS = 1000;
+
+  @Private
+  public static final String MULTI_NODE_PLACEMENT_PREFIX =
+      PREFIX + "multi-node-placement";
+
+  /**
+   * Whether containers are placed on the best scored nodes of the cluster
+   * rather than only on the node which heartbeated.
+   */
+  @Private
+  public static final String MULTI_NODE_PLACEMENT_ENABLED =
+      MULTI_NODE_PLACEMENT_PREFIX + ".enabled";
+
+  @Private
+  public static final boolean DEFAULT_MULTI_NODE_PLACEMENT_ENABLED = false;
+
+  /** The {@link NodeScorer} ordering the nodes. */
+  @Private
+  public static final String MULTI_NODE_PLACEMENT_NODE_SCORER =
+      MULTI_NODE_PLACEMENT_PREFIX + ".node-scorer";
+
+  @Private
+  public static final Class<? extends NodeScorer>
+      DEFAULT_MULTI_NODE_PLACEMENT_NODE_SCORER = LeastAllocatedNodeScorer.class;
+
+  /** How many of the best scored nodes one asynchronous pass tries. */
+  @Private
+  public static final String MULTI_NODE_PLACEMENT_LOOKAHEAD =
+      MULTI_NODE_PLACEMENT_PREFIX + ".lookahead";
+
+  @Private
+  public static final int DEFAULT_MULTI_NODE_PLACEMENT_LOOKAHEAD = 50;
+
   @Private
   public static final String QUEUE_MAPPING = PREFIX + "queue-mappings";
 
@@ -753,6 +809,33 @@ public void setScheduleAynschronously(boolean async) {
     setBoolean(SCHEDULE_ASYNCHRONOUSLY_ENABLE, async);
   }
 
+  public boolean getMultiNodePlacementEnabled() {
+    return getBoolean(MULTI_NODE_PLACEMENT_ENABLED,
+        DEFAULT_MULTI_NODE_PLACEMENT_ENABLED);
+  }
+
+  public NodeScorer getNodeScorer() {
+    return ReflectionUtils.newInstance(
+        getClass(MULTI_NODE_PLACEMENT_NODE_SCORER,
+            DEFAULT_MULTI_NODE_PLACEMENT_NODE_SCORER, NodeScorer.class),
+        this);
+  }
+
+  public int getMultiNodePlacementLookahead() {
+    return Math.max(1, getInt(MULTI_NODE_PLACEMENT_LOOKAHEAD,
+        DEFAULT_MULTI_NODE_PLACEMENT_LOOKAHEAD));
+  }
+
+  public int getAsyncSchedulingThreads() {
+    return Math.max(1, getInt(SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_THREADS,
+        DEFAULT_SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_THREADS));
+  }
+
+  public int getAsyncSchedulingMaximumPendingProposals() {
+    return Math.max(1, getInt(SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_PENDING_PROPOSALS,
+        DEFAULT_SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_PENDING_PROPOSALS));
+  }
+
   public boolean getOverrideWithQueueMappings() {
     return getBoolean(ENABLE_QUEUE_MAPPING_OVERRIDE,
         DEFAULT_ENABLE_QUEUE_MAPPING_OVERRIDE);
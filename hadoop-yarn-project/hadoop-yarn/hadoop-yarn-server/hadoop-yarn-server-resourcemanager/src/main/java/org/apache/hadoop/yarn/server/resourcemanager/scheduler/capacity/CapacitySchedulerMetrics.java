@@ -0,0 +1,96 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity;
+
+import static org.apache.hadoop.metrics2.lib.Interns.info;
+
+import org.apache.hadoop.classification.InterfaceAudience;
+import org.apache.hadoop.classification.InterfaceStability;
+import org.apache.hadoop.metrics2.MetricsCollector;
+import org.apache.hadoop.metrics2.MetricsInfo;
+import org.apache.hadoop.metrics2.MetricsSource;
+import org.apache.hadoop.metrics2.MetricsSystem;
+import org.apache.hadoop.metrics2.annotation.Metric;
+import org.apache.hadoop.metrics2.annotation.Metrics;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
+import org.apache.hadoop.metrics2.lib.MetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableCounterLong;
+import org.apache.hadoop.metrics2.lib.MutableRate;
+
+/**
+ * Metrics of the CapacityScheduler allocation pipeline, used when several
+ * threads schedule asynchronously.  This should be a singleton.
+ */
+@InterfaceAudience.Private
+@InterfaceStability.Unstable
+@Metrics(context="yarn")
+public class CapacitySchedulerMetrics implements MetricsSource {
+
+  @Metric("# of allocation proposals the committer applied")
+  MutableCounterLong proposalsAccepted;
+
+  @Metric("# of allocation proposals the committer found stale")
+  MutableCounterLong proposalsRejected;
+
+  @Metric("Time from an allocation proposal to its commit")
+  MutableRate commitLatency;
+
+  private static final MetricsInfo RECORD_INFO =
+      info("CapacitySchedulerMetrics", "CapacityScheduler allocation metrics");
+
+  private final MetricsRegistry registry;
+
+  private static final CapacitySchedulerMetrics INSTANCE =
+      new CapacitySchedulerMetrics();
+
+  public static CapacitySchedulerMetrics getInstance() {
+    return INSTANCE;
+  }
+
+  private CapacitySchedulerMetrics() {
+    registry = new MetricsRegistry(RECORD_INFO);
+    registry.tag(RECORD_INFO, "ResourceManager");
+
+    MetricsSystem ms = DefaultMetricsSystem.instance();
+    if (ms != null) {
+      ms.register(RECORD_INFO.name(), RECORD_INFO.description(), this);
+    }
+  }
+
+  @Override
+  public synchronized void getMetrics(MetricsCollector collector, boolean all) {
+    registry.snapshot(collector.addRecord(registry.info()), all);
+  }
+
+  public void addCommit(boolean accepted, long latency) {
+    if (accepted) {
+      proposalsAccepted.incr();
+    } else {
+      proposalsRejected.incr();
+    }
+    commitLatency.add(latency);
+  }
+
+  public long getProposalsAccepted() {
+    return proposalsAccepted.value();
+  }
+
+  public long getProposalsRejected() {
+    return proposalsRejected.value();
+  }
+}
@@ -1420,6 +1420,35 @@ protected boolean canAssignToUser(Resource clusterResource,
     }
   }
   
+  /**
+   * Checks the queue limit and the user limit for one more container of the
+   * application on the partition, as {@link #assignContainers} does before
+   * it assigns to an application.  Nothing is assigned or unreserved.
+   */
+  boolean canAssignToApplication(Resource clusterResource,
+      FiCaSchedulerApp application, String nodePartition, Resource required) {
+    try {
+      writeLock.lock();
+      ResourceLimits limits = new ResourceLimits(
+          labelManager.getResourceByLabel(nodePartition, clusterResource));
+      if (!canAssignToThisQueue(clusterResource, nodePartition, limits,
+          Resources.none(), SchedulingMode.RESPECT_PARTITION_EXCLUSIVITY)
+          || !Resources.greaterThanOrEqual(resourceCalculator,
+              clusterResource, limits.getHeadroom(), required)) {
+        return false;
+      }
+      Resource userLimit = computeUserLimitAndSetHeadroom(application,
+          clusterResource, nodePartition,
+          SchedulingMode.RESPECT_PARTITION_EXCLUSIVITY);
+      return canAssignToUser(clusterResource, application.getUser(),
+          userLimit, application, nodePartition, limits)
+          && Resources.equals(limits.getAmountNeededUnreserve(),
+              Resources.none());
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
   @Override
   public void unreserveIncreasedContainer(Resource clusterResource,
       FiCaSchedulerApp app, FiCaSchedulerNode node, RMContainer rmContainer) {
@@ -1835,7 +1864,7 @@ public float getUsageRatio(String label) {
   @VisibleForTesting
   public static class User {
     ResourceUsage userResourceUsage = new ResourceUsage();
-    volatile Resource userResourceLimit = Resource.newInstance(0, 0);
+    volatile Resource userResourceLimit = Resources.createResource(0, 0);
     volatile int pendingApplications = 0;
     volatile int activeApplications = 0;
     private UsageRatios userUsageRatios = new UsageRatios();
@@ -2008,7 +2037,7 @@ public Resource getTotalPendingResourcesConsideringUserLimit(
       readLock.lock();
       Map<String, Resource> userNameToHeadroom =
           new HashMap<>();
-      Resource pendingConsideringUserLimit = Resource.newInstance(0, 0);
+      Resource pendingConsideringUserLimit = Resources.createResource(0, 0);
       for (FiCaSchedulerApp app : getApplications()) {
         String userName = app.getUser();
         if (!userNameToHeadroom.containsKey(userName)) {
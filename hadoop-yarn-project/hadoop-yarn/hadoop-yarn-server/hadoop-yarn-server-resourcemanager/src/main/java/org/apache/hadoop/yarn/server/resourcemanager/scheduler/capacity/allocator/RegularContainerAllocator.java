@@ -177,7 +177,9 @@ private ContainerAllocation preCheckForNewContainer(Resource clusterResource,
     }
 
     // Inform the application it is about to get a scheduling opportunity
-    application.addSchedulingOpportunity(schedulerKey);
+    if (node.isSchedulingOpportunity()) {
+      application.addSchedulingOpportunity(schedulerKey);
+    }
 
     // Increase missed-non-partitioned-resource-request-opportunity.
     // This is to make sure non-partitioned-resource-request will prefer
@@ -241,7 +243,7 @@ ContainerAllocation preAllocation(Resource clusterResource,
         assignContainersOnNode(clusterResource, node, schedulerKey,
             reservedContainer, schedulingMode, resourceLimits);
     
-    if (null == reservedContainer) {
+    if (null == reservedContainer && node.isSchedulingOpportunity()) {
       if (result.state == AllocationState.PRIORITY_SKIPPED) {
         // Don't count 'skipped nodes' as a scheduling opportunity!
         application.subtractSchedulingOpportunity(schedulerKey);
@@ -267,6 +269,16 @@ private int getActualNodeLocalityDelay() {
         .getCSLeafQueue().getNodeLocalityDelay());
   }
 
+  /**
+   * A node which did not heartbeat sees the opportunity a heartbeat would
+   * give without taking it, so trying it does not use up the delay.
+   */
+  private long getSchedulingOpportunities(SchedulerRequestKey schedulerKey,
+      FiCaSchedulerNode node) {
+    long opportunities = application.getSchedulingOpportunities(schedulerKey);
+    return node.isSchedulingOpportunity() ? opportunities : opportunities + 1;
+  }
+
   private boolean canAssign(SchedulerRequestKey schedulerKey,
       FiCaSchedulerNode node, NodeType type, RMContainer reservedContainer) {
 
@@ -280,7 +292,7 @@ private boolean canAssign(SchedulerRequestKey schedulerKey,
       ResourceRequest offSwitchRequest =
           application.getResourceRequest(schedulerKey, ResourceRequest.ANY);
       long missedOpportunities =
-          application.getSchedulingOpportunities(schedulerKey);
+          getSchedulingOpportunities(schedulerKey, node);
       long requiredContainers = offSwitchRequest.getNumContainers();
 
       float localityWaitFactor =
@@ -304,7 +316,7 @@ private boolean canAssign(SchedulerRequestKey schedulerKey,
     if (type == NodeType.RACK_LOCAL) {
       // 'Delay' rack-local just a little bit...
       long missedOpportunities =
-          application.getSchedulingOpportunities(schedulerKey);
+          getSchedulingOpportunities(schedulerKey, node);
       return getActualNodeLocalityDelay() < missedOpportunities;
     }
 
@@ -28,6 +28,7 @@
 import org.apache.hadoop.yarn.api.records.ContainerId;
 import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainer;
+import org.apache.hadoop.yarn.util.resource.Resources;
 
 @InterfaceAudience.Private
 @InterfaceStability.Unstable
@@ -57,7 +58,7 @@ public AssignmentInformation() {
     this.operationDetails = new HashMap<>();
     for (Operation op : Operation.values()) {
       operationCounts.put(op, 0);
-      operationResources.put(op, Resource.newInstance(0, 0));
+      operationResources.put(op, Resources.createResource(0, 0));
       operationDetails.put(op, new ArrayList<AssignmentDetails>());
     }
   }
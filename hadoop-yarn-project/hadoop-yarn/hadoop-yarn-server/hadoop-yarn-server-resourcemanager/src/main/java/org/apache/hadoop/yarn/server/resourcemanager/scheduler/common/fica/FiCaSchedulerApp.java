@@ -165,6 +165,7 @@ public boolean containerCompleted(RMContainer rmContainer,
       if (null == liveContainers.remove(containerId)) {
         return false;
       }
+      liveContainersChanged();
 
       // Remove from the list of newly allocated containers if found
       newlyAllocatedContainers.remove(rmContainer);
@@ -222,6 +223,7 @@ public RMContainer allocate(NodeType type, FiCaSchedulerNode node,
 
       ContainerId containerId = container.getId();
       liveContainers.put(containerId, rmContainer);
+      liveContainersChanged();
 
       // Update consumption and track allocations
       List<ResourceRequest> resourceRequestList = appSchedulingInfo.allocate(
@@ -341,7 +343,7 @@ public Allocation getAllocation(ResourceCalculator resourceCalculator,
       Set<ContainerId> currentContPreemption = Collections.unmodifiableSet(
           new HashSet<ContainerId>(containersToPreempt));
       containersToPreempt.clear();
-      Resource tot = Resource.newInstance(0, 0);
+      Resource tot = Resources.createResource(0, 0);
       for (ContainerId c : currentContPreemption) {
         Resources.addTo(tot, liveContainers.get(c).getContainer()
             .getResource());
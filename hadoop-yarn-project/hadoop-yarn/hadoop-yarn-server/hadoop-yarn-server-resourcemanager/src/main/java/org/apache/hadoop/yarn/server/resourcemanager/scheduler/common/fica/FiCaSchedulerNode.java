@@ -42,7 +42,10 @@ public class FiCaSchedulerNode extends SchedulerNode {
 
   private static final Log LOG = LogFactory.getLog(FiCaSchedulerNode.class);
   private Map<ContainerId, RMContainer> killableContainers = new HashMap<>();
-  private Resource totalKillableResources = Resource.newInstance(0, 0);
+  private Resource totalKillableResources = Resources.createResource(0, 0);
+  // Whether trying the node counts as a scheduling opportunity for delay
+  // scheduling, which it only does when the node heartbeated
+  private boolean schedulingOpportunity = true;
   
   public FiCaSchedulerNode(RMNode node, boolean usePortForNodeName,
       Set<String> nodeLabels) {
@@ -174,4 +177,12 @@ public synchronized Resource getTotalKillableResources() {
   public synchronized Map<ContainerId, RMContainer> getKillableContainers() {
     return Collections.unmodifiableMap(killableContainers);
   }
+
+  public boolean isSchedulingOpportunity() {
+    return schedulingOpportunity;
+  }
+
+  public void setSchedulingOpportunity(boolean schedulingOpportunity) {
+    this.schedulingOpportunity = schedulingOpportunity;
+  }
 }
@@ -143,6 +143,7 @@ public void containerCompleted(RMContainer rmContainer,
 
       // Remove from the list of containers
       liveContainers.remove(rmContainer.getContainerId());
+      liveContainersChanged();
 
       Resource containerResource = rmContainer.getContainer().getResource();
       RMAuditLogger.logSuccess(getUser(), AuditConstants.RELEASE_CONTAINER,
@@ -419,6 +420,7 @@ public RMContainer allocate(NodeType type, FSSchedulerNode node,
       // Add it to allContainers list.
       newlyAllocatedContainers.add(rmContainer);
       liveContainers.put(container.getId(), rmContainer);
+      liveContainersChanged();
 
       // Update consumption and track allocations
       List<ResourceRequest> resourceRequestList = appSchedulingInfo.allocate(
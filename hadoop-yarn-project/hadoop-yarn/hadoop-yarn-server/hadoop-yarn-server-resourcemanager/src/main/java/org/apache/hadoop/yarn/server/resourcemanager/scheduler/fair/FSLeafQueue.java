@@ -55,6 +55,10 @@ public class FSLeafQueue extends FSQueue {
       new ArrayList<FSAppAttempt>();
   private final List<FSAppAttempt> nonRunnableApps =
       new ArrayList<FSAppAttempt>();
+  // runnable apps in the order of the policy as of the last assignContainer
+  private final List<FSAppAttempt> orderedApps = new ArrayList<FSAppAttempt>();
+  private boolean orderedAppsStale = true;
+  private SchedulingPolicy orderedAppsPolicy;
   // get a lock with fair distribution for app list updates
   private final ReadWriteLock rwl = new ReentrantReadWriteLock(true);
   private final Lock readLock = rwl.readLock();
@@ -78,7 +82,7 @@ public FSLeafQueue(String name, FairScheduler scheduler,
     this.lastTimeAtMinShare = scheduler.getClock().getTime();
     this.lastTimeAtFairShareThreshold = scheduler.getClock().getTime();
     activeUsersManager = new ActiveUsersManager(getMetrics());
-    amResourceUsage = Resource.newInstance(0, 0);
+    amResourceUsage = Resources.createResource(0, 0);
   }
   
   public void addApp(FSAppAttempt app, boolean runnable) {
@@ -86,6 +90,7 @@ public void addApp(FSAppAttempt app, boolean runnable) {
     try {
       if (runnable) {
         runnableApps.add(app);
+        orderedAppsStale = true;
       } else {
         nonRunnableApps.add(app);
       }
@@ -99,6 +104,7 @@ void addAppSchedulable(FSAppAttempt appSched) {
     writeLock.lock();
     try {
       runnableApps.add(appSched);
+      orderedAppsStale = true;
     } finally {
       writeLock.unlock();
     }
@@ -115,7 +121,9 @@ public boolean removeApp(FSAppAttempt app) {
     writeLock.lock();
     try {
       runnable = runnableApps.remove(app);
-      if (!runnable) {
+      if (runnable) {
+        orderedAppsStale = true;
+      } else {
         // removeNonRunnableApp acquires the write lock again, which is fine
         if (!removeNonRunnableApp(app)) {
           throw new IllegalStateException("Given app to remove " + app +
@@ -228,7 +236,9 @@ public void setPolicy(SchedulingPolicy policy)
   public void recomputeShares() {
     readLock.lock();
     try {
-      policy.computeShares(runnableApps, getFairShare());
+      if (shareInputs.update(policy, getFairShare(), runnableApps)) {
+        policy.computeShares(runnableApps, getFairShare());
+      }
     } finally {
       readLock.unlock();
     }
@@ -314,21 +324,12 @@ public Resource assignContainer(FSSchedulerNode node) {
       return assigned;
     }
 
-    // Apps that have resource demands.
-    TreeSet<FSAppAttempt> pendingForResourceApps =
-        new TreeSet<FSAppAttempt>(policy.getComparator());
-    readLock.lock();
-    try {
-      for (FSAppAttempt app : runnableApps) {
-        Resource pending = app.getAppAttemptResourceUsage().getPending();
-        if (!pending.equals(Resources.none())) {
-          pendingForResourceApps.add(app);
-        }
+    for (FSAppAttempt sched : getSortedRunnableApps()) {
+      // Only apps that have resource demands.
+      Resource pending = sched.getAppAttemptResourceUsage().getPending();
+      if (pending.equals(Resources.none())) {
+        continue;
       }
-    } finally {
-      readLock.unlock();
-    }
-    for (FSAppAttempt sched : pendingForResourceApps) {
       if (SchedulerAppUtils.isPlaceBlacklisted(sched, node, LOG)) {
         continue;
       }
@@ -344,6 +345,62 @@ public Resource assignContainer(FSSchedulerNode node) {
     return assigned;
   }
 
+  /**
+   * Get the runnable apps in the order they are offered a node.
+   * @return the runnable apps in the order of the policy
+   */
+  @VisibleForTesting
+  FSAppAttempt[] getSortedRunnableApps() {
+    writeLock.lock();
+    try {
+      sortRunnableApps();
+      return orderedApps.toArray(new FSAppAttempt[orderedApps.size()]);
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * Brings {@link #orderedApps} in line with the runnable apps and the order
+   * of the policy.  Between two calls only a few apps usually change their
+   * usage, so the previous order is repaired by insertion sort, and fully
+   * sorted again only if it turns out to be far off.  Must be called with the
+   * write lock held.
+   */
+  private void sortRunnableApps() {
+    Comparator<Schedulable> comparator = policy.getComparator();
+    if (orderedAppsStale || orderedAppsPolicy != policy) {
+      orderedAppsStale = false;
+      orderedAppsPolicy = policy;
+      resortRunnableApps(comparator);
+      return;
+    }
+    int size = orderedApps.size();
+    long moveLimit = 8L * size;
+    long moves = 0;
+    for (int i = 1; i < size; i++) {
+      FSAppAttempt app = orderedApps.get(i);
+      int j = i - 1;
+      while (j >= 0 && comparator.compare(orderedApps.get(j), app) > 0) {
+        orderedApps.set(j + 1, orderedApps.get(j));
+        j--;
+        if (++moves > moveLimit) {
+          resortRunnableApps(comparator);
+          return;
+        }
+      }
+      orderedApps.set(j + 1, app);
+    }
+  }
+
+  private void resortRunnableApps(Comparator<Schedulable> comparator) {
+    // usage may change while sorting, which a TreeSet tolerates
+    TreeSet<FSAppAttempt> sorted = new TreeSet<FSAppAttempt>(comparator);
+    sorted.addAll(runnableApps);
+    orderedApps.clear();
+    orderedApps.addAll(sorted);
+  }
+
   @Override
   public RMContainer preemptContainer() {
     RMContainer toBePreempted = null;
@@ -83,9 +83,13 @@ public void removeChildQueue(FSQueue child) {
   public void recomputeShares() {
     readLock.lock();
     try {
-      policy.computeShares(childQueues, getFairShare());
+      if (shareInputs.update(policy, getFairShare(), childQueues)) {
+        policy.computeShares(childQueues, getFairShare());
+        for (FSQueue childQueue : childQueues) {
+          childQueue.getMetrics().setFairShare(childQueue.getFairShare());
+        }
+      }
       for (FSQueue childQueue : childQueues) {
-        childQueue.getMetrics().setFairShare(childQueue.getFairShare());
         childQueue.recomputeShares();
       }
     } finally {
@@ -128,7 +132,7 @@ public void updatePreemptionVariables() {
   public Resource getDemand() {
     readLock.lock();
     try {
-      return Resource.newInstance(demand.getMemorySize(), demand.getVirtualCores());
+      return Resources.createResource(demand.getMemorySize(), demand.getVirtualCores());
     } finally {
       readLock.unlock();
     }
@@ -58,6 +58,8 @@ public abstract class FSQueue implements Queue, Schedulable {
       RecordFactoryProvider.getRecordFactory(null);
   
   protected SchedulingPolicy policy = SchedulingPolicy.DEFAULT_POLICY;
+  // what the shares handed out by this queue were last computed from
+  protected final FairShareInputs shareInputs = new FairShareInputs();
 
   protected ResourceWeights weights;
   protected Resource minShare;
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler.fair;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.apache.hadoop.yarn.api.records.Priority;
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.server.resourcemanager.resource.ResourceType;
+import org.apache.hadoop.yarn.server.resourcemanager.resource.ResourceWeights;
+
+/**
+ * What the fair shares a queue hands out to its children or apps were last
+ * computed from.  A {@link SchedulingPolicy} computes the same shares from
+ * the same inputs, so the shares of a queue only have to be computed again
+ * once the policy, the share of the queue, the set of schedulables or the
+ * demand, weights, limits, priority or start time of one of them changed.
+ * Comparing the inputs is much cheaper than computing the shares.
+ */
+class FairShareInputs {
+  private static final int VALUES_PER_SCHEDULABLE = 11;
+
+  private Object[] schedulables = new Object[0];
+  private double[] values = new double[0];
+  private SchedulingPolicy policy;
+  private long memoryShare = -1;
+  private int vcoresShare = -1;
+
+  private Object[] newSchedulables = new Object[0];
+  private double[] newValues = new double[0];
+
+  /**
+   * Records the inputs of a share computation.
+   * @return whether they differ from the ones recorded last
+   */
+  synchronized boolean update(SchedulingPolicy policy, Resource share,
+      Collection<? extends Schedulable> children) {
+    int n = children.size();
+    if (newSchedulables.length != n) {
+      newSchedulables = new Object[n];
+      newValues = new double[n * VALUES_PER_SCHEDULABLE];
+    }
+    int i = 0;
+    int v = 0;
+    for (Schedulable s : children) {
+      newSchedulables[i++] = s;
+      v = add(s.getDemand(), newValues, v);
+      v = add(s.getMinShare(), newValues, v);
+      v = add(s.getMaxShare(), newValues, v);
+      ResourceWeights weights = s.getWeights();
+      newValues[v++] = weights.getWeight(ResourceType.MEMORY);
+      newValues[v++] = weights.getWeight(ResourceType.CPU);
+      Priority priority = s.getPriority();
+      newValues[v++] = priority == null ? -1 : priority.getPriority();
+      newValues[v++] = s.getStartTime();
+      newValues[v++] = s instanceof FSQueue && !((FSQueue) s).isActive()
+          ? 0 : 1;
+    }
+
+    boolean changed = this.policy != policy
+        || memoryShare != share.getMemorySize()
+        || vcoresShare != share.getVirtualCores()
+        || !Arrays.equals(schedulables, newSchedulables)
+        || !Arrays.equals(values, newValues);
+    if (changed) {
+      this.policy = policy;
+      memoryShare = share.getMemorySize();
+      vcoresShare = share.getVirtualCores();
+      // swap, so the arrays are reused by the next update
+      Object[] s = schedulables;
+      schedulables = newSchedulables;
+      newSchedulables = s;
+      // do not keep finished apps and removed queues reachable
+      Arrays.fill(newSchedulables, null);
+      double[] d = values;
+      values = newValues;
+      newValues = d;
+    }
+    return changed;
+  }
+
+  private static int add(Resource resource, double[] to, int v) {
+    to[v] = resource == null ? -1 : resource.getMemorySize();
+    to[v + 1] = resource == null ? -1 : resource.getVirtualCores();
+    return v + 2;
+  }
+}
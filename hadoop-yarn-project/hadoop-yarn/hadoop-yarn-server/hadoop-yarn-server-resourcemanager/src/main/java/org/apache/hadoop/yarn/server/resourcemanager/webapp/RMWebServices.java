@@ -413,6 +413,7 @@ public AppsInfo getApps(@Context HttpServletRequest hsr,
       @QueryParam("user") String userQuery,
       @QueryParam("queue") String queueQuery,
       @QueryParam("limit") String count,
+      @QueryParam("offset") String offsetQuery,
       @QueryParam("startedTimeBegin") String startedBegin,
       @QueryParam("startedTimeEnd") String startedEnd,
       @QueryParam("finishedTimeBegin") String finishBegin,
@@ -426,6 +427,7 @@ public AppsInfo getApps(@Context HttpServletRequest hsr,
     boolean checkAppStates = false;
     boolean checkAppTags = false;
     long countNum = 0;
+    long offset = 0;
 
     // set values suitable in case both of begin/end not specified
     long sBegin = 0;
@@ -441,6 +443,12 @@ public AppsInfo getApps(@Context HttpServletRequest hsr,
         throw new BadRequestException("limit value must be greater then 0");
       }
     }
+    if (offsetQuery != null && !offsetQuery.isEmpty()) {
+      offset = Long.parseLong(offsetQuery);
+      if (offset < 0) {
+        throw new BadRequestException("offset must not be negative");
+      }
+    }
 
     if (startedBegin != null && !startedBegin.isEmpty()) {
       checkStart = true;
@@ -550,7 +558,7 @@ public AppsInfo getApps(@Context HttpServletRequest hsr,
     List<ApplicationReport> appReports = null;
     try {
       appReports = rm.getClientRMService()
-          .getApplications(request, false).getApplicationList();
+          .getApplications(request, false, offset).getApplicationList();
     } catch (YarnException e) {
       LOG.error("Unable to retrieve apps from ClientRMService", e);
       throw new YarnRuntimeException(
@@ -787,6 +787,19 @@ public void handle(Event event) {}
     request.setLimit(1L);
     assertEquals("Failed to limit applications", 1,
         rmService.getApplications(request).getApplicationList().size());
+
+    // Check pages, which are ordered by application id
+    request = GetApplicationsRequest.newInstance();
+    request.setLimit(4L);
+    List<ApplicationReport> page =
+        rmService.getApplications(request, true, 0).getApplicationList();
+    assertEquals("Incorrect size of the first page", 4, page.size());
+    assertEquals(getApplicationId(1), page.get(0).getApplicationId());
+    assertEquals(appIds[0], page.get(3).getApplicationId());
+    page = rmService.getApplications(request, true, 4).getApplicationList();
+    assertEquals("Incorrect size of the last page", 2, page.size());
+    assertEquals(appIds[1], page.get(0).getApplicationId());
+    assertEquals(appIds[2], page.get(1).getApplicationId());
     
     // Check start range
     request = GetApplicationsRequest.newInstance();
@@ -24,10 +24,27 @@
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.ha.HAServiceProtocol;
+import org.apache.hadoop.ha.HAServiceProtocol.StateChangeRequestInfo;
+import org.apache.hadoop.metrics2.lib.DefaultMetricsSystem;
 import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
+import org.apache.hadoop.yarn.api.records.ApplicationId;
+import org.apache.hadoop.yarn.api.records.ContainerState;
+import org.apache.hadoop.yarn.api.records.NodeId;
+import org.apache.hadoop.yarn.conf.HAUtil;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.event.AsyncDispatcher;
+import org.apache.hadoop.yarn.event.Dispatcher;
 import org.apache.hadoop.yarn.event.EventDispatcher;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMApp;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppEventType;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.RMAppState;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttemptEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.rmapp.attempt.RMAppAttemptEventType;
+import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeEventType;
 import org.apache.hadoop.yarn.server.resourcemanager.rmcontainer.RMContainer;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.capacity.CapacityScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.ContainerPreemptEvent;
@@ -78,4 +95,96 @@ public void testSchedulerEventDispatcherForPreemptionEvents() {
       rmDispatcher.stop();
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testShardedDispatcherKeys() {
+    RMShardedDispatcher dispatcher = new RMShardedDispatcher(4);
+    ApplicationId appId = ApplicationId.newInstance(1, 1);
+    ApplicationAttemptId attemptId = ApplicationAttemptId.newInstance(appId, 1);
+    NodeId nodeId = NodeId.newInstance("host", 1234);
+
+    Assert.assertEquals(appId, dispatcher.getShardKey(
+        new RMAppEvent(appId, RMAppEventType.START)));
+    Assert.assertEquals(appId, dispatcher.getShardKey(
+        new RMAppAttemptEvent(attemptId, RMAppAttemptEventType.START)));
+    Assert.assertEquals(nodeId, dispatcher.getShardKey(
+        new RMNodeEvent(nodeId, RMNodeEventType.STARTED)));
+    Assert.assertNull(dispatcher.getShardKey(new ContainerPreemptEvent(
+        attemptId, mock(RMContainer.class),
+        SchedulerEventType.KILL_RESERVED_CONTAINER)));
+  }
+
+  @Test(timeout = 60000)
+  public void testShardedDispatcherRunsApplication() throws Exception {
+    final RMShardedDispatcher dispatcher = new RMShardedDispatcher(4);
+    MockRM rm = new MockRM(new YarnConfiguration()) {
+      @Override
+      protected Dispatcher createDispatcher() {
+        return dispatcher;
+      }
+
+      @Override
+      public void drainEvents() {
+        for (int i = 0; i < dispatcher.getNumShards(); i++) {
+          while (dispatcher.getQueueSize(i) > 0) {
+            try {
+              Thread.sleep(10);
+            } catch (InterruptedException e) {
+              return;
+            }
+          }
+        }
+      }
+    };
+    rm.start();
+    try {
+      MockNM nm = rm.registerNode("h1:1234", 8 * 1024);
+      RMApp app = rm.submitApp(1024);
+      MockAM am = MockRM.launchAndRegisterAM(app, rm, nm);
+      rm.waitForState(app.getApplicationId(), RMAppState.RUNNING);
+      am.unregisterAppAttempt();
+      nm.nodeHeartbeat(am.getApplicationAttemptId(), 1,
+          ContainerState.COMPLETE);
+      rm.waitForState(app.getApplicationId(), RMAppState.FINISHED);
+    } finally {
+      rm.stop();
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testShardedDispatcherMetricsForHA() throws Exception {
+    DefaultMetricsSystem.shutdown();
+    Configuration conf = new YarnConfiguration();
+    conf.setBoolean(YarnConfiguration.RM_HA_ENABLED, true);
+    conf.setBoolean(YarnConfiguration.AUTO_FAILOVER_ENABLED, false);
+    conf.set(YarnConfiguration.RM_HA_IDS, "rm1,rm2");
+    for (String confKey : YarnConfiguration.getServiceAddressConfKeys(conf)) {
+      conf.set(HAUtil.addSuffix(confKey, "rm1"), "0.0.0.0:0");
+      conf.set(HAUtil.addSuffix(confKey, "rm2"), "0.0.0.0:0");
+    }
+    conf.set(YarnConfiguration.RM_HA_ID, "rm1");
+    MockRM rm = new MockRM(conf) {
+      @Override
+      protected Dispatcher createDispatcher() {
+        return new RMShardedDispatcher(2);
+      }
+    };
+    rm.init(conf);
+    rm.start();
+    try {
+      StateChangeRequestInfo requestInfo = new StateChangeRequestInfo(
+          HAServiceProtocol.RequestSource.REQUEST_BY_USER);
+
+      // every transition replaces the dispatcher, which takes over its
+      // metrics
+      rm.adminService.transitionToActive(requestInfo);
+      rm.adminService.transitionToStandby(requestInfo);
+      rm.adminService.transitionToActive(requestInfo);
+      Assert.assertSame("Metrics not published by the current dispatcher",
+          rm.getRMContext().getDispatcher(),
+          DefaultMetricsSystem.instance().getSource("RMDispatcher"));
+    } finally {
+      rm.stop();
+    }
+  }
+}
@@ -41,6 +41,7 @@
 import org.apache.hadoop.security.AccessControlException;
 import org.apache.hadoop.security.UserGroupInformation;
 import org.apache.hadoop.service.AbstractService;
+import org.apache.hadoop.test.GenericTestUtils;
 import org.apache.hadoop.yarn.conf.HAUtil;
 import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.event.Dispatcher;
@@ -61,6 +62,7 @@
 import org.junit.Before;
 import org.junit.Test;
 
+import com.google.common.base.Supplier;
 import com.sun.jersey.api.client.Client;
 import com.sun.jersey.api.client.ClientResponse;
 import com.sun.jersey.api.client.WebResource;
@@ -497,6 +499,18 @@ void stopActiveServices() {
 
     // 2. Transition to Active.
     rm.adminService.transitionToActive(requestInfo);
+    // the delegation token remover rolls the master key once it starts,
+    // holding the store lock while it waits for the store
+    final MemoryRMStateStore store = memStore;
+    GenericTestUtils.waitFor(new Supplier<Boolean>() {
+      @Override
+      public Boolean get() {
+        synchronized (store) {
+          return store.getState().getRMDTSecretManagerState()
+              .getMasterKeyState().size() > 1;
+        }
+      }
+    }, 100, 10000);
 
     // 3. Try Transition to standby
     Thread t = new Thread(new Runnable() {
@@ -31,6 +31,7 @@
 import java.util.List;
 import java.util.Random;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.util.HostsFileReader;
 import org.apache.hadoop.yarn.api.records.ApplicationAttemptId;
 import org.apache.hadoop.yarn.api.records.ApplicationId;
@@ -42,6 +43,7 @@
 import org.apache.hadoop.yarn.api.records.NodeState;
 import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.api.records.ResourceOption;
+import org.apache.hadoop.yarn.conf.YarnConfiguration;
 import org.apache.hadoop.yarn.event.EventHandler;
 import org.apache.hadoop.yarn.event.InlineDispatcher;
 import org.apache.hadoop.yarn.server.api.protocolrecords.NodeHeartbeatResponse;
@@ -61,6 +63,8 @@
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeStartedEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNodeStatusEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.UpdatedContainerInfo;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.QueueMetrics;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.ResourceScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.YarnScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.NodeAddedSchedulerEvent;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.NodeRemovedSchedulerEvent;
@@ -334,6 +338,42 @@ public void testContainerUpdate() throws InterruptedException{
         .getContainerId());
   }
 
+  @Test (timeout = 5000)
+  public void testNodeUpdateCoalescing() {
+    Configuration conf = new YarnConfiguration();
+    conf.setBoolean(YarnConfiguration.RM_NODE_UPDATE_COALESCING_ENABLED, true);
+    ((RMContextImpl) rmContext).setYarnConfiguration(conf);
+    QueueMetrics metrics = mock(QueueMetrics.class);
+    ResourceScheduler contextScheduler = mock(ResourceScheduler.class);
+    when(contextScheduler.getRootQueueMetrics()).thenReturn(metrics);
+    ((RMContextImpl) rmContext).setScheduler(contextScheduler);
+    RMNodeImpl node = new RMNodeImpl(BuilderUtils.newNodeId("localhost", 0),
+        rmContext, null, 0, 0, null, null, null);
+    node.handle(new RMNodeStartedEvent(null, null, null));
+    // the matcher counts every scheduler event, including the node added
+    verify(scheduler, times(1)).handle(any(NodeUpdateSchedulerEvent.class));
+
+    // nothing changed and nothing is pending
+    node.handle(getMockRMNodeStatusEvent(
+        Collections.<ContainerStatus>emptyList()));
+    verify(scheduler, times(1)).handle(any(NodeUpdateSchedulerEvent.class));
+
+    // a finished container is always passed on
+    ContainerStatus containerStatus = mock(ContainerStatus.class);
+    doReturn(BuilderUtils.newContainerId(BuilderUtils.newApplicationAttemptId(
+        BuilderUtils.newApplicationId(0, 0), 0), 0))
+        .when(containerStatus).getContainerId();
+    node.handle(getMockRMNodeStatusEvent(
+        Collections.singletonList(containerStatus)));
+    verify(scheduler, times(2)).handle(any(NodeUpdateSchedulerEvent.class));
+
+    // an unchanged node is scheduled on while requests are pending
+    when(metrics.getPendingContainers()).thenReturn(1);
+    node.handle(getMockRMNodeStatusEvent(
+        Collections.<ContainerStatus>emptyList()));
+    verify(scheduler, times(3)).handle(any(NodeUpdateSchedulerEvent.class));
+  }
+
   @Test (timeout = 5000)
   public void testStatusChange(){
     //Start the node
@@ -116,6 +116,44 @@ public void testGetNextHeartBeatInterval() throws Exception {
 
   }
 
+  @Test (timeout = 50000)
+  public void testHeartBeatIntervalScaling() throws Exception {
+    Configuration conf = new Configuration();
+    conf.setLong(YarnConfiguration.RM_NM_HEARTBEAT_INTERVAL_MS, 1000);
+    conf.setBoolean(YarnConfiguration.RM_NM_HEARTBEAT_INTERVAL_SCALING_ENABLE,
+        true);
+    conf.setLong(YarnConfiguration.RM_NM_HEARTBEAT_INTERVAL_MAX_MS, 4000);
+
+    rm = new MockRM(conf);
+    rm.start();
+    MockNM nm1 = rm.registerNode("host1:1234", 5120);
+
+    // an idle node slows down; each interval builds on the previous response
+    // once the node has processed it
+    for (long interval : new long[] {1000, 2000, 4000, 4000}) {
+      Assert.assertEquals(interval, nm1.nodeHeartbeat(true)
+          .getNextHeartBeatInterval());
+      rm.drainEvents();
+    }
+
+    // pending requests which fit on the node speed it up
+    RMApp app = rm.submitApp(1024);
+    rm.waitForState(app.getApplicationId(), RMAppState.ACCEPTED);
+    Assert.assertEquals(1000, nm1.nodeHeartbeat(true)
+        .getNextHeartBeatInterval());
+    rm.drainEvents();
+    MockAM am = MockRM.launchAndRegisterAM(app, rm, nm1);
+    rm.drainEvents();
+    Assert.assertTrue(nm1.nodeHeartbeat(true).getNextHeartBeatInterval()
+        > 1000);
+    rm.drainEvents();
+
+    // as do finished containers
+    Assert.assertEquals(1000, nm1.nodeHeartbeat(
+        am.getApplicationAttemptId(), 1, ContainerState.COMPLETE)
+        .getNextHeartBeatInterval());
+  }
+
   /**
    * Decommissioning using a pre-configured include hosts file
    */
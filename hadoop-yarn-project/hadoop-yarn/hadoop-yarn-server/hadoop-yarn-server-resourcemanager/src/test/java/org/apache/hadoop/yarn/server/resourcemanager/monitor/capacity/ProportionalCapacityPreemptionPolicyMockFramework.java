@@ -65,6 +65,7 @@
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
@@ -292,6 +293,11 @@ private void mockApplications(String appsConfig) {
 
       FiCaSchedulerApp app = mock(FiCaSchedulerApp.class);
       when(app.getLiveContainers()).thenReturn(liveContainers);
+      Map<ContainerId, RMContainer> liveContainersMap = new LinkedHashMap<>();
+      for (RMContainer c : liveContainers) {
+        liveContainersMap.put(c.getContainerId(), c);
+      }
+      when(app.getLiveContainersMap()).thenReturn(liveContainersMap);
       when(app.getReservedContainers()).thenReturn(reservedContainers);
       when(app.getApplicationAttemptId()).thenReturn(appAttemptId);
       when(app.getApplicationId()).thenReturn(appId);
@@ -66,10 +66,13 @@
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Random;
 import java.util.StringTokenizer;
@@ -78,6 +81,7 @@
 import static org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.SchedulerEventType.MARK_CONTAINER_FOR_KILLABLE;
 import static org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.SchedulerEventType.MARK_CONTAINER_FOR_PREEMPTION;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -261,6 +265,40 @@ public void testPreemptCycle() {
     verify(mDisp, times(10)).handle(argThat(new IsPreemptionRequestFor(appC)));
   }
 
+  @Test
+  public void testUnchangedQueuesReuseIdealAssignment() {
+    int[][] qData = new int[][]{
+      //  /   A   B   C
+      { 100, 40, 40, 20 },  // abs
+      { 100, 100, 100, 100 },  // maxCap
+      { 100,  0, 60, 40 },  // used
+      {  10, 10,  0,  0 },  // pending
+      {   0,  0,  0,  0 },  // reserved
+      {   3,  1,  1,  1 },  // apps
+      {  -1,  1,  1,  1 },  // req granularity
+      {   3,  0,  0,  0 },  // subqueues
+    };
+    ProportionalCapacityPreemptionPolicy policy = buildPolicy(qData);
+    policy.editSchedule();
+    assertTrue(policy.getQueuePartitions()
+        .get(CapacitySchedulerConfiguration.ROOT).get("").subtreeChanged);
+    Resource idealA = Resources.clone(
+        policy.getQueuePartitions().get("queueA").get("").idealAssigned);
+    Resource toPreemptC = Resources.clone(
+        policy.getQueuePartitions().get("queueC").get("").toBePreempted);
+
+    // nothing changed, the same containers are still to be preempted
+    policy.editSchedule();
+    assertFalse(policy.getQueuePartitions()
+        .get(CapacitySchedulerConfiguration.ROOT).get("").subtreeChanged);
+    assertEquals(idealA,
+        policy.getQueuePartitions().get("queueA").get("").idealAssigned);
+    assertEquals(toPreemptC,
+        policy.getQueuePartitions().get("queueC").get("").toBePreempted);
+    assertEquals(10, policy.getToPreemptContainers().size());
+    verify(mDisp, times(10)).handle(argThat(new IsPreemptionRequestFor(appC)));
+  }
+
   @Test
   public void testExpireKill() {
     final long killTime = 10000L;
@@ -780,6 +818,50 @@ public void testContainerOrdering(){
     assert containers.get(4).equals(rm5);
 
   }
+
+  @Test
+  public void testPreemptionCandidateIndex() {
+    ApplicationAttemptId appAttId = ApplicationAttemptId.newInstance(
+        ApplicationId.newInstance(TS, 10), 0);
+    RMContainer rm1 = mockContainer(appAttId, 5, mock(Resource.class), 3);
+    RMContainer rm2 = mockContainer(appAttId, 3, mock(Resource.class), 3);
+    RMContainer rm3 = mockContainer(appAttId, 2, mock(Resource.class), 2);
+    RMContainer rm4 = mockContainer(appAttId, 1, mock(Resource.class), 2);
+    FiCaSchedulerApp app = mock(FiCaSchedulerApp.class);
+    when(app.getApplicationAttemptId()).thenReturn(appAttId);
+    Map<ContainerId, RMContainer> live = liveContainersMap(rm3, rm2, rm1);
+    when(app.getLiveContainersMap()).thenReturn(live);
+    when(app.getLiveContainersVersion()).thenReturn(1L);
+
+    PreemptionCandidateIndex index = new PreemptionCandidateIndex();
+    index.startRound();
+    assertEquals(Arrays.asList(rm1, rm2, rm3),
+        new ArrayList<>(index.getLiveContainers(app)));
+
+    // rm2 completed and rm4 was allocated since
+    live = liveContainersMap(rm3, rm1, rm4);
+    when(app.getLiveContainersMap()).thenReturn(live);
+    when(app.getLiveContainersVersion()).thenReturn(2L);
+    index.startRound();
+    assertEquals(Arrays.asList(rm1, rm3, rm4),
+        new ArrayList<>(index.getLiveContainers(app)));
+
+    // an unchanged version is not looked at again
+    live = liveContainersMap(rm2);
+    when(app.getLiveContainersMap()).thenReturn(live);
+    index.startRound();
+    assertEquals(Arrays.asList(rm1, rm3, rm4),
+        new ArrayList<>(index.getLiveContainers(app)));
+  }
+
+  private static Map<ContainerId, RMContainer> liveContainersMap(
+      RMContainer... containers) {
+    Map<ContainerId, RMContainer> map = new LinkedHashMap<>();
+    for (RMContainer c : containers) {
+      map.put(c.getContainerId(), c);
+    }
+    return map;
+  }
   
   @Test
   public void testPolicyInitializeAfterSchedulerInitialized() {
@@ -1311,6 +1393,9 @@ FiCaSchedulerApp mockApp(int qid, int id, Resource used, Resource pending,
       ++i;
     }
     when(app.getLiveContainers()).thenReturn(cLive);
+    Map<ContainerId, RMContainer> liveMap =
+        liveContainersMap(cLive.toArray(new RMContainer[cLive.size()]));
+    when(app.getLiveContainersMap()).thenReturn(liveMap);
     return app;
   }
 
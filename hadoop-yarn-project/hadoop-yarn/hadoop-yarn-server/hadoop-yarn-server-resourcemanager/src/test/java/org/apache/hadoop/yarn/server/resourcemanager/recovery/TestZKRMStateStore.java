@@ -140,7 +140,10 @@ public void testRetryingCreateRootDir() throws Exception {
     }
 
     public RMStateStore getRMStateStore() throws Exception {
-      YarnConfiguration conf = new YarnConfiguration();
+      return getRMStateStore(new YarnConfiguration());
+    }
+
+    RMStateStore getRMStateStore(YarnConfiguration conf) throws Exception {
       workingZnode = "/jira/issue/3077/rmstore";
       conf.set(YarnConfiguration.RM_ZK_ADDRESS,
           curatorTestingServer.getConnectString());
@@ -197,6 +200,46 @@ public void testZKRMStateStoreRealZK() throws Exception {
         zkTester.getRMStateStore()).testRetryingCreateRootDir();
   }
 
+  @Test (timeout = 60000)
+  public void testZKRMStateStoreBatchedWrites() throws Exception {
+    TestZKRMStateStoreTester zkTester = new TestZKRMStateStoreTester() {
+      @Override
+      public RMStateStore getRMStateStore() throws Exception {
+        YarnConfiguration conf = new YarnConfiguration();
+        conf.setInt(YarnConfiguration.ZK_RM_STATE_STORE_BATCH_MAX_OPS, 100);
+        conf.setLong(YarnConfiguration.ZK_RM_STATE_STORE_BATCH_WAIT_MS, 50);
+        conf.setInt(
+            YarnConfiguration.ZK_RM_STATE_STORE_COMPRESSION_THRESHOLD_BYTES, 0);
+        return getRMStateStore(conf);
+      }
+    };
+    ZKRMStateStoreMetrics metrics = ZKRMStateStoreMetrics.getInstance();
+    long batches = metrics.getNumBatches();
+    testRMAppStateStore(zkTester);
+    testAppDeletion(zkTester);
+    testRemoveApplication(zkTester);
+    testDeleteStore(zkTester);
+    assertTrue("No batch was committed", metrics.getNumBatches() > batches);
+  }
+
+  @Test
+  public void testCompression() throws Exception {
+    TestZKRMStateStoreTester zkTester = new TestZKRMStateStoreTester();
+    YarnConfiguration conf = new YarnConfiguration();
+    conf.setInt(
+        YarnConfiguration.ZK_RM_STATE_STORE_COMPRESSION_THRESHOLD_BYTES, 16);
+    ZKRMStateStore store = (ZKRMStateStore) zkTester.getRMStateStore(conf);
+    byte[] small = new byte[16];
+    byte[] large = new byte[1024];
+    large[0] = 8;
+    Assert.assertSame(small, store.compress(small));
+    byte[] compressed = store.compress(large);
+    assertTrue(compressed.length < large.length);
+    Assert.assertArrayEquals(large, ZKRMStateStore.decompress(compressed));
+    Assert.assertSame(large, ZKRMStateStore.decompress(large));
+    store.close();
+  }
+
   @Test (timeout = 60000)
   public void testCheckMajorVersionChange() throws Exception {
     TestZKRMStateStoreTester zkTester = new TestZKRMStateStoreTester() {
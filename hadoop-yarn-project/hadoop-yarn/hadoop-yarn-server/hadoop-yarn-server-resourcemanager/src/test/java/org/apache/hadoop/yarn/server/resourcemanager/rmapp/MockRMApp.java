@@ -254,6 +254,11 @@ public YarnApplicationState createApplicationState() {
     return null;
   }
 
+  @Override
+  public RMAppSummary getSummary() {
+    return RMAppSummary.newInstance(this);
+  }
+
   @Override
   public Set<NodeId> getRanNodes() {
     return null;
@@ -314,6 +314,9 @@ private static void assertStartTimeSet(RMApp application) {
   private static void assertAppState(RMAppState state, RMApp application) {
     Assert.assertEquals("application state should have been " + state, 
         state, application.getState());
+    Assert.assertEquals("application summary is not up to date",
+        application.createApplicationState(),
+        application.getSummary().getState());
   }
 
   private static void assertFinalAppStatus(FinalApplicationStatus status, RMApp application) {
@@ -328,6 +331,8 @@ private void assertTimesAtFinish(RMApp application) {
         (application.getFinishTime() > 0));
     Assert.assertTrue("application finish time is not >= start time",
         (application.getFinishTime() >= application.getStartTime()));
+    Assert.assertEquals("application summary finish time is not up to date",
+        application.getFinishTime(), application.getSummary().getFinishTime());
   }
 
   private void assertAppFinalStateSaved(RMApp application){
@@ -17,17 +17,22 @@
  */
 package org.apache.hadoop.yarn.server.resourcemanager.scheduler;
 
+import org.apache.hadoop.yarn.api.records.NodeId;
 import org.apache.hadoop.yarn.api.records.Resource;
 import org.apache.hadoop.yarn.api.records.ResourceRequest;
 import org.apache.hadoop.yarn.server.resourcemanager.MockNodes;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNode;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.fair.FSSchedulerNode;
+import org.apache.hadoop.yarn.util.resource.Resources;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test class to verify ClusterNodeTracker. Using FSSchedulerNode without
@@ -64,6 +69,66 @@ public void testGetNodesForResourceName() throws Exception {
         4, nodeTracker.getNodesByResourceName("rack0").size());
 
     assertEquals("Incorrect number of nodes matching node",
-        1, nodeTracker.getNodesByResourceName("host0").size());
+        1, nodeTracker.getNodesByResourceName(
+            nodeTracker.getAllNodes().get(0).getNodeName()).size());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void testScoredNodes() {
+    final Map<NodeId, Double> scores = new HashMap<>();
+    List<FSSchedulerNode> nodes = nodeTracker.getAllNodes();
+    for (int i = 0; i < nodes.size(); i++) {
+      scores.put(nodes.get(i).getNodeID(), (double) i);
+    }
+    nodeTracker.setNodeScorer(new NodeScorer() {
+      @Override
+      public double score(SchedulerNode node) {
+        return scores.get(node.getNodeID());
+      }
+    });
+
+    List<FSSchedulerNode> best = nodeTracker.getScoredNodes(3, Resources.none());
+    assertEquals("Incorrect number of scored nodes", 3, best.size());
+    for (int i = 0; i < best.size(); i++) {
+      assertEquals("Nodes not in score order", nodes.get(i), best.get(i));
+    }
+
+    // the best node becomes the worst once re-scored
+    scores.put(nodes.get(0).getNodeID(), 100.0);
+    nodeTracker.updateNodeScore(nodes.get(0));
+    best = nodeTracker.getScoredNodes(nodes.size(), Resources.none());
+    assertEquals(nodes.get(1), best.get(0));
+    assertEquals(nodes.get(0), best.get(nodes.size() - 1));
+
+    nodeTracker.removeNode(nodes.get(1).getNodeID());
+    best = nodeTracker.getScoredNodes(nodes.size(), Resources.none());
+    assertEquals("Removed node still scored", nodes.size() - 1, best.size());
+    assertEquals(nodes.get(2), best.get(0));
+
+    nodeTracker.setNodeScorer(null);
+    assertEquals(0, nodeTracker.getScoredNodes(nodes.size(), Resources.none()).size());
+  }
+
+  @Test
+  public void testScoredNodesSkipFullNodes() {
+    // more full nodes than asked for, all scored ahead of the free ones
+    for (int i = 0; i < 5; i++) {
+      nodeTracker.addNode(new FSSchedulerNode(
+          MockNodes.newNodeInfo(2, Resources.none(), i), false));
+    }
+    nodeTracker.setNodeScorer(new MostAllocatedNodeScorer());
+    for (FSSchedulerNode node : nodeTracker.getScoredNodes(5,
+        Resources.none())) {
+      assertEquals("Full nodes not scored first", Resources.none(),
+          node.getUnallocatedResource());
+    }
+
+    Resource minimum = Resource.newInstance(1024, 1);
+    List<FSSchedulerNode> best = nodeTracker.getScoredNodes(3, minimum);
+    assertEquals("Incorrect number of scored nodes", 3, best.size());
+    for (FSSchedulerNode node : best) {
+      assertTrue("Full node returned",
+          Resources.fitsIn(minimum, node.getUnallocatedResource()));
+    }
+  }
+}
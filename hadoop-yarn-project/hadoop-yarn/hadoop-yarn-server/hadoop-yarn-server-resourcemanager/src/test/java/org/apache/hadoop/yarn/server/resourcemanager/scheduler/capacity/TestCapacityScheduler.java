@@ -116,6 +116,7 @@
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.Allocation;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.
     ContainerExpiredSchedulerEvent;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.NodeType;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.ResourceScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerApplication;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.SchedulerApplicationAttempt;
@@ -1051,6 +1052,113 @@ public void testAsyncScheduling() throws Exception {
     }
   }
 
+  private MockRM createAsyncRM(int threads) {
+    CapacitySchedulerConfiguration csConf =
+        new CapacitySchedulerConfiguration();
+    csConf.setScheduleAynschronously(true);
+    csConf.setInt(
+        CapacitySchedulerConfiguration.SCHEDULE_ASYNCHRONOUSLY_MAXIMUM_THREADS,
+        threads);
+    YarnConfiguration conf = new YarnConfiguration(csConf);
+    conf.setClass(YarnConfiguration.RM_SCHEDULER, CapacityScheduler.class,
+        ResourceScheduler.class);
+    MockRM rm = new MockRM(conf);
+    rm.start();
+    return rm;
+  }
+
+  @Test(timeout = 60000)
+  public void testAsyncSchedulingWithMultipleThreads() throws Exception {
+    MockRM rm = createAsyncRM(3);
+    rm.registerNode("h1:1234", 8 * GB);
+    rm.registerNode("h2:1234", 8 * GB);
+    CapacitySchedulerMetrics metrics = CapacitySchedulerMetrics.getInstance();
+    long accepted = metrics.getProposalsAccepted();
+
+    // the AM container is proposed by a scheduling thread and committed
+    RMApp app = rm.submitApp(1 * GB);
+    rm.waitForState(app.getCurrentAppAttempt().getAppAttemptId(),
+        RMAppAttemptState.ALLOCATED);
+    Assert.assertTrue(metrics.getProposalsAccepted() > accepted);
+    rm.stop();
+  }
+
+  @Test(timeout = 60000)
+  public void testAsyncSchedulingRejectsStaleProposal() throws Exception {
+    MockRM rm = new MockRM();
+    rm.start();
+    CapacityScheduler cs = (CapacityScheduler) rm.getResourceScheduler();
+    MockNM nm1 = rm.registerNode("h1:1234", 8 * GB);
+    MockNM nm2 = rm.registerNode("h2:1234", 8 * GB);
+    MockNM nm3 = rm.registerNode("h3:1234", 8 * GB);
+    CapacitySchedulerMetrics metrics = CapacitySchedulerMetrics.getInstance();
+    long accepted = metrics.getProposalsAccepted();
+    long rejected = metrics.getProposalsRejected();
+
+    // no node heartbeats, so the AM container is only allocated by commits
+    RMApp app = rm.submitApp(1 * GB);
+    FiCaSchedulerApp attempt = cs.getApplicationAttempt(
+        app.getCurrentAppAttempt().getAppAttemptId());
+    CapacityScheduler.AllocationProposal proposal1 =
+        cs.findAllocation(cs.getNode(nm1.getNodeId()));
+    CapacityScheduler.AllocationProposal proposal2 =
+        cs.findAllocation(cs.getNode(nm2.getNodeId()));
+    CapacityScheduler.AllocationProposal proposal3 =
+        cs.findAllocation(cs.getNode(nm3.getNodeId()));
+    Assert.assertSame(attempt, proposal1.getApplication());
+    Assert.assertSame(attempt, proposal2.getApplication());
+    Assert.assertEquals(NodeType.OFF_SWITCH, proposal1.getType());
+    Assert.assertEquals(1 * GB, proposal1.getCapability().getMemorySize());
+
+    // the node was removed since the proposal
+    RMNode rmNode = rm.getRMContext().getRMNodes().get(nm3.getNodeId());
+    cs.handle(new NodeRemovedSchedulerEvent(rmNode));
+    Assert.assertFalse(cs.commitProposal(proposal3));
+
+    Assert.assertTrue(cs.commitProposal(proposal1));
+    Assert.assertEquals(1, attempt.getLiveContainers().size());
+    Assert.assertEquals(7 * GB, cs.getNode(nm1.getNodeId())
+        .getUnallocatedResource().getMemorySize());
+    Assert.assertEquals(1 * GB, cs.getQueue("default")
+        .getQueueResourceUsage().getUsed().getMemorySize());
+    Assert.assertEquals(1 * GB, cs.getRootQueue()
+        .getQueueResourceUsage().getUsed().getMemorySize());
+    Assert.assertNull(cs.findAllocation(cs.getNode(nm2.getNodeId())));
+
+    // the request was satisfied on another node since the proposal
+    Assert.assertFalse(cs.commitProposal(proposal2));
+    Assert.assertEquals(1, attempt.getLiveContainers().size());
+    Assert.assertEquals(accepted + 1, metrics.getProposalsAccepted());
+    Assert.assertEquals(rejected + 2, metrics.getProposalsRejected());
+    rm.stop();
+  }
+
+  @Test(timeout = 60000)
+  public void testAsyncSchedulingProposalRespectsQueueLimit()
+      throws Exception {
+    CapacitySchedulerConfiguration csConf =
+        new CapacitySchedulerConfiguration();
+    csConf.setQueues(CapacitySchedulerConfiguration.ROOT,
+        new String[] {"default", "b"});
+    csConf.setCapacity(CapacitySchedulerConfiguration.ROOT + ".default", 25f);
+    csConf.setCapacity(CapacitySchedulerConfiguration.ROOT + ".b", 75f);
+    csConf.setMaximumCapacity(
+        CapacitySchedulerConfiguration.ROOT + ".default", 25f);
+    MockRM rm = new MockRM(csConf);
+    rm.start();
+    CapacityScheduler cs = (CapacityScheduler) rm.getResourceScheduler();
+    MockNM nm1 = rm.registerNode("h1:1234", 8 * GB);
+
+    // the node has room, the queue may only use 2 GB of it
+    RMApp app = rm.submitApp(4 * GB);
+    FiCaSchedulerApp attempt = cs.getApplicationAttempt(
+        app.getCurrentAppAttempt().getAppAttemptId());
+    Assert.assertTrue(((LeafQueue) cs.getQueue("default")).getApplications()
+        .contains(attempt));
+    Assert.assertNull(cs.findAllocation(cs.getNode(nm1.getNodeId())));
+    rm.stop();
+  }
+
   private void waitForAppPreemptionInfo(RMApp app, Resource preempted,
       int numAMPreempted, int numTaskPreempted,
       Resource currentAttemptPreempted, boolean currentAttemptAMPreempted,
@@ -1300,6 +1408,49 @@ public void testPreemptionInfo() throws Exception {
     rm1.stop();
   }
   
+  @Test(timeout = 60000)
+  public void testMultiNodePlacement() throws Exception {
+    CapacitySchedulerConfiguration csConf =
+        new CapacitySchedulerConfiguration();
+    csConf.setBoolean(
+        CapacitySchedulerConfiguration.MULTI_NODE_PLACEMENT_ENABLED, true);
+    YarnConfiguration conf = new YarnConfiguration(csConf);
+    conf.setClass(YarnConfiguration.RM_SCHEDULER, CapacityScheduler.class,
+        ResourceScheduler.class);
+    MockRM rm = new MockRM(conf);
+    rm.start();
+    MockNM nm1 = rm.registerNode("h1:1234", 8 * GB);
+    MockNM nm2 = rm.registerNode("h2:1234", 8 * GB);
+    RMApp app = rm.submitApp(1 * GB);
+    MockAM am = MockRM.launchAndRegisterAM(app, rm, nm1);
+
+    // nm1 heartbeats, but the least allocated node gets the container
+    am.allocate("*", 1 * GB, 1, new ArrayList<ContainerId>());
+    ContainerId containerId =
+        ContainerId.newContainerId(am.getApplicationAttemptId(), 2);
+    rm.waitForState(nm1, containerId, RMContainerState.ALLOCATED);
+    CapacityScheduler cs = (CapacityScheduler) rm.getResourceScheduler();
+    Assert.assertEquals(nm2.getNodeId(),
+        cs.getRMContainer(containerId).getAllocatedNode());
+    Assert.assertEquals(2, cs.getCandidateNodes().size());
+
+    // nm1 scores as well as nm2 and is tried first on a heartbeat of nm2,
+    // but only the heartbeat takes a scheduling opportunity
+    am.allocate("h3", 1 * GB, 1, new ArrayList<ContainerId>());
+    cs.handle(new NodeUpdateSchedulerEvent(
+        rm.getRMContext().getRMNodes().get(nm2.getNodeId())));
+    FiCaSchedulerApp attempt =
+        cs.getApplicationAttempt(am.getApplicationAttemptId());
+    Assert.assertEquals("Off-switch delay used up by one heartbeat", 2,
+        attempt.getLiveContainers().size());
+    for (SchedulerRequestKey key : attempt.getSchedulerKeys()) {
+      if (attempt.getTotalRequiredResources(key) > 0) {
+        Assert.assertEquals(1, attempt.getSchedulingOpportunities(key));
+      }
+    }
+    rm.stop();
+  }
+
   @Test(timeout = 300000)
   public void testRecoverRequestAfterPreemption() throws Exception {
     Configuration conf = new Configuration();
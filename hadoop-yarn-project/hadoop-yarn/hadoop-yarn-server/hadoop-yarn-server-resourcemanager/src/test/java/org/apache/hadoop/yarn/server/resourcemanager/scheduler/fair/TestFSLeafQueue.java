@@ -18,6 +18,7 @@
 
 package org.apache.hadoop.yarn.server.resourcemanager.scheduler.fair;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -42,6 +43,7 @@
 import org.apache.hadoop.yarn.server.resourcemanager.MockNodes;
 import org.apache.hadoop.yarn.server.resourcemanager.MockRM;
 import org.apache.hadoop.yarn.server.resourcemanager.RMContext;
+import org.apache.hadoop.yarn.server.resourcemanager.resource.ResourceWeights;
 import org.apache.hadoop.yarn.server.resourcemanager.rmnode.RMNode;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.ResourceScheduler;
 import org.apache.hadoop.yarn.server.resourcemanager.scheduler.event.NodeAddedSchedulerEvent;
@@ -100,6 +102,38 @@ public void testUpdateDemand() {
         Resources.equals(schedulable.getDemand(), maxResource));
   }
 
+  @Test
+  public void testSortedRunnableAppsFollowUsage() {
+    resourceManager = new MockRM(conf);
+    resourceManager.start();
+    scheduler = (FairScheduler) resourceManager.getResourceScheduler();
+
+    FSLeafQueue queue = new FSLeafQueue("root.queue1", scheduler, null);
+    queue.init();
+    Resource[] usage = new Resource[4];
+    FSAppAttempt[] apps = new FSAppAttempt[usage.length];
+    for (int i = 0; i < apps.length; i++) {
+      usage[i] = Resources.createResource((i + 1) * 1024);
+      apps[i] = mock(FSAppAttempt.class);
+      Mockito.when(apps[i].getName()).thenReturn("app" + i);
+      Mockito.when(apps[i].getResourceUsage()).thenReturn(usage[i]);
+      Mockito.when(apps[i].getDemand()).thenReturn(Resources.none());
+      Mockito.when(apps[i].getMinShare()).thenReturn(Resources.none());
+      Mockito.when(apps[i].getWeights()).thenReturn(new ResourceWeights(1));
+      queue.addAppSchedulable(apps[i]);
+    }
+    assertArrayEquals(new FSAppAttempt[] {apps[0], apps[1], apps[2], apps[3]},
+        queue.getSortedRunnableApps());
+
+    // the first app overtakes two others, the last one falls behind all
+    usage[0].setMemorySize(3584);
+    usage[3].setMemorySize(512);
+    assertArrayEquals(new FSAppAttempt[] {apps[3], apps[1], apps[2], apps[0]},
+        queue.getSortedRunnableApps());
+    assertArrayEquals(new FSAppAttempt[] {apps[3], apps[1], apps[2], apps[0]},
+        queue.getSortedRunnableApps());
+  }
+
   @Test (timeout = 5000)
   public void test() throws Exception {
     conf.set(FairSchedulerConfiguration.ALLOCATION_FILE, ALLOC_FILE);
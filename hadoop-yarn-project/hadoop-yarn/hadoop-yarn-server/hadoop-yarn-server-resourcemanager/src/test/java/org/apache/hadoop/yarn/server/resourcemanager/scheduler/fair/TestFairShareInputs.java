@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.hadoop.yarn.server.resourcemanager.scheduler.fair;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.yarn.api.records.Resource;
+import org.apache.hadoop.yarn.server.resourcemanager.resource.ResourceType;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.fair.policies.DominantResourceFairnessPolicy;
+import org.apache.hadoop.yarn.server.resourcemanager.scheduler.fair.policies.FairSharePolicy;
+import org.apache.hadoop.yarn.util.resource.Resources;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestFairShareInputs {
+  private FairShareInputs inputs;
+  private List<FakeSchedulable> scheds;
+  private SchedulingPolicy policy;
+  private Resource share;
+
+  @Before
+  public void setUp() {
+    inputs = new FairShareInputs();
+    scheds = new ArrayList<FakeSchedulable>();
+    scheds.add(new FakeSchedulable(10));
+    scheds.add(new FakeSchedulable(20));
+    policy = SchedulingPolicy.getInstance(FairSharePolicy.class);
+    share = Resources.createResource(100, 10);
+    assertTrue(inputs.update(policy, share, scheds));
+  }
+
+  @Test
+  public void testUnchangedInputs() {
+    assertFalse(inputs.update(policy, share, scheds));
+    assertFalse(inputs.update(policy, Resources.clone(share), scheds));
+  }
+
+  @Test
+  public void testChangedShare() {
+    assertTrue(inputs.update(policy, Resources.createResource(200, 10),
+        scheds));
+    assertFalse(inputs.update(policy, Resources.createResource(200, 10),
+        scheds));
+  }
+
+  @Test
+  public void testChangedPolicy() {
+    assertTrue(inputs.update(
+        SchedulingPolicy.getInstance(DominantResourceFairnessPolicy.class),
+        share, scheds));
+  }
+
+  @Test
+  public void testChangedSchedulables() {
+    scheds.add(new FakeSchedulable());
+    assertTrue(inputs.update(policy, share, scheds));
+    assertFalse(inputs.update(policy, share, scheds));
+    scheds.remove(0);
+    assertTrue(inputs.update(policy, share, scheds));
+  }
+
+  @Test
+  public void testChangedWeight() {
+    scheds.get(1).getWeights().setWeight(ResourceType.MEMORY, 2.0f);
+    assertTrue(inputs.update(policy, share, scheds));
+    assertFalse(inputs.update(policy, share, scheds));
+  }
+}
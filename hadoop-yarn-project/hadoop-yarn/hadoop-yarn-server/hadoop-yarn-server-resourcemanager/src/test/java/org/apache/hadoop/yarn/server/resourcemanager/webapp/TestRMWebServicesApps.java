@@ -602,6 +602,43 @@ public void testAppsQueryLimit() throws JSONException, Exception {
     rm.stop();
   }
 
+  @Test
+  public void testAppsQueryOffset() throws JSONException, Exception {
+    rm.start();
+    rm.registerNode("127.0.0.1:1234", 2048);
+    rm.submitApp(CONTAINER_MB);
+    rm.submitApp(CONTAINER_MB);
+    RMApp app3 = rm.submitApp(CONTAINER_MB);
+    WebResource r = resource();
+    ClientResponse response = r.path("ws").path("v1").path("cluster")
+        .path("apps").queryParam("limit", "2").queryParam("offset", "2")
+        .accept(MediaType.APPLICATION_JSON).get(ClientResponse.class);
+    assertEquals(MediaType.APPLICATION_JSON_TYPE, response.getType());
+    JSONObject json = response.getEntity(JSONObject.class);
+    assertEquals("incorrect number of elements", 1, json.length());
+    JSONObject apps = json.getJSONObject("apps");
+    assertEquals("incorrect number of elements", 1, apps.length());
+    JSONArray array = apps.getJSONArray("app");
+    assertEquals("incorrect number of elements", 1, array.length());
+    assertEquals("app on the last page is not the last app",
+        app3.getApplicationId().toString(),
+        array.getJSONObject(0).getString("id"));
+    rm.stop();
+  }
+
+  @Test
+  public void testAppsQueryOffsetInvalid() throws JSONException, Exception {
+    rm.start();
+    rm.registerNode("127.0.0.1:1234", 2048);
+    rm.submitApp(CONTAINER_MB);
+    WebResource r = resource();
+    ClientResponse response = r.path("ws").path("v1").path("cluster")
+        .path("apps").queryParam("offset", "-1")
+        .accept(MediaType.APPLICATION_JSON).get(ClientResponse.class);
+    assertResponseStatusCode(Status.BAD_REQUEST, response.getStatusInfo());
+    rm.stop();
+  }
+
   @Test
   public void testAppsQueryStartBegin() throws JSONException, Exception {
     rm.start();